@@ -0,0 +1,550 @@
+/*
+ * JaamSim Discrete Event Simulation
+ * Copyright (C) 2015 Ausenco Engineering Canada Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ */
+package com.jaamsim.BasicObjects;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import com.jaamsim.Graphics.DisplayEntity;
+import com.jaamsim.Graphics.PolylineInfo;
+import com.jaamsim.Thresholds.Threshold;
+import com.jaamsim.basicsim.EntityTarget;
+import com.jaamsim.basicsim.Simulation;
+import com.jaamsim.events.EventHandle;
+import com.jaamsim.events.EventManager;
+import com.jaamsim.events.ProcessTarget;
+import com.jaamsim.input.ColourInput;
+import com.jaamsim.input.EntityListInput;
+import com.jaamsim.input.Input;
+import com.jaamsim.input.InputErrorException;
+import com.jaamsim.input.Keyword;
+import com.jaamsim.input.Output;
+import com.jaamsim.input.ValueInput;
+import com.jaamsim.math.Vec3d;
+import com.jaamsim.units.DimensionlessUnit;
+import com.jaamsim.units.DistanceUnit;
+import com.jaamsim.units.TimeUnit;
+
+/**
+ * Moves one or more Entities along a path at a constant speed, accumulating them at the
+ * discharge end while the next component is blocked.
+ * <p>
+ * The conveyor stops when any of its operating thresholds are closed. Entities reaching
+ * the discharge end are held while any of the release thresholds are closed, and the
+ * following entities queue up behind them at the specified spacing. Entities wait in the
+ * WaitQueue until the previous entity has moved by the spacing from the start of the
+ * conveyor, so a full conveyor blocks the entities upstream. Entity positions are
+ * calculated from the times at which they entered the conveyor and the total time the
+ * conveyor has been running, so that the only events required are for entities reaching
+ * the discharge end and for the start of the conveyor becoming clear.
+ */
+public class AccumulatingConveyor extends LinkedService {
+
+	private static final int STATE_BLOCKED = getStateIndex("Blocked");
+
+	@Keyword(description = "The travel time for the conveyor when it is not blocked.",
+	         exampleList = {"10.0 s"})
+	private final ValueInput travelTimeInput;
+
+	@Keyword(description = "The minimum distance between the entities on the conveyor.",
+	         exampleList = {"1.0 m"})
+	private final ValueInput spacingInput;
+
+	@Keyword(description = "A list of thresholds that must be satisified for an entity to leave the "
+			+ "conveyor. Entities are accumulated at the discharge end while any threshold is closed.",
+	         exampleList = {"ExpressionThreshold1 SignalThreshold1"})
+	private final EntityListInput<Threshold> releaseThresholdList;
+
+	@Keyword(description = "The width of the Arrow line segments in pixels.",
+	         exampleList = {"1"})
+	private final ValueInput widthInput;
+
+	@Keyword(description = "The colour of the arrow, defined using a colour keyword or RGB values.",
+	         exampleList = {"red"})
+	private final ColourInput colorInput;
+
+	// Entities being conveyed and their reference times, held in ring buffers in order of entry.
+	// The reference time is the conveyor running time at which the entity was, or would have been,
+	// at the start of the conveyor if it had moved freely since then.
+	private DisplayEntity[] entities;
+	private double[] refTimes;
+	private int head;  // index of the first entity to enter the conveyor
+	private int count;  // number of entities on the conveyor
+
+	private double runTime;  // total time the conveyor has been running up to lastUpdateTime
+	private double lastUpdateTime;  // simulation time at which runTime was last updated
+	private boolean running;  // true if the conveyor is moving
+
+	private boolean blocked;  // true if the first entity is being held at the discharge end
+	private double blockedStartTime;  // simulation time at which the present blockage started
+	private double blockedTime;  // total time the conveyor was blocked before the present blockage
+
+	private int numReleaseClosed;  // number of entries in ReleaseThresholdList that are closed
+	private boolean evaluateReleaseThresholds;  // TRUE if the list contains an ExpressionThreshold
+
+	private double totalLength;  // Graphical length of the conveyor
+	private double[] cumLengths;  // Total length to the end of each segment
+
+	private final EventHandle arrivalHandle = new EventHandle();
+	private final EventHandle entranceHandle = new EventHandle();
+	private final ProcessTarget loadTarget = new LoadTarget(this);
+
+	{
+		match.setHidden(true);
+		processPosition.setHidden(true);
+
+		travelTimeInput = new ValueInput("TravelTime", "Key Inputs", 0.0d);
+		travelTimeInput.setValidRange(0.0, Double.POSITIVE_INFINITY);
+		travelTimeInput.setUnitType(TimeUnit.class);
+		this.addInput(travelTimeInput);
+
+		spacingInput = new ValueInput("Spacing", "Key Inputs", 0.0d);
+		spacingInput.setValidRange(0.0, Double.POSITIVE_INFINITY);
+		spacingInput.setUnitType(DistanceUnit.class);
+		this.addInput(spacingInput);
+
+		releaseThresholdList = new EntityListInput<>(Threshold.class, "ReleaseThresholdList", "Key Inputs", new ArrayList<Threshold>());
+		this.addInput(releaseThresholdList);
+
+		widthInput = new ValueInput("Width", "Key Inputs", 1.0d);
+		widthInput.setUnitType(DimensionlessUnit.class);
+		widthInput.setValidRange(1.0d, Double.POSITIVE_INFINITY);
+		this.addInput(widthInput);
+
+		colorInput = new ColourInput("Color", "Key Inputs", ColourInput.BLACK);
+		this.addInput(colorInput);
+		this.addSynonym(colorInput, "Colour");
+	}
+
+	public AccumulatingConveyor() {
+		entities = new DisplayEntity[16];
+		refTimes = new double[16];
+		cumLengths = new double[0];
+	}
+
+	@Override
+	public void validate() {
+		super.validate();
+
+		if (travelTimeInput.getValue() <= 0.0d)
+			throw new InputErrorException("The TravelTime keyword must be greater than zero.");
+	}
+
+	@Override
+	public void earlyInit() {
+		super.earlyInit();
+
+		Arrays.fill(entities, null);
+		head = 0;
+		count = 0;
+
+		runTime = 0.0d;
+		lastUpdateTime = 0.0d;
+		running = true;
+
+		blocked = false;
+		blockedStartTime = 0.0d;
+		blockedTime = 0.0d;
+
+		numReleaseClosed = 0;
+		evaluateReleaseThresholds = hasExpressionThreshold(releaseThresholdList.getValue());
+
+	    // Initialize the segment length data
+		ArrayList<Vec3d> points = pointsInput.getValue();
+		cumLengths = new double[points.size() - 1];
+		totalLength = 0.0;
+		for (int i = 1; i < points.size(); i++) {
+			// Get length between points
+			Vec3d vec = new Vec3d();
+			vec.sub3(points.get(i), points.get(i-1));
+			totalLength += vec.mag3();
+			cumLengths[i-1] = totalLength;
+		}
+	}
+
+	/**
+	 * Returns the ring buffer index for the i-th entity on the conveyor, counting
+	 * from the first entity to enter.
+	 */
+	private int index(int i) {
+		return (head + i) & (entities.length - 1);
+	}
+
+	/**
+	 * Doubles the size of the ring buffers, keeping the size a power of two.
+	 */
+	private void grow() {
+		int cap = entities.length * 2;
+		DisplayEntity[] ents = new DisplayEntity[cap];
+		double[] times = new double[cap];
+		for (int i = 0; i < count; i++) {
+			ents[i] = entities[index(i)];
+			times[i] = refTimes[index(i)];
+		}
+		entities = ents;
+		refTimes = times;
+		head = 0;
+	}
+
+	/**
+	 * Returns the total time the conveyor has been running at the given simulation time.
+	 */
+	private double getRunTime(double simTime) {
+		if (!running)
+			return runTime;
+		return runTime + simTime - lastUpdateTime;
+	}
+
+	/**
+	 * Returns the running time required to move an entity by the minimum spacing.
+	 */
+	private double getSpacingTime() {
+		if (totalLength == 0.0d)
+			return 0.0d;
+		return spacingInput.getValue() / totalLength * travelTimeInput.getValue();
+	}
+
+	/**
+	 * Returns the number of entities queued at the discharge end of the conveyor.
+	 * @param rt - running time for the conveyor
+	 */
+	private int getAccumulatedCount(double rt) {
+		if (!blocked)
+			return 0;
+
+		// The accumulated entities are those that have caught up with the queue in front of them
+		double travelTime = travelTimeInput.getValue();
+		double gap = this.getSpacingTime();
+		int n = 1;
+		while (n < count && rt - refTimes[index(n)] >= travelTime - n*gap)
+			n++;
+		return n;
+	}
+
+	public boolean isReleaseOpen() {
+		if (!evaluateReleaseThresholds)
+			return numReleaseClosed == 0;
+
+		for (Threshold thr : releaseThresholdList.getValue()) {
+			if (!thr.isOpen())
+				return false;
+		}
+		return true;
+	}
+
+	@Override
+	public ArrayList<Threshold> getThresholds() {
+		ArrayList<Threshold> ret = new ArrayList<>(operatingThresholdList.getValue());
+		ret.addAll(releaseThresholdList.getValue());
+		return ret;
+	}
+
+	@Override
+	public void updateForThreshold(Threshold thr, boolean open) {
+		super.updateForThreshold(thr, open);
+		numReleaseClosed += getClosedChange(releaseThresholdList.getValue(), thr, open);
+	}
+
+	/**
+	 * Returns the running time at which the last entity on the conveyor will have moved
+	 * by the minimum spacing, so that the next entity can enter. Returns infinity if the
+	 * conveyor is full: the entities are accumulated from the discharge end back to the
+	 * start of the conveyor.
+	 */
+	private double getEntranceTime() {
+		if (count == 0)
+			return 0.0d;
+
+		// The last entity is stopped before it leaves the start of the conveyor
+		double spacing = spacingInput.getValue();
+		if (blocked && count * spacing > totalLength * (1.0d + 1.0e-12d))
+			return Double.POSITIVE_INFINITY;
+
+		return refTimes[index(count - 1)] + this.getSpacingTime();
+	}
+
+	private static class LoadTarget extends EntityTarget<AccumulatingConveyor> {
+		LoadTarget(AccumulatingConveyor ent) {
+			super(ent, "loadEntities");
+		}
+
+		@Override
+		public void process() {
+			ent.loadEntities();
+		}
+	}
+
+	/**
+	 * Moves entities from the WaitQueue onto the conveyor while there is room at the
+	 * start of the conveyor. If there will be room later, then an event is scheduled for
+	 * that time.
+	 */
+	void loadEntities() {
+		EventManager.killEvent(entranceHandle);
+		if (!running)
+			return;
+
+		double tol = 0.5d * Simulation.getTickLength();
+		double simTime = this.getSimTime();
+		double rt = this.getRunTime(simTime);
+		while (waitQueue.getValue().getCount() > 0) {
+
+			// Wait until the last entity has moved by the minimum spacing
+			double entranceTime = this.getEntranceTime();
+			if (entranceTime > rt + tol) {
+				if (entranceTime < Double.POSITIVE_INFINITY)
+					this.scheduleProcess(entranceTime - rt, 5, loadTarget, entranceHandle);
+				return;
+			}
+
+			// Add the entity to the conveyor
+			DisplayEntity ent = this.getNextEntityForMatch(null);
+			if (count == entities.length)
+				this.grow();
+			int ind = index(count);
+			entities[ind] = ent;
+			refTimes[ind] = Math.max(rt, entranceTime);
+			count++;
+
+			// If necessary, wake up the conveyor
+			if (!this.isBusy()) {
+				this.setBusy(true);
+				this.setPresentState();
+				this.startAction();
+			}
+		}
+	}
+
+	@Override
+	public void queueChanged() {
+		if (!entranceHandle.isScheduled())
+			this.loadEntities();
+	}
+
+	@Override
+	public void startAction() {
+		if (count == 0 || blocked || !running)
+			return;
+
+		// Schedule the next entity to reach the end of the conveyor
+		double dt = refTimes[head] + travelTimeInput.getValue() - this.getRunTime(this.getSimTime());
+		dt = Math.max(dt, 0);  // Round-off to the nearest tick can cause a negative value
+		this.scheduleProcess(dt, 5, endActionTarget, arrivalHandle);
+	}
+
+	@Override
+	public void endAction() {
+
+		// Hold the entity at the end of the conveyor if it cannot be released
+		if (!this.isReleaseOpen()) {
+			blocked = true;
+			blockedStartTime = this.getSimTime();
+			this.setPresentState();
+			this.loadEntities();
+			return;
+		}
+
+		this.releaseEntity();
+	}
+
+	/**
+	 * Sends the first entity on the conveyor to the next component.
+	 */
+	private void releaseEntity() {
+
+		// Remove the entity from the conveyor
+		DisplayEntity ent = entities[head];
+		entities[head] = null;
+		head = index(1);
+		count--;
+
+		// Send the entity to the next component
+		this.sendToNextComponent(ent);
+
+		// Stop if the conveyor is empty
+		if (count == 0) {
+			this.setBusy(false);
+			this.setPresentState();
+			this.loadEntities();
+			return;
+		}
+
+		// Schedule the next entity to reach the end of the conveyor
+		this.startAction();
+	}
+
+	@Override
+	public void thresholdChanged() {
+		double simTime = this.getSimTime();
+
+		// Start or stop the conveyor
+		boolean open = this.isOpen();
+		if (open != running) {
+			runTime = this.getRunTime(simTime);
+			lastUpdateTime = simTime;
+			running = open;
+			EventManager.killEvent(arrivalHandle);
+			this.startAction();
+		}
+
+		// Restart the accumulated entities
+		if (blocked && running && this.isReleaseOpen()) {
+			double rt = this.getRunTime(simTime);
+			int n = this.getAccumulatedCount(rt);
+
+			// Each accumulated entity moves off from its present position
+			double travelTime = travelTimeInput.getValue();
+			double gap = this.getSpacingTime();
+			for (int i = 0; i < n; i++)
+				refTimes[index(i)] = rt - travelTime + i*gap;
+
+			blockedTime += simTime - blockedStartTime;
+			blocked = false;
+			this.releaseEntity();
+		}
+
+		this.setPresentState();
+		this.loadEntities();
+	}
+
+	@Override
+	public void setPresentState() {
+		if (blocked) {
+			this.setPresentState(STATE_BLOCKED);
+			return;
+		}
+		super.setPresentState();
+	}
+
+	@Override
+	public void updateForInput(Input<?> in) {
+		super.updateForInput(in);
+
+		// The closed thresholds are not counted for a list that is changed during a run
+		if (in == releaseThresholdList) {
+			evaluateReleaseThresholds = true;
+			return;
+		}
+
+		// If Points were input, then use them to set the start and end coordinates
+		if (in == pointsInput || in == colorInput || in == widthInput) {
+			synchronized(screenPointLock) {
+				cachedPointInfo = null;
+			}
+			return;
+		}
+	}
+
+	/**
+	 * Return the position coordinates for a given distance along the conveyor.
+	 * @param dist = distance along the conveyor.
+	 * @param seg = index of the segment containing the distance.
+	 * @param vec = returns the position coordinates
+	 */
+	private void getPositionForDistance(double dist, int seg, Vec3d vec) {
+		ArrayList<Vec3d> points = pointsInput.getValue();
+
+		// Interpolate between the start and end of the segment
+		double segStart = (seg == 0) ? 0.0d : cumLengths[seg-1];
+		double frac = (dist - segStart) / (cumLengths[seg] - segStart);
+		if (frac < 0.0)  frac = 0.0;
+		else if (frac > 1.0)  frac = 1.0;
+
+		vec.interpolate3(points.get(seg), points.get(seg+1), frac);
+	}
+
+	@Override
+	public void updateGraphics(double simTime) {
+
+		// Take a consistent view of the ring buffers in case they are replaced by the model
+		DisplayEntity[] ents = entities;
+		double[] times = refTimes;
+		int first = head;
+		int n = count;
+		int mask = ents.length - 1;
+		if (n == 0 || cumLengths.length == 0)
+			return;
+
+		// Loop through the entities from the first to enter the conveyor to the last, so that
+		// the distance travelled decreases and the present segment only has to move backward
+		double rt = this.getRunTime(simTime);
+		double factor = totalLength / travelTimeInput.getValue();
+		double spacing = spacingInput.getValue();
+		double maxDist = totalLength;
+		int seg = cumLengths.length - 1;
+		Vec3d localPos = new Vec3d();
+		for (int i = 0; i < n; i++) {
+			int ind = (first + i) & mask;
+			DisplayEntity each = ents[ind];
+			if (each == null)
+				continue;
+
+			// Calculate the distance travelled by this entity, which cannot be closer than
+			// the minimum spacing to the entity in front
+			double dist = Math.min((rt - times[ind]) * factor, maxDist);
+			dist = Math.max(dist, 0.0d);
+			maxDist = dist - spacing;
+
+			// Find the present segment
+			while (seg > 0 && dist <= cumLengths[seg-1])
+				seg--;
+
+			// Set the position for the entity
+			this.getPositionForDistance(dist, seg, localPos);
+			each.setGlobalPosition(this.getGlobalPosition(localPos));
+		}
+	}
+
+	@Override
+	public PolylineInfo[] getScreenPoints() {
+		synchronized(screenPointLock) {
+			if (cachedPointInfo == null) {
+				int w = Math.max(1, widthInput.getValue().intValue());
+				cachedPointInfo = new PolylineInfo[1];
+				cachedPointInfo[0] = new PolylineInfo(pointsInput.getValue(), colorInput.getValue(), w);
+			}
+			return cachedPointInfo;
+		}
+	}
+
+	// ******************************************************************************************************
+	// OUTPUTS
+	// ******************************************************************************************************
+
+	@Output(name = "NumberInProgress",
+	 description = "The number of entities on the conveyor.",
+	    unitType = DimensionlessUnit.class)
+	public Double getNumberInProgress(double simTime) {
+		return (double)count;
+	}
+
+	@Output(name = "AccumulationLength",
+	 description = "The length of the queue of entities held at the discharge end of the conveyor.",
+	    unitType = DistanceUnit.class)
+	public Double getAccumulationLength(double simTime) {
+		return this.getAccumulatedCount(this.getRunTime(simTime)) * spacingInput.getValue();
+	}
+
+	@Output(name = "BlockedTime",
+	 description = "The total time that entities were held at the discharge end of the conveyor.",
+	    unitType = TimeUnit.class,
+	  reportable = true)
+	public Double getBlockedTime(double simTime) {
+		if (blocked)
+			return blockedTime + simTime - blockedStartTime;
+		return blockedTime;
+	}
+
+}
@@ -55,6 +55,7 @@ public class Assemble extends LinkedService {
 
 	private DisplayEntity assembledEntity;	// the generated entity representing the assembled part
 	private int numberGenerated = 0;  // Number of entities generated so far
+	private final MatchIndex matchIndex = new MatchIndex();  // queues and match values with sufficient entities
 
 	{
 		waitQueue.setHidden(true);
@@ -91,6 +92,12 @@ public class Assemble extends LinkedService {
 
 		assembledEntity = null;
 		numberGenerated = 0;
+		matchIndex.init(waitQueueList.getValue(), numberRequired.getValue(), matchRequired.getValue());
+	}
+
+	@Override
+	MatchIndex getMatchIndex() {
+		return matchIndex;
 	}
 
 	@Override
@@ -119,7 +126,7 @@ public class Assemble extends LinkedService {
 		// Do the queues have enough entities?
 		ArrayList<Queue> queueList = waitQueueList.getValue();
 		if (matchRequired.getValue()) {
-			Integer m = Queue.selectMatchValue(queueList, numberRequired.getValue());
+			Integer m = matchIndex.getReadyMatch();
 			if (m == null) {
 				this.setBusy(false);
 				this.setPresentState();
@@ -128,7 +135,7 @@ public class Assemble extends LinkedService {
 			this.setMatchValue(m);
 		}
 		else {
-			if (!Queue.sufficientEntities(queueList, numberRequired.getValue(), null)) {
+			if (!matchIndex.isSizeReady()) {
 				this.setBusy(false);
 				this.setPresentState();
 				return;
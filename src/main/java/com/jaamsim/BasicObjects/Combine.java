@@ -34,6 +34,7 @@ public class Combine extends LinkedService {
 	private final EntityListInput<Queue> waitQueueList;
 
 	private DisplayEntity processedEntity;	// the DisplayEntity being processed
+	private final MatchIndex matchIndex = new MatchIndex();  // match values with an entity in every queue
 
 	{
 		waitQueue.setHidden(true);
@@ -56,6 +57,12 @@ public class Combine extends LinkedService {
 	public void earlyInit() {
 		super.earlyInit();
 		processedEntity = null;
+		matchIndex.init(waitQueueList.getValue(), null, true);
+	}
+
+	@Override
+	MatchIndex getMatchIndex() {
+		return matchIndex;
 	}
 
 	@Override
@@ -80,7 +87,7 @@ public class Combine extends LinkedService {
 
 		// Do the queues have enough entities?
 		ArrayList<Queue> queueList = waitQueueList.getValue();
-		Integer m = Queue.selectMatchValue(queueList, null);
+		Integer m = matchIndex.getReadyMatch();
 		if (m == null) {
 			this.setBusy(false);
 			this.setPresentState();
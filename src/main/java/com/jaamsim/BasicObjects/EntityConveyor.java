@@ -15,6 +15,7 @@
 package com.jaamsim.BasicObjects;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 
 import com.jaamsim.Graphics.DisplayEntity;
 import com.jaamsim.Graphics.PolylineInfo;
@@ -43,11 +44,15 @@ public class EntityConveyor extends LinkedService {
 	         exampleList = {"red"})
 	private final ColourInput colorInput;
 
-	private final ArrayList<DisplayEntity> entityList;  // List of the entities being conveyed
-	private final ArrayList<Double> startTimeList;  // List of times at which the entities entered the conveyor
+	// Entities being conveyed and the times at which they entered the conveyor, held in ring
+	// buffers in order of entry so that entities can be added and removed in constant time
+	private DisplayEntity[] entities;
+	private double[] startTimes;
+	private int head;  // index of the first entity to enter the conveyor
+	private int count;  // number of entities on the conveyor
+
 	private double totalLength;  // Graphical length of the conveyor
-	private final ArrayList<Double> lengthList;  // Length of each segment of the conveyor
-	private final ArrayList<Double> cumLengthList;  // Total length to the end of each segment
+	private double[] cumLengths;  // Total length to the end of each segment
 
 	{
 		operatingThresholdList.setHidden(true);
@@ -71,33 +76,54 @@ public class EntityConveyor extends LinkedService {
 	}
 
 	public EntityConveyor() {
-		entityList = new ArrayList<>();
-		startTimeList = new ArrayList<>();
-		lengthList = new ArrayList<>();
-		cumLengthList = new ArrayList<>();
+		entities = new DisplayEntity[16];
+		startTimes = new double[16];
+		cumLengths = new double[0];
 	}
 
 	@Override
 	public void earlyInit() {
 		super.earlyInit();
 
-		entityList.clear();
-		startTimeList.clear();
+		Arrays.fill(entities, null);
+		head = 0;
+		count = 0;
 
 	    // Initialize the segment length data
-		lengthList.clear();
-		cumLengthList.clear();
+		ArrayList<Vec3d> points = pointsInput.getValue();
+		cumLengths = new double[points.size() - 1];
 		totalLength = 0.0;
-		for (int i = 1; i < pointsInput.getValue().size(); i++) {
+		for (int i = 1; i < points.size(); i++) {
 			// Get length between points
 			Vec3d vec = new Vec3d();
-			vec.sub3(pointsInput.getValue().get(i), pointsInput.getValue().get(i-1));
-			double length = vec.mag3();
+			vec.sub3(points.get(i), points.get(i-1));
+			totalLength += vec.mag3();
+			cumLengths[i-1] = totalLength;
+		}
+	}
+
+	/**
+	 * Returns the ring buffer index for the i-th entity on the conveyor, counting
+	 * from the first entity to enter.
+	 */
+	private int index(int i) {
+		return (head + i) & (entities.length - 1);
+	}
 
-			lengthList.add(length);
-			totalLength += length;
-			cumLengthList.add(totalLength);
+	/**
+	 * Doubles the capacity of the ring buffers, keeping the capacity a power of two.
+	 */
+	private void grow() {
+		int cap = entities.length * 2;
+		DisplayEntity[] ents = new DisplayEntity[cap];
+		double[] times = new double[cap];
+		for (int i = 0; i < count; i++) {
+			ents[i] = entities[index(i)];
+			times[i] = startTimes[index(i)];
 		}
+		entities = ents;
+		startTimes = times;
+		head = 0;
 	}
 
 	@Override
@@ -105,8 +131,12 @@ public class EntityConveyor extends LinkedService {
 		super.addEntity(ent);
 
 		// Add the entity to the conveyor
-		entityList.add(ent);
-		startTimeList.add(this.getSimTime());
+		if (count == entities.length)
+			this.grow();
+		int ind = index(count);
+		entities[ind] = ent;
+		startTimes[ind] = this.getSimTime();
+		count++;
 
 		// If necessary, wake up the conveyor
 		if (!this.isBusy()) {
@@ -120,7 +150,7 @@ public class EntityConveyor extends LinkedService {
 	public void startAction() {
 
 		// Schedule the next entity to reach the end of the conveyor
-		double dt = startTimeList.get(0) + travelTimeInput.getValue() - this.getSimTime();
+		double dt = startTimes[head] + travelTimeInput.getValue() - this.getSimTime();
 		dt = Math.max(dt, 0);  // Round-off to the nearest tick can cause a negative value
 		this.scheduleProcess(dt, 5, endActionTarget);
 	}
@@ -129,14 +159,16 @@ public class EntityConveyor extends LinkedService {
 	public void endAction() {
 
 		// Remove the entity from the conveyor
-		DisplayEntity ent = entityList.remove(0);
-		startTimeList.remove(0);
+		DisplayEntity ent = entities[head];
+		entities[head] = null;
+		head = index(1);
+		count--;
 
 		// Send the entity to the next component
 		this.sendToNextComponent(ent);
 
 		// Stop if the conveyor is empty
-		if (entityList.isEmpty()) {
+		if (count == 0) {
 			this.setBusy(false);
 			this.setPresentState();
 			return;
@@ -149,33 +181,29 @@ public class EntityConveyor extends LinkedService {
 	/**
 	 * Return the position coordinates for a given distance along the conveyor.
 	 * @param dist = distance along the conveyor.
-	 * @return position coordinates
+	 * @param seg = index of the segment containing the distance.
+	 * @param vec = returns the position coordinates
 	 */
-	private Vec3d getPositionForDistance(double dist) {
-
-		// Find the present segment
-		int seg = 0;
-		for (int i = 0; i < cumLengthList.size(); i++) {
-			if (dist <= cumLengthList.get(i)) {
-				seg = i;
-				break;
-			}
-		}
+	private void getPositionForDistance(double dist, int seg, Vec3d vec) {
+		ArrayList<Vec3d> points = pointsInput.getValue();
 
 		// Interpolate between the start and end of the segment
-		double frac = 0.0;
-		if (seg == 0) {
-			frac = dist / lengthList.get(0);
-		}
-		else {
-			frac = ( dist - cumLengthList.get(seg-1) ) / lengthList.get(seg);
-		}
+		double segStart = (seg == 0) ? 0.0d : cumLengths[seg-1];
+		double frac = (dist - segStart) / (cumLengths[seg] - segStart);
 		if (frac < 0.0)  frac = 0.0;
 		else if (frac > 1.0)  frac = 1.0;
 
-		Vec3d vec = new Vec3d();
-		vec.interpolate3(pointsInput.getValue().get(seg), pointsInput.getValue().get(seg+1), frac);
-		return vec;
+		vec.interpolate3(points.get(seg), points.get(seg+1), frac);
+	}
+
+	/**
+	 * Returns the index of the segment containing the given distance along the conveyor.
+	 */
+	private int getSegmentForDistance(double dist) {
+		int ind = Arrays.binarySearch(cumLengths, dist);
+		if (ind < 0)
+			ind = -ind - 1;
+		return Math.min(ind, cumLengths.length - 1);
 	}
 
 	@Override
@@ -193,16 +221,37 @@ public class EntityConveyor extends LinkedService {
 
 	@Override
 	public void updateGraphics(double simTime) {
+		// Take a consistent view of the ring buffers in case they are replaced by the model
+		DisplayEntity[] ents = entities;
+		double[] times = startTimes;
+		int first = head;
+		int n = count;
+		int mask = ents.length - 1;
+		if (n == 0 || cumLengths.length == 0)
+			return;
 
-		// Loop through the entities on the conveyor
-		for (int i = 0; i < entityList.size(); i++) {
-			DisplayEntity each = entityList.get(i);
+		// Loop through the entities from the last to enter the conveyor to the first, so that
+		// the distance travelled increases and the present segment only has to move forward
+		double factor = totalLength / travelTimeInput.getValue();
+		int seg = -1;
+		Vec3d localPos = new Vec3d();
+		for (int i = n - 1; i >= 0; i--) {
+			int ind = (first + i) & mask;
+			DisplayEntity each = ents[ind];
+			if (each == null)
+				continue;
 
 			// Calculate the distance travelled by this entity
-			double dist = (simTime - startTimeList.get(i)) / travelTimeInput.getValue() * totalLength;
+			double dist = (simTime - times[ind]) * factor;
+
+			// Find the present segment, using a binary search for the first entity
+			if (seg == -1)
+				seg = this.getSegmentForDistance(dist);
+			while (seg < cumLengths.length - 1 && dist > cumLengths[seg])
+				seg++;
 
 			// Set the position for the entity
-			Vec3d localPos = this.getPositionForDistance(dist);
+			this.getPositionForDistance(dist, seg, localPos);
 			each.setGlobalPosition(this.getGlobalPosition(localPos));
 		}
 	}
@@ -15,13 +15,20 @@
 package com.jaamsim.BasicObjects;
 
 import com.jaamsim.Graphics.DisplayEntity;
-import com.jaamsim.basicsim.FileEntity;
+import com.jaamsim.basicsim.ColumnFile;
+import com.jaamsim.basicsim.ColumnReportWriter;
+import com.jaamsim.basicsim.LogWriter;
+import com.jaamsim.basicsim.ReportWriter;
+import com.jaamsim.basicsim.Simulation;
+import com.jaamsim.basicsim.TextReportWriter;
 import com.jaamsim.input.InputAgent;
 import com.jaamsim.input.Output;
 import com.jaamsim.units.TimeUnit;
 
 public class EntityLogger extends LinkedComponent {
-	private FileEntity file;
+	private LogWriter file;
+	private ColumnFile columnFile;  // used instead of the text file for binary output
+	private ReportWriter report;
 	private double logTime;
 
 	{
@@ -42,12 +49,25 @@ public class EntityLogger extends LinkedComponent {
 			file.close();
 			file = null;
 		}
+		if (columnFile != null) {
+			columnFile.close();
+			columnFile = null;
+		}
 
 		// Create the report file
 		StringBuilder tmp = new StringBuilder(InputAgent.getReportFileName(InputAgent.getRunName()));
 		tmp.append("-").append(this.getName());
+		if (Simulation.getBinaryOutput()) {
+			tmp.append(".clog");
+			String[] cols = { "SimTime", "Entity", "Output", "UnitType", "Value" };
+			String[] units = { "TimeUnit", "DimensionlessUnit", "DimensionlessUnit", "DimensionlessUnit", "Unit" };
+			columnFile = new ColumnFile(tmp.toString(), cols, units);
+			report = new ColumnReportWriter(columnFile);
+			return;
+		}
 		tmp.append(".log");
-		file = new FileEntity(tmp.toString());
+		file = new LogWriter(tmp.toString());
+		report = new TextReportWriter(file);
 	}
 
 	@Override
@@ -55,17 +75,33 @@ public class EntityLogger extends LinkedComponent {
 		super.addEntity(ent);
 
 		// Log the entity's outputs
-		file.format("%n");
+		// (the values are formatted and written to the file by a background thread)
 		logTime = this.getSimTime();
-		ent.printReport(file, logTime);
-
-		// Empty the output buffer
-		file.flush();
+		if (columnFile != null) {
+			columnFile.setLeadingValue(logTime);
+			ent.printReport(report, logTime);
+			columnFile.clearLeadingValue();
+		}
+		else {
+			file.newLine();
+			ent.printReport(report, logTime);
+		}
 
 		// Send the entity to the next element in the chain
 		this.sendToNextComponent(ent);
 	}
 
+	@Override
+	public void doEnd() {
+		super.doEnd();
+
+		// Empty the output buffer
+		if (file != null)
+			file.flush();
+		if (columnFile != null)
+			columnFile.flush();
+	}
+
 	@Output(name = "LogTime",
 	 description = "The simulation time at which the last entity was logged.",
 	    unitType = TimeUnit.class)
@@ -15,13 +15,16 @@
 package com.jaamsim.BasicObjects;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 
 import com.jaamsim.Graphics.DisplayEntity;
 import com.jaamsim.StringProviders.StringProvListInput;
 import com.jaamsim.StringProviders.StringProvider;
+import com.jaamsim.basicsim.ColumnFile;
 import com.jaamsim.basicsim.EntityTarget;
-import com.jaamsim.basicsim.FileEntity;
+import com.jaamsim.basicsim.LogWriter;
 import com.jaamsim.basicsim.Simulation;
+import com.jaamsim.basicsim.ValueWriter;
 import com.jaamsim.events.ProcessTarget;
 import com.jaamsim.input.BooleanInput;
 import com.jaamsim.input.EntityListInput;
@@ -33,12 +36,15 @@ import com.jaamsim.input.ValueInput;
 import com.jaamsim.states.StateEntity;
 import com.jaamsim.states.StateEntityListener;
 import com.jaamsim.states.StateRecord;
+import com.jaamsim.units.DimensionlessUnit;
 import com.jaamsim.units.TimeUnit;
 import com.jaamsim.units.Unit;
 import com.jaamsim.units.UserSpecifiedUnit;
 
 public class ExpressionLogger extends DisplayEntity implements StateEntityListener {
-	private FileEntity file;
+	private LogWriter file;
+	private ColumnFile columnFile;  // used instead of the text file for binary output
+	private final RowBuffer row = new RowBuffer();
 
 	@Keyword(description = "A list of entities whose states will be traced. "
 			+ "An entry in the log file is made every time one of the entities changes state. "
@@ -132,18 +138,30 @@ public class ExpressionLogger extends DisplayEntity implements StateEntityListen
 			file.close();
 			file = null;
 		}
+		if (columnFile != null) {
+			columnFile.close();
+			columnFile = null;
+		}
+
+		// Create the binary log file
+		if (Simulation.getBinaryOutput()) {
+			this.openColumnFile();
+			return;
+		}
 
 		// Create the report file
 		StringBuilder tmp = new StringBuilder(InputAgent.getReportFileName(InputAgent.getRunName()));
 		tmp.append("-").append(this.getName());
 		tmp.append(".log");
-		file = new FileEntity(tmp.toString());
+		file = new LogWriter(tmp.toString());
 
 		// Write the header line
-		file.format("%n%s", "SimTime");
+		file.newLine();
+		file.put("SimTime");
 
 		for (StateEntity ent : stateTraceList.getValue()) {
-			file.format("\t%s", ent.getName());
+			file.put("\t");
+			file.put(ent.getName());
 		}
 
 		ArrayList<String> toks = new ArrayList<>();
@@ -151,20 +169,23 @@ public class ExpressionLogger extends DisplayEntity implements StateEntityListen
 		for (String str : toks) {
 			if (str.equals("{") || str.equals("}"))
 				continue;
-			file.format("\t%s", str);
+			file.put("\t");
+			file.put(str);
 		}
 
 		// Write the units line
 		String unit = Unit.getDisplayedUnit(TimeUnit.class);
-		file.format("%n%s", unit);
+		file.newLine();
+		file.put(unit);
 
 		for (int i=0; i<stateTraceList.getValue().size(); i++) {
-			file.format("\tState");
+			file.put("\tState");
 		}
 
 		for (int i=0; i<dataSource.getListSize(); i++) {
 			unit = Unit.getDisplayedUnit(dataSource.getUnitType(i));
-			file.format("\t%s", unit);
+			file.put("\t");
+			file.put(unit);
 		}
 
 		// Empty the output buffer
@@ -172,6 +193,36 @@ public class ExpressionLogger extends DisplayEntity implements StateEntityListen
 
 	}
 
+	/**
+	 * Creates the binary log file with a column for the simulation time, for each
+	 * traced entity, and for each data source. The values are logged in SI units.
+	 */
+	private void openColumnFile() {
+		ArrayList<String> names = new ArrayList<>();
+		ArrayList<String> units = new ArrayList<>();
+		names.add("SimTime");
+		units.add(TimeUnit.class.getSimpleName());
+
+		for (StateEntity ent : stateTraceList.getValue()) {
+			names.add(ent.getName());
+			units.add(DimensionlessUnit.class.getSimpleName());
+		}
+
+		for (int i=0; i<dataSource.getListSize(); i++) {
+			names.add(dataSource.getValue().get(i).toString());
+			Class<? extends Unit> ut = dataSource.getUnitType(i);
+			if (ut == null)
+				ut = DimensionlessUnit.class;
+			units.add(ut.getSimpleName());
+		}
+
+		StringBuilder tmp = new StringBuilder(InputAgent.getReportFileName(InputAgent.getRunName()));
+		tmp.append("-").append(this.getName());
+		tmp.append(".clog");
+		columnFile = new ColumnFile(tmp.toString(), names.toArray(new String[names.size()]),
+				units.toArray(new String[units.size()]));
+	}
+
 	@Override
 	public void startUp() {
 		super.startUp();
@@ -223,29 +274,108 @@ public class ExpressionLogger extends DisplayEntity implements StateEntityListen
 		if (simTime < startTime.getValue() || simTime > endTime.getValue())
 			return;
 
+		// Evaluate the expressions before writing anything, so that an error does not
+		// leave a partial row in the log file
+		row.clear();
+		try {
+			for (int i=0; i<dataSource.getListSize(); i++) {
+				double factor = 1.0d;
+				if (columnFile == null)
+					factor = Unit.getDisplayedUnitFactor(dataSource.getUnitType(i));
+				dataSource.getValue().get(i).writeNext(row, simTime, factor);
+			}
+		}
+		catch (Exception e) {
+			error(e.getMessage());
+		}
+
+		// Write the entry to the binary log file
+		if (columnFile != null) {
+			columnFile.put(simTime);
+			for (StateEntity ent : stateTraceList.getValue()) {
+				columnFile.put(ent.getPresentState(simTime));
+			}
+			for (int i=0; i<row.size(); i++) {
+				row.write(i, columnFile);
+			}
+			return;
+		}
+
 		// Write the time for the log entry
+		// (the values are formatted and written to the file by a background thread)
 		double factor = Unit.getDisplayedUnitFactor(TimeUnit.class);
-		file.format("%n%s", simTime/factor);
+		file.newLine();
+		file.put(simTime/factor);
 
 		// Write the state values
 		for (StateEntity ent : stateTraceList.getValue()) {
-			file.format("\t%s", ent.getPresentState(simTime));
+			file.put("\t");
+			file.put(ent.getPresentState(simTime));
 		}
 
 		// Write the expression values
-		try {
-			for (int i=0; i<dataSource.getListSize(); i++) {
-				StringProvider samp = dataSource.getValue().get(i);
-				factor = Unit.getDisplayedUnitFactor(dataSource.getUnitType(i));
-				file.format("\t%s", samp.getNextString(simTime, "%s", factor));
-			}
+		for (int i=0; i<row.size(); i++) {
+			file.put("\t");
+			row.write(i, file);
 		}
-		catch (Exception e) {
-			error(e.getMessage());
+	}
+
+	/**
+	 * The values of the expressions for one entry in the log.
+	 */
+	private static final class RowBuffer implements ValueWriter {
+		private double[] numbers = new double[8];
+		private String[] strings = new String[8];  // null for a number
+		private int size;
+
+		@Override
+		public void put(double val) {
+			this.grow();
+			numbers[size] = val;
+			strings[size] = null;
+			size++;
+		}
+
+		@Override
+		public void put(String str) {
+			this.grow();
+			strings[size] = String.valueOf(str);
+			size++;
+		}
+
+		private void grow() {
+			if (size < numbers.length)
+				return;
+			numbers = Arrays.copyOf(numbers, 2 * size);
+			strings = Arrays.copyOf(strings, 2 * size);
+		}
+
+		void clear() {
+			Arrays.fill(strings, 0, size, null);
+			size = 0;
+		}
+
+		int size() {
+			return size;
 		}
 
+		void write(int i, ValueWriter out) {
+			if (strings[i] == null)
+				out.put(numbers[i]);
+			else
+				out.put(strings[i]);
+		}
+	}
+
+	@Override
+	public void doEnd() {
+		super.doEnd();
+
 		// Empty the output buffer
-		file.flush();
+		if (file != null)
+			file.flush();
+		if (columnFile != null)
+			columnFile.flush();
 	}
 
 	@Override
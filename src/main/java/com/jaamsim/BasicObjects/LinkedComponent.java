@@ -50,6 +50,7 @@ public abstract class LinkedComponent extends StateEntity {
 	private int numberProcessed; // Number of entities processed by this component
 	private DisplayEntity receivedEntity; // Entity most recently received by this component
 	private double releaseTime = Double.NaN;
+	private int assignedState = -1;  // state index for the StateAssignment input, or -1 if none
 
 	{
 		attributeDefinitionList.setHidden(false);
@@ -73,6 +74,12 @@ public abstract class LinkedComponent extends StateEntity {
 			receivedEntity = testEntity.getValue();
 			return;
 		}
+
+		if (in == stateAssignment) {
+			String state = stateAssignment.getValue();
+			assignedState = state.isEmpty() ? -1 : getStateIndex(state);
+			return;
+		}
 	}
 
 	@Override
@@ -120,8 +127,8 @@ public abstract class LinkedComponent extends StateEntity {
 		numberAdded++;
 
 		// Assign a new state to the received entity
-		if (!stateAssignment.getValue().isEmpty() && ent instanceof StateEntity)
-			((StateEntity)ent).setPresentState(stateAssignment.getValue());
+		if (assignedState != -1 && ent instanceof StateEntity)
+			((StateEntity)ent).setPresentState(assignedState);
 	}
 
 	protected void setReceivedEntity(DisplayEntity ent) {
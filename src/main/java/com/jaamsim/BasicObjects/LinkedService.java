@@ -18,12 +18,14 @@ import java.util.ArrayList;
 
 import com.jaamsim.Graphics.DisplayEntity;
 import com.jaamsim.Samples.SampleExpInput;
+import com.jaamsim.Thresholds.ExpressionThreshold;
 import com.jaamsim.Thresholds.Threshold;
 import com.jaamsim.Thresholds.ThresholdUser;
 import com.jaamsim.basicsim.EntityTarget;
 import com.jaamsim.events.ProcessTarget;
 import com.jaamsim.input.EntityInput;
 import com.jaamsim.input.EntityListInput;
+import com.jaamsim.input.Input;
 import com.jaamsim.input.Keyword;
 import com.jaamsim.input.Output;
 import com.jaamsim.input.Vec3dInput;
@@ -51,6 +53,13 @@ public abstract class LinkedService extends LinkedComponent implements Threshold
 
 	private boolean busy;
 	private Integer matchValue;
+	private int numClosed;  // number of entries in OperatingThresholdList that are closed
+	private boolean evaluateThresholds;  // TRUE if the list contains an ExpressionThreshold
+
+	private static final int STATE_IDLE = getStateIndex("Idle");
+	private static final int STATE_WORKING = getStateIndex("Working");
+	private static final int STATE_STOPPED = getStateIndex("Stopped");
+	private static final int STATE_CLEARING = getStateIndex("Clearing_while_Stopped");
 	protected final ProcessTarget endActionTarget = new EndActionTarget(this);
 
 	{
@@ -74,11 +83,62 @@ public abstract class LinkedService extends LinkedComponent implements Threshold
 
 	public LinkedService() {}
 
+	@Override
+	public void updateForInput(Input<?> in) {
+		super.updateForInput(in);
+
+		// The closed thresholds are not counted for a list that is changed during a run
+		if (in == operatingThresholdList) {
+			evaluateThresholds = true;
+			return;
+		}
+	}
+
 	@Override
 	public void earlyInit() {
 		super.earlyInit();
 		this.setBusy(false);
 		matchValue = null;
+
+		// Every threshold is open at the start of the run
+		numClosed = 0;
+		evaluateThresholds = hasExpressionThreshold(operatingThresholdList.getValue());
+	}
+
+	@Override
+	public void lateInit() {
+		super.lateInit();
+
+		ArrayList<Threshold> list = this.getThresholds();
+		for (int i = 0; i < list.size(); i++) {
+			if (list.indexOf(list.get(i)) == i)
+				list.get(i).addUser(this);
+		}
+	}
+
+	/**
+	 * Returns TRUE if the list contains a threshold whose state must be evaluated
+	 * each time it is tested.
+	 */
+	static boolean hasExpressionThreshold(ArrayList<Threshold> list) {
+		for (Threshold thr : list) {
+			if (thr instanceof ExpressionThreshold)
+				return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Returns the change in the number of closed entries in the list when the given
+	 * threshold opens or closes.
+	 */
+	static int getClosedChange(ArrayList<Threshold> list, Threshold thr, boolean open) {
+		int ret = 0;
+		for (Threshold each : list) {
+			if (each == thr)
+				ret += open ? -1 : 1;
+		}
+		return ret;
 	}
 
 	@Override
@@ -133,6 +193,14 @@ public abstract class LinkedService extends LinkedComponent implements Threshold
 		return matchValue;
 	}
 
+	/**
+	 * Returns the index of the queues and match values that are ready to be processed,
+	 * or null if this object does not select entities from several queues.
+	 */
+	MatchIndex getMatchIndex() {
+		return null;
+	}
+
 	@Override
 	public ArrayList<Queue> getQueues() {
 		ArrayList<Queue> ret = new ArrayList<>();
@@ -180,6 +248,11 @@ public abstract class LinkedService extends LinkedComponent implements Threshold
 		return operatingThresholdList.getValue();
 	}
 
+	@Override
+	public void updateForThreshold(Threshold thr, boolean open) {
+		numClosed += getClosedChange(operatingThresholdList.getValue(), thr, open);
+	}
+
 	@Override
 	public void thresholdChanged() {
 
@@ -199,6 +272,9 @@ public abstract class LinkedService extends LinkedComponent implements Threshold
 	 * @return true if all the thresholds are open.
 	 */
 	public boolean isOpen() {
+		if (!evaluateThresholds)
+			return numClosed == 0;
+
 		for (Threshold thr : operatingThresholdList.getValue()) {
 			if (!thr.isOpen())
 				return false;
@@ -210,18 +286,18 @@ public abstract class LinkedService extends LinkedComponent implements Threshold
 	public void setPresentState() {
 		if (this.isOpen()) {
 			if (this.isBusy()) {
-				this.setPresentState("Working");
+				this.setPresentState(STATE_WORKING);
 			}
 			else {
-				this.setPresentState("Idle");
+				this.setPresentState(STATE_IDLE);
 			}
 		}
 		else {
 			if (this.isBusy()) {
-				this.setPresentState("Clearing_while_Stopped");
+				this.setPresentState(STATE_CLEARING);
 			}
 			else {
-				this.setPresentState("Stopped");
+				this.setPresentState(STATE_STOPPED);
 			}
 		}
 	}
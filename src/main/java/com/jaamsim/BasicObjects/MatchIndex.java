@@ -0,0 +1,282 @@
+/*
+ * JaamSim Discrete Event Simulation
+ * Copyright (C) 2015 Ausenco Engineering Canada Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ */
+package com.jaamsim.BasicObjects;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import com.jaamsim.datatypes.IntegerVector;
+
+/**
+ * Tracks the match values for which each of a list of queues holds enough entities
+ * for an Assemble or Combine object to begin processing.
+ * <p>
+ * The queues report every change in their length and, if the match values are
+ * used, every change in the number of entities for a match value. For
+ * each match value the index holds the number of queues whose requirement is met,
+ * so a change only needs to test the requirement for the queue that changed. Match
+ * values whose requirement is met in every queue are held in a min-heap, so that the
+ * smallest ready value is always the one returned, whatever the order of the entities
+ * in the queues. Values that are no longer ready are only removed from the heap when
+ * they reach the top.
+ */
+class MatchIndex {
+	private Queue[] queues = new Queue[0];
+	private int[] required = new int[0];
+	private int numAlwaysMet;  // queues that require no entities
+	private int numSizeMet;  // queues that hold enough entities of any match value
+	private boolean useMatch;  // true if the entities must have the same match value
+
+	// Open addressing hash table keyed on the match value
+	private int[] keys = new int[16];
+	private boolean[] used = new boolean[16];
+	private int[] totals = new int[16];  // number of entities in all the queues
+	private int[] numMet = new int[16];  // number of queues whose requirement is met
+	private boolean[] inHeap = new boolean[16];
+	private int numKeys;
+
+	// Min-heap of the match values that have been ready
+	private int[] heap = new int[16];
+	private int heapSize;
+
+	MatchIndex() {}
+
+	/**
+	 * Empties the index and sets the queues and the number of entities required from
+	 * each one. If the numberList is too short, then the last value is used. If the
+	 * numberList is null, then one entity per queue is required.
+	 * @param queueList - queues that supply the entities.
+	 * @param numberList - number of entities required from each queue.
+	 * @param match - true if the entities must have the same match value.
+	 */
+	void init(ArrayList<Queue> queueList, IntegerVector numberList, boolean match) {
+		int n = queueList.size();
+		queues = queueList.toArray(new Queue[n]);
+		required = new int[n];
+		numAlwaysMet = 0;
+		numSizeMet = 0;
+		useMatch = match;
+		for (int i = 0; i < n; i++) {
+			if (numberList == null)
+				required[i] = 1;
+			else
+				required[i] = numberList.get(Math.min(i, numberList.size() - 1));
+			if (required[i] <= 0)
+				numAlwaysMet++;
+		}
+
+		Arrays.fill(used, false);
+		numKeys = 0;
+		heapSize = 0;
+	}
+
+	/**
+	 * Records a change in the number of entities in a queue.
+	 * @param que - queue whose contents have changed.
+	 * @param oldSize - previous number of entities in the queue.
+	 * @param newSize - present number of entities in the queue.
+	 */
+	void sizeChanged(Queue que, int oldSize, int newSize) {
+		for (int i = 0; i < queues.length; i++) {
+			if (queues[i] != que || required[i] <= 0)
+				continue;
+			boolean wasMet = oldSize >= required[i];
+			boolean isMet = newSize >= required[i];
+			if (isMet && !wasMet)
+				numSizeMet++;
+			else if (wasMet && !isMet)
+				numSizeMet--;
+		}
+	}
+
+	/**
+	 * Returns true if every queue holds enough entities, whatever their match values.
+	 */
+	boolean isSizeReady() {
+		return numSizeMet + numAlwaysMet == queues.length;
+	}
+
+	/**
+	 * Records a change in the number of entities with the given match value in a queue.
+	 * Nothing is recorded if the match values are not used.
+	 * @param que - queue whose contents have changed.
+	 * @param m - match value.
+	 * @param oldCount - previous number of entities with this match value.
+	 * @param newCount - present number of entities with this match value.
+	 */
+	void countChanged(Queue que, int m, int oldCount, int newCount) {
+		if (!useMatch)
+			return;
+		int slot = this.getSlot(m);
+		if (slot == -1)
+			slot = this.putKey(m);
+
+		totals[slot] += newCount - oldCount;
+		for (int i = 0; i < queues.length; i++) {
+			if (queues[i] != que || required[i] <= 0)
+				continue;
+			boolean wasMet = oldCount >= required[i];
+			boolean isMet = newCount >= required[i];
+			if (isMet && !wasMet)
+				numMet[slot]++;
+			else if (wasMet && !isMet)
+				numMet[slot]--;
+		}
+
+		if (this.isReady(slot)) {
+			if (!inHeap[slot]) {
+				inHeap[slot] = true;
+				this.push(m);
+			}
+			return;
+		}
+
+		if (totals[slot] == 0 && !inHeap[slot])
+			this.removeKey(slot);
+	}
+
+	/**
+	 * Returns the smallest match value for which every queue holds enough entities,
+	 * or null if there is none.
+	 */
+	Integer getReadyMatch() {
+		while (heapSize > 0) {
+			int m = heap[0];
+			int slot = this.getSlot(m);
+			if (this.isReady(slot))
+				return m;
+
+			this.pop();
+			inHeap[slot] = false;
+			if (totals[slot] == 0)
+				this.removeKey(slot);
+		}
+		return null;
+	}
+
+	private boolean isReady(int slot) {
+		return totals[slot] > 0 && numMet[slot] + numAlwaysMet == queues.length;
+	}
+
+	private void push(int m) {
+		if (heapSize == heap.length)
+			heap = Arrays.copyOf(heap, heapSize * 2);
+		int i = heapSize++;
+		while (i > 0) {
+			int parent = (i - 1) >>> 1;
+			if (heap[parent] <= m)
+				break;
+			heap[i] = heap[parent];
+			i = parent;
+		}
+		heap[i] = m;
+	}
+
+	private void pop() {
+		int last = heap[--heapSize];
+		int i = 0;
+		while (true) {
+			int child = 2 * i + 1;
+			if (child >= heapSize)
+				break;
+			if (child + 1 < heapSize && heap[child + 1] < heap[child])
+				child++;
+			if (last <= heap[child])
+				break;
+			heap[i] = heap[child];
+			i = child;
+		}
+		heap[i] = last;
+	}
+
+	private static int hash(int m) {
+		int h = m * 0x9E3779B9;
+		return h ^ (h >>> 16);
+	}
+
+	private int getSlot(int m) {
+		int mask = keys.length - 1;
+		for (int i = hash(m) & mask; used[i]; i = (i + 1) & mask) {
+			if (keys[i] == m)
+				return i;
+		}
+		return -1;
+	}
+
+	private int putKey(int m) {
+		if (2 * (numKeys + 1) > keys.length)
+			this.resize(keys.length * 2);
+
+		int mask = keys.length - 1;
+		int i = hash(m) & mask;
+		while (used[i])
+			i = (i + 1) & mask;
+		keys[i] = m;
+		used[i] = true;
+		totals[i] = 0;
+		numMet[i] = 0;
+		inHeap[i] = false;
+		numKeys++;
+		return i;
+	}
+
+	private void removeKey(int i) {
+		int mask = keys.length - 1;
+
+		// Shift back any following keys that would no longer be found
+		int j = i;
+		while (true) {
+			j = (j + 1) & mask;
+			if (!used[j])
+				break;
+			int k = hash(keys[j]) & mask;
+			if ((j > i && (k <= i || k > j)) || (j < i && (k <= i && k > j))) {
+				keys[i] = keys[j];
+				totals[i] = totals[j];
+				numMet[i] = numMet[j];
+				inHeap[i] = inHeap[j];
+				i = j;
+			}
+		}
+		used[i] = false;
+		numKeys--;
+	}
+
+	private void resize(int cap) {
+		int[] oldKeys = keys;
+		boolean[] oldUsed = used;
+		int[] oldTotals = totals;
+		int[] oldNumMet = numMet;
+		boolean[] oldInHeap = inHeap;
+		keys = new int[cap];
+		used = new boolean[cap];
+		totals = new int[cap];
+		numMet = new int[cap];
+		inHeap = new boolean[cap];
+		int mask = cap - 1;
+		for (int j = 0; j < oldKeys.length; j++) {
+			if (!oldUsed[j])
+				continue;
+			int i = hash(oldKeys[j]) & mask;
+			while (used[i])
+				i = (i + 1) & mask;
+			keys[i] = oldKeys[j];
+			used[i] = true;
+			totals[i] = oldTotals[j];
+			numMet[i] = oldNumMet[j];
+			inHeap[i] = oldInHeap[j];
+		}
+	}
+}
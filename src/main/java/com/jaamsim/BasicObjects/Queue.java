@@ -15,16 +15,18 @@
 package com.jaamsim.BasicObjects;
 
 import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.Iterator;
-import java.util.TreeSet;
 
+import com.jaamsim.BasicObjects.QueueEntrySet.Entry;
+import com.jaamsim.BasicObjects.QueueEntrySet.EntryList;
 import com.jaamsim.Graphics.DisplayEntity;
 import com.jaamsim.Samples.SampleConstant;
 import com.jaamsim.Samples.SampleExpInput;
 import com.jaamsim.basicsim.Entity;
+import com.jaamsim.basicsim.ReportWriter;
 import com.jaamsim.datatypes.DoubleVector;
 import com.jaamsim.datatypes.IntegerVector;
+import com.jaamsim.datatypes.QuantileSketch;
+import com.jaamsim.datatypes.TimeWeightedStat;
 import com.jaamsim.events.EventHandle;
 import com.jaamsim.events.EventManager;
 import com.jaamsim.events.ProcessTarget;
@@ -33,6 +35,7 @@ import com.jaamsim.input.IntegerInput;
 import com.jaamsim.input.Keyword;
 import com.jaamsim.input.Output;
 import com.jaamsim.input.ValueInput;
+import com.jaamsim.input.ValueListInput;
 import com.jaamsim.math.Vec3d;
 import com.jaamsim.units.DimensionlessUnit;
 import com.jaamsim.units.DistanceUnit;
@@ -67,22 +70,21 @@ public class Queue extends LinkedComponent {
 			exampleList = {"4"})
 	protected final IntegerInput maxPerLine; // maximum items per sub line-up of queue
 
-	private final TreeSet<QueueEntry> itemSet;  // contains all the entities in queue order
-	private final HashMap<Integer, TreeSet<QueueEntry>> matchMap; // each TreeSet contains the queued entities for a given match value
+	@Keyword(description = "The percentiles to be estimated for the time that each entity waits in the queue. "
+	                     + "If no percentiles are given, then the times are not recorded and "
+	                     + "the estimates do not appear in the report.",
+	         exampleList = {"50 95 99"})
+	private final ValueListInput percentiles;
 
-	private Integer matchForMaxCount;  // match value with the largest number of entities
-	private int maxCount;     // largest number of entities for a given match value
+	private final QueueEntrySet entries;  // contains all the entities in queue order, indexed by match value
 
 	private final ArrayList<QueueUser> userList;  // other objects that use this queue
+	private final ArrayList<Seize> seizeList;  // Seize objects that use this queue
+	private final ArrayList<MatchIndex> matchIndexList;  // match value indices that include this queue
 
 	//	Statistics
-	protected double timeOfLastUpdate; // time at which the statistics were last updated
-	protected double startOfStatisticsCollection; // time at which statistics collection was started
-	protected int minElements; // minimum observed number of entities in the queue
-	protected int maxElements; // maximum observed number of entities in the queue
-	protected double elementSeconds;  // total time that entities have spent in the queue
-	protected double squaredElementSeconds;  // total time for the square of the number of elements in the queue
-	protected DoubleVector queueLengthDist;  // entry at position n is the total time the queue has had length n
+	protected final TimeWeightedStat queueLengthStat;  // number of entities in the queue
+	protected final QuantileSketch queueTimeSketch;  // waiting times for the entities that have left the queue
 
 	{
 		testEntity.setHidden(true);
@@ -110,13 +112,19 @@ public class Queue extends LinkedComponent {
 		maxPerLine = new IntegerInput("MaxPerLine", "Key Inputs", Integer.MAX_VALUE);
 		maxPerLine.setValidRange(1, Integer.MAX_VALUE);
 		this.addInput(maxPerLine);
+
+		percentiles = new ValueListInput("Percentiles", "Key Inputs", null);
+		percentiles.setValidRange(0.0d, 100.0d);
+		this.addInput(percentiles);
 	}
 
 	public Queue() {
-		itemSet = new TreeSet<>();
-		queueLengthDist = new DoubleVector(10,10);
+		entries = new QueueEntrySet();
+		queueLengthStat = new TimeWeightedStat();
+		queueTimeSketch = new QuantileSketch();
 		userList = new ArrayList<>();
-		matchMap = new HashMap<>();
+		seizeList = new ArrayList<>();
+		matchIndexList = new ArrayList<>();
 	}
 
 	@Override
@@ -124,53 +132,25 @@ public class Queue extends LinkedComponent {
 		super.earlyInit();
 
 		// Clear the entries in the queue
-		itemSet.clear();
-		matchMap.clear();
-
-		matchForMaxCount = null;
-		maxCount = -1;
+		entries.clear();
 
 		// Clear statistics
 		this.clearStatistics();
 
 		// Identify the objects that use this queue
 		userList.clear();
+		seizeList.clear();
+		matchIndexList.clear();
 		for (Entity each : Entity.getAll()) {
 			if (each instanceof QueueUser) {
 				QueueUser u = (QueueUser)each;
-				if (u.getQueues().contains(this))
+				if (u.getQueues().contains(this)) {
 					userList.add(u);
-			}
-		}
-	}
-
-	private static class QueueEntry implements Comparable<QueueEntry> {
-		final DisplayEntity entity;
-		final long entNum;
-		final int priority;
-		final Integer match;
-		final double timeAdded;
-
-		public QueueEntry(DisplayEntity ent, long n, int pri, Integer m, double t) {
-			entity = ent;
-			entNum = n;
-			priority = pri;
-			match = m;
-			timeAdded = t;
-		}
-
-		@Override
-		public int compareTo(QueueEntry entry) {
-			if (this.priority > entry.priority)
-				return 1;
-			else if (this.priority < entry.priority)
-				return -1;
-			else {
-				if (this.entNum > entry.entNum)
-					return 1;
-				else if (this.entNum < entry.entNum)
-					return -1;
-				return 0;
+					if (u instanceof Seize)
+						seizeList.add((Seize)u);
+					if (u instanceof LinkedService && ((LinkedService)u).getMatchIndex() != null)
+						matchIndexList.add(((LinkedService)u).getMatchIndex());
+				}
 			}
 		}
 	}
@@ -205,49 +185,25 @@ public class Queue extends LinkedComponent {
 		super.addEntity(ent);
 
 		// Update the queue statistics
-		int queueSize = itemSet.size();  // present number of entities in the queue
-		this.updateStatistics(queueSize, queueSize+1);
+		int queueSize = entries.size();  // present number of entities in the queue
+		queueLengthStat.update(this.getSimTime(), queueSize+1);
 
-		// Build the entry for the entity
-		// Note that the match value logic relies on all Integer objects with
-		// the same int value having the same object reference
+		// Add the entity to the queue
 		long n = this.getNumberAdded();
 		if (!fifo.getValue())
 			n *= -1;
 		int pri = (int) priority.getValue().getNextSample(getSimTime());
-		Integer m = null;
-		if (match.getValue() != null)
-			m = Integer.valueOf((int) match.getValue().getNextSample(getSimTime()));
-		QueueEntry entry = new QueueEntry(ent, n, pri, m, getSimTime());
-
-		// Add the entity to the TreeSet of all the entities in the queue
-		itemSet.add(entry);
-
-		// Does the entry have a match value?
-		if (entry.match != null) {
-
-			// Add the entity to the TreeSet of all the entities with this match value
-			TreeSet<QueueEntry> matchSet = matchMap.get(entry.match);
-			if (matchSet == null) {
-				matchSet = new TreeSet<>();
-				matchSet.add(entry);
-				matchMap.put(entry.match, matchSet);
-			}
-			else {
-				matchSet.add(entry);
-			}
-
-			// Update the maximum count
-			if (entry.match == matchForMaxCount) {
-				maxCount++;
-			}
-			else {
-				if (matchSet.size() > maxCount) {
-					matchForMaxCount = entry.match;
-					maxCount = matchSet.size();
-				}
-			}
-		}
+		boolean hasMatch = match.getValue() != null;
+		int m = 0;
+		if (hasMatch)
+			m = (int) match.getValue().getNextSample(getSimTime());
+		Entry first = entries.first();
+		entries.add(ent, n, pri, hasMatch, m, getSimTime());
+		if (entries.first() != first)
+			this.firstChanged();
+		this.sizeChanged(queueSize, queueSize+1);
+		if (hasMatch)
+			this.matchCountChanged(m, 1);
 
 		// Notify the users of this queue
 		if (!userUpdateHandle.isScheduled())
@@ -257,47 +213,60 @@ public class Queue extends LinkedComponent {
 	/**
 	 * Removes a specified entity from the queue
 	 */
-	public DisplayEntity remove(QueueEntry entry) {
-
-		int queueSize = itemSet.size();  // present number of entities in the queue
-		this.updateStatistics(queueSize, queueSize-1);
-
-		// Remove the entity from the TreeSet of all entities in the queue
-		boolean found = itemSet.remove(entry);
-		if (!found)
-			error("Cannot find the entry in itemSet.");
-
-		// Does the entry have a match value?
-		if (entry.match != null) {
-
-			// Remove the entity from the TreeSet for that match value
-			TreeSet<QueueEntry> matchSet = matchMap.get(entry.match);
-			if (matchSet == null)
-				error("Cannot find an entry in matchMap for match value: %s", entry.match);
-			found = matchSet.remove(entry);
-			if (!found)
-				error("Cannot find the entry in matchMap.");
-
-			// If there are no more entities for this match value, remove it from the HashMap of match values
-			if (matchSet.isEmpty())
-				matchMap.remove(entry.match);
-
-			// Update the maximum count
-			if (entry.match == matchForMaxCount) {
-				matchForMaxCount = null;
-				maxCount = -1;
-			}
-		}
+	private DisplayEntity remove(Entry entry) {
+
+		int queueSize = entries.size();  // present number of entities in the queue
+		queueLengthStat.update(this.getSimTime(), queueSize-1);
 
 		this.incrementNumberProcessed();
-		return entry.entity;
+		if (percentiles.getValue() != null)
+			queueTimeSketch.add(this.getSimTime() - entry.timeAdded);
+		boolean first = (entry == entries.first());
+		boolean hasMatch = entry.hasMatch;
+		int m = entry.match;
+		DisplayEntity ent = entries.remove(entry);
+		if (first)
+			this.firstChanged();
+		this.sizeChanged(queueSize, queueSize-1);
+		if (hasMatch)
+			this.matchCountChanged(m, -1);
+		return ent;
+	}
+
+	/**
+	 * Notifies the Seize objects that use this queue that the first entity has changed.
+	 */
+	private void firstChanged() {
+		for (Seize each : seizeList)
+			each.queueFirstChanged();
+	}
+
+	/**
+	 * Notifies the match value indices that use this queue that the number of
+	 * entities in the queue has changed.
+	 */
+	private void sizeChanged(int oldSize, int newSize) {
+		for (MatchIndex each : matchIndexList)
+			each.sizeChanged(this, oldSize, newSize);
+	}
+
+	/**
+	 * Notifies the match value indices that use this queue that the number of
+	 * entities with the given match value has changed.
+	 */
+	private void matchCountChanged(int m, int delta) {
+		if (matchIndexList.isEmpty())
+			return;
+		int count = entries.getMatchCount(m);
+		for (MatchIndex each : matchIndexList)
+			each.countChanged(this, m, count - delta, count);
 	}
 
 	/**
 	 * Removes the first entity from the queue
 	 */
 	public DisplayEntity removeFirst() {
-		return this.remove(itemSet.first());
+		return this.remove(entries.first());
 	}
 
 	/**
@@ -305,21 +274,49 @@ public class Queue extends LinkedComponent {
 	 * @return first entity in the queue.
 	 */
 	public DisplayEntity getFirst() {
-		return itemSet.first().entity;
+		return entries.first().entity;
 	}
 
 	/**
 	 * Returns the number of entities in the queue
 	 */
 	public int getCount() {
-		return itemSet.size();
+		return entries.size();
 	}
 
 	/**
 	 * Returns the number of seconds spent by the first object in the queue
 	 */
 	public double getQueueTime() {
-		return this.getSimTime() - itemSet.first().timeAdded;
+		return this.getSimTime() - entries.first().timeAdded;
+	}
+
+	/**
+	 * Returns the time at which the first object in the queue was added.
+	 */
+	double getFirstTimeAdded() {
+		return entries.first().timeAdded;
+	}
+
+	/**
+	 * Returns the number of seconds spent by the first object in the queue
+	 * whose match value is equal to the specified value. If the match value
+	 * is null, the first object in the queue is used.
+	 * @param m - value to be matched.
+	 * @return queue time, or NaN if no object has this match value.
+	 */
+	public double getQueueTimeForMatch(Integer m) {
+		Entry entry;
+		if (m == null) {
+			entry = entries.first();
+		}
+		else {
+			EntryList matchList = entries.getMatchList(m);
+			entry = (matchList == null) ? null : matchList.first();
+		}
+		if (entry == null)
+			return Double.NaN;
+		return this.getSimTime() - entry.timeAdded;
 	}
 
 	/**
@@ -330,11 +327,8 @@ public class Queue extends LinkedComponent {
 	 */
 	public int getMatchCount(Integer m) {
 		if (m == null)
-			return itemSet.size();
-		TreeSet<QueueEntry> matchSet = matchMap.get(m);
-		if (matchSet == null)
-			return 0;
-		return matchSet.size();
+			return entries.size();
+		return entries.getMatchCount(m);
 	}
 
 	/**
@@ -349,29 +343,18 @@ public class Queue extends LinkedComponent {
 		if (m == null)
 			return this.removeFirst();
 
-		TreeSet<QueueEntry> matchSet = matchMap.get(m);
-		if (matchSet == null)
+		EntryList matchList = entries.getMatchList(m);
+		if (matchList == null)
 			return null;
-		return this.remove(matchSet.first());
-	}
-
-	public ArrayList<Integer> getUniqueMatchValues() {
-		ArrayList<Integer> ret = new ArrayList<>(matchMap.size());
-		Iterator<Integer> itr = matchMap.keySet().iterator();
-		while (itr.hasNext()) {
-			ret.add(itr.next());
-		}
-		return ret;
+		return this.remove(matchList.first());
 	}
 
 	/**
-	 * Returns the match value that has the largest number of entities in the queue.
-	 * @return match value with the most entities.
+	 * Returns the match values present in the queue in the order in which the first
+	 * entity with each value appears in the queue.
 	 */
-	public int getMatchForMax() {
-		if (matchForMaxCount == null)
-			this.setMaxCount();
-		return matchForMaxCount;
+	public int[] getUniqueMatchValues() {
+		return entries.getMatchValues();
 	}
 
 	/**
@@ -379,68 +362,7 @@ public class Queue extends LinkedComponent {
 	 * @return number of entities in the longest match value queue.
 	 */
 	public int getMaxCount() {
-		if (matchForMaxCount == null)
-			this.setMaxCount();
-		return maxCount;
-	}
-
-	/**
-	 * Determines the longest queue for a give match value.
-	 */
-	private void setMaxCount() {
-		maxCount = -1;
-		Iterator<Integer> itr = matchMap.keySet().iterator();
-		while (itr.hasNext()) {
-			Integer m = itr.next();
-			int count = matchMap.get(m).size();
-			if (count > maxCount) {
-				maxCount = count;
-				matchForMaxCount = m;
-			}
-		}
-	}
-
-	/**
-	 * Returns a match value that has sufficient numbers of entities in each
-	 * queue. The first match value that satisfies the criterion is selected.
-	 * If the numberList is too short, then the last value is used.
-	 * @param queueList - list of queues to check.
-	 * @param numberList - number of matches required for each queue.
-	 * @return match value.
-	 */
-	public static Integer selectMatchValue(ArrayList<Queue> queueList, IntegerVector numberList) {
-
-		// Check whether each queue has sufficient entities for any match value
-		int number;
-		for (int i=0; i<queueList.size(); i++) {
-			if (numberList == null) {
-				number = 1;
-			}
-			else {
-				int ind = Math.min(i, numberList.size()-1);
-				number = numberList.get(ind);
-			}
-			if (queueList.get(i).getMaxCount() < number)
-				return null;
-		}
-
-		// Find the queue with the fewest match values
-		Queue shortest = null;
-		int count = -1;
-		for (Queue que : queueList) {
-			int n = (int) que.getMatchValueCount(0.0);
-			if (n > count) {
-				count = n;
-				shortest = que;
-			}
-		}
-
-		// Return the first match value that has sufficient entities in each queue
-		for (int m : shortest.getUniqueMatchValues()) {
-			if (Queue.sufficientEntities(queueList, numberList, m))
-				return m;
-		}
-		return null;
+		return entries.getMaxCount();
 	}
 
 	/**
@@ -470,6 +392,39 @@ public class Queue extends LinkedComponent {
 		return true;
 	}
 
+	/**
+	 * Returns the entries in queue order. The number of entries returned is limited
+	 * to the present queue length, so that the list can be built safely while the
+	 * queue is being changed by the model.
+	 */
+	private ArrayList<Entry> getEntryList() {
+		EntryList all = entries.getAll();
+		int n = all.size();
+		ArrayList<Entry> ret = new ArrayList<>(n);
+		for (int i = 0; i < all.getListCount() && ret.size() < n; i++) {
+			Entry e = all.getListHead(i);
+			while (e != null && ret.size() < n) {
+				ret.add(e);
+				e = all.next(e);
+			}
+		}
+		return ret;
+	}
+
+	/**
+	 * Returns the entities in queue order.
+	 */
+	private ArrayList<DisplayEntity> getEntityList() {
+		ArrayList<Entry> list = this.getEntryList();
+		ArrayList<DisplayEntity> ret = new ArrayList<>(list.size());
+		for (Entry e : list) {
+			DisplayEntity ent = e.entity;
+			if (ent != null)
+				ret.add(ent);
+		}
+		return ret;
+	}
+
 	/**
 	 * Update the position of all entities in the queue. ASSUME that entities
 	 * will line up according to the orientation of the queue.
@@ -486,18 +441,16 @@ public class Queue extends LinkedComponent {
 		double maxWidth = 0;
 
 		// find widest vessel
-		if (itemSet.size() >  maxPerLine.getValue()){
-			Iterator<QueueEntry> itr = itemSet.iterator();
-			while (itr.hasNext()) {
-				 maxWidth = Math.max(maxWidth, itr.next().entity.getSize().y);
+		ArrayList<DisplayEntity> items = this.getEntityList();
+		if (items.size() >  maxPerLine.getValue()){
+			for (DisplayEntity item : items) {
+				 maxWidth = Math.max(maxWidth, item.getSize().y);
 			 }
 		}
 
 		// update item locations
 		int i = 0;
-		Iterator<QueueEntry> itr = itemSet.iterator();
-		while (itr.hasNext()) {
-			DisplayEntity item = itr.next().entity;
+		for (DisplayEntity item : items) {
 
 			// if new row is required, set reset distanceX and move distanceY up one row
 			i++;
@@ -530,35 +483,19 @@ public class Queue extends LinkedComponent {
 	 */
 	@Override
 	public void clearStatistics() {
-		double simTime = this.getSimTime();
-		startOfStatisticsCollection = simTime;
-		timeOfLastUpdate = simTime;
-		minElements = itemSet.size();
-		maxElements = itemSet.size();
-		elementSeconds = 0.0;
-		squaredElementSeconds = 0.0;
-		queueLengthDist.clear();
+		queueLengthStat.clear(this.getSimTime(), entries.size());
+		queueTimeSketch.clear();
 	}
 
-	private void updateStatistics(int oldValue, int newValue) {
-
-		minElements = Math.min(newValue, minElements);
-		maxElements = Math.max(newValue, maxElements);
-
-		// Add the necessary number of additional bins to the queue length distribution
-		int n = newValue + 1 - queueLengthDist.size();
-		for (int i = 0; i < n; i++) {
-			queueLengthDist.add(0.0);
-		}
+	@Override
+	public void printReport(ReportWriter file, double simTime) {
+		super.printReport(file, simTime);
 
-		double simTime = this.getSimTime();
-		double dt = simTime - timeOfLastUpdate;
-		if (dt > 0.0) {
-			elementSeconds += dt * oldValue;
-			squaredElementSeconds += dt * oldValue * oldValue;
-			queueLengthDist.addAt(dt,oldValue);  // add dt to the entry at index queueSize
-			timeOfLastUpdate = simTime;
-		}
+		if (percentiles.getValue() == null)
+			return;
+		file.putOutput(this.getName(), "QueueTimePercentiles", TimeUnit.class,
+				this.getQueueTimePercentiles(simTime).toString());
+		file.endGroup();
 	}
 
 	// ******************************************************************************************************
@@ -569,18 +506,16 @@ public class Queue extends LinkedComponent {
 	 description = "The present number of entities in the queue.",
 	    unitType = DimensionlessUnit.class)
 	public double getQueueLength(double simTime) {
-		return itemSet.size();
+		return entries.size();
 	}
 
 	@Output(name = "QueueTimes",
 	 description = "The waiting time for each entity in the queue.",
 	    unitType = TimeUnit.class)
 	public ArrayList<Double> getQueueTimes(double simTime) {
-		ArrayList<Double> ret = new ArrayList<>(itemSet.size());
-		Iterator<QueueEntry> itr = itemSet.iterator();
-		while (itr.hasNext()) {
-			ret.add(simTime - itr.next().timeAdded);
-		}
+		ArrayList<Double> ret = new ArrayList<>(entries.size());
+		for (Entry e : this.getEntryList())
+			ret.add(simTime - e.timeAdded);
 		return ret;
 	}
 
@@ -588,11 +523,9 @@ public class Queue extends LinkedComponent {
 	 description = "The Priority expression value for each entity in the queue.",
 	    unitType = DimensionlessUnit.class)
 	public ArrayList<Integer> getPriorityValues(double simTime) {
-		ArrayList<Integer> ret = new ArrayList<>();
-		Iterator<QueueEntry> itr = itemSet.iterator();
-		while (itr.hasNext()) {
-			ret.add(itr.next().priority);
-		}
+		ArrayList<Integer> ret = new ArrayList<>(entries.size());
+		for (Entry e : this.getEntryList())
+			ret.add(e.priority);
 		return ret;
 	}
 
@@ -600,11 +533,9 @@ public class Queue extends LinkedComponent {
 	 description = "The Match expression value for each entity in the queue.",
 	    unitType = DimensionlessUnit.class)
 	public ArrayList<Integer> getMatchValues(double simTime) {
-		ArrayList<Integer> ret = new ArrayList<>();
-		Iterator<QueueEntry> itr = itemSet.iterator();
-		while (itr.hasNext()) {
-			ret.add(itr.next().match);
-		}
+		ArrayList<Integer> ret = new ArrayList<>(entries.size());
+		for (Entry e : this.getEntryList())
+			ret.add(e.getMatch());
 		return ret;
 	}
 
@@ -614,13 +545,7 @@ public class Queue extends LinkedComponent {
 	    unitType = DimensionlessUnit.class,
 	  reportable = true)
 	public double getQueueLengthAverage(double simTime) {
-		double dt = simTime - timeOfLastUpdate;
-		int queueSize = itemSet.size();
-		double totalTime = simTime - startOfStatisticsCollection;
-		if (totalTime > 0.0) {
-			return (elementSeconds + dt*queueSize)/totalTime;
-		}
-		return 0.0;
+		return queueLengthStat.getAverage(simTime);
 	}
 
 	@Output(name = "QueueLengthStandardDeviation",
@@ -628,14 +553,16 @@ public class Queue extends LinkedComponent {
 	    unitType = DimensionlessUnit.class,
 	  reportable = true)
 	public double getQueueLengthStandardDeviation(double simTime) {
-		double dt = simTime - timeOfLastUpdate;
-		int queueSize = itemSet.size();
-		double mean = this.getQueueLengthAverage(simTime);
-		double totalTime = simTime - startOfStatisticsCollection;
-		if (totalTime > 0.0) {
-			return Math.sqrt( (squaredElementSeconds + dt*queueSize*queueSize)/totalTime - mean*mean );
-		}
-		return 0.0;
+		return queueLengthStat.getStandardDeviation(simTime);
+	}
+
+	@Output(name = "QueueLengthConfidenceInterval",
+	 description = "The half-width of the 95% confidence interval for the average number of "
+	             + "entities in the queue, estimated by the method of batch means. "
+	             + "The value is infinite until two batches have been completed.",
+	    unitType = DimensionlessUnit.class)
+	public double getQueueLengthConfidenceInterval(double simTime) {
+		return queueLengthStat.getConfidenceHalfWidth(0.95d);
 	}
 
 	@Output(name = "QueueLengthMinimum",
@@ -643,7 +570,7 @@ public class Queue extends LinkedComponent {
 	    unitType = DimensionlessUnit.class,
 	  reportable = true)
 	public Integer getQueueLengthMinimum(double simTime) {
-		return minElements;
+		return queueLengthStat.getMinimum();
 	}
 
 	@Output(name = "QueueLengthMaximum",
@@ -653,7 +580,8 @@ public class Queue extends LinkedComponent {
 	public Integer getQueueLengthMaximum(double simTime) {
 		// An entity that is added to an empty queue and removed immediately
 		// does not count as a non-zero queue length
-		if (maxElements == 1 && queueLengthDist.get(1) == 0.0)
+		int maxElements = queueLengthStat.getMaximum();
+		if (maxElements == 1 && queueLengthStat.getTimeAtValue(1) == 0.0)
 			return 0;
 		return maxElements;
 	}
@@ -663,22 +591,7 @@ public class Queue extends LinkedComponent {
 	    unitType = DimensionlessUnit.class,
 	  reportable = true)
 	public DoubleVector getQueueLengthDistribution(double simTime) {
-		DoubleVector ret = new DoubleVector(queueLengthDist);
-		double dt = simTime - timeOfLastUpdate;
-		int queueSize = itemSet.size();
-		double totalTime = simTime - startOfStatisticsCollection;
-		if (totalTime > 0.0) {
-			if (ret.size() == 0)
-				ret.add(0.0);
-			ret.addAt(dt, queueSize);  // adds dt to the entry at index queueSize
-			for (int i = 0; i < ret.size(); i++) {
-				ret.set(i, ret.get(i)/totalTime);
-			}
-		}
-		else {
-			ret.clear();
-		}
-		return ret;
+		return queueLengthStat.getDistribution(simTime);
 	}
 
 	@Output(name = "AverageQueueTime",
@@ -690,16 +603,27 @@ public class Queue extends LinkedComponent {
 		int n = this.getNumberAdded();
 		if (n == 0)
 			return 0.0;
-		double dt = simTime - timeOfLastUpdate;
-		int queueSize = itemSet.size();
-		return (elementSeconds + dt*queueSize)/n;
+		return queueLengthStat.getIntegral(simTime)/n;
+	}
+
+	@Output(name = "QueueTimePercentiles",
+	 description = "The estimated values for the percentiles given by the Percentiles keyword "
+	             + "of the time that each entity waited in the queue. Only the entities that "
+	             + "have left the queue are included. Each estimate is accurate to within 1% "
+	             + "of its value.",
+	    unitType = TimeUnit.class)
+	public DoubleVector getQueueTimePercentiles(double simTime) {
+		DoubleVector pct = percentiles.getValue();
+		if (pct == null)
+			return new DoubleVector();
+		return queueTimeSketch.getPercentiles(pct);
 	}
 
 	@Output(name = "MatchValueCount",
 	 description = "The present number of unique match values in the queue.",
 	    unitType = DimensionlessUnit.class)
 	public double getMatchValueCount(double simTime) {
-		return matchMap.size();
+		return entries.getMatchValueCount();
 	}
 
 }
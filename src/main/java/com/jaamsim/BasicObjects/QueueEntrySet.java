@@ -0,0 +1,464 @@
+/*
+ * JaamSim Discrete Event Simulation
+ * Copyright (C) 2015 Ausenco Engineering Canada Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ */
+package com.jaamsim.BasicObjects;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+import com.jaamsim.Graphics.DisplayEntity;
+
+/**
+ * Holds the entries for a Queue in priority order, together with an index of the
+ * entries for each match value.
+ * <p>
+ * Entries with the same priority are kept in a doubly linked list ordered by their
+ * sequence number. Sequence numbers increase for FIFO entries and decrease for LIFO
+ * entries, so a new entry always belongs at one end of the list for its priority and
+ * can be added in constant time. The links are held in the entries themselves, so
+ * that any entry can be removed in constant time once its priority list is found
+ * by a binary search over the priorities present. Each match value has its own set
+ * of priority lists, found through a hash table keyed on the primitive match value.
+ * The largest number of entries for any match value is maintained as entries are
+ * added and removed. Removed entries are recycled.
+ */
+class QueueEntrySet {
+
+	/**
+	 * An entity in the queue.
+	 */
+	static final class Entry {
+		DisplayEntity entity;
+		long seqNum;
+		int priority;
+		boolean hasMatch;
+		int match;
+		double timeAdded;
+
+		Entry prev, next;  // links in the list of all entries
+		Entry matchPrev, matchNext;  // links in the list of entries for the match value
+
+		Integer getMatch() {
+			if (!hasMatch)
+				return null;
+			return match;
+		}
+	}
+
+	/**
+	 * Entries ordered by priority and sequence number, using either the main links
+	 * or the match value links in each entry.
+	 */
+	static final class EntryList {
+		private final boolean byMatch;
+		private int[] priorities;  // sorted priority values present in the list
+		private Entry[] heads;  // first entry for each priority
+		private Entry[] tails;  // last entry for each priority
+		private int numLists;
+		private int size;
+		int match;
+
+		EntryList(boolean byMatch) {
+			this.byMatch = byMatch;
+			priorities = new int[2];
+			heads = new Entry[2];
+			tails = new Entry[2];
+		}
+
+		int size() {
+			return size;
+		}
+
+		Entry first() {
+			return numLists == 0 ? null : heads[0];
+		}
+
+		Entry next(Entry e) {
+			return byMatch ? e.matchNext : e.next;
+		}
+
+		private Entry prev(Entry e) {
+			return byMatch ? e.matchPrev : e.prev;
+		}
+
+		private void setNext(Entry e, Entry n) {
+			if (byMatch) e.matchNext = n; else e.next = n;
+		}
+
+		private void setPrev(Entry e, Entry p) {
+			if (byMatch) e.matchPrev = p; else e.prev = p;
+		}
+
+		/**
+		 * Returns the number of separate priority values in the list.
+		 */
+		int getListCount() {
+			return numLists;
+		}
+
+		/**
+		 * Returns the first entry for the i-th priority value in the list.
+		 */
+		Entry getListHead(int i) {
+			return heads[i];
+		}
+
+		void add(Entry e) {
+			int ind = Arrays.binarySearch(priorities, 0, numLists, e.priority);
+			if (ind < 0) {
+				ind = -ind - 1;
+				this.insertList(ind, e.priority);
+			}
+			size++;
+
+			Entry head = heads[ind];
+			Entry tail = tails[ind];
+			if (head == null) {
+				setPrev(e, null);
+				setNext(e, null);
+				heads[ind] = e;
+				tails[ind] = e;
+				return;
+			}
+
+			// New FIFO entries go at the end, new LIFO entries at the start
+			if (e.seqNum > tail.seqNum) {
+				setPrev(e, tail);
+				setNext(e, null);
+				setNext(tail, e);
+				tails[ind] = e;
+				return;
+			}
+			if (e.seqNum < head.seqNum) {
+				setPrev(e, null);
+				setNext(e, head);
+				setPrev(head, e);
+				heads[ind] = e;
+				return;
+			}
+
+			// Otherwise search from the end of the list
+			Entry p = tail;
+			while (p.seqNum > e.seqNum)
+				p = prev(p);
+			Entry n = next(p);
+			setPrev(e, p);
+			setNext(e, n);
+			setNext(p, e);
+			setPrev(n, e);
+		}
+
+		void remove(Entry e) {
+			int ind = Arrays.binarySearch(priorities, 0, numLists, e.priority);
+			if (ind < 0)
+				throw new IllegalStateException("Cannot find the priority for the entry");
+
+			Entry p = prev(e);
+			Entry n = next(e);
+			if (p == null)
+				heads[ind] = n;
+			else
+				setNext(p, n);
+			if (n == null)
+				tails[ind] = p;
+			else
+				setPrev(n, p);
+			setPrev(e, null);
+			setNext(e, null);
+			size--;
+
+			if (heads[ind] == null)
+				this.removeList(ind);
+		}
+
+		private void insertList(int ind, int pri) {
+			if (numLists == priorities.length) {
+				int cap = numLists * 2;
+				priorities = Arrays.copyOf(priorities, cap);
+				heads = Arrays.copyOf(heads, cap);
+				tails = Arrays.copyOf(tails, cap);
+			}
+			System.arraycopy(priorities, ind, priorities, ind + 1, numLists - ind);
+			System.arraycopy(heads, ind, heads, ind + 1, numLists - ind);
+			System.arraycopy(tails, ind, tails, ind + 1, numLists - ind);
+			priorities[ind] = pri;
+			heads[ind] = null;
+			tails[ind] = null;
+			numLists++;
+		}
+
+		private void removeList(int ind) {
+			numLists--;
+			System.arraycopy(priorities, ind + 1, priorities, ind, numLists - ind);
+			System.arraycopy(heads, ind + 1, heads, ind, numLists - ind);
+			System.arraycopy(tails, ind + 1, tails, ind, numLists - ind);
+			heads[numLists] = null;
+			tails[numLists] = null;
+		}
+
+		void clear() {
+			Arrays.fill(heads, 0, numLists, null);
+			Arrays.fill(tails, 0, numLists, null);
+			numLists = 0;
+			size = 0;
+		}
+	}
+
+	/**
+	 * Orders entries by their position in the queue.
+	 */
+	private static final Comparator<Entry> queueOrder = new Comparator<Entry>() {
+		@Override
+		public int compare(Entry e0, Entry e1) {
+			if (e0.priority != e1.priority)
+				return e0.priority < e1.priority ? -1 : 1;
+			return Long.compare(e0.seqNum, e1.seqNum);
+		}
+	};
+
+	private final EntryList all = new EntryList(false);
+
+	// Open addressing hash table from match value to the list of entries with that value
+	private int[] matchKeys = new int[16];
+	private EntryList[] matchLists = new EntryList[16];
+	private int matchCount;  // number of distinct match values
+
+	// Number of match values with each number of entries, used to maintain the largest count
+	private int[] countsBySize = new int[16];
+	private int maxCount = -1;
+
+	private Entry freeEntries;  // recycled entries, linked through their next fields
+	private EntryList[] freeLists = new EntryList[16];
+	private int numFreeLists;
+
+	QueueEntrySet() {}
+
+	/**
+	 * Returns the entries in priority order.
+	 */
+	EntryList getAll() {
+		return all;
+	}
+
+	int size() {
+		return all.size();
+	}
+
+	Entry first() {
+		return all.first();
+	}
+
+	/**
+	 * Creates an entry and adds it to the set.
+	 */
+	Entry add(DisplayEntity ent, long seqNum, int pri, boolean hasMatch, int m, double time) {
+		Entry e = freeEntries;
+		if (e == null)
+			e = new Entry();
+		else
+			freeEntries = e.next;
+
+		e.entity = ent;
+		e.seqNum = seqNum;
+		e.priority = pri;
+		e.hasMatch = hasMatch;
+		e.match = m;
+		e.timeAdded = time;
+
+		all.add(e);
+		if (hasMatch) {
+			EntryList list = this.getMatchList(m);
+			if (list == null)
+				list = this.putMatchList(m);
+			this.updateCounts(list.size(), list.size() + 1);
+			list.add(e);
+		}
+		return e;
+	}
+
+	/**
+	 * Removes an entry from the set and recycles it.
+	 * @return entity for the entry
+	 */
+	DisplayEntity remove(Entry e) {
+		all.remove(e);
+		if (e.hasMatch) {
+			EntryList list = this.getMatchList(e.match);
+			if (list == null)
+				throw new IllegalStateException("Cannot find the entries for match value " + e.match);
+			this.updateCounts(list.size(), list.size() - 1);
+			list.remove(e);
+			if (list.size() == 0)
+				this.removeMatchList(e.match);
+		}
+
+		DisplayEntity ent = e.entity;
+		e.entity = null;
+		e.next = freeEntries;
+		freeEntries = e;
+		return ent;
+	}
+
+	/**
+	 * Returns the entries with the given match value, or null if there are none.
+	 */
+	EntryList getMatchList(int m) {
+		int mask = matchKeys.length - 1;
+		for (int i = hash(m) & mask; matchLists[i] != null; i = (i + 1) & mask) {
+			if (matchKeys[i] == m)
+				return matchLists[i];
+		}
+		return null;
+	}
+
+	/**
+	 * Returns the number of entries with the given match value.
+	 */
+	int getMatchCount(int m) {
+		EntryList list = this.getMatchList(m);
+		return list == null ? 0 : list.size();
+	}
+
+	/**
+	 * Returns the number of distinct match values.
+	 */
+	int getMatchValueCount() {
+		return matchCount;
+	}
+
+	/**
+	 * Returns the distinct match values in the order of the first entry for each
+	 * value in the queue.
+	 */
+	int[] getMatchValues() {
+		// The first entry for each match value is also the first in the queue
+		Entry[] firsts = new Entry[matchCount];
+		int n = 0;
+		for (int i = 0; i < matchLists.length; i++) {
+			if (matchLists[i] != null)
+				firsts[n++] = matchLists[i].first();
+		}
+		Arrays.sort(firsts, queueOrder);
+
+		int[] ret = new int[matchCount];
+		for (int i = 0; i < matchCount; i++)
+			ret[i] = firsts[i].match;
+		return ret;
+	}
+
+	/**
+	 * Returns the largest number of entries for any match value, or -1 if there are
+	 * no entries with a match value.
+	 */
+	int getMaxCount() {
+		return maxCount;
+	}
+
+	void clear() {
+		while (all.first() != null)
+			this.remove(all.first());
+	}
+
+	private void updateCounts(int oldSize, int newSize) {
+		if (oldSize > 0)
+			countsBySize[oldSize]--;
+		if (newSize > 0) {
+			if (newSize == countsBySize.length)
+				countsBySize = Arrays.copyOf(countsBySize, newSize * 2);
+			countsBySize[newSize]++;
+		}
+
+		if (newSize > maxCount) {
+			maxCount = newSize;
+			return;
+		}
+		if (oldSize == maxCount && countsBySize[oldSize] == 0)
+			maxCount = newSize > 0 ? newSize : -1;
+	}
+
+	private static int hash(int m) {
+		int h = m * 0x9E3779B9;
+		return h ^ (h >>> 16);
+	}
+
+	private EntryList putMatchList(int m) {
+		if (2 * (matchCount + 1) > matchLists.length)
+			this.resizeMatchTable(matchLists.length * 2);
+
+		EntryList list;
+		if (numFreeLists > 0) {
+			list = freeLists[--numFreeLists];
+			freeLists[numFreeLists] = null;
+		}
+		else {
+			list = new EntryList(true);
+		}
+		list.match = m;
+
+		int mask = matchKeys.length - 1;
+		int i = hash(m) & mask;
+		while (matchLists[i] != null)
+			i = (i + 1) & mask;
+		matchKeys[i] = m;
+		matchLists[i] = list;
+		matchCount++;
+		return list;
+	}
+
+	private void removeMatchList(int m) {
+		int mask = matchKeys.length - 1;
+		int i = hash(m) & mask;
+		while (matchKeys[i] != m || matchLists[i] == null)
+			i = (i + 1) & mask;
+
+		EntryList list = matchLists[i];
+		list.clear();
+		if (numFreeLists == freeLists.length)
+			freeLists = Arrays.copyOf(freeLists, numFreeLists * 2);
+		freeLists[numFreeLists++] = list;
+
+		// Shift back any following entries that would no longer be found
+		int j = i;
+		while (true) {
+			j = (j + 1) & mask;
+			if (matchLists[j] == null)
+				break;
+			int k = hash(matchKeys[j]) & mask;
+			if ((j > i && (k <= i || k > j)) || (j < i && (k <= i && k > j))) {
+				matchKeys[i] = matchKeys[j];
+				matchLists[i] = matchLists[j];
+				i = j;
+			}
+		}
+		matchLists[i] = null;
+		matchCount--;
+	}
+
+	private void resizeMatchTable(int cap) {
+		int[] oldKeys = matchKeys;
+		EntryList[] oldLists = matchLists;
+		matchKeys = new int[cap];
+		matchLists = new EntryList[cap];
+		int mask = cap - 1;
+		for (int j = 0; j < oldLists.length; j++) {
+			if (oldLists[j] == null)
+				continue;
+			int i = hash(oldKeys[j]) & mask;
+			while (matchLists[i] != null)
+				i = (i + 1) & mask;
+			matchKeys[i] = oldKeys[j];
+			matchLists[i] = oldLists[j];
+		}
+	}
+}
@@ -15,6 +15,8 @@
 package com.jaamsim.BasicObjects;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
 
 import com.jaamsim.Graphics.DisplayEntity;
 import com.jaamsim.ProbabilityDistributions.Distribution;
@@ -22,10 +24,12 @@ import com.jaamsim.Samples.SampleConstant;
 import com.jaamsim.Samples.SampleExpInput;
 import com.jaamsim.basicsim.Entity;
 import com.jaamsim.datatypes.DoubleVector;
+import com.jaamsim.datatypes.TimeWeightedStat;
 import com.jaamsim.input.InputErrorException;
 import com.jaamsim.input.Keyword;
 import com.jaamsim.input.Output;
 import com.jaamsim.units.DimensionlessUnit;
+import com.jaamsim.units.TimeUnit;
 
 public class Resource extends DisplayEntity {
 
@@ -36,17 +40,22 @@ public class Resource extends DisplayEntity {
 
 	private int unitsInUse;  // number of resource units that are being used at present
 	private ArrayList<Seize> seizeList;  // Seize objects that require this resource
+	private final IdentityHashMap<Seize, Integer> seizeIndex;  // position of each Seize object in seizeList
+
+	// Seize objects with entities waiting in their queues, held in a binary heap ordered by the
+	// time at which the first entity was added to the queue, and then by position in seizeList
+	private int[] waitHeap;  // seizeList index for each heap position
+	private double[] waitTimes;  // time the first entity was added for each heap position
+	private int[] heapPos;  // heap position for each seizeList index, or -1 if not waiting
+	private int numWaiting;
 
 	//	Statistics
-	protected double timeOfLastUpdate; // time at which the statistics were last updated
-	protected double startOfStatisticsCollection; // time at which statistics collection was started
-	protected int minUnitsInUse; // minimum observed number of units in use
-	protected int maxUnitsInUse; // maximum observed number of units in use
-	protected double unitSeconds;  // total time that units have been used
-	protected double squaredUnitSeconds;  // total time for the square of the number of units in use
+	protected final TimeWeightedStat unitsInUseStat;  // number of units in use
 	protected int unitsSeized;    // number of units that have been seized
 	protected int unitsReleased;  // number of units that have been released
-	protected DoubleVector unitsInUseDist;  // entry at position n is the total time that n units have been in use
+	protected int allocations;  // number of times that units have been seized
+	protected double allocationDelay;  // total time that entities waited for units to be seized
+	protected double maxAllocationDelay;  // longest time that an entity waited for units to be seized
 
 	{
 		attributeDefinitionList.setHidden(false);
@@ -59,8 +68,12 @@ public class Resource extends DisplayEntity {
 	}
 
 	public Resource() {
-		unitsInUseDist = new DoubleVector();
+		unitsInUseStat = new TimeWeightedStat();
 		seizeList = new ArrayList<>();
+		seizeIndex = new IdentityHashMap<>();
+		waitHeap = new int[0];
+		waitTimes = new double[0];
+		heapPos = new int[0];
 	}
 
 	@Override
@@ -89,10 +102,20 @@ public class Resource extends DisplayEntity {
 
 		// Prepare a list of the Seize objects that use this resource
 		seizeList.clear();
+		seizeIndex.clear();
 		for (Seize ent : Entity.getClonesOfIterator(Seize.class)) {
-			if( ent.requiresResource(this) )
+			if( ent.requiresResource(this) ) {
+				seizeIndex.put(ent, seizeList.size());
 				seizeList.add(ent);
+			}
 		}
+
+		int n = seizeList.size();
+		waitHeap = new int[n];
+		waitTimes = new double[n];
+		heapPos = new int[n];
+		Arrays.fill(heapPos, -1);
+		numWaiting = 0;
 	}
 
 	/**
@@ -106,11 +129,18 @@ public class Resource extends DisplayEntity {
 	/**
 	 * Seize the given number of units from the resource.
 	 * @param n = number of units to seize
+	 * @param delay = time that the entity waited for the units
 	 */
-	public void seize(int n) {
-		this.updateStatistics(unitsInUse, unitsInUse+n);
+	public void seize(int n, double delay) {
+		unitsInUseStat.update(this.getSimTime(), unitsInUse+n);
 		unitsInUse += n;
 		unitsSeized += n;
+
+		allocations++;
+		if (!Double.isNaN(delay)) {
+			allocationDelay += delay;
+			maxAllocationDelay = Math.max(maxAllocationDelay, delay);
+		}
 	}
 
 	/**
@@ -119,7 +149,7 @@ public class Resource extends DisplayEntity {
 	 */
 	public void release(int m) {
 		int n = Math.min(m, unitsInUse);
-		this.updateStatistics(unitsInUse, unitsInUse-n);
+		unitsInUseStat.update(this.getSimTime(), unitsInUse-n);
 		unitsInUse -= n;
 		unitsReleased += n;
 	}
@@ -134,25 +164,112 @@ public class Resource extends DisplayEntity {
 		while( cap > unitsInUse ) {
 
 			// Pick the Seize object that has waited the longest
-			Seize selection = null;
-			double maxTime = 0;
-			for(Seize s : seizeList) {
-				Queue que = s.getQueue();
-				if( que.getCount() > 0 ) {
-					if( selection == null || que.getQueueTime() > maxTime ) {
-						selection = s;
-						maxTime = que.getQueueTime();
-					}
-				}
-			}
+			Seize selection = this.getLongestWaitingSeize();
+			if (selection == null)
+				return;
 
 			// Ensure that the selected Seize object is able to start
-			if (selection == null || !selection.isReadyToStart())
+			if (!selection.isReadyToStart())
 				return;
 			selection.startAction();
 		}
 	}
 
+	/**
+	 * Returns the Seize object whose first entity has waited the longest, or null if
+	 * there are no entities waiting. Ties are won by the first Seize object in seizeList.
+	 */
+	Seize getLongestWaitingSeize() {
+		if (numWaiting == 0)
+			return null;
+		return seizeList.get(waitHeap[0]);
+	}
+
+	/**
+	 * Updates the position of the given Seize object in the order in which the waiting
+	 * Seize objects are served. Called whenever the first entity in its queue changes.
+	 * @param s - Seize object whose queue has changed
+	 */
+	void updateWaitingSeize(Seize s) {
+		Integer ind = seizeIndex.get(s);
+		if (ind == null)
+			return;
+		int i = ind;
+
+		// Remove the Seize object if its queue is empty
+		Queue que = s.getQueue();
+		if (que.getCount() == 0) {
+			int pos = heapPos[i];
+			if (pos == -1)
+				return;
+			heapPos[i] = -1;
+			numWaiting--;
+			if (pos == numWaiting)
+				return;
+			int moved = waitHeap[numWaiting];
+			this.setHeapEntry(pos, moved, waitTimes[numWaiting]);
+			this.siftUp(pos);
+			this.siftDown(heapPos[moved]);
+			return;
+		}
+
+		// Add the Seize object or move it to its new position
+		double t = que.getFirstTimeAdded();
+		int pos = heapPos[i];
+		if (pos == -1) {
+			pos = numWaiting++;
+			this.setHeapEntry(pos, i, t);
+			this.siftUp(pos);
+			return;
+		}
+		waitTimes[pos] = t;
+		this.siftUp(pos);
+		this.siftDown(heapPos[i]);
+	}
+
+	private boolean isBefore(int pos0, int pos1) {
+		if (waitTimes[pos0] != waitTimes[pos1])
+			return waitTimes[pos0] < waitTimes[pos1];
+		return waitHeap[pos0] < waitHeap[pos1];
+	}
+
+	private void setHeapEntry(int pos, int ind, double t) {
+		waitHeap[pos] = ind;
+		waitTimes[pos] = t;
+		heapPos[ind] = pos;
+	}
+
+	private void swap(int pos0, int pos1) {
+		int ind = waitHeap[pos0];
+		double t = waitTimes[pos0];
+		this.setHeapEntry(pos0, waitHeap[pos1], waitTimes[pos1]);
+		this.setHeapEntry(pos1, ind, t);
+	}
+
+	private void siftUp(int pos) {
+		while (pos > 0) {
+			int parent = (pos - 1) / 2;
+			if (!this.isBefore(pos, parent))
+				return;
+			this.swap(pos, parent);
+			pos = parent;
+		}
+	}
+
+	private void siftDown(int pos) {
+		while (true) {
+			int child = 2*pos + 1;
+			if (child >= numWaiting)
+				return;
+			if (child + 1 < numWaiting && this.isBefore(child + 1, child))
+				child++;
+			if (!this.isBefore(child, pos))
+				return;
+			this.swap(pos, child);
+			pos = child;
+		}
+	}
+
 	// *******************************************************************************************************
 	// STATISTICS
 	// *******************************************************************************************************
@@ -162,37 +279,12 @@ public class Resource extends DisplayEntity {
 	 */
 	@Override
 	public void clearStatistics() {
-		double simTime = this.getSimTime();
-		startOfStatisticsCollection = simTime;
-		timeOfLastUpdate = simTime;
-		minUnitsInUse = unitsInUse;
-		maxUnitsInUse = unitsInUse;
-		unitSeconds = 0.0;
-		squaredUnitSeconds = 0.0;
+		unitsInUseStat.clear(this.getSimTime(), unitsInUse);
 		unitsSeized = 0;
 		unitsReleased = 0;
-		unitsInUseDist.clear();
-	}
-
-	public void updateStatistics( int oldValue, int newValue) {
-
-		minUnitsInUse = Math.min(newValue, minUnitsInUse);
-		maxUnitsInUse = Math.max(newValue, maxUnitsInUse);
-
-		// Add the necessary number of additional bins to the queue length distribution
-		int n = newValue + 1 - unitsInUseDist.size();
-		for( int i=0; i<n; i++ ) {
-			unitsInUseDist.add(0.0);
-		}
-
-		double simTime = this.getSimTime();
-		double dt = simTime - timeOfLastUpdate;
-		if( dt > 0.0 ) {
-			unitSeconds += dt * oldValue;
-			squaredUnitSeconds += dt * oldValue * oldValue;
-			unitsInUseDist.addAt(dt,oldValue);  // add dt to the entry at index queueSize
-			timeOfLastUpdate = simTime;
-		}
+		allocations = 0;
+		allocationDelay = 0.0;
+		maxAllocationDelay = 0.0;
 	}
 
 	// ******************************************************************************************************
@@ -215,6 +307,34 @@ public class Resource extends DisplayEntity {
 		return unitsReleased;
 	}
 
+	@Output(name = "AllocationCount",
+	 description = "The number of times that units of this resource have been seized.",
+	    unitType = DimensionlessUnit.class,
+	  reportable = true)
+	public int getAllocationCount(double simTime) {
+		return allocations;
+	}
+
+	@Output(name = "AllocationDelayAverage",
+	 description = "The average time that an entity waited in the queue for a Seize object before "
+			+ "units of this resource were seized for it.",
+	    unitType = TimeUnit.class,
+	  reportable = true)
+	public double getAllocationDelayAverage(double simTime) {
+		if (allocations == 0)
+			return 0.0;
+		return allocationDelay/allocations;
+	}
+
+	@Output(name = "AllocationDelayMaximum",
+	 description = "The longest time that an entity waited in the queue for a Seize object before "
+			+ "units of this resource were seized for it.",
+	    unitType = TimeUnit.class,
+	  reportable = true)
+	public double getAllocationDelayMaximum(double simTime) {
+		return maxAllocationDelay;
+	}
+
 	@Output(name = "UnitsInUse",
 	 description = "The present number of resource units that are in use.",
 	    unitType = DimensionlessUnit.class)
@@ -227,12 +347,7 @@ public class Resource extends DisplayEntity {
 	    unitType = DimensionlessUnit.class,
 	  reportable = true)
 	public double getUnitsInUseAverage(double simTime) {
-		double dt = simTime - timeOfLastUpdate;
-		double totalTime = simTime - startOfStatisticsCollection;
-		if( totalTime > 0.0 ) {
-			return (unitSeconds + dt*unitsInUse)/totalTime;
-		}
-		return 0.0;
+		return unitsInUseStat.getAverage(simTime);
 	}
 
 	@Output(name = "UnitsInUseStandardDeviation",
@@ -240,13 +355,16 @@ public class Resource extends DisplayEntity {
 	    unitType = DimensionlessUnit.class,
 	  reportable = true)
 	public double getUnitsInUseStandardDeviation(double simTime) {
-		double dt = simTime - timeOfLastUpdate;
-		double mean = this.getUnitsInUseAverage(simTime);
-		double totalTime = simTime - startOfStatisticsCollection;
-		if( totalTime > 0.0 ) {
-			return Math.sqrt( (squaredUnitSeconds + dt*unitsInUse*unitsInUse)/totalTime - mean*mean );
-		}
-		return 0.0;
+		return unitsInUseStat.getStandardDeviation(simTime);
+	}
+
+	@Output(name = "UnitsInUseConfidenceInterval",
+	 description = "The half-width of the 95% confidence interval for the average number of "
+	             + "resource units that are in use, estimated by the method of batch means. "
+	             + "The value is infinite until two batches have been completed.",
+	    unitType = DimensionlessUnit.class)
+	public double getUnitsInUseConfidenceInterval(double simTime) {
+		return unitsInUseStat.getConfidenceHalfWidth(0.95d);
 	}
 
 	@Output(name = "UnitsInUseMinimum",
@@ -254,7 +372,7 @@ public class Resource extends DisplayEntity {
 	    unitType = DimensionlessUnit.class,
 	  reportable = true)
 	public int getUnitsInUseMinimum(double simTime) {
-		return minUnitsInUse;
+		return unitsInUseStat.getMinimum();
 	}
 
 	@Output(name = "UnitsInUseMaximum",
@@ -264,7 +382,8 @@ public class Resource extends DisplayEntity {
 	public int getUnitsInUseMaximum(double simTime) {
 		// A unit that is seized and released immediately
 		// does not count as a non-zero maximum in use
-		if( maxUnitsInUse == 1 && unitsInUseDist.get(1) == 0.0 )
+		int maxUnitsInUse = unitsInUseStat.getMaximum();
+		if( maxUnitsInUse == 1 && unitsInUseStat.getTimeAtValue(1) == 0.0 )
 			return 0;
 		return maxUnitsInUse;
 	}
@@ -274,21 +393,7 @@ public class Resource extends DisplayEntity {
 	    unitType = DimensionlessUnit.class,
 	  reportable = true)
 	public DoubleVector getUnitsInUseDistribution(double simTime) {
-		DoubleVector ret = new DoubleVector(unitsInUseDist);
-		double dt = simTime - timeOfLastUpdate;
-		double totalTime = simTime - startOfStatisticsCollection;
-		if( totalTime > 0.0 ) {
-			if( ret.size() == 0 )
-				ret.add(0.0);
-			ret.addAt(dt, unitsInUse);  // adds dt to the entry at index unitsInUse
-			for( int i=0; i<ret.size(); i++ ) {
-				ret.set(i, ret.get(i)/totalTime);
-			}
-		}
-		else {
-			ret.clear();
-		}
-		return ret;
+		return unitsInUseStat.getDistribution(simTime);
 	}
 
 }
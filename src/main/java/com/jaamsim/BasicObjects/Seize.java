@@ -65,7 +65,8 @@ public class Seize extends LinkedService {
 		while (this.isReadyToStart()) {
 
 			// If sufficient units are available, then seize them and pass the entity to the next component
-			this.seizeResources();
+			double delay = waitQueue.getValue().getQueueTimeForMatch(m);
+			this.seizeResources(delay);
 			DisplayEntity ent = this.getNextEntityForMatch(m);
 			this.sendToNextComponent(ent);
 		}
@@ -106,17 +107,26 @@ public class Seize extends LinkedService {
 
 	/**
 	 * Seize the required Resources.
-	 * @return
+	 * @param delay - time the entity waited for the Resources
 	 */
-	public void seizeResources() {
+	public void seizeResources(double delay) {
 		double simTime = this.getSimTime();
 		ArrayList<Resource> resList = resourceList.getValue();
 		ArrayList<SampleProvider> numberList = numberOfUnitsList.getValue();
 		for (int i=0; i<resList.size(); i++) {
-			resList.get(i).seize((int)numberList.get(i).getNextSample(simTime));
+			resList.get(i).seize((int)numberList.get(i).getNextSample(simTime), delay);
 		}
 	}
 
+	/**
+	 * Called by the queue when its first entity has changed, so that the Resources
+	 * can update the order in which the waiting Seize objects are served.
+	 */
+	void queueFirstChanged() {
+		for (Resource res : resourceList.getValue())
+			res.updateWaitingSeize(this);
+	}
+
 	public Queue getQueue() {
 		return waitQueue.getValue();
 	}
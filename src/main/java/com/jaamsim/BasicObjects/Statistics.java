@@ -16,10 +16,14 @@ package com.jaamsim.BasicObjects;
 
 import com.jaamsim.Graphics.DisplayEntity;
 import com.jaamsim.Samples.SampleExpInput;
+import com.jaamsim.basicsim.ReportWriter;
+import com.jaamsim.datatypes.DoubleVector;
+import com.jaamsim.datatypes.QuantileSketch;
 import com.jaamsim.input.Input;
 import com.jaamsim.input.Keyword;
 import com.jaamsim.input.Output;
 import com.jaamsim.input.UnitTypeInput;
+import com.jaamsim.input.ValueListInput;
 import com.jaamsim.units.Unit;
 import com.jaamsim.units.UserSpecifiedUnit;
 
@@ -38,10 +42,17 @@ public class Statistics extends LinkedComponent {
 	         exampleList = {"'this.obj.attrib1'"})
 	private final SampleExpInput sampleValue;
 
+	@Keyword(description = "The percentiles to be estimated for the values that are recorded. "
+	                     + "If no percentiles are given, then the values are not recorded and "
+	                     + "the estimates do not appear in the report.",
+	         exampleList = {"50 95 99"})
+	private final ValueListInput percentiles;
+
 	private double minValue;
 	private double maxValue;
 	private double totalValue;
 	private double totalSquaredValue;
+	private final QuantileSketch sketch = new QuantileSketch();
 
 	{
 		stateAssignment.setHidden(true);
@@ -55,6 +66,10 @@ public class Statistics extends LinkedComponent {
 		sampleValue.setEntity(this);
 		sampleValue.setRequired(true);
 		this.addInput(sampleValue);
+
+		percentiles = new ValueListInput("Percentiles", "Key Inputs", null);
+		percentiles.setValidRange(0.0d, 100.0d);
+		this.addInput(percentiles);
 	}
 
 	public Statistics() {}
@@ -86,6 +101,8 @@ public class Statistics extends LinkedComponent {
 		maxValue = Math.max(maxValue, val);
 		totalValue += val;
 		totalSquaredValue += val*val;
+		if (percentiles.getValue() != null)
+			sketch.add(val);
 
 		// Pass the entity to the next component
 		this.sendToNextComponent(ent);
@@ -100,6 +117,7 @@ public class Statistics extends LinkedComponent {
 		maxValue = Double.NEGATIVE_INFINITY;
 		totalValue = 0.0;
 		totalSquaredValue = 0.0;
+		sketch.clear();
 	}
 
 	@Override
@@ -107,6 +125,24 @@ public class Statistics extends LinkedComponent {
 		return unitType.getUnitType();
 	}
 
+	@Override
+	public void printReport(ReportWriter file, double simTime) {
+		super.printReport(file, simTime);
+
+		if (percentiles.getValue() == null)
+			return;
+		file.putOutput(this.getName(), "SamplePercentiles", this.getUserUnitType(),
+				this.getSamplePercentiles(simTime).toString());
+		file.endGroup();
+	}
+
+	/**
+	 * Returns the estimated distribution of the values that were recorded.
+	 */
+	public QuantileSketch getSketch() {
+		return sketch;
+	}
+
 	// ******************************************************************************************************
 	// OUTPUT METHODS
 	// ******************************************************************************************************
@@ -153,4 +189,15 @@ public class Statistics extends LinkedComponent {
 		double num = this.getNumberAdded(simTime);
 		return this.getSampleStandardDeviation(simTime)/Math.sqrt(num-1);
 	}
+
+	@Output(name = "SamplePercentiles",
+	 description = "The estimated values for the percentiles given by the Percentiles keyword. "
+	             + "Each estimate is accurate to within 1% of its value.",
+	    unitType = UserSpecifiedUnit.class)
+	public DoubleVector getSamplePercentiles(double simTime) {
+		DoubleVector pct = percentiles.getValue();
+		if (pct == null)
+			return new DoubleVector();
+		return sketch.getPercentiles(pct);
+	}
 }
@@ -0,0 +1,54 @@
+/*
+ * JaamSim Discrete Event Simulation
+ * Copyright (C) 2015 Ausenco Engineering Canada Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ */
+package com.jaamsim.CalculationObjects;
+
+/**
+ * ContinuousCalculation is implemented by the calculation entities whose values are
+ * given by a set of ordinary differential equations. A Controller that uses an adaptive
+ * step size advances these state variables together, rather than calling update.
+ * <p>
+ * The Controller sets the state for every entity before it requests any derivatives.
+ * Once the state has been set for a given time, the entity's value at that time must be
+ * calculated from the state alone, and update must do nothing except set the entity's
+ * stored value.
+ */
+public interface ContinuousCalculation {
+
+	/**
+	 * Returns the number of state variables for the entity.
+	 */
+	public int getNumStates();
+
+	/**
+	 * Copies the present values for the state variables to y, starting at index i.
+	 */
+	public void getState(double[] y, int i);
+
+	/**
+	 * Sets the state variables to the values in y, starting at index i.
+	 * @param simTime - simulation time for the new state
+	 * @param y - array containing the new state
+	 * @param i - index in y for the first state variable
+	 */
+	public void setState(double simTime, double[] y, int i);
+
+	/**
+	 * Stores the time derivatives of the state variables in dydt, starting at index i.
+	 * @param simTime - simulation time that was passed to setState
+	 * @param dydt - array to receive the derivatives
+	 * @param i - index in dydt for the first state variable
+	 */
+	public void getDerivatives(double simTime, double[] dydt, int i);
+}
@@ -15,31 +15,106 @@
 package com.jaamsim.CalculationObjects;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import com.jaamsim.FluidObjects.FluidComponent;
 import com.jaamsim.Graphics.DisplayEntity;
+import com.jaamsim.Samples.SampleConstant;
+import com.jaamsim.Samples.SampleExpression;
+import com.jaamsim.Samples.SampleProvider;
+import com.jaamsim.Thresholds.ExpressionThreshold;
 import com.jaamsim.basicsim.Entity;
 import com.jaamsim.basicsim.EntityTarget;
+import com.jaamsim.basicsim.Simulation;
+import com.jaamsim.datatypes.BooleanVector;
+import com.jaamsim.datatypes.DoubleVector;
+import com.jaamsim.datatypes.IntegerVector;
+import com.jaamsim.events.EventManager;
 import com.jaamsim.events.ProcessTarget;
+import com.jaamsim.input.AttributeHandle;
+import com.jaamsim.input.EntityListInput;
+import com.jaamsim.input.ExpParser;
+import com.jaamsim.input.Input;
 import com.jaamsim.input.Keyword;
+import com.jaamsim.input.OutputHandle;
 import com.jaamsim.input.ValueInput;
+import com.jaamsim.math.Color4d;
+import com.jaamsim.math.Vec3d;
+import com.jaamsim.units.DimensionlessUnit;
 import com.jaamsim.units.TimeUnit;
 
 /**
  * The Controller object simulates the operation of a Programmable Logic Controller
+ * <p>
+ * The calculation entities are divided into groups that do not share any inputs, either
+ * directly or through the inputs to their inputs. The groups are updated concurrently
+ * when there is more than one processor, and the entities in each group are updated in
+ * order of sequence number. The results are the same as updating every entity in order
+ * of sequence number.
+ * <p>
+ * If RelativeTolerance is set, the entities that implement ContinuousCalculation are
+ * advanced by a Dormand-Prince Runge-Kutta step whose length is adjusted to meet the
+ * error tolerance, with SamplingTime as the longest step. Each step is calculated when
+ * it starts, and the new state is set when it ends. The other calculation entities are
+ * updated at the end of each step.
  * @author Harry King
  *
  */
 public class Controller extends DisplayEntity {
 
+	private static final int MIN_CONCURRENT_ENTITIES = 64;  // fewest entities to update concurrently
+	static int maxThreads = Runtime.getRuntime().availableProcessors();  // most groups to update at once
+
 	@Keyword(description = "The sampling time for the Controller.",
 	         example = "Controller1 SamplingTime { 100 ms }")
 	private final ValueInput samplingTime;
 
+	@Keyword(description = "The relative error tolerance for each step of the calculations that are given by "
+	                     + "differential equations, such as Integrator, Lag, and FluidFlow.\n"
+	                     + "If zero, every calculation is updated at intervals of SamplingTime. "
+	                     + "Otherwise, the interval is adjusted to meet the tolerance and SamplingTime is the longest interval. "
+	                     + "The inputs to these calculations are evaluated several times per step, so they cannot be "
+	                     + "probability distributions when RelativeTolerance is set.",
+	         example = "Controller1 RelativeTolerance { 1.0e-6 }")
+	private final ValueInput relativeTolerance;
+
+	@Keyword(description = "The absolute error tolerance for each step of the calculations that are given by "
+	                     + "differential equations, in SI units. Only used if RelativeTolerance is set.",
+	         example = "Controller1 AbsoluteTolerance { 1.0e-9 }")
+	private final ValueInput absoluteTolerance;
+
+	@Keyword(description = "The shortest interval between updates when RelativeTolerance is set. "
+	                     + "If zero, the shortest interval is one clock tick.",
+	         example = "Controller1 MinSamplingTime { 1 ms }")
+	private final ValueInput minSamplingTime;
+
+	@Keyword(description = "ExpressionThresholds whose OpenCondition depends on the calculations. "
+	                     + "When RelativeTolerance is set, each step is shortened so that any change in these "
+	                     + "thresholds occurs at the end of a step, to within MinSamplingTime.",
+	         example = "Controller1 ThresholdList { Threshold1 Threshold2 }")
+	private final EntityListInput<ExpressionThreshold> thresholdList;
+
 	private final ArrayList<CalculationEntity> calculationEntityList;  // List of the CalculationEntities controller by this Controller.
+	private CalculationEntity[][] updateGroups;  // Independent groups of CalculationEntities, each in sequence order.
 	private int count;  // Number of times that the controller has initiated its calculations.
 
+	private CalculationEntity[] continuousList;  // CalculationEntities that implement ContinuousCalculation, in sequence order.
+	private int[] stateIndex;  // Index in the state arrays for the first state variable of each continuous entity.
+	private double[] startState;  // State variables at the start of the present step.
+	private double[] endState;  // State variables at the end of the present step.
+	private double[] trialState;  // State variables used while locating a threshold change.
+	private boolean[] thresholdOpen;  // Open condition for each threshold at the start of the present step.
+	private DormandPrince solver;
+	private boolean stepPending;  // TRUE if endState is to be set at the next update.
+	private double stepLength;  // Proposed length of the next step (s).
+	private final DormandPrince.Derivatives derivatives = new StateDerivatives();
+
 	private final ProcessTarget doUpdate = new DoUpdateTarget(this);
 
 	{
@@ -47,6 +122,24 @@ public class Controller extends DisplayEntity {
 		samplingTime.setUnitType(TimeUnit.class);
 		samplingTime.setValidRange(0.0, Double.POSITIVE_INFINITY);
 		this.addInput(samplingTime);
+
+		relativeTolerance = new ValueInput("RelativeTolerance", "Key Inputs", 0.0d);
+		relativeTolerance.setUnitType(DimensionlessUnit.class);
+		relativeTolerance.setValidRange(0.0d, Double.POSITIVE_INFINITY);
+		this.addInput(relativeTolerance);
+
+		absoluteTolerance = new ValueInput("AbsoluteTolerance", "Key Inputs", 1.0e-6d);
+		absoluteTolerance.setUnitType(DimensionlessUnit.class);
+		absoluteTolerance.setValidRange(1.0e-300d, Double.POSITIVE_INFINITY);
+		this.addInput(absoluteTolerance);
+
+		minSamplingTime = new ValueInput("MinSamplingTime", "Key Inputs", 0.0d);
+		minSamplingTime.setUnitType(TimeUnit.class);
+		minSamplingTime.setValidRange(0.0d, Double.POSITIVE_INFINITY);
+		this.addInput(minSamplingTime);
+
+		thresholdList = new EntityListInput<>(ExpressionThreshold.class, "ThresholdList", "Key Inputs", new ArrayList<ExpressionThreshold>(0));
+		this.addInput(thresholdList);
 	}
 
 	public Controller() {
@@ -67,6 +160,226 @@ public class Controller extends DisplayEntity {
 
 		// Sort the calculation entities into the correct sequence
 		Collections.sort(calculationEntityList, new SequenceCompare());
+
+		updateGroups = getUpdateGroups(calculationEntityList);
+
+		// Prepare the state arrays for the calculation entities given by differential equations
+		ArrayList<CalculationEntity> contList = new ArrayList<>();
+		for (CalculationEntity ent : calculationEntityList) {
+			if (ent instanceof ContinuousCalculation)
+				contList.add(ent);
+		}
+		continuousList = contList.toArray(new CalculationEntity[contList.size()]);
+		stateIndex = new int[continuousList.length];
+		int n = 0;
+		for (int i = 0; i < continuousList.length; i++) {
+			stateIndex[i] = n;
+			n += ((ContinuousCalculation)continuousList[i]).getNumStates();
+		}
+		startState = new double[n];
+		endState = new double[n];
+		trialState = new double[n];
+		thresholdOpen = new boolean[thresholdList.getValue().size()];
+		solver = new DormandPrince(n);
+		stepPending = false;
+		stepLength = samplingTime.getValue();
+	}
+
+	/**
+	 * Divides the calculation entities into groups that can be updated independently.
+	 * <p>
+	 * Two entities are in the same group if they refer to a common entity that can change
+	 * when it is sampled: a calculation entity, a fluid component, or a sample provider such
+	 * as a probability distribution. The references are found from the entity and
+	 * expression inputs, including the inputs to every entity that is referred to. An entity
+	 * of any other type, such as an ExpressionThreshold, joins the groups that refer to it
+	 * if one of the changing entities can be reached through its inputs, since it may read
+	 * them whenever its outputs are evaluated. Other entities are only read, so they can be
+	 * shared between groups. A single group is returned if the references cannot all be
+	 * found: if an expression refers to an entity through the outputs of another entity, or
+	 * if an input has a type of value that may refer to an entity in some other way.
+	 * @param list - calculation entities in sequence order
+	 * @return groups of calculation entities, each in sequence order
+	 */
+	static CalculationEntity[][] getUpdateGroups(ArrayList<CalculationEntity> list) {
+		HashMap<Entity, Entity> parent = new HashMap<>();
+		HashMap<Entity, Boolean> readsChanging = new HashMap<>();
+		HashSet<Entity> visited = new HashSet<>();
+		ArrayList<Entity> stack = new ArrayList<>();
+		ArrayList<Entity> refs = new ArrayList<>();
+		for (CalculationEntity calc : list) {
+			if (!visited.add(calc))
+				continue;
+
+			// Join the groups for each entity that is reached through the inputs
+			stack.add(calc);
+			while (!stack.isEmpty()) {
+				Entity ent = stack.remove(stack.size() - 1);
+				refs.clear();
+				if (!addReferences(ent, refs))
+					return getSingleGroup(list);
+
+				for (Entity ref : refs) {
+					if (!isChanging(ref)) {
+						Boolean reads = readsChanging.get(ref);
+						if (reads == null) {
+							reads = readsChanging(ref);
+							if (reads == null)
+								return getSingleGroup(list);
+							readsChanging.put(ref, reads);
+						}
+						if (!reads)
+							continue;
+					}
+
+					union(parent, calc, ref);
+					if (visited.add(ref))
+						stack.add(ref);
+				}
+			}
+		}
+
+		// Collect the entities for each group in sequence order
+		HashMap<Entity, ArrayList<CalculationEntity>> groupMap = new HashMap<>();
+		ArrayList<ArrayList<CalculationEntity>> groups = new ArrayList<>();
+		for (CalculationEntity calc : list) {
+			Entity root = find(parent, calc);
+			ArrayList<CalculationEntity> group = groupMap.get(root);
+			if (group == null) {
+				group = new ArrayList<>();
+				groupMap.put(root, group);
+				groups.add(group);
+			}
+			group.add(calc);
+		}
+
+		CalculationEntity[][] ret = new CalculationEntity[groups.size()][];
+		for (int i = 0; i < groups.size(); i++)
+			ret[i] = groups.get(i).toArray(new CalculationEntity[groups.get(i).size()]);
+		return ret;
+	}
+
+	private static CalculationEntity[][] getSingleGroup(ArrayList<CalculationEntity> list) {
+		CalculationEntity[][] ret = new CalculationEntity[1][];
+		ret[0] = list.toArray(new CalculationEntity[list.size()]);
+		return ret;
+	}
+
+	/**
+	 * Returns TRUE if the given entity can change when it is sampled.
+	 */
+	private static boolean isChanging(Entity ent) {
+		return ent instanceof CalculationEntity || ent instanceof FluidComponent
+				|| ent instanceof SampleProvider;
+	}
+
+	/**
+	 * Returns TRUE if an entity that can change is reached through the inputs to the
+	 * given entity, or null if the references cannot all be found.
+	 */
+	private static Boolean readsChanging(Entity ent) {
+		HashSet<Entity> visited = new HashSet<>();
+		ArrayList<Entity> stack = new ArrayList<>();
+		ArrayList<Entity> refs = new ArrayList<>();
+		visited.add(ent);
+		stack.add(ent);
+		while (!stack.isEmpty()) {
+			refs.clear();
+			if (!addReferences(stack.remove(stack.size() - 1), refs))
+				return null;
+			for (Entity ref : refs) {
+				if (isChanging(ref))
+					return true;
+				if (visited.add(ref))
+					stack.add(ref);
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Adds the entities referred to by the inputs to the given entity.
+	 * @return false if an input may refer to an entity that cannot be identified
+	 */
+	private static boolean addReferences(Entity ent, ArrayList<Entity> refs) {
+		// Build the cache of output information before it is read concurrently
+		OutputHandle.hasOutput(ent.getClass(), "");
+		for (Input<?> in : ent.getEditableInputs()) {
+			Object val = in.getValue();
+			if (val instanceof Collection) {
+				for (Object each : (Collection<?>)val) {
+					if (!addReference(ent, each, refs))
+						return false;
+				}
+				continue;
+			}
+			if (!addReference(ent, val, refs))
+				return false;
+		}
+		return true;
+	}
+
+	private static boolean addReference(Entity ent, Object val, ArrayList<Entity> refs) {
+		if (val instanceof Entity) {
+			// The calculation entities do not read the state of their Controller
+			if (!(val instanceof Controller))
+				refs.add((Entity)val);
+			return true;
+		}
+
+		ExpParser.Expression exp = null;
+		if (val instanceof SampleExpression)
+			exp = ((SampleExpression)val).getExpression();
+		if (val instanceof ExpParser.Expression)
+			exp = (ExpParser.Expression)val;
+		if (exp == null)
+			return isConstant(val);
+
+		for (String[] names : exp.getVariableNames()) {
+			if (names.length > 2)
+				return false;
+			if (names[0] == "this")
+				continue;
+			Entity ref = Entity.getNamedEntity(names[0]);
+			if (ref == null)
+				return false;
+			refs.add(ref);
+		}
+		return true;
+	}
+
+	/**
+	 * Returns TRUE if the given input value cannot refer to an entity.
+	 */
+	private static boolean isConstant(Object val) {
+		return val == null
+				|| val instanceof Number || val instanceof Boolean || val instanceof String
+				|| val instanceof Enum || val instanceof Class
+				|| val instanceof Vec3d || val instanceof Color4d
+				|| val instanceof DoubleVector || val instanceof IntegerVector
+				|| val instanceof BooleanVector || val instanceof double[]
+				|| val instanceof SampleConstant || val instanceof AttributeHandle;
+	}
+
+	private static Entity find(HashMap<Entity, Entity> parent, Entity ent) {
+		Entity root = ent;
+		while (parent.containsKey(root))
+			root = parent.get(root);
+
+		// Point each entity on the path directly to the root
+		while (ent != root) {
+			Entity next = parent.get(ent);
+			parent.put(ent, root);
+			ent = next;
+		}
+		return root;
+	}
+
+	private static void union(HashMap<Entity, Entity> parent, Entity ent1, Entity ent2) {
+		Entity root1 = find(parent, ent1);
+		Entity root2 = find(parent, ent2);
+		if (root1 != root2)
+			parent.put(root2, root1);
 	}
 
 	// Sorts by increasing sequence number
@@ -82,9 +395,20 @@ public class Controller extends DisplayEntity {
 		super.startUp();
 
 		// Schedule the first update
+		if (this.isAdaptive()) {
+			this.scheduleProcessTicks(0, 5, doUpdate);
+			return;
+		}
 		this.scheduleProcess(samplingTime.getValue(), 5, doUpdate);
 	}
 
+	/**
+	 * Returns TRUE if the step length is adjusted to meet RelativeTolerance.
+	 */
+	boolean isAdaptive() {
+		return relativeTolerance.getValue() > 0.0d;
+	}
+
 	private static class DoUpdateTarget extends EntityTarget<Controller> {
 		DoUpdateTarget(Controller ent) {
 			super(ent, "doUpdate");
@@ -97,11 +421,37 @@ public class Controller extends DisplayEntity {
 	}
 
 	public void doUpdate() {
+		if (this.isAdaptive()) {
+			this.doAdaptiveUpdate();
+			return;
+		}
 
 		// Update the last value for each entity
-		double simTime = this.getSimTime();
-		for (CalculationEntity ent : calculationEntityList) {
-			ent.update(simTime);
+		final double simTime = this.getSimTime();
+		int numThreads = Math.min(updateGroups.length, maxThreads);
+		if (numThreads <= 1 || calculationEntityList.size() < MIN_CONCURRENT_ENTITIES) {
+			for (CalculationEntity ent : calculationEntityList) {
+				ent.update(simTime);
+			}
+		}
+		else {
+			final AtomicInteger nextGroup = new AtomicInteger();
+			Runnable task = new Runnable() {
+				@Override
+				public void run() {
+					while (true) {
+						int i = nextGroup.getAndIncrement();
+						if (i >= updateGroups.length)
+							return;
+						for (CalculationEntity ent : updateGroups[i]) {
+							ent.update(simTime);
+						}
+					}
+				}
+			};
+			Runnable[] tasks = new Runnable[numThreads];
+			Arrays.fill(tasks, task);
+			EventManager.runConcurrently(tasks);
 		}
 
 		// Increment the number of cycles
@@ -111,6 +461,113 @@ public class Controller extends DisplayEntity {
 		this.scheduleProcess(samplingTime.getValue(), 5, doUpdate);
 	}
 
+	private void doAdaptiveUpdate() {
+		double simTime = this.getSimTime();
+
+		// Set the state at the end of the last step and update each entity in sequence
+		if (stepPending) {
+			this.setStates(simTime, endState);
+			for (CalculationEntity ent : calculationEntityList) {
+				ent.update(simTime);
+			}
+			count++;
+		}
+		else {
+			for (CalculationEntity ent : continuousList) {
+				ent.update(simTime);
+			}
+		}
+
+		// Record the thresholds at the start of the step
+		ArrayList<ExpressionThreshold> thresholds = thresholdList.getValue();
+		for (int i = 0; i < thresholdOpen.length; i++) {
+			thresholdOpen[i] = thresholds.get(i).getOpen(simTime);
+		}
+
+		// Find the longest step that meets the error tolerance
+		double tickLength = Simulation.getTickLength();
+		double relTol = relativeTolerance.getValue();
+		double absTol = absoluteTolerance.getValue();
+		long minTicks = Math.max(1L, Math.round(minSamplingTime.getValue() / tickLength));
+		long maxTicks = Math.max(minTicks, Math.round(samplingTime.getValue() / tickLength));
+		long ticks = Math.max(minTicks, Math.min(maxTicks, Math.round(stepLength / tickLength)));
+		this.getStates(startState);
+		double err;
+		while (true) {
+			err = solver.step(derivatives, simTime, startState, ticks * tickLength, endState, relTol, absTol);
+			if (err <= 1.0d || ticks == minTicks)
+				break;
+			ticks = Math.max(minTicks, (long)(ticks * DormandPrince.getStepFactor(err)));
+		}
+		stepLength = ticks * tickLength * DormandPrince.getStepFactor(err);
+
+		// Shorten the step to end when a threshold changes
+		if (this.thresholdChanged(simTime + ticks * tickLength)) {
+			long lo = 0;
+			long hi = ticks;
+			while (hi - lo > minTicks) {
+				long mid = (lo + hi) / 2;
+				solver.step(derivatives, simTime, startState, mid * tickLength, trialState, relTol, absTol);
+				if (this.thresholdChanged(simTime + mid * tickLength)) {
+					hi = mid;
+					System.arraycopy(trialState, 0, endState, 0, endState.length);
+				}
+				else {
+					lo = mid;
+				}
+			}
+			ticks = hi;
+		}
+
+		// Restore the state at the start of the step
+		this.setStates(simTime, startState);
+		for (CalculationEntity ent : continuousList) {
+			ent.update(simTime);
+		}
+
+		// Schedule the end of the step
+		stepPending = true;
+		this.scheduleProcessTicks(ticks, 5, doUpdate);
+	}
+
+	/**
+	 * Returns TRUE if a threshold in ThresholdList has changed since the start of the step.
+	 * The state variables must have been set for the given time.
+	 */
+	private boolean thresholdChanged(double simTime) {
+		ArrayList<ExpressionThreshold> thresholds = thresholdList.getValue();
+		for (int i = 0; i < thresholdOpen.length; i++) {
+			if (thresholds.get(i).getOpen(simTime) != thresholdOpen[i])
+				return true;
+		}
+		return false;
+	}
+
+	private void getStates(double[] y) {
+		for (int i = 0; i < continuousList.length; i++) {
+			((ContinuousCalculation)continuousList[i]).getState(y, stateIndex[i]);
+		}
+	}
+
+	private void setStates(double simTime, double[] y) {
+		for (int i = 0; i < continuousList.length; i++) {
+			((ContinuousCalculation)continuousList[i]).setState(simTime, y, stateIndex[i]);
+		}
+	}
+
+	/**
+	 * Differential equations for the continuous entities controlled by this Controller.
+	 */
+	private class StateDerivatives implements DormandPrince.Derivatives {
+		@Override
+		public void getDerivatives(double t, double[] y, double[] dydt) {
+			setStates(t, y);
+			for (int i = 0; i < continuousList.length; i++) {
+				((ContinuousCalculation)continuousList[i]).getDerivatives(t, dydt, stateIndex[i]);
+			}
+		}
+	}
+
 	public int getCount() {
 		return count;
 	}
@@ -0,0 +1,125 @@
+/*
+ * JaamSim Discrete Event Simulation
+ * Copyright (C) 2015 Ausenco Engineering Canada Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ */
+package com.jaamsim.CalculationObjects;
+
+/**
+ * Runge-Kutta step of order 5 with an embedded order 4 error estimate, using the
+ * coefficients of Dormand and Prince (1980).
+ * <p>
+ * The error estimate is the maximum over the state variables of the difference between
+ * the two solutions divided by AbsoluteTolerance + RelativeTolerance * |y|. A step is
+ * acceptable if the error estimate does not exceed one.
+ */
+public class DormandPrince {
+
+	/**
+	 * The ordinary differential equations dy/dt = f(t, y) to be solved.
+	 */
+	public interface Derivatives {
+		public void getDerivatives(double t, double[] y, double[] dydt);
+	}
+
+	private static final double C2 = 1.0d/5.0d, C3 = 3.0d/10.0d, C4 = 4.0d/5.0d, C5 = 8.0d/9.0d;
+
+	private static final double A21 = 1.0d/5.0d;
+	private static final double A31 = 3.0d/40.0d, A32 = 9.0d/40.0d;
+	private static final double A41 = 44.0d/45.0d, A42 = -56.0d/15.0d, A43 = 32.0d/9.0d;
+	private static final double A51 = 19372.0d/6561.0d, A52 = -25360.0d/2187.0d, A53 = 64448.0d/6561.0d,
+	                            A54 = -212.0d/729.0d;
+	private static final double A61 = 9017.0d/3168.0d, A62 = -355.0d/33.0d, A63 = 46732.0d/5247.0d,
+	                            A64 = 49.0d/176.0d, A65 = -5103.0d/18656.0d;
+	private static final double A71 = 35.0d/384.0d, A73 = 500.0d/1113.0d, A74 = 125.0d/192.0d,
+	                            A75 = -2187.0d/6784.0d, A76 = 11.0d/84.0d;
+
+	// Difference between the order 5 and order 4 weights
+	private static final double E1 = 71.0d/57600.0d, E3 = -71.0d/16695.0d, E4 = 71.0d/1920.0d,
+	                            E5 = -17253.0d/339200.0d, E6 = 22.0d/525.0d, E7 = -1.0d/40.0d;
+
+	private static final double SAFETY = 0.9d;
+	private static final double MIN_FACTOR = 0.2d;
+	private static final double MAX_FACTOR = 5.0d;
+
+	private final double[] k1, k2, k3, k4, k5, k6, k7, tmp;
+
+	public DormandPrince(int n) {
+		k1 = new double[n];
+		k2 = new double[n];
+		k3 = new double[n];
+		k4 = new double[n];
+		k5 = new double[n];
+		k6 = new double[n];
+		k7 = new double[n];
+		tmp = new double[n];
+	}
+
+	/**
+	 * Takes a single step of the given length and returns the error estimate.
+	 * @param f - differential equations
+	 * @param t - time at the start of the step
+	 * @param y0 - state at the start of the step
+	 * @param h - step length
+	 * @param y1 - array to receive the state at the end of the step
+	 * @param relTol - relative error tolerance
+	 * @param absTol - absolute error tolerance
+	 * @return error estimate, acceptable if not greater than one
+	 */
+	public double step(Derivatives f, double t, double[] y0, double h, double[] y1, double relTol, double absTol) {
+		int n = k1.length;
+		f.getDerivatives(t, y0, k1);
+
+		for (int i = 0; i < n; i++)
+			tmp[i] = y0[i] + h*A21*k1[i];
+		f.getDerivatives(t + C2*h, tmp, k2);
+
+		for (int i = 0; i < n; i++)
+			tmp[i] = y0[i] + h*(A31*k1[i] + A32*k2[i]);
+		f.getDerivatives(t + C3*h, tmp, k3);
+
+		for (int i = 0; i < n; i++)
+			tmp[i] = y0[i] + h*(A41*k1[i] + A42*k2[i] + A43*k3[i]);
+		f.getDerivatives(t + C4*h, tmp, k4);
+
+		for (int i = 0; i < n; i++)
+			tmp[i] = y0[i] + h*(A51*k1[i] + A52*k2[i] + A53*k3[i] + A54*k4[i]);
+		f.getDerivatives(t + C5*h, tmp, k5);
+
+		for (int i = 0; i < n; i++)
+			tmp[i] = y0[i] + h*(A61*k1[i] + A62*k2[i] + A63*k3[i] + A64*k4[i] + A65*k5[i]);
+		f.getDerivatives(t + h, tmp, k6);
+
+		for (int i = 0; i < n; i++)
+			y1[i] = y0[i] + h*(A71*k1[i] + A73*k3[i] + A74*k4[i] + A75*k5[i] + A76*k6[i]);
+		f.getDerivatives(t + h, y1, k7);
+
+		double err = 0.0d;
+		for (int i = 0; i < n; i++) {
+			double e = h*(E1*k1[i] + E3*k3[i] + E4*k4[i] + E5*k5[i] + E6*k6[i] + E7*k7[i]);
+			double scale = absTol + relTol*Math.max(Math.abs(y0[i]), Math.abs(y1[i]));
+			err = Math.max(err, Math.abs(e)/scale);
+		}
+		return err;
+	}
+
+	/**
+	 * Returns the factor by which to multiply the step length, given the error
+	 * estimate for the last step.
+	 */
+	public static double getStepFactor(double err) {
+		if (err <= 0.0d)
+			return MAX_FACTOR;
+		double factor = SAFETY * Math.pow(err, -0.2d);
+		return Math.max(MIN_FACTOR, Math.min(MAX_FACTOR, factor));
+	}
+}
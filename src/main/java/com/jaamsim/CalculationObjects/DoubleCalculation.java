@@ -91,6 +91,12 @@ implements SampleProvider {
 		if( this.getController() == null && ! this.repeatableInputs() )
 			throw new InputErrorException( "The Contoller keyword must be set when an input to the object is a ProbabilityDistribution, " +
 					"or any other object that cannot be sampled repeatably." );
+
+		// Adaptive steps evaluate the inputs several times per step, so they must be repeatable
+		if( this instanceof ContinuousCalculation && this.getController() != null
+				&& this.getController().isAdaptive() && ! this.repeatableInputs() )
+			throw new InputErrorException( "The Controller's RelativeTolerance keyword must be zero when an input to the object is a ProbabilityDistribution, " +
+					"or any other object that cannot be sampled repeatably." );
 	}
 
 	@Override
@@ -29,7 +29,7 @@ import com.jaamsim.units.UserSpecifiedUnit;
  * @author Harry King
  *
  */
-public class Integrator extends DoubleCalculation {
+public class Integrator extends DoubleCalculation implements ContinuousCalculation {
 
 	@Keyword(description = "The initial value for the integral at time = 0.",
 	         example = "Integrator-1 InitialValue { 5.5 }")
@@ -91,4 +91,25 @@ public class Integrator extends DoubleCalculation {
 		lastUpdateTime = simTime;
 	}
 
+	@Override
+	public int getNumStates() {
+		return 1;
+	}
+
+	@Override
+	public void getState(double[] y, int i) {
+		y[i] = integral;
+	}
+
+	@Override
+	public void setState(double simTime, double[] y, int i) {
+		integral = y[i];
+		lastUpdateTime = simTime;
+	}
+
+	@Override
+	public void getDerivatives(double simTime, double[] dydt, int i) {
+		dydt[i] = this.getInputValue(simTime);
+	}
+
 }
@@ -25,7 +25,7 @@ import com.jaamsim.units.TimeUnit;
  * @author Harry King
  *
  */
-public class Lag extends DoubleCalculation {
+public class Lag extends DoubleCalculation implements ContinuousCalculation {
 
 	@Keyword(description = "The time constant for this operation: output = integral( input - output) / LagTime.",
 	         example = "Lag-1 LagTime { 15 s }")
@@ -69,6 +69,28 @@ public class Lag extends DoubleCalculation {
 		lastUpdateTime = simTime;
 	}
 
+	@Override
+	public int getNumStates() {
+		return 1;
+	}
+
+	@Override
+	public void getState(double[] y, int i) {
+		y[i] = integral;
+	}
+
+	@Override
+	public void setState(double simTime, double[] y, int i) {
+		integral = y[i];
+		presentValue = integral / lagTime.getValue();
+		lastUpdateTime = simTime;
+	}
+
+	@Override
+	public void getDerivatives(double simTime, double[] dydt, int i) {
+		dydt[i] = this.getInputValue(simTime) - presentValue;
+	}
+
 	@Output(name = "Error",
 	 description = "The value for InputValue - OutputValue.")
 	public double getError( double simTime ) {
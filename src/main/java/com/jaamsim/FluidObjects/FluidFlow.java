@@ -29,6 +29,7 @@ public class FluidFlow extends FluidFlowCalculation {
 	private double flowAcceleration;  // The rate of change of the volumetric flow rate with respect to time (m3/s2).
 
 	private ArrayList<FluidComponent> routeList;  // A list of the hydraulic components in the flow, from source to destination.
+	private FluidComponent[] route;  // The components in routeList, iterated for each pressure update.
 	private double totalFlowInertia;  // The sum of Density x Length / FlowArea for the hydraulic components in the route.
 	private double destinationBaseInletPressure;  // The base pressure at the destination's inlet.
 	private double destinationTargetInletPressure;  // The desired inlet pressure at the destination's inlet.
@@ -61,6 +62,7 @@ public class FluidFlow extends FluidFlowCalculation {
 		if( routeList.get(0) != this.getSource() ) {
 			throw new InputErrorException( "The source of the route is not connected to the destination by the 'Previous' keyword inputs for the individual components." );
 		}
+		route = routeList.toArray(new FluidComponent[routeList.size()]);
 
 		// Set the Flow object for each component in the route
 		for( FluidComponent each : routeList ) {
@@ -81,10 +83,25 @@ public class FluidFlow extends FluidFlowCalculation {
 
 		// Update the flow rate
 		this.setFlowRate( this.getFlowRate() + flowAcceleration * dt );
+		this.updatePressures();
+
+		// Confirm that the pressure is now balanced
+		double diff = destination.getInletPressure() /
+				destination.getTargetInletPressure() - 1.0;
+		if( Math.abs( diff ) > 1.0e-4 ) {
+			error("Pressure did not balance correctly.  Difference = %f", diff);
+		}
+	}
+
+	/*
+	 * Calculate the pressures in the route and the flow acceleration for the present flow rate.
+	 */
+	private void updatePressures() {
+		FluidComponent destination = this.getDestination();
 
 		// Update the flow velocity and base pressures in each component of the flow route
 		// (base pressure ignores the affect of acceleration)
-		for( FluidComponent each : routeList ) {
+		for( FluidComponent each : route ) {
 			each.updateVelocity();
 			each.updateBaseInletPressure();
 			each.updateBaseOutletPressure();
@@ -97,17 +114,34 @@ public class FluidFlow extends FluidFlowCalculation {
 				- destinationTargetInletPressure ) / totalFlowInertia;
 
 		// Update the pressure in each component of the flow route after allowing for acceleration
-		for( FluidComponent each : routeList ) {
+		for( FluidComponent each : route ) {
 			each.updateInletPressure();
 			each.updateOutletPressure( flowAcceleration );
 		}
+	}
 
-		// Confirm that the pressure is now balanced
-		double diff = destination.getInletPressure() /
-				destination.getTargetInletPressure() - 1.0;
-		if( Math.abs( diff ) > 1.0e-4 ) {
-			error("Pressure did not balance correctly.  Difference = %f", diff);
-		}
+	@Override
+	public int getNumStates() {
+		return super.getNumStates() + 1;
+	}
+
+	@Override
+	public void getState(double[] y, int i) {
+		super.getState(y, i);
+		y[i + 1] = this.getFlowRate();
+	}
+
+	@Override
+	public void setState(double simTime, double[] y, int i) {
+		super.setState(simTime, y, i);
+		this.setFlowRate(y[i + 1]);
+	}
+
+	@Override
+	public void getDerivatives(double simTime, double[] dydt, int i) {
+		super.getDerivatives(simTime, dydt, i);
+		this.updatePressures();
+		dydt[i + 1] = flowAcceleration;
 	}
 
 	@Output(name = "FlowAcceleration",
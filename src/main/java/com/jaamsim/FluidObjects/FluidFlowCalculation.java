@@ -15,6 +15,7 @@
 package com.jaamsim.FluidObjects;
 
 import com.jaamsim.CalculationObjects.CalculationEntity;
+import com.jaamsim.CalculationObjects.ContinuousCalculation;
 import com.jaamsim.input.EntityInput;
 import com.jaamsim.input.Keyword;
 import com.jaamsim.input.Output;
@@ -25,7 +26,7 @@ import com.jaamsim.units.VolumeFlowUnit;
  * @author Harry King
  *
  */
-public abstract class FluidFlowCalculation extends CalculationEntity {
+public abstract class FluidFlowCalculation extends CalculationEntity implements ContinuousCalculation {
 
 	@Keyword(description = "The Fluid being moved by the flow.",
 	      example = "FluidFlow1 Fluid { Fluid1 }")
@@ -41,6 +42,7 @@ public abstract class FluidFlowCalculation extends CalculationEntity {
 
 	private double flowRate;  // The volumetric flow rate (m3/s) for the route.
 	private double lastUpdateTime;  // The time at which the last update was performed.
+	private double volumeMoved;  // The net volume (m3) moved from the source to the destination.
 
 	{
 		fluidInput = new EntityInput<>( Fluid.class, "Fluid", "Key Inputs", null);
@@ -58,6 +60,7 @@ public abstract class FluidFlowCalculation extends CalculationEntity {
 	public void earlyInit() {
 		super.earlyInit();
 		lastUpdateTime = 0.0;
+		volumeMoved = 0.0;
 	}
 
 	@Override
@@ -78,6 +81,7 @@ public abstract class FluidFlowCalculation extends CalculationEntity {
 		}
 		if( source != null ) { source.addVolume( -dV ); }
 		if( destination != null ) { destination.addVolume( dV ); }
+		volumeMoved += dV;
 
 		// Set the new flow rate
 		this.calcFlowRate( source, destination, dt);
@@ -85,6 +89,41 @@ public abstract class FluidFlowCalculation extends CalculationEntity {
 
 	protected abstract void calcFlowRate( FluidComponent source, FluidComponent destination, double dt );
 
+	@Override
+	public int getNumStates() {
+		return 1;
+	}
+
+	@Override
+	public void getState(double[] y, int i) {
+		y[i] = volumeMoved;
+	}
+
+	@Override
+	public void setState(double simTime, double[] y, int i) {
+		double dV = y[i] - volumeMoved;
+		FluidComponent source = sourceInput.getValue();
+		FluidComponent destination = destinationInput.getValue();
+		if( source != null ) { source.addVolume( -dV ); }
+		if( destination != null ) { destination.addVolume( dV ); }
+		volumeMoved = y[i];
+		lastUpdateTime = simTime;
+	}
+
+	@Override
+	public void getDerivatives(double simTime, double[] dydt, int i) {
+
+		// No flow is possible from an empty source or back from an empty destination
+		FluidComponent source = sourceInput.getValue();
+		FluidComponent destination = destinationInput.getValue();
+		double rate = flowRate;
+		if( rate > 0.0 && source != null && source.getFluidVolume() <= 0.0 )
+			rate = 0.0;
+		else if( rate < 0.0 && destination != null && destination.getFluidVolume() <= 0.0 )
+			rate = 0.0;
+		dydt[i] = rate;
+	}
+
 	protected void setFlowRate( double rate) {
 		flowRate = rate;
 	}
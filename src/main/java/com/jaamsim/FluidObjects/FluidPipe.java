@@ -58,6 +58,8 @@ public class FluidPipe extends FluidComponent {
 	private final ColourInput colourInput;
 
 	private double darcyFrictionFactor;  // The Darcy Friction Factor for the pipe flow.
+	private double frictionReynoldsNumber;  // The Reynolds Number used to calculate the friction factor.
+	private double frictionRoughness;  // The relative roughness used to calculate the friction factor.
 
 	{
 		lengthInput = new ValueInput( "Length", "Key Inputs", 1.0d);
@@ -116,6 +118,15 @@ public class FluidPipe extends FluidComponent {
 	private void setDarcyFrictionFactor() {
 
 		double reynoldsNumber = this.getReynoldsNumber();
+		double roughness = ( roughnessInput.getValue() / this.getDiameter() ) / 3.7;
+
+		// The factor is calculated twice for each flow update: once for the base pressures
+		// and again after allowing for acceleration. Both use the same Reynolds Number.
+		if( reynoldsNumber == frictionReynoldsNumber && roughness == frictionRoughness
+				&& darcyFrictionFactor > 0.0 )
+			return;
+		frictionReynoldsNumber = reynoldsNumber;
+		frictionRoughness = roughness;
 
 		// Laminar Flow
 		if( reynoldsNumber < 2300.0 ) {
@@ -123,11 +134,11 @@ public class FluidPipe extends FluidComponent {
 		}
 		// Turbulent Flow
 		else if( reynoldsNumber > 4000.0 ) {
-			darcyFrictionFactor = this.getTurbulentFrictionFactor( reynoldsNumber );
+			darcyFrictionFactor = this.getTurbulentFrictionFactor( reynoldsNumber, roughness );
 		}
 		// Transitional Flow
 		else {
-			darcyFrictionFactor = 0.5 * ( this.getLaminarFrictionFactor(reynoldsNumber) + this.getTurbulentFrictionFactor(reynoldsNumber) );
+			darcyFrictionFactor = 0.5 * ( this.getLaminarFrictionFactor(reynoldsNumber) + this.getTurbulentFrictionFactor(reynoldsNumber, roughness) );
 		}
 	}
 
@@ -141,11 +152,10 @@ public class FluidPipe extends FluidComponent {
 	/*
 	 * Return the Darcy Friction Factor for a turbulent flow.
 	 */
-	private double getTurbulentFrictionFactor( double reynoldsNumber ) {
+	private double getTurbulentFrictionFactor( double reynoldsNumber, double a ) {
 		double x = 1.0;  // The present value for x = 1 / sqrt( frictionfactor ).
 		double lastx = 0.0;
 
-		double a = ( roughnessInput.getValue() / this.getDiameter() ) / 3.7;
 		double b = 2.51 / reynoldsNumber;
 
 		int n = 0;
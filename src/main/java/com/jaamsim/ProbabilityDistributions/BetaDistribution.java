@@ -60,6 +60,7 @@ public class BetaDistribution extends Distribution {
 	public void earlyInit() {
 		super.earlyInit();
 		rng.setSeedStream(getStreamNumber(), getSubstreamNumber());
+		rng.setAntithetic(getAntithetic());
 	}
 
 	@Override
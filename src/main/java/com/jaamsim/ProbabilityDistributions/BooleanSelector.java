@@ -49,6 +49,7 @@ public class BooleanSelector extends DisplayEntity {
 	public void earlyInit() {
 		super.earlyInit();
 		rng.setSeedStream(randomSeedInput.getValue(), Distribution.getSubstreamNumber());
+		rng.setAntithetic(Distribution.getAntithetic());
 	}
 
 	public boolean getNextValue() {
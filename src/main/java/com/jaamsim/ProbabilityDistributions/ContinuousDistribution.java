@@ -42,6 +42,9 @@ public class ContinuousDistribution extends Distribution {
 	private final CumulativeProbInput cumulativeProbabilityListInput;
 
 	private final MRG1999a rng = new MRG1999a();
+	private double[] valueList;
+	private double[] cumProbList;
+	private int[] guideTable;  // entry j is the first index that can be selected for rand in [j/n, (j+1)/n)
 
 	{
 		valueListInput = new ValueListInput("ValueList", "Key Inputs", null);
@@ -70,6 +73,17 @@ public class ContinuousDistribution extends Distribution {
 	public void earlyInit() {
 		super.earlyInit();
 		rng.setSeedStream(getStreamNumber(), getSubstreamNumber());
+		rng.setAntithetic(getAntithetic());
+
+		// Store the values and cumulative probabilities for the guide table search
+		int n = cumulativeProbabilityListInput.getValue().size();
+		valueList = new double[n];
+		cumProbList = new double[n];
+		for (int i=0; i<n; i++) {
+			valueList[i] = valueListInput.getValue().get(i);
+			cumProbList[i] = cumulativeProbabilityListInput.getValue().get(i);
+		}
+		guideTable = buildGuideTable(cumProbList, 1);
 	}
 
 	@Override
@@ -82,17 +96,20 @@ public class ContinuousDistribution extends Distribution {
 	protected double getNextSample() {
 
 		double rand = rng.nextUniform();
-		DoubleVector cumList = cumulativeProbabilityListInput.getValue();
-		for( int i=1; i<cumList.size(); i++) {
-			if( rand < cumList.get(i) ) {
-				double cum = cumList.get(i);
-				double lastCum = cumList.get(i-1);
-				double val = valueListInput.getValue().get(i);
-				double lastVal = valueListInput.getValue().get(i-1);
-				return lastVal + (rand-lastCum)*(val-lastVal)/(cum-lastCum);
-			}
-		}
-		return valueListInput.getValue().get( cumList.size()-1 );
+
+		// Find the first cumulative probability that is greater than rand
+		int n = cumProbList.length;
+		int i = guideTable[(int)(rand*n)];
+		while (i < n && rand >= cumProbList[i])
+			i++;
+		if (i == n)
+			return valueList[n-1];
+
+		double cum = cumProbList[i];
+		double lastCum = cumProbList[i-1];
+		double val = valueList[i];
+		double lastVal = valueList[i-1];
+		return lastVal + (rand-lastCum)*(val-lastVal)/(cum-lastCum);
 	}
 
 	@Override
@@ -14,8 +14,6 @@
  */
 package com.jaamsim.ProbabilityDistributions;
 
-import java.util.Arrays;
-
 import com.jaamsim.datatypes.DoubleVector;
 import com.jaamsim.input.InputErrorException;
 import com.jaamsim.input.Keyword;
@@ -48,6 +46,7 @@ public class DiscreteDistribution extends Distribution {
 	private int[] sampleCount;  // number of times each index has been selected
 	private double[] valueList;
 	private double[] cumProbList;
+	private int[] guideTable;  // entry j is the first index that can be selected for rand in [j/n, (j+1)/n)
 
 	{
 		valueListInput = new ValueListInput( "ValueList", "Key Inputs", null);
@@ -78,10 +77,11 @@ public class DiscreteDistribution extends Distribution {
 	public void earlyInit() {
 		super.earlyInit();
 		rng.setSeedStream(getStreamNumber(), getSubstreamNumber());
+		rng.setAntithetic(getAntithetic());
 		int n = probabilityListInput.getValue().size();
 		sampleCount = new int[n];
 
-		// Store the values and cumulative probabilities for binary searching
+		// Store the values and cumulative probabilities for the guide table search
 		valueList = new double[n];
 		cumProbList = new double[n];
 		double total = 0.0d;
@@ -91,6 +91,7 @@ public class DiscreteDistribution extends Distribution {
 			cumProbList[i] = total;
 		}
 		cumProbList[n-1] = 1.0d;
+		guideTable = buildGuideTable(cumProbList, 0);
 	}
 
 	@Override
@@ -103,17 +104,11 @@ public class DiscreteDistribution extends Distribution {
 	protected double getNextSample() {
 
 		double rand = rng.nextUniform();
-		int index = -1;
-
-		// Binary search the cumulative probabilities
-		int k = Arrays.binarySearch(cumProbList, rand);
-		if (k >= 0)
-			index = k;
-		else
-			index = -k - 1;
 
-		if (index < 0 || index >= valueList.length)
-			error("Bad index returned from binary search.");
+		// Select the first value whose cumulative probability is not less than rand
+		int index = guideTable[(int)(rand*guideTable.length)];
+		while (cumProbList[index] < rand)
+			index++;
 
 		sampleCount[index]++;
 		return valueList[index];
@@ -14,6 +14,8 @@
  */
 package com.jaamsim.ProbabilityDistributions;
 
+import java.util.Arrays;
+
 import com.jaamsim.Graphics.DisplayEntity;
 import com.jaamsim.Samples.SampleProvider;
 import com.jaamsim.basicsim.Entity;
@@ -167,6 +169,10 @@ implements SampleProvider {
 		return Simulation.getSubstreamNumber();
 	}
 
+	public static boolean getAntithetic() {
+		return Simulation.getAntitheticVariates();
+	}
+
 	/**
 	 * Returns the next sample from the probability distribution.
 	 */
@@ -200,6 +206,68 @@ implements SampleProvider {
 		return nextSample;
 	}
 
+	/**
+	 * Fills the first n entries of the given array with the next n samples from the
+	 * probability distribution. The samples and statistics are the same as for n calls to
+	 * getNextSample, but the inputs and statistics are accessed only once for the array.
+	 * @param out - array to receive the samples
+	 * @param n - number of samples
+	 */
+	public final void fillSamples(double[] out, int n) {
+		if (!EventManager.hasCurrent()) {
+			Arrays.fill(out, 0, n, lastSample);
+			return;
+		}
+
+		double minVal = minValueInput.getValue();
+		double maxVal = maxValueInput.getValue();
+		double sum = sampleSum;
+		double squaredSum = sampleSquaredSum;
+		double min = sampleMin;
+		double max = sampleMax;
+		for (int i = 0; i < n; i++) {
+			double nextSample;
+			do {
+				nextSample = this.getNextSample();
+			}
+			while (nextSample < minVal || nextSample > maxVal);
+
+			out[i] = nextSample;
+			sum += nextSample;
+			squaredSum += nextSample * nextSample;
+			min = Math.min(min, nextSample);
+			max = Math.max(max, nextSample);
+		}
+		if (n <= 0)
+			return;
+
+		lastSample = out[n - 1];
+		sampleCount += n;
+		sampleSum = sum;
+		sampleSquaredSum = squaredSum;
+		sampleMin = min;
+		sampleMax = max;
+	}
+
+	/**
+	 * Returns the guide table for the given cumulative probabilities. Entry j of the table
+	 * is the first index i >= start for which (int)(cum[i]*n) >= j, where n is the number of
+	 * probabilities. Since rounding preserves order, the first index with cum[i] >= rand
+	 * cannot be less than entry (int)(rand*n), so a linear search started there selects the
+	 * same index as a search of the whole list and takes O(1) steps on average.
+	 */
+	protected static int[] buildGuideTable(double[] cum, int start) {
+		int n = cum.length;
+		int[] ret = new int[n];
+		int i = start;
+		for (int j = 0; j < n; j++) {
+			while (i < n - 1 && (int)(cum[i]*n) < j)
+				i++;
+			ret[j] = i;
+		}
+		return ret;
+	}
+
 	@Override
 	public double getMinValue() {
 		return minValueInput.getValue();
@@ -58,6 +58,7 @@ public class ErlangDistribution extends Distribution {
 	public void earlyInit() {
 		super.earlyInit();
 		rng.setSeedStream(getStreamNumber(), getSubstreamNumber());
+		rng.setAntithetic(getAntithetic());
 	}
 
 	@Override
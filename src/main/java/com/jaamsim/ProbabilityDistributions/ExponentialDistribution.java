@@ -47,6 +47,7 @@ public class ExponentialDistribution extends Distribution {
 	public void earlyInit() {
 		super.earlyInit();
 		rng.setSeedStream(getStreamNumber(), getSubstreamNumber());
+		rng.setAntithetic(getAntithetic());
 	}
 
 	@Override
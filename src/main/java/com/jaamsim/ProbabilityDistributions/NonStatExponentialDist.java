@@ -52,6 +52,7 @@ public class NonStatExponentialDist extends Distribution {
 	public void earlyInit() {
 		super.earlyInit();
 		rng.setSeedStream(getStreamNumber(), getSubstreamNumber());
+		rng.setAntithetic(getAntithetic());
 	}
 
 	@Override
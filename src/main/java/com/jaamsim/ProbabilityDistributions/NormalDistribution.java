@@ -56,7 +56,9 @@ public class NormalDistribution extends Distribution {
 		super.earlyInit();
 
 		rng1.setSeedStream(getStreamNumber()    , getSubstreamNumber());
+		rng1.setAntithetic(getAntithetic());
 		rng2.setSeedStream(getStreamNumber() + 1, getSubstreamNumber());
+		rng2.setAntithetic(getAntithetic());
 	}
 
 	@Override
@@ -32,6 +32,10 @@ public class SampleExpression implements SampleProvider {
 		unitType = ut;
 	}
 
+	public ExpParser.Expression getExpression() {
+		return exp;
+	}
+
 	@Override
 	public Class<? extends Unit> getUnitType() {
 		return unitType;
@@ -53,6 +57,45 @@ public class SampleExpression implements SampleProvider {
 		return ret;
 	}
 
+	/**
+	 * Evaluates the expression at each of the given simulation times.
+	 * @param simTimes - simulation times at which to evaluate the expression
+	 * @param out - array to receive the sampled values, one per simulation time
+	 */
+	public void getNextSamples(double[] simTimes, double[] out) {
+		try {
+			Class<? extends Unit> ut = ExpEvaluator.evaluateExpression(exp, simTimes, thisEnt, out);
+			this.checkUnitType(ut, out);
+		}
+		catch(ExpError e) {
+			thisEnt.error("%s", e.getMessage());
+		}
+	}
+
+	/**
+	 * Evaluates the expression at the given simulation time using each of the given entities
+	 * in turn as the 'this' entity.
+	 * @param simTime - simulation time at which to evaluate the expression
+	 * @param ents - entities to use as 'this' in the expression
+	 * @param out - array to receive the sampled values, one per entity
+	 */
+	public void getNextSamples(double simTime, Entity[] ents, double[] out) {
+		try {
+			Class<? extends Unit> ut = ExpEvaluator.evaluateExpression(exp, simTime, ents, out);
+			this.checkUnitType(ut, out);
+		}
+		catch(ExpError e) {
+			thisEnt.error("%s", e.getMessage());
+		}
+	}
+
+	private void checkUnitType(Class<? extends Unit> ut, double[] out) {
+		if (out.length == 0 || ut == unitType)
+			return;
+		thisEnt.error("Invalid unit returned by an expression. Received: %s, expected: %s",
+				ut.getSimpleName(), unitType.getSimpleName(), "");
+	}
+
 	@Override
 	public double getMeanValue(double simTime) {
 		return 0;
@@ -18,6 +18,8 @@ import java.util.Arrays;
 
 import com.jaamsim.Graphics.DisplayEntity;
 import com.jaamsim.basicsim.Simulation;
+import com.jaamsim.input.EntityInput;
+import com.jaamsim.input.FileInput;
 import com.jaamsim.input.Input;
 import com.jaamsim.input.InputErrorException;
 import com.jaamsim.input.Keyword;
@@ -26,6 +28,7 @@ import com.jaamsim.input.TimeSeriesDataInput;
 import com.jaamsim.input.UnitTypeInput;
 import com.jaamsim.input.ValueInput;
 import com.jaamsim.ui.FrameBox;
+import com.jaamsim.units.DimensionlessUnit;
 import com.jaamsim.units.TimeUnit;
 import com.jaamsim.units.Unit;
 import com.jaamsim.units.UserSpecifiedUnit;
@@ -55,6 +58,28 @@ public class TimeSeries extends DisplayEntity implements TimeSeriesProvider {
 	         exampleList = {"8760.0 h"})
 	private final ValueInput cycleTime;
 
+	@Keyword(description = "A file containing the time series records, used instead of the Value keyword " +
+					"for large time series. The file is either text, with one 'time, value' record per line, " +
+					"or binary, with the times in clock ticks and the values in SI units. " +
+					"The data is read when it is first required.",
+	         exampleList = {"'demand.csv'"})
+	private final FileInput dataFile;
+
+	@Keyword(description = "The unit for numeric times in a text DataFile. " +
+					"It must be specified if the file contains numeric times. " +
+					"Times in RFC8601 date/time format do not require a unit.",
+	         exampleList = {"h"})
+	private final EntityInput<TimeUnit> dataFileTimeUnit;
+
+	@Keyword(description = "The unit for the values in a text DataFile. " +
+					"It must be specified unless the UnitType is DimensionlessUnit. " +
+					"The values in a binary DataFile are in SI units.",
+	         exampleList = {"m"})
+	private final EntityInput<Unit> dataFileValueUnit;
+
+	private TimeSeriesData fileData;  // data read from DataFile
+	private double fileTickLength;    // clock tick length used to convert the file data into ticks
+
 	{
 		unitType = new UnitTypeInput( "UnitType", "Key Inputs", UserSpecifiedUnit.class );
 		unitType.setRequired(true);
@@ -62,12 +87,25 @@ public class TimeSeries extends DisplayEntity implements TimeSeriesProvider {
 
 		value = new TimeSeriesDataInput("Value", "Key Inputs", null);
 		value.setUnitType(UserSpecifiedUnit.class);
-		value.setRequired(true);
 		this.addInput(value);
 
 		cycleTime = new ValueInput( "CycleTime", "Key Inputs", Double.POSITIVE_INFINITY );
 		cycleTime.setUnitType(TimeUnit.class);
 		this.addInput( cycleTime );
+
+		dataFile = new FileInput("DataFile", "Key Inputs", null);
+		dataFile.setFileType("Time Series");
+		dataFile.setValidFileExtensions("CSV", "TXT", "TSB");
+		dataFile.setValidFileDescriptions("Comma Separated Values (*.csv)", "Text File (*.txt)",
+				"Binary Time Series (*.tsb)");
+		this.addInput(dataFile);
+
+		dataFileTimeUnit = new EntityInput<>(TimeUnit.class, "DataFileTimeUnit", "Key Inputs", null);
+		this.addInput(dataFileTimeUnit);
+
+		dataFileValueUnit = new EntityInput<>(Unit.class, "DataFileValueUnit", "Key Inputs", null);
+		dataFileValueUnit.setSubClass(null);
+		this.addInput(dataFileValueUnit);
 	}
 
 	public TimeSeries() { }
@@ -76,12 +114,18 @@ public class TimeSeries extends DisplayEntity implements TimeSeriesProvider {
 	public void validate() {
 		super.validate();
 
-		if (value.getTickLength() != Simulation.getTickLength())
+		if (value.getValue() == null && dataFile.getValue() == null)
+			throw new InputErrorException("Either the Value or the DataFile keyword must be specified");
+
+		if (value.getValue() != null && dataFile.getValue() != null)
+			throw new InputErrorException("The Value and DataFile keywords cannot both be specified");
+
+		if (dataFile.getValue() == null && value.getTickLength() != Simulation.getTickLength())
 			throw new InputErrorException("A new value was entered for the Simulation keyword TickLength " +
 					"after the TimeSeries data had been loaded.%n" +
 					"The configuration file must be saved and reloaded before the simulation can be executed.");
 
-		long[] ticksList = value.getValue().ticksList;
+		long[] ticksList = getData().ticksList;
 		if (getTicks(cycleTime.getValue()) < ticksList[ticksList.length - 1])
 			throw new InputErrorException( "CycleTime must be larger than the last time in the series" );
 	}
@@ -92,9 +136,39 @@ public class TimeSeries extends DisplayEntity implements TimeSeriesProvider {
 
 		if (in == unitType) {
 			value.setUnitType( unitType.getUnitType() );
+			dataFileValueUnit.setSubClass( unitType.getUnitType() );
 			this.getOutputHandle("PresentValue").setUnitType( unitType.getUnitType() );
+			fileData = null;
 			return;
 		}
+
+		if (in == dataFile || in == dataFileTimeUnit || in == dataFileValueUnit) {
+			fileData = null;
+			return;
+		}
+	}
+
+	/**
+	 * Returns the time series data, reading it from the DataFile on first use.
+	 */
+	private TimeSeriesData getData() {
+		if (dataFile.getValue() == null)
+			return value.getValue();
+
+		// Re-read the file if the clock tick length has been changed
+		if (fileData == null || fileTickLength != Simulation.getTickLength()) {
+			fileTickLength = Simulation.getTickLength();
+			double timeFactor = Double.NaN;
+			if (dataFileTimeUnit.getValue() != null)
+				timeFactor = dataFileTimeUnit.getValue().getConversionFactorToSI();
+			double valueFactor = Double.NaN;
+			if (dataFileValueUnit.getValue() != null)
+				valueFactor = dataFileValueUnit.getValue().getConversionFactorToSI();
+			else if (unitType.getUnitType() == DimensionlessUnit.class)
+				valueFactor = 1.0d;
+			fileData = TimeSeriesDataFile.load(dataFile.getValue(), fileTickLength, timeFactor, valueFactor);
+		}
+		return fileData;
 	}
 
 	@Override
@@ -142,7 +216,7 @@ public class TimeSeries extends DisplayEntity implements TimeSeriesProvider {
 		if (cycleTime.getValue() < Double.POSITIVE_INFINITY)
 			return getTicks(cycleTime.getValue());
 
-		long[] ticksList = value.getValue().ticksList;
+		long[] ticksList = getData().ticksList;
 		return ticksList[ ticksList.length-1 ];
 	}
 
@@ -153,12 +227,12 @@ public class TimeSeries extends DisplayEntity implements TimeSeriesProvider {
 
 	@Override
 	public double getMaxValue() {
-		return value.getValue().getMaxValue();
+		return getData().getMaxValue();
 	}
 
 	@Override
 	public double getMinValue() {
-		return value.getValue().getMinValue();
+		return getData().getMinValue();
 	}
 
 	@Override
@@ -177,7 +251,7 @@ public class TimeSeries extends DisplayEntity implements TimeSeriesProvider {
 	 */
 	private TSPoint getTSPointForTicks(long ticks) {
 
-		long[] ticksList = value.getValue().ticksList;
+		long[] ticksList = getData().ticksList;
 		if (ticks == Long.MAX_VALUE) {
 			if (cycleTime.getValue() == Double.POSITIVE_INFINITY)
 				return new TSPoint(ticksList.length - 1, 0);
@@ -220,7 +294,7 @@ public class TimeSeries extends DisplayEntity implements TimeSeriesProvider {
 	 */
 	private TSPoint getTSPointForValue(double val) {
 
-		double[] valueList = value.getValue().valueList;
+		double[] valueList = getData().valueList;
 		if (val > getMaxValue() && cycleTime.getValue() == Double.POSITIVE_INFINITY)
 			return new TSPoint(valueList.length - 1, 0);
 
@@ -258,8 +332,8 @@ public class TimeSeries extends DisplayEntity implements TimeSeriesProvider {
 		if (pt.index == -1)
 			return Long.MAX_VALUE;
 		if (cycleTime.getValue() == Double.POSITIVE_INFINITY)
-			return value.getValue().ticksList[pt.index];
-		return value.getValue().ticksList[pt.index] + pt.numberOfCycles*getTicks(cycleTime.getValue());
+			return getData().ticksList[pt.index];
+		return getData().ticksList[pt.index] + pt.numberOfCycles*getTicks(cycleTime.getValue());
 	}
 
 	/**
@@ -269,7 +343,7 @@ public class TimeSeries extends DisplayEntity implements TimeSeriesProvider {
 	 * @return value for the time series.
 	 */
 	private double getValue(TSPoint pt) {
-		double valueList[] = value.getValue().valueList;
+		double valueList[] = getData().valueList;
 		if (pt.index == -1)
 			return valueList[ valueList.length - 1 ];
 		return valueList[pt.index];
@@ -302,7 +376,7 @@ public class TimeSeries extends DisplayEntity implements TimeSeriesProvider {
 		if (pt.index == -1)
 			return new TSPoint(pt.index, pt.numberOfCycles);
 
-		if (pt.index == value.getValue().ticksList.length - 1) {
+		if (pt.index == getData().ticksList.length - 1) {
 			if (cycleTime.getValue() == Double.POSITIVE_INFINITY)
 				return new TSPoint(-1, pt.numberOfCycles);
 
@@ -341,7 +415,7 @@ public class TimeSeries extends DisplayEntity implements TimeSeriesProvider {
 		TSPoint low = getTSPointForTicks(ticks);
 		TSPoint high = getTSPointAfter(low);
 		if (high.index == -1) {
-			double valueList[] = value.getValue().valueList;
+			double valueList[] = getData().valueList;
 			return valueList[ valueList.length - 1 ];
 		}
 
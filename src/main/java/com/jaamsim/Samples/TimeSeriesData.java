@@ -38,6 +38,17 @@ public class TimeSeriesData {
 		}
 	}
 
+	public TimeSeriesData( long[] ticks, double[] values ) {
+		ticksList = ticks;
+		valueList = values;
+		maxValue = Double.NEGATIVE_INFINITY;
+		minValue = Double.POSITIVE_INFINITY;
+		for (int i = 0; i < valueList.length; i++) {
+			maxValue = Math.max(maxValue, valueList[i]);
+			minValue = Math.min(minValue, valueList[i]);
+		}
+	}
+
 	public double getMaxValue() {
 		return maxValue;
 	}
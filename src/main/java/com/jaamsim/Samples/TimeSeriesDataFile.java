@@ -0,0 +1,367 @@
+/*
+ * JaamSim Discrete Event Simulation
+ * Copyright (C) 2015 Ausenco Engineering Canada Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ */
+package com.jaamsim.Samples;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import com.jaamsim.input.Input;
+import com.jaamsim.input.InputErrorException;
+import com.jaamsim.input.Parser;
+
+/**
+ * Loads time series data from an external file rather than from inline records.
+ * <p>
+ * Two formats are supported:
+ * <ul>
+ * <li>Text - one record per line in the form <code>time, value</code>. The time is either
+ * an RFC8601 date/time or a number in the given time unit, and the value is a number in
+ * the given value unit. A unit must be given for numeric times and for the values, as for
+ * inline records. Blank lines and lines starting with # are ignored. Large files are
+ * split into blocks of lines that are parsed in parallel on a shared pool of threads.
+ * <li>Binary - a little-endian file starting with the int 0x4A535453 ("JSTS"), the int
+ * format version (1), the double clock tick length in seconds used for the times, and the
+ * int number of points N. These are followed by N long times in clock ticks and N double
+ * values in SI units. The data is copied directly into the arrays.
+ * </ul>
+ * The whole file is read into memory and closed before it is parsed.
+ */
+public class TimeSeriesDataFile {
+	private static final int BINARY_MAGIC = 0x4A535453;
+	private static final int BINARY_VERSION = 1;
+	private static final int BINARY_HEADER = 20;
+
+	private static final int MIN_BLOCK_SIZE = 1 << 20;  // smallest text block parsed by a separate thread
+
+	private static ExecutorService pool;  // threads used to parse the blocks of a text file
+
+	private TimeSeriesDataFile() {}
+
+	/**
+	 * Reads the time series data from the given file.
+	 * @param uri - file to read
+	 * @param tickLength - simulation clock tick length in seconds
+	 * @param timeFactor - conversion factor to seconds for numeric times in a text file,
+	 * or NaN if a time unit was not given
+	 * @param valueFactor - conversion factor to SI units for the values in a text file,
+	 * or NaN if a value unit was not given
+	 */
+	public static TimeSeriesData load(URI uri, double tickLength, double timeFactor, double valueFactor)
+	throws InputErrorException {
+		File file;
+		try {
+			file = new File(uri);
+		}
+		catch (IllegalArgumentException e) {
+			throw new InputErrorException("Time series data must be read from a local file: %s", uri.toString());
+		}
+
+		ByteBuffer bytes;
+		try {
+			bytes = ByteBuffer.wrap(Files.readAllBytes(file.toPath()));
+		}
+		catch (IOException e) {
+			throw new InputErrorException("Could not read time series file %s - %s", file.getName(), e.getMessage());
+		}
+		bytes.order(ByteOrder.LITTLE_ENDIAN);
+
+		if (bytes.limit() >= BINARY_HEADER && bytes.getInt(0) == BINARY_MAGIC)
+			return readBinary(bytes, tickLength);
+
+		CharSequence chars = Charset.defaultCharset().decode(bytes);
+		int blockSize = Math.max(MIN_BLOCK_SIZE, chars.length() / Runtime.getRuntime().availableProcessors() + 1);
+		return readText(chars, tickLength, timeFactor, valueFactor, blockSize);
+	}
+
+	static TimeSeriesData readBinary(ByteBuffer bytes, double tickLength) {
+		if (bytes.getInt(4) != BINARY_VERSION)
+			throw new InputErrorException("Unsupported time series file version: %d", bytes.getInt(4));
+
+		double fileTickLength = bytes.getDouble(8);
+		int n = bytes.getInt(16);
+		if (n <= 0 || bytes.limit() < BINARY_HEADER + 16L * n)
+			throw new InputErrorException("Time series file is truncated, expected %d points", n);
+
+		long[] ticks = new long[n];
+		double[] values = new double[n];
+		bytes.position(BINARY_HEADER);
+		bytes.asLongBuffer().get(ticks);
+		bytes.position(BINARY_HEADER + 8 * n);
+		bytes.asDoubleBuffer().get(values);
+
+		// Rescale the times if the clock tick length has changed
+		if (fileTickLength != tickLength) {
+			double factor = fileTickLength / tickLength;
+			for (int i = 0; i < n; i++)
+				ticks[i] = Math.round(ticks[i] * factor);
+		}
+
+		for (int i = 1; i < n; i++) {
+			if (ticks[i] <= ticks[i - 1])
+				throw new InputErrorException("The times must be given in increasing order at point %d", i + 1);
+		}
+
+		return new TimeSeriesData(ticks, values);
+	}
+
+	/**
+	 * Parsed contents of one block of lines from a text file.
+	 */
+	private static final class Block implements Callable<Block> {
+		final CharSequence chars;
+		final int start;
+		final int end;
+		final double timeFactor;
+		final double valueFactor;
+
+		long[] times = new long[1024];  // in microseconds
+		double[] values = new double[1024];
+		int size = 0;
+
+		Block(CharSequence chars, int start, int end, double timeFactor, double valueFactor) {
+			this.chars = chars;
+			this.start = start;
+			this.end = end;
+			this.timeFactor = timeFactor;
+			this.valueFactor = valueFactor;
+		}
+
+		@Override
+		public Block call() {
+			int lineStart = start;
+			int lineNum = 0;
+			for (int i = start; i <= end; i++) {
+				if (i < end && chars.charAt(i) != '\n')
+					continue;
+
+				lineNum++;
+				try {
+					this.parseLine(lineStart, i);
+				}
+				catch (InputErrorException e) {
+					throw new InputErrorException("Line %d: %s", countLines(chars, start) + lineNum, e.getMessage());
+				}
+				lineStart = i + 1;
+			}
+			return this;
+		}
+
+		private void parseLine(int s, int e) {
+			// Trim white space and the carriage return
+			while (s < e && Character.isWhitespace(chars.charAt(s)))
+				s++;
+			while (e > s && Character.isWhitespace(chars.charAt(e - 1)))
+				e--;
+			if (s == e || chars.charAt(s) == '#')
+				return;
+
+			// Split the time and value fields
+			int sep = -1;
+			for (int i = s; i < e; i++) {
+				char c = chars.charAt(i);
+				if (c == ',' || c == '\t' || c == ';') {
+					sep = i;
+					break;
+				}
+			}
+			if (sep == -1)
+				throw new InputErrorException("Expected a time and a value separated by a comma");
+
+			long us = this.parseTime(s, trimEnd(sep, s));
+			double val;
+			int vs = trimStart(sep + 1, e);
+			try {
+				val = Parser.parseDouble(chars, vs, e) * valueFactor;
+			}
+			catch (NumberFormatException ex) {
+				throw new InputErrorException("Expected a numeric value, got: %s", chars.subSequence(vs, e));
+			}
+
+			if (size == times.length) {
+				times = Arrays.copyOf(times, size * 2);
+				values = Arrays.copyOf(values, size * 2);
+			}
+			times[size] = us;
+			values[size] = val;
+			size++;
+		}
+
+		private long parseTime(int s, int e) {
+			// Strip optional quotes around a date/time
+			if (e - s >= 2 && (chars.charAt(s) == '\'' || chars.charAt(s) == '"') && chars.charAt(e - 1) == chars.charAt(s)) {
+				s++;
+				e--;
+			}
+
+			// Numeric times never contain a ':' or a '-' after the first character
+			boolean isDate = false;
+			for (int i = s + 1; i < e; i++) {
+				char c = chars.charAt(i);
+				if (c == ':' || c == '-' && chars.charAt(i - 1) != 'e' && chars.charAt(i - 1) != 'E') {
+					isDate = true;
+					break;
+				}
+			}
+
+			if (isDate) {
+				String str = chars.subSequence(s, e).toString();
+				if (!Input.isRFC8601DateTime(str))
+					throw new InputErrorException("Expected a valid RFC8601 datetime, got: %s", str);
+				return Input.parseRFC8601DateTime(str);
+			}
+
+			if (Double.isNaN(timeFactor))
+				throw new InputErrorException("The DataFileTimeUnit keyword must be set for a numeric time, got: %s",
+						chars.subSequence(s, e));
+
+			try {
+				double secs = Parser.parseDouble(chars, s, e) * timeFactor;
+				if (secs < 0.0d)
+					throw new InputErrorException("Times must not be negative, got: %s", chars.subSequence(s, e));
+				return (long) (secs * 1e6);
+			}
+			catch (NumberFormatException ex) {
+				throw new InputErrorException("Expected a numeric time or an RFC8601 datetime, got: %s", chars.subSequence(s, e));
+			}
+		}
+
+		private int trimStart(int s, int e) {
+			while (s < e && Character.isWhitespace(chars.charAt(s)))
+				s++;
+			return s;
+		}
+
+		private int trimEnd(int e, int s) {
+			while (e > s && Character.isWhitespace(chars.charAt(e - 1)))
+				e--;
+			return e;
+		}
+	}
+
+	private static int countLines(CharSequence chars, int end) {
+		int ret = 0;
+		for (int i = 0; i < end; i++) {
+			if (chars.charAt(i) == '\n')
+				ret++;
+		}
+		return ret;
+	}
+
+	private static synchronized ExecutorService getPool() {
+		if (pool == null) {
+			pool = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), new ThreadFactory() {
+				@Override
+				public Thread newThread(Runnable r) {
+					Thread thread = new Thread(r, "TimeSeriesReader");
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+		}
+		return pool;
+	}
+
+	/**
+	 * Parses the records in a text file.
+	 * @param blockSize - number of characters in each block of lines parsed separately
+	 */
+	static TimeSeriesData readText(CharSequence chars, double tickLength, double timeFactor, double valueFactor, int blockSize) {
+		if (Double.isNaN(valueFactor))
+			throw new InputErrorException("The DataFileValueUnit keyword must be set for a text DataFile");
+
+		// Divide the file into blocks of whole lines
+		int len = chars.length();
+		ArrayList<Block> blocks = new ArrayList<>();
+		int start = 0;
+		while (start < len) {
+			int end = Math.min(len, start + blockSize);
+			while (end < len && chars.charAt(end) != '\n')
+				end++;
+			blocks.add(new Block(chars, start, end, timeFactor, valueFactor));
+			start = end + 1;
+		}
+
+		// Parse the blocks
+		if (blocks.size() == 1) {
+			blocks.get(0).call();
+		}
+		else {
+			ArrayList<Future<Block>> futures = new ArrayList<>(blocks.size());
+			try {
+				for (Block b : blocks)
+					futures.add(getPool().submit(b));
+				for (Future<Block> f : futures)
+					f.get();
+			}
+			catch (ExecutionException e) {
+				if (e.getCause() instanceof InputErrorException)
+					throw (InputErrorException)e.getCause();
+				throw new InputErrorException("Error reading time series file - %s", e.getCause().getMessage());
+			}
+			catch (InterruptedException e) {
+				throw new InputErrorException("Reading of the time series file was interrupted");
+			}
+			finally {
+				for (Future<Block> f : futures)
+					f.cancel(true);
+			}
+		}
+
+		int n = 0;
+		for (Block b : blocks)
+			n += b.size;
+		if (n == 0)
+			throw new InputErrorException("The time series file contains no records");
+
+		// Join the blocks and convert the times to clock ticks in the same way as inline records,
+		// i.e. relative to the start of the year containing the first record
+		long[] ticks = new long[n];
+		double[] values = new double[n];
+		long startingYearOffset = -1;
+		long lastTime = -1;
+		int k = 0;
+		for (Block b : blocks) {
+			for (int i = 0; i < b.size; i++, k++) {
+				long recordus = b.times[i];
+				if (recordus <= lastTime)
+					throw new InputErrorException("The times must be given in increasing order at record %d", k + 1);
+				lastTime = recordus;
+
+				if (startingYearOffset == -1) {
+					startingYearOffset = recordus / Input.usPerYr;
+					startingYearOffset *= Input.usPerYr;
+				}
+
+				ticks[k] = Math.round((recordus - startingYearOffset)/(1.0e6*tickLength));
+				values[k] = b.values[i];
+			}
+		}
+
+		return new TimeSeriesData(ticks, values);
+	}
+}
@@ -15,6 +15,7 @@
 package com.jaamsim.StringProviders;
 
 import com.jaamsim.basicsim.ErrorException;
+import com.jaamsim.basicsim.ValueWriter;
 import com.jaamsim.input.OutputChain;
 import com.jaamsim.input.OutputHandle;
 import com.jaamsim.units.Unit;
@@ -50,6 +51,25 @@ public class StringProvOutput implements StringProvider {
 		}
 	}
 
+	@Override
+	public void writeNext(ValueWriter log, double simTime, double siFactor) {
+		OutputHandle out = chain.getOutputHandle(simTime);
+		if (out == null)
+			throw new ErrorException("Expression cannot be evaluated: %s.", chain.toString());
+
+		if (out.isNumericValue()) {
+			if (out.getUnitType() != unitType && unitType != null)
+				throw new ErrorException("Unit mismatch. Expected a %s, received a %s",
+						unitType, out.getUnitType());
+			double d = out.getValueAsDouble(simTime, 0.0d);
+			log.put(d/siFactor);
+		}
+		else {
+			Object obj = out.getValue(simTime, out.getReturnType());
+			log.put(String.valueOf(obj));
+		}
+	}
+
 	@Override
 	public String toString() {
 		return chain.toString();
@@ -15,6 +15,7 @@
 package com.jaamsim.StringProviders;
 
 import com.jaamsim.Samples.SampleProvider;
+import com.jaamsim.basicsim.ValueWriter;
 
 public class StringProvSample implements StringProvider {
 	private final SampleProvider samp;
@@ -28,6 +29,11 @@ public class StringProvSample implements StringProvider {
 		return String.format(fmt, samp.getNextSample(simTime)/siFactor);
 	}
 
+	@Override
+	public void writeNext(ValueWriter log, double simTime, double siFactor) {
+		log.put(samp.getNextSample(simTime)/siFactor);
+	}
+
 	@Override
 	public String toString() {
 		return samp.toString();
@@ -14,6 +14,15 @@
  */
 package com.jaamsim.StringProviders;
 
+import com.jaamsim.basicsim.ValueWriter;
+
 public interface StringProvider {
 	public String getNextString(double simTime, String fmt, double siFactor);
+
+	/**
+	 * Appends the next value to a log file. Numbers are passed to the log without
+	 * being formatted. A text log writes them in the same form as getNextString with
+	 * the format "%s".
+	 */
+	public void writeNext(ValueWriter log, double simTime, double siFactor);
 }
@@ -15,9 +15,9 @@
 package com.jaamsim.Thresholds;
 
 import java.util.ArrayList;
+import java.util.HashSet;
 
 import com.jaamsim.DisplayModels.ShapeModel;
-import com.jaamsim.basicsim.Entity;
 import com.jaamsim.basicsim.EntityTarget;
 import com.jaamsim.events.EventHandle;
 import com.jaamsim.events.ProcessTarget;
@@ -48,10 +48,13 @@ public class Threshold extends StateEntity {
 	         example = "Threshold1 ShowWhenClosed { FALSE }")
 	private final BooleanInput showWhenClosed;
 
-	private final ArrayList<ThresholdUser> userList;
+	private final ArrayList<ThresholdUser> userList;  // objects that use this threshold
 
 	private boolean open;
 
+	private static final int STATE_OPEN = getStateIndex("Open");
+	private static final int STATE_CLOSED = getStateIndex("Closed");
+
 	{
 		openColour = new ColourInput( "OpenColour", "Graphics", ColourInput.GREEN );
 		this.addInput( openColour );
@@ -75,17 +78,20 @@ public class Threshold extends StateEntity {
 	@Override
 	public void earlyInit() {
 		super.earlyInit();
-		thresholdChangedTarget.users.clear();
+		thresholdChangedTarget.clear();
 		open = true;
 
+		// The users add themselves to the list in lateInit
 		userList.clear();
-		for (Entity each : Entity.getAll()) {
-			if (each instanceof ThresholdUser) {
-				ThresholdUser tu = (ThresholdUser)each;
-				if (tu.getThresholds().contains(this))
-					userList.add(tu);
-			}
-		}
+	}
+
+	/**
+	 * Adds an object to be notified when this threshold opens or closes. Each user
+	 * should be added once, during lateInit.
+	 * @param user - object that uses this threshold.
+	 */
+	public void addUser(ThresholdUser user) {
+		userList.add(user);
 	}
 
 	/**
@@ -121,17 +127,35 @@ public class Threshold extends StateEntity {
 	private static final EventHandle thresholdChangedHandle = new EventHandle();
 	private static final ThresholdChangedTarget thresholdChangedTarget = new ThresholdChangedTarget();
 
+	/**
+	 * Notifies each user once for all the thresholds that have changed at the same time.
+	 */
 	private static class ThresholdChangedTarget extends ProcessTarget {
-		public final ArrayList<ThresholdUser> users = new ArrayList<>();
+		private final ArrayList<ThresholdUser> users = new ArrayList<>();
+		private final HashSet<ThresholdUser> userSet = new HashSet<>();
 
 		public ThresholdChangedTarget() {}
 
+		void add(ThresholdUser user) {
+			if (userSet.add(user))
+				users.add(user);
+		}
+
+		boolean isEmpty() {
+			return users.isEmpty();
+		}
+
+		void clear() {
+			users.clear();
+			userSet.clear();
+		}
+
 		@Override
 		public void process() {
 			for( int i = 0; i < users.size(); i++ )
 				users.get( i ).thresholdChanged();
 
-			users.clear();
+			this.clear();
 		}
 
 		@Override
@@ -151,15 +175,15 @@ public class Threshold extends StateEntity {
 
 		open = bool;
 		if (open)
-			setPresentState("Open");
+			setPresentState(STATE_OPEN);
 		else
-			setPresentState("Closed");
+			setPresentState(STATE_CLOSED);
 
 		for (ThresholdUser user : this.userList) {
-			if (!thresholdChangedTarget.users.contains(user))
-				thresholdChangedTarget.users.add(user);
+			user.updateForThreshold(this, open);
+			thresholdChangedTarget.add(user);
 		}
-		if (!thresholdChangedTarget.users.isEmpty() && !thresholdChangedHandle.isScheduled())
+		if (!thresholdChangedTarget.isEmpty() && !thresholdChangedHandle.isScheduled())
 			this.scheduleProcessTicks(0, 2, false, thresholdChangedTarget, thresholdChangedHandle);
 	}
 
@@ -233,8 +257,8 @@ public class Threshold extends StateEntity {
 	    unitType = DimensionlessUnit.class)
 	public double getOpenFraction(double simTime) {
 		long simTicks = FrameBox.secondsToTicks(simTime);
-		long openTicks = this.getTicksInState(simTicks, getState("Open"));
-		long closedTicks = this.getTicksInState(simTicks, getState("Closed"));
+		long openTicks = this.getTicksInState(simTicks, getState(STATE_OPEN));
+		long closedTicks = this.getTicksInState(simTicks, getState(STATE_CLOSED));
 		long totTicks = openTicks + closedTicks;
 
 		return (double)openTicks / totTicks;
@@ -245,8 +269,8 @@ public class Threshold extends StateEntity {
 	    unitType = DimensionlessUnit.class)
 	public double getClosedFraction(double simTime) {
 		long simTicks = FrameBox.secondsToTicks(simTime);
-		long openTicks = this.getTicksInState(simTicks, getState("Open"));
-		long closedTicks = this.getTicksInState(simTicks, getState("Closed"));
+		long openTicks = this.getTicksInState(simTicks, getState(STATE_OPEN));
+		long closedTicks = this.getTicksInState(simTicks, getState(STATE_CLOSED));
 		long totTicks = openTicks + closedTicks;
 
 		return (double)closedTicks / totTicks;
@@ -19,14 +19,25 @@ import java.util.ArrayList;
 public interface ThresholdUser {
 
 	/**
-	 * Returns the Thresholds used by this object.
+	 * Returns the Thresholds used by this object. The object must add itself to
+	 * each Threshold by calling Threshold.addUser in lateInit.
 	 * @return the Threshold list.
 	 */
 	public abstract ArrayList<Threshold> getThresholds();
 
+	/**
+	 * Called immediately whenever one of the Thresholds used by this object has
+	 * changed its state from either open to closed or from closed to open. Used to
+	 * keep a count of the closed Thresholds.
+	 * @param thr - the Threshold that has changed.
+	 * @param open - TRUE if the Threshold is now open.
+	 */
+	public abstract void updateForThreshold(Threshold thr, boolean open);
+
 	/**
 	 * Called whenever one of the Thresholds used by this object has changed
-	 * its state from either open to closed or from closed to open.
+	 * its state from either open to closed or from closed to open. If several
+	 * Thresholds change at the same time, this method is called only once.
 	 */
 	public abstract void thresholdChanged();
 }
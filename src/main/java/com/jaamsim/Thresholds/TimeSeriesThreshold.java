@@ -14,6 +14,8 @@
  */
 package com.jaamsim.Thresholds;
 
+import java.util.Arrays;
+
 import com.jaamsim.Samples.TimeSeriesConstantDouble;
 import com.jaamsim.basicsim.EntityTarget;
 import com.jaamsim.events.ProcessTarget;
@@ -90,6 +92,8 @@ public class TimeSeriesThreshold extends Threshold {
 	public void updateForInput( Input<?> in ) {
 		super.updateForInput( in );
 
+		numPeriods = 0;
+
 		if (in == unitType) {
 			timeSeries.setUnitType(this.getUnitType());
 			maxOpenLimit.setUnitType(this.getUnitType());
@@ -122,6 +126,12 @@ public class TimeSeriesThreshold extends Threshold {
 					this, minOpenLimit.getValue().getMaxValue(), timeSeries.getValue().getMinValue());
 	}
 
+	@Override
+	public void earlyInit() {
+		super.earlyInit();
+		numPeriods = 0;
+	}
+
 	@Override
 	public void startUp() {
 		super.startUp();
@@ -145,6 +155,17 @@ public class TimeSeriesThreshold extends Threshold {
 
 	private final ProcessTarget doOpenClose = new DoOpenCloseTarget(this, "doOpenClose");
 
+	// Periods during which the threshold is open or closed, ignoring the lookahead. Each
+	// period starts at a change in TimeSeries, MaxOpenLimit, or MinOpenLimit, except for
+	// the first one which starts at the time it was created. The periods are found when
+	// they are first required, and are discarded once they are before the present time.
+	private long[] periodTicks = new long[16];  // start of each period in clock ticks
+	private boolean[] periodOpen = new boolean[16];  // TRUE if the threshold is open
+	private int firstPeriod;  // index of the period for the last time requested
+	private int numPeriods;  // number of periods that have been found
+	private long lastChange;  // last change that has been added to the periods
+	private long nextChange;  // next change to be added, or Long.MAX_VALUE if there are no more
+
 	/**
 	 * The process loop that opens and closes the threshold.
 	 */
@@ -182,16 +203,15 @@ public class TimeSeriesThreshold extends Threshold {
 	 * @param ticks - simulation time in clock ticks
 	 * @return TRUE if open, FALSE if closed
 	 */
-	private boolean isOpenAtTicks(long ticks) {
+	boolean isOpenAtTicks(long ticks) {
 
 		// Add offset from input
 		ticks += FrameBox.secondsToTicks(offset.getValue());
 		ticks = Math.max(ticks, 0);
 
-		long changeTime = ticks;
-
 		// if the current point is closed, we are done
-		if (!this.isPointOpenAtTicks(changeTime))
+		int i = this.getPeriod(ticks);
+		if (!periodOpen[i])
 			return false;
 
 		// If there is no lookahead, then the threshold is open
@@ -199,17 +219,9 @@ public class TimeSeriesThreshold extends Threshold {
 		if (lookAheadInTicks == 0)
 			return true;
 
-		while( true ) {
-
-			// If the next point is closed, determine if open long enough too satisfy lookahead
-			changeTime = this.getNextChangeAfterTicks(changeTime);
-			if (!this.isPointOpenAtTicks(changeTime))
-				return (changeTime - ticks >= lookAheadInTicks);
-
-			// The next point is open, determine whether the lookahead is already satisfied
-			if (changeTime - ticks >= lookAheadInTicks)
-				return true;
-		}
+		// Determine whether the threshold is open long enough to satisfy the lookahead
+		long endTime = this.getPeriodEnd(i, ticks + lookAheadInTicks);
+		return (endTime - ticks >= lookAheadInTicks);
 	}
 
 	/**
@@ -217,7 +229,7 @@ public class TimeSeriesThreshold extends Threshold {
 	 * @param ticks - simulation time in clock ticks
 	 * @return the time in clock ticks that the threshold is closed
 	 */
-	private long calcClosedTicksFromTicks(long ticks) {
+	long calcClosedTicksFromTicks(long ticks) {
 
 		// If the series is always outside the limits, the threshold is closed forever
 		if (isAlwaysClosed())
@@ -236,48 +248,35 @@ public class TimeSeriesThreshold extends Threshold {
 		ticks += FrameBox.secondsToTicks(offset.getValue());
 		ticks = Math.max(ticks, 0);
 
-		// Threshold is currently closed. Find the next open point
-		long openTime = -1;
-		long changeTime = ticks;
-		long maxTicksValueFromTimeSeries = this.getMaxTicksValueFromTimeSeries();
+		// Threshold is currently closed. Find the next open period that satisfies the
+		// lookahead. If the present period is open, it is too short for the lookahead.
 		long lookAheadInTicks = FrameBox.secondsToTicks(lookAhead.getValue());
-		while( true ) {
-			changeTime = this.getNextChangeAfterTicks(changeTime);
-
-			if (changeTime == Long.MAX_VALUE) {
-				if( openTime == -1 )
-					return Long.MAX_VALUE;
-				else
-					return openTime - ticks;
-			}
+		long maxTicks = ticks + this.getMaxTicksValueFromTimeSeries() + lookAheadInTicks;
+		int i = this.getPeriod(ticks);
+		int j = periodOpen[i] ? i + 2 : i + 1;
+		while (true) {
+			long openTime = this.getPeriodStart(j, maxTicks);
 
 			// if have already searched the longest cycle, the threshold will never open
-			if (changeTime > ticks + maxTicksValueFromTimeSeries + lookAheadInTicks)
+			if (openTime > maxTicks)
 				return Long.MAX_VALUE;
 
-			// Closed index
-			if (!this.isPointOpenAtTicks(changeTime)) {
-
-				// If an open point has not been found yet, keep looking
-				if (openTime == -1)
-					continue;
-
-				// Has enough time been gathered to satisfy the lookahead?
-				if (changeTime - openTime >= lookAheadInTicks)
-					return openTime - ticks;
-
-				// not enough time, need to start again
-				else
-					openTime = -1;
+			// The last period is open forever, unless one of its changes is past the longest cycle
+			long closedTime = this.getPeriodEnd(j, maxTicks);
+			if (closedTime == Long.MAX_VALUE) {
+				if (lastChange > maxTicks)
+					return Long.MAX_VALUE;
+				return openTime - ticks;
 			}
+			if (closedTime > maxTicks)
+				return Long.MAX_VALUE;
 
-			// Open index
-			else {
+			// Has enough time been gathered to satisfy the lookahead?
+			if (closedTime - openTime >= lookAheadInTicks)
+				return openTime - ticks;
 
-				// Keep track of the first open index.
-				if (openTime == -1)
-					openTime = changeTime;
-			}
+			// not enough time, need to start again
+			j += 2;
 		}
 	}
 
@@ -306,7 +305,7 @@ public class TimeSeriesThreshold extends Threshold {
 	 * @param ticks - simulation time in clock ticks
 	 * @return the time in clock ticks that the threshold is open
 	 */
-	private long calcOpenTicksFromTicks(long ticks) {
+	long calcOpenTicksFromTicks(long ticks) {
 
 		// If the series is always outside the limits, the threshold is closed forever
 		if (isAlwaysClosed())
@@ -325,28 +324,104 @@ public class TimeSeriesThreshold extends Threshold {
 		ticks += FrameBox.secondsToTicks(offset.getValue());
 		ticks = Math.max(ticks, 0);
 
-		// Find the next change point after startTime
-		long changeTime = ticks;
-		long maxTicksValueFromTimeSeries = this.getMaxTicksValueFromTimeSeries();
+		// Find the end of the present open period
+		long maxTicks = ticks + this.getMaxTicksValueFromTimeSeries();
 		long lookAheadInTicks = FrameBox.secondsToTicks(lookAhead.getValue());
-		while( true ) {
-			changeTime = this.getNextChangeAfterTicks(changeTime);
+		long closedTime = this.getPeriodEnd(this.getPeriod(ticks), maxTicks);
 
-			if( changeTime == Long.MAX_VALUE )
-				return Long.MAX_VALUE;
+		// if have already searched the longest cycle, the threshold will never close
+		if (closedTime == Long.MAX_VALUE || closedTime > maxTicks)
+			return Long.MAX_VALUE;
 
-			// if have already searched the longest cycle, the threshold will never close
-			if( changeTime > ticks + maxTicksValueFromTimeSeries )
-				return Long.MAX_VALUE;
+		if (lookAheadInTicks == 0)
+			return closedTime - ticks;
+		else
+			return closedTime - lookAheadInTicks - ticks + 1;
+	}
+
+	/**
+	 * Clears the open and closed periods and starts again from the given time.
+	 * @param ticks - simulation time in clock ticks, including the offset.
+	 */
+	private void resetPeriods(long ticks) {
+		firstPeriod = 0;
+		numPeriods = 1;
+		periodTicks[0] = ticks;
+		periodOpen[0] = this.isPointOpenAtTicks(ticks);
+		lastChange = ticks;
+		nextChange = this.getNextChangeAfterTicks(ticks);
+	}
 
-			// Closed index
-			if (!this.isPointOpenAtTicks(changeTime)) {
-				if (lookAheadInTicks == 0)
-					return changeTime - ticks;
-				else
-					return changeTime - lookAheadInTicks - ticks + 1;
+	/**
+	 * Adds the next change in TimeSeries, MaxOpenLimit, or MinOpenLimit to the open and
+	 * closed periods.
+	 */
+	private void addNextChange() {
+		long ticks = nextChange;
+		boolean open = this.isPointOpenAtTicks(ticks);
+		if (open != periodOpen[numPeriods - 1]) {
+			if (numPeriods == periodTicks.length) {
+				periodTicks = Arrays.copyOf(periodTicks, 2 * numPeriods);
+				periodOpen = Arrays.copyOf(periodOpen, 2 * numPeriods);
 			}
+			periodTicks[numPeriods] = ticks;
+			periodOpen[numPeriods] = open;
+			numPeriods++;
+		}
+		lastChange = ticks;
+		nextChange = this.getNextChangeAfterTicks(ticks);
+	}
+
+	/**
+	 * Returns the index of the open or closed period that includes the given time.
+	 * The time must not be earlier than the time for the previous call.
+	 * @param ticks - simulation time in clock ticks, including the offset.
+	 */
+	private int getPeriod(long ticks) {
+		if (numPeriods == 0 || ticks < periodTicks[firstPeriod])
+			this.resetPeriods(ticks);
+
+		while (nextChange <= ticks)
+			this.addNextChange();
+
+		int k = Arrays.binarySearch(periodTicks, firstPeriod, numPeriods, ticks);
+		if (k < 0)
+			k = -k - 2;
+
+		// Discard the periods that are before the present time
+		if (k >= periodTicks.length / 2) {
+			System.arraycopy(periodTicks, k, periodTicks, 0, numPeriods - k);
+			System.arraycopy(periodOpen, k, periodOpen, 0, numPeriods - k);
+			numPeriods -= k;
+			k = 0;
 		}
+		firstPeriod = k;
+		return k;
+	}
+
+	/**
+	 * Returns the start of the given period, or a time later than maxTicks if the period
+	 * does not start by maxTicks.
+	 * @param i - index of the period.
+	 * @param maxTicks - last time in clock ticks that is required.
+	 */
+	private long getPeriodStart(int i, long maxTicks) {
+		while (i >= numPeriods && nextChange <= maxTicks)
+			this.addNextChange();
+
+		if (i < numPeriods)
+			return periodTicks[i];
+		return nextChange;
+	}
+
+	/**
+	 * Returns the end of the given period, or a time later than maxTicks if the period
+	 * does not end by maxTicks. Long.MAX_VALUE is returned if the period never ends.
+	 * @param i - index of the period.
+	 * @param maxTicks - last time in clock ticks that is required.
+	 */
+	private long getPeriodEnd(int i, long maxTicks) {
+		return this.getPeriodStart(i + 1, maxTicks);
 	}
 
 	/**
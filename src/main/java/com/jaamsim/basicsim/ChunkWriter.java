@@ -0,0 +1,224 @@
+/*
+ * JaamSim Discrete Event Simulation
+ * Copyright (C) 2015 Ausenco Engineering Canada Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ */
+package com.jaamsim.basicsim;
+
+import java.io.FileOutputStream;
+import java.io.Flushable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+import com.jaamsim.input.InputErrorException;
+import com.jaamsim.ui.LogBox;
+
+/**
+ * Output file that is written on a background thread.
+ * <p>
+ * The simulation thread adds the contents of the file to a chunk of memory. Full chunks
+ * are passed to a single writer thread shared by all the files, which writes them to the
+ * file and returns them to the file's free list. Each file has a fixed number of chunks,
+ * so the simulation thread waits for the writer thread if it gets too far ahead.
+ * @param <C> - the type of chunk used by the file
+ */
+public abstract class ChunkWriter<C extends ChunkWriter.Chunk> implements Flushable {
+	private static LinkedBlockingQueue<Chunk> writeQueue;
+
+	private final String fileName;
+	private final String fileType;
+	private final FileChannel channel;
+	private final ArrayBlockingQueue<C> freeChunks;
+	private final int numChunks;
+	protected C current;  // the chunk being filled by the simulation thread
+	private volatile IOException error;
+	private boolean closed;
+
+	/**
+	 * Contents of the file that have not yet been written.
+	 */
+	public abstract static class Chunk {
+		final ChunkWriter<?> writer;
+
+		protected Chunk(ChunkWriter<?> w) {
+			writer = w;
+		}
+
+		/**
+		 * Returns true if nothing has been added to the chunk.
+		 */
+		protected abstract boolean isEmpty();
+
+		/**
+		 * Empties the chunk once it has been written.
+		 */
+		protected abstract void clear();
+	}
+
+	/**
+	 * Opens the file.
+	 * @param name - file name
+	 * @param append - true if the file is added to, false if it is replaced
+	 * @param type - the type of file used in error messages, such as "log file"
+	 * @param num - number of chunks for the file
+	 */
+	protected ChunkWriter(String name, boolean append, String type, int num) {
+		fileName = name;
+		fileType = type;
+		try {
+			channel = new FileOutputStream(name, append).getChannel();
+		}
+		catch (IOException | SecurityException e) {
+			throw new InputErrorException("Unable to open %s %s - %s", type, name, e.getMessage());
+		}
+
+		numChunks = num;
+		freeChunks = new ArrayBlockingQueue<>(num);
+		OutputFiles.add(this);
+	}
+
+	/**
+	 * Adds one of the chunks used for the file, called by the constructor of the subclass.
+	 * The first chunk added is the one that is filled first.
+	 */
+	protected final void addChunk(C c) {
+		if (current == null)
+			current = c;
+		else
+			freeChunks.add(c);
+	}
+
+	public final String getFileName() {
+		return fileName;
+	}
+
+	protected final boolean isClosed() {
+		return closed;
+	}
+
+	/**
+	 * Writes the contents of the chunk to the file, called by the writer thread.
+	 */
+	protected abstract void write(C c) throws IOException;
+
+	/**
+	 * Writes all the bytes remaining in the buffer to the file, called by the writer thread.
+	 */
+	protected final void writeBytes(ByteBuffer buf) throws IOException {
+		while (buf.hasRemaining())
+			channel.write(buf);
+	}
+
+	/**
+	 * Waits until everything added so far has been written to the file.
+	 */
+	@Override
+	public void flush() {
+		if (closed)
+			return;
+
+		if (!current.isEmpty())
+			this.submit();
+
+		// Every chunk is returned to the free list once it has been written
+		ArrayList<C> free = new ArrayList<>(numChunks);
+		for (int i = 1; i < numChunks; i++)
+			free.add(takeChunk());
+		freeChunks.addAll(free);
+
+		if (error != null)
+			throw new ErrorException("Unable to write %s %s - %s", fileType, fileName, error.getMessage());
+	}
+
+	public void close() {
+		if (closed)
+			return;
+
+		OutputFiles.remove(this);
+		try {
+			this.flush();
+		}
+		finally {
+			closed = true;
+			try {
+				channel.close();
+			}
+			catch (IOException e) {
+				LogBox.logLine("Unable to close " + fileType + ": " + fileName);
+			}
+		}
+	}
+
+	/**
+	 * Passes the present chunk to the writer thread and starts the next one.
+	 */
+	protected final void submit() {
+		getWriteQueue().add(current);
+		current = takeChunk();
+	}
+
+	private C takeChunk() {
+		while (true) {
+			try {
+				return freeChunks.take();
+			}
+			catch (InterruptedException e) {}
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private void writeChunk(Chunk c) {
+		if (error == null) {
+			try {
+				this.write((C)c);
+			}
+			catch (IOException e) {
+				error = e;
+			}
+			catch (RuntimeException e) {
+				error = new IOException(e);
+			}
+		}
+		c.clear();
+		freeChunks.add((C)c);
+	}
+
+	private static synchronized LinkedBlockingQueue<Chunk> getWriteQueue() {
+		if (writeQueue != null)
+			return writeQueue;
+
+		writeQueue = new LinkedBlockingQueue<>();
+		Thread thread = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				while (true) {
+					Chunk c;
+					try {
+						c = writeQueue.take();
+					}
+					catch (InterruptedException e) {
+						continue;
+					}
+
+					c.writer.writeChunk(c);
+				}
+			}
+		}, "ChunkWriter");
+		thread.setDaemon(true);
+		thread.start();
+		return writeQueue;
+	}
+}
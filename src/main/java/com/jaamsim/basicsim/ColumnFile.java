@@ -0,0 +1,423 @@
+/*
+ * JaamSim Discrete Event Simulation
+ * Copyright (C) 2015 Ausenco Engineering Canada Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ */
+package com.jaamsim.basicsim;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.Flushable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import com.jaamsim.input.InputErrorException;
+import com.jaamsim.ui.LogBox;
+
+/**
+ * Output file that stores a table of values by column in a compressed binary form.
+ * <p>
+ * Values are added a row at a time, one value per column, and each value can be either
+ * a number or a string. The rows are written in chunks. Within a chunk the values for
+ * each column are stored together and compressed separately. Strings are replaced by
+ * an index into a dictionary, and each chunk holds only the strings that were added
+ * to the dictionary since the previous chunk.
+ * <p>
+ * File layout:
+ * <ul>
+ * <li>Header - the int 0x4A53434F ("JSCO"), the int format version (1), the int number
+ * of columns, and the name and unit type for each column.
+ * <li>Chunks - the int number of rows, the int number of new dictionary strings followed
+ * by the strings, then for each column the byte block type, the int uncompressed size,
+ * the int compressed size, and the deflated block.
+ * <li>End - the int 0.
+ * </ul>
+ * A number block holds a double per row, a string block holds an int dictionary index
+ * per row, and a mixed block holds an int per row (-1 for a number) followed by a double
+ * per row. Strings are written as an int byte count followed by UTF-8 bytes. The file is
+ * big-endian.
+ */
+public class ColumnFile implements ValueWriter, Flushable {
+	private static final int MAGIC = 0x4A53434F;
+	private static final int VERSION = 1;
+
+	private static final byte NUMBERS = 0;
+	private static final byte STRINGS = 1;
+	private static final byte MIXED = 2;
+
+	private static final int CHUNK_ROWS = 1 << 12;
+
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+
+	private final String fileName;
+	private final DataOutputStream out;
+	private final int numCols;
+
+	private final double[][] numbers;
+	private final int[][] strings;  // dictionary index, or -1 for a number
+	private final int[] numStrings;  // number of strings in each column of the present chunk
+	private int col;
+	private int rows;
+	private boolean hasLeadingValue;
+	private double leadingValue;
+
+	private final HashMap<String, Integer> dictionary = new HashMap<>();
+	private final ArrayList<String> newStrings = new ArrayList<>();
+
+	private final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+	private byte[] raw = new byte[0];
+	private byte[] compressed = new byte[0];
+
+	private boolean failed;
+
+	/**
+	 * Creates a new file with the given columns.
+	 * @param name - file name
+	 * @param colNames - name for each column
+	 * @param unitTypes - unit type for the values in each column
+	 */
+	public ColumnFile(String name, String[] colNames, String[] unitTypes) {
+		fileName = name;
+		numCols = colNames.length;
+		numbers = new double[numCols][CHUNK_ROWS];
+		strings = new int[numCols][CHUNK_ROWS];
+		numStrings = new int[numCols];
+
+		try {
+			out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(name), 1 << 16));
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeInt(numCols);
+			for (int i = 0; i < numCols; i++) {
+				writeString(out, colNames[i]);
+				writeString(out, unitTypes[i]);
+			}
+		}
+		catch (IOException | SecurityException e) {
+			throw new InputErrorException("Unable to open output file %s - %s", name, e.getMessage());
+		}
+		OutputFiles.add(this);
+	}
+
+	/**
+	 * Sets a number to be placed in the first column of each new row, so that the
+	 * values added to a row start at the second column.
+	 */
+	public void setLeadingValue(double val) {
+		hasLeadingValue = true;
+		leadingValue = val;
+	}
+
+	public void clearLeadingValue() {
+		hasLeadingValue = false;
+	}
+
+	/**
+	 * Adds a number in the next column of the present row.
+	 */
+	@Override
+	public void put(double val) {
+		this.startRow();
+		numbers[col][rows] = val;
+		strings[col][rows] = -1;
+		this.nextColumn();
+	}
+
+	/**
+	 * Adds a string in the next column of the present row.
+	 */
+	@Override
+	public void put(String str) {
+		this.startRow();
+		if (str == null)
+			str = "null";
+		Integer ind = dictionary.get(str);
+		if (ind == null) {
+			ind = dictionary.size();
+			dictionary.put(str, ind);
+			newStrings.add(str);
+		}
+		numbers[col][rows] = Double.NaN;
+		strings[col][rows] = ind;
+		numStrings[col]++;
+		this.nextColumn();
+	}
+
+	private void startRow() {
+		if (col != 0 || !hasLeadingValue)
+			return;
+		numbers[0][rows] = leadingValue;
+		strings[0][rows] = -1;
+		col = 1;
+	}
+
+	private void nextColumn() {
+		if (++col < numCols)
+			return;
+
+		col = 0;
+		if (++rows == CHUNK_ROWS)
+			this.writeChunk();
+	}
+
+	/**
+	 * Writes the completed rows to the file. The values for a partial row are kept
+	 * until the row is complete.
+	 */
+	@Override
+	public void flush() {
+		this.writeChunk();
+		try {
+			out.flush();
+		}
+		catch (IOException e) {
+			failed = true;
+		}
+		if (failed)
+			throw new ErrorException("Unable to write output file %s", fileName);
+	}
+
+	public void close() {
+		OutputFiles.remove(this);
+		try {
+			this.writeChunk();
+			out.writeInt(0);
+			out.close();
+		}
+		catch (IOException e) {
+			LogBox.logLine("Unable to close output file: " + fileName);
+		}
+		deflater.end();
+	}
+
+	private void writeChunk() {
+		if (rows == 0 || failed)
+			return;
+
+		try {
+			out.writeInt(rows);
+			out.writeInt(newStrings.size());
+			for (String str : newStrings)
+				writeString(out, str);
+			newStrings.clear();
+
+			for (int i = 0; i < numCols; i++) {
+
+				// Leave out the values for a partial row, which is written with the next chunk
+				int partial = 0;
+				if (i < col && strings[i][rows] != -1)
+					partial = 1;
+				int n = numStrings[i] - partial;
+
+				ByteBuffer buf;
+				if (n == 0) {
+					out.writeByte(NUMBERS);
+					buf = this.getRawBuffer(8 * rows);
+					buf.asDoubleBuffer().put(numbers[i], 0, rows);
+				}
+				else if (n == rows) {
+					out.writeByte(STRINGS);
+					buf = this.getRawBuffer(4 * rows);
+					buf.asIntBuffer().put(strings[i], 0, rows);
+				}
+				else {
+					out.writeByte(MIXED);
+					buf = this.getRawBuffer(12 * rows);
+					buf.asIntBuffer().put(strings[i], 0, rows);
+					buf.position(4 * rows);
+					buf.asDoubleBuffer().put(numbers[i], 0, rows);
+				}
+				this.writeBlock(buf.capacity());
+
+				numStrings[i] = partial;
+				if (i < col) {
+					numbers[i][0] = numbers[i][rows];
+					strings[i][0] = strings[i][rows];
+				}
+			}
+		}
+		catch (IOException e) {
+			failed = true;
+		}
+		rows = 0;
+	}
+
+	private ByteBuffer getRawBuffer(int size) {
+		if (raw.length < size)
+			raw = new byte[size];
+		return ByteBuffer.wrap(raw, 0, size).slice();
+	}
+
+	private void writeBlock(int size) throws IOException {
+		if (compressed.length < size + 64)
+			compressed = new byte[size + size / 8 + 64];
+
+		deflater.reset();
+		deflater.setInput(raw, 0, size);
+		deflater.finish();
+		int len = 0;
+		while (!deflater.finished()) {
+			if (len == compressed.length)
+				compressed = Arrays.copyOf(compressed, len * 2);
+			len += deflater.deflate(compressed, len, compressed.length - len);
+		}
+
+		out.writeInt(size);
+		out.writeInt(len);
+		out.write(compressed, 0, len);
+	}
+
+	private static void writeString(DataOutputStream out, String str) throws IOException {
+		byte[] bytes = str.getBytes(UTF8);
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+	private static String readString(DataInputStream in) throws IOException {
+		byte[] bytes = new byte[in.readInt()];
+		in.readFully(bytes);
+		return new String(bytes, UTF8);
+	}
+
+	/**
+	 * The contents of a column file. For each column, a row holds either a number or
+	 * a string. The number is NaN for a string.
+	 */
+	public static final class Table {
+		public final String[] names;
+		public final String[] unitTypes;
+		public final double[][] numbers;
+		public final String[][] strings;
+		public final int numRows;
+
+		Table(String[] n, String[] u, double[][] nums, String[][] strs, int rows) {
+			names = n;
+			unitTypes = u;
+			numbers = nums;
+			strings = strs;
+			numRows = rows;
+		}
+	}
+
+	/**
+	 * Reads the contents of a column file. A file that was not closed is read up to
+	 * the last complete chunk.
+	 */
+	public static Table read(File file) throws IOException {
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 1 << 16))) {
+			if (in.readInt() != MAGIC)
+				throw new IOException("Not a column file: " + file.getName());
+			if (in.readInt() != VERSION)
+				throw new IOException("Unsupported column file version: " + file.getName());
+
+			int cols = in.readInt();
+			String[] names = new String[cols];
+			String[] units = new String[cols];
+			for (int i = 0; i < cols; i++) {
+				names[i] = readString(in);
+				units[i] = readString(in);
+			}
+
+			double[][] nums = new double[cols][1024];
+			String[][] strs = new String[cols][1024];
+			ArrayList<String> dict = new ArrayList<>();
+			Inflater inflater = new Inflater();
+			int total = 0;
+			try {
+				while (true) {
+					int rows;
+					try {
+						rows = in.readInt();
+					}
+					catch (EOFException e) {
+						break;
+					}
+					if (rows == 0)
+						break;
+
+					int numNew = in.readInt();
+					for (int i = 0; i < numNew; i++)
+						dict.add(readString(in));
+
+					if (total + rows > nums[0].length) {
+						int cap = Math.max(total + rows, nums[0].length * 2);
+						for (int i = 0; i < cols; i++) {
+							nums[i] = Arrays.copyOf(nums[i], cap);
+							strs[i] = Arrays.copyOf(strs[i], cap);
+						}
+					}
+
+					for (int i = 0; i < cols; i++) {
+						byte kind = in.readByte();
+						ByteBuffer buf = readBlock(in, inflater);
+						if (kind == NUMBERS) {
+							buf.asDoubleBuffer().get(nums[i], total, rows);
+							continue;
+						}
+
+						for (int j = 0; j < rows; j++) {
+							int ind = buf.getInt();
+							nums[i][total + j] = Double.NaN;
+							strs[i][total + j] = ind == -1 ? null : dict.get(ind);
+						}
+						if (kind == MIXED) {
+							for (int j = 0; j < rows; j++) {
+								double val = buf.getDouble();
+								if (strs[i][total + j] == null)
+									nums[i][total + j] = val;
+							}
+						}
+					}
+					total += rows;
+				}
+			}
+			catch (DataFormatException | IndexOutOfBoundsException e) {
+				throw new IOException("Column file is corrupt: " + file.getName());
+			}
+			finally {
+				inflater.end();
+			}
+
+			return new Table(names, units, nums, strs, total);
+		}
+	}
+
+	private static ByteBuffer readBlock(DataInputStream in, Inflater inflater)
+	throws IOException, DataFormatException {
+		byte[] raw = new byte[in.readInt()];
+		byte[] compressed = new byte[in.readInt()];
+		in.readFully(compressed);
+		inflater.reset();
+		inflater.setInput(compressed);
+		int len = 0;
+		while (len < raw.length) {
+			int n = inflater.inflate(raw, len, raw.length - len);
+			if (n == 0 && (inflater.finished() || inflater.needsInput()))
+				throw new DataFormatException();
+			len += n;
+		}
+		return ByteBuffer.wrap(raw);
+	}
+}
@@ -0,0 +1,62 @@
+/*
+ * JaamSim Discrete Event Simulation
+ * Copyright (C) 2015 Ausenco Engineering Canada Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ */
+package com.jaamsim.basicsim;
+
+import com.jaamsim.units.TimeUnit;
+import com.jaamsim.units.Unit;
+
+/**
+ * Writes the output report to a column file with the columns Entity, Output,
+ * UnitType and Value. The values in one column have different unit types, so the
+ * header gives the unit type Unit for the Value column and the unit type of each
+ * value is in the UnitType column of its row. The numbers are in SI units.
+ */
+public class ColumnReportWriter implements ReportWriter {
+	public static final String[] COLUMNS = { "Entity", "Output", "UnitType", "Value" };
+	public static final String[] UNIT_TYPES = { "DimensionlessUnit", "DimensionlessUnit", "DimensionlessUnit", "Unit" };
+
+	private final ColumnFile file;
+
+	public ColumnReportWriter(ColumnFile file) {
+		this.file = file;
+	}
+
+	@Override
+	public void putOutput(String entName, String output, Class<? extends Unit> ut, double val) {
+		file.put(entName);
+		file.put(output);
+		file.put(ut.getSimpleName());
+		file.put(val);
+	}
+
+	@Override
+	public void putOutput(String entName, String output, Class<? extends Unit> ut, String val) {
+		file.put(entName);
+		file.put(output);
+		file.put(ut.getSimpleName());
+		file.put(val);
+	}
+
+	@Override
+	public void putStateTime(String entName, String state, long ticks) {
+		file.put(entName);
+		file.put("StateTime[" + state + "]");
+		file.put(TimeUnit.class.getSimpleName());
+		file.put(ticks * Simulation.getTickLength());
+	}
+
+	@Override
+	public void endGroup() {}
+}
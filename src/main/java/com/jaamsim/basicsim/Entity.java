@@ -722,10 +722,10 @@ public class Entity {
 
 	/**
 	 * Writes the entry in the output report for this entity.
-	 * @param file - the file in which the outputs are written
+	 * @param file - the report writer to which the outputs are passed
 	 * @param simTime - simulation time at which the outputs are evaluated
 	 */
-	public void printReport(FileEntity file, double simTime) {
+	public void printReport(ReportWriter file, double simTime) {
 
 		// Loop through the outputs
 		boolean linePrinted = false;
@@ -736,33 +736,15 @@ public class Entity {
 			if (!o.isReportable())
 				continue;
 
-			// Is there a preferred unit in which to display the output?
-			Class<? extends Unit> ut = o.getUnitType();
-			String unitString = Unit.getDisplayedUnit(ut);
-			double factor = Unit.getDisplayedUnitFactor(ut);
-
 			// Is the output a number?
-			String s;
-			if (o.isNumericValue())
-				s = String.valueOf(o.getValueAsDouble(simTime, Double.NaN)/factor);
-			else {
-				unitString = Unit.getSIUnit(ut);  // lists of doubles are not converted to preferred units yet
-				s = o.getValue(simTime, o.getReturnType()).toString();
-			}
-
-			// Does the output require a unit to be shown?
 			linePrinted = true;
-			if (ut == Unit.class || ut == DimensionlessUnit.class) {
-				file.format("%s\tOutput[%s]\t%s%n",
-						this.getName(), o.getName(), s);
-			}
-			else {
-				file.format("%s\tOutput[%s, %s]\t%s%n",
-						this.getName(), o.getName(), unitString, s);
-			}
+			if (o.isNumericValue())
+				file.putOutput(this.getName(), o.getName(), o.getUnitType(), o.getValueAsDouble(simTime, Double.NaN));
+			else
+				file.putOutput(this.getName(), o.getName(), o.getUnitType(), o.getValue(simTime, o.getReturnType()).toString());
 		}
 		if (linePrinted)
-			file.format("%n");
+			file.endGroup();
 	}
 
 	@Output(name = "Name",
@@ -18,6 +18,7 @@ import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.io.Writer;
 import java.text.DecimalFormat;
 
 import com.jaamsim.input.InputErrorException;
@@ -26,7 +27,7 @@ import com.jaamsim.ui.LogBox;
 /**
  * Class encapsulating file input/output methods and file access.
  */
-public class FileEntity {
+public class FileEntity implements TextWriter {
 	public static int ALIGNMENT_LEFT = 0;
 	public static int ALIGNMENT_RIGHT = 1;
 
@@ -58,6 +59,14 @@ public class FileEntity {
 		}
 	}
 
+	/**
+	 * Creates a FileEntity that writes its text to the given writer instead of a file.
+	 */
+	public FileEntity(Writer writer) {
+		formatter = new DecimalFormat( "##0.00" );
+		outputStream = new BufferedWriter( writer );
+	}
+
 	public void close() {
 		try {
 			if( outputStream != null ) {
@@ -87,6 +96,21 @@ public class FileEntity {
 		write(string);
 	}
 
+	@Override
+	public void put(String str) {
+		write(str);
+	}
+
+	@Override
+	public void put(double val) {
+		write(String.valueOf(val));
+	}
+
+	@Override
+	public void putFixed(double val) {
+		write(String.format("%f", val));
+	}
+
 	public void format(String format, Object... args) {
 		write(String.format(format, args));
 	}
@@ -168,6 +192,7 @@ public class FileEntity {
 		putTabs( tabs );
 	}
 
+	@Override
 	public void newLine() {
 		try {
 			outputStream.newLine();
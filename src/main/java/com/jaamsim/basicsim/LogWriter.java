@@ -0,0 +1,177 @@
+/*
+ * JaamSim Discrete Event Simulation
+ * Copyright (C) 2015 Ausenco Engineering Canada Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ */
+package com.jaamsim.basicsim;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+import java.util.Arrays;
+
+/**
+ * Text log file that is formatted and written on a background thread.
+ * <p>
+ * The simulation thread appends numbers and strings to a chunk of primitive arrays
+ * without formatting them. The writer thread converts full chunks to text and writes
+ * them to the file in large blocks. The text written is the same as that produced by
+ * String.format with the %s and %n conversions.
+ */
+public class LogWriter extends ChunkWriter<LogWriter.ValueChunk> implements TextWriter {
+	private static final byte STRING = 0;
+	private static final byte NUMBER = 1;
+	private static final byte NEW_LINE = 2;
+	private static final byte FIXED = 3;
+
+	private static final int CHUNK_SIZE = 1 << 12;  // number of values in each chunk
+	private static final int NUM_CHUNKS = 4;
+	private static final int BLOCK_SIZE = 1 << 16;  // number of characters in each write
+
+	private static final String LINE_SEPARATOR = System.lineSeparator();
+
+	// Used only by the writer thread
+	private static final StringBuilder text = new StringBuilder(BLOCK_SIZE + 1024);
+	private static final CharsetEncoder encoder = Charset.defaultCharset().newEncoder()
+			.onMalformedInput(CodingErrorAction.REPLACE)
+			.onUnmappableCharacter(CodingErrorAction.REPLACE);
+	private static final ByteBuffer bytes = ByteBuffer.allocateDirect(BLOCK_SIZE * 2);
+
+	/**
+	 * Values appended to a log file that have not yet been written.
+	 */
+	static final class ValueChunk extends ChunkWriter.Chunk {
+		final byte[] kinds = new byte[CHUNK_SIZE];
+		final double[] numbers = new double[CHUNK_SIZE];
+		final String[] strings = new String[CHUNK_SIZE];
+		int size;
+
+		ValueChunk(LogWriter w) {
+			super(w);
+		}
+
+		@Override
+		protected boolean isEmpty() {
+			return size == 0;
+		}
+
+		@Override
+		protected void clear() {
+			Arrays.fill(strings, 0, size, null);
+			size = 0;
+		}
+	}
+
+	public LogWriter(String name) {
+		this(name, false);
+	}
+
+	public LogWriter(String name, boolean append) {
+		super(name, append, "log file", NUM_CHUNKS);
+		for (int i = 0; i < NUM_CHUNKS; i++)
+			this.addChunk(new ValueChunk(this));
+	}
+
+	@Override
+	public void put(String str) {
+		ValueChunk c = current;
+		c.kinds[c.size] = STRING;
+		c.strings[c.size] = str;
+		if (++c.size == CHUNK_SIZE)
+			this.submit();
+	}
+
+	@Override
+	public void put(double val) {
+		ValueChunk c = current;
+		c.kinds[c.size] = NUMBER;
+		c.numbers[c.size] = val;
+		if (++c.size == CHUNK_SIZE)
+			this.submit();
+	}
+
+	/**
+	 * Appends a number that is written in the same form as the %f conversion.
+	 */
+	@Override
+	public void putFixed(double val) {
+		ValueChunk c = current;
+		c.kinds[c.size] = FIXED;
+		c.numbers[c.size] = val;
+		if (++c.size == CHUNK_SIZE)
+			this.submit();
+	}
+
+	@Override
+	public void newLine() {
+		ValueChunk c = current;
+		c.kinds[c.size] = NEW_LINE;
+		if (++c.size == CHUNK_SIZE)
+			this.submit();
+	}
+
+	/**
+	 * Converts the values in the chunk to text and writes them, called by the writer thread.
+	 */
+	@Override
+	protected void write(ValueChunk c) throws IOException {
+		try {
+			this.writeValues(c);
+		}
+		finally {
+			text.setLength(0);
+			bytes.clear();
+		}
+	}
+
+	private void writeValues(ValueChunk c) throws IOException {
+		for (int i = 0; i < c.size; i++) {
+			switch (c.kinds[i]) {
+			case STRING:
+				text.append(c.strings[i]);
+				break;
+			case NUMBER:
+				text.append(c.numbers[i]);
+				break;
+			case NEW_LINE:
+				text.append(LINE_SEPARATOR);
+				break;
+			case FIXED:
+				text.append(String.format("%f", c.numbers[i]));
+				break;
+			}
+			if (text.length() >= BLOCK_SIZE)
+				this.writeText();
+		}
+		this.writeText();
+	}
+
+	private void writeText() throws IOException {
+		CharBuffer chars = CharBuffer.wrap(text);
+		encoder.reset();
+		while (encoder.encode(chars, bytes, true).isOverflow())
+			this.writeEncoded();
+		while (encoder.flush(bytes).isOverflow())
+			this.writeEncoded();
+		this.writeEncoded();
+		text.setLength(0);
+	}
+
+	private void writeEncoded() throws IOException {
+		bytes.flip();
+		this.writeBytes(bytes);
+		bytes.clear();
+	}
+}
@@ -0,0 +1,59 @@
+/*
+ * JaamSim Discrete Event Simulation
+ * Copyright (C) 2015 Ausenco Engineering Canada Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ */
+package com.jaamsim.basicsim;
+
+import java.io.Flushable;
+import java.io.IOException;
+import java.util.ArrayList;
+
+import com.jaamsim.ui.LogBox;
+
+/**
+ * The open output files that hold their contents in memory before writing them.
+ * The files are flushed when the simulation pauses or stops with an error, so that
+ * they are complete up to that time.
+ */
+public final class OutputFiles {
+	private static final ArrayList<Flushable> openFiles = new ArrayList<>();
+
+	private OutputFiles() {}
+
+	static synchronized void add(Flushable file) {
+		openFiles.add(file);
+	}
+
+	static synchronized void remove(Flushable file) {
+		openFiles.remove(file);
+	}
+
+	private static synchronized Flushable[] getOpenFiles() {
+		return openFiles.toArray(new Flushable[openFiles.size()]);
+	}
+
+	/**
+	 * Writes the contents of every open output file. Must not be called while the
+	 * simulation is adding to the files.
+	 */
+	public static void flushAll() {
+		for (Flushable file : getOpenFiles()) {
+			try {
+				file.flush();
+			}
+			catch (IOException | RuntimeException e) {
+				LogBox.logLine(e.getMessage());
+			}
+		}
+	}
+}
@@ -0,0 +1,50 @@
+/*
+ * JaamSim Discrete Event Simulation
+ * Copyright (C) 2015 Ausenco Engineering Canada Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ */
+package com.jaamsim.basicsim;
+
+import com.jaamsim.units.Unit;
+
+/**
+ * Receives the entries in the output report for an entity. Each entry is complete
+ * when it is passed to the writer, and the writer decides how it is laid out.
+ */
+public interface ReportWriter {
+	/**
+	 * Writes the value of a numeric output.
+	 * @param entName - name of the entity
+	 * @param output - name of the output
+	 * @param ut - unit type of the output
+	 * @param val - value in SI units
+	 */
+	public void putOutput(String entName, String output, Class<? extends Unit> ut, double val);
+
+	/**
+	 * Writes the value of an output that is not a number.
+	 */
+	public void putOutput(String entName, String output, Class<? extends Unit> ut, String val);
+
+	/**
+	 * Writes the total time an entity has spent in a state.
+	 * @param entName - name of the entity
+	 * @param state - name of the state, or TotalTime or WorkingTime
+	 * @param ticks - time in the state in clock ticks
+	 */
+	public void putStateTime(String entName, String state, long ticks);
+
+	/**
+	 * Ends a group of entries for an entity.
+	 */
+	public void endGroup();
+}
@@ -29,6 +29,7 @@ import com.jaamsim.input.Keyword;
 import com.jaamsim.input.Output;
 import com.jaamsim.input.ValueInput;
 import com.jaamsim.math.Vec3d;
+import com.jaamsim.states.StateTraceFile;
 import com.jaamsim.ui.EditBox;
 import com.jaamsim.ui.EntityPallet;
 import com.jaamsim.ui.FrameBox;
@@ -70,6 +71,12 @@ public class Simulation extends Entity {
 			example = "Simulation ReportDirectory { 'c:\reports\' }")
 	private static final DirInput reportDirectory;
 
+	@Keyword(description = "If TRUE, the output report, the log files and the state trace files are "
+			+ "written in a compressed binary format that stores the values for each column "
+			+ "together. The files have the extensions .crep, .clog and .ctrc respectively.",
+			example = "Simulation BinaryOutput { TRUE }")
+	private static final BooleanInput binaryOutput;
+
 	@Keyword(description = "The length of time represented by one simulation tick.",
 	         example = "Simulation TickLength { 1e-6 s }")
 	private static final ValueInput tickLengthInput;
@@ -85,6 +92,20 @@ public class Simulation extends Entity {
 	         example = "Simulation GlobalSubstreamSeed { 5 }")
 	private static final IntegerInput globalSeedInput;
 
+	@Keyword(description = "If TRUE, each probability distribution uses the antithetic values (1 - u) "
+			+ "of the uniform random numbers in its random sequence. A run with this input set to "
+			+ "TRUE and a run without it, both with the same GlobalSubstreamSeed, form an antithetic "
+			+ "pair whose results are negatively correlated. The average of the pair has a smaller "
+			+ "variance than the average of two independent runs. The GammaDistribution uses "
+			+ "acceptance-rejection sampling, which can consume a different number of random "
+			+ "values in each run of the pair, so its samples are only paired until the first "
+			+ "such difference. Samples that are rejected because of a distribution's MinValue or "
+			+ "MaxValue input have the same effect. "
+			+ "Scenarios that are compared using the same RandomSeed and GlobalSubstreamSeed inputs "
+			+ "already share common random numbers.",
+	         example = "Simulation AntitheticVariates { TRUE }")
+	private static final BooleanInput antitheticInput;
+
 	// GUI tab
 	@Keyword(description = "An optional list of units to be used for displaying model outputs.",
 	         example = "Simulation DisplayedUnits { h kt }")
@@ -185,6 +206,8 @@ public class Simulation extends Entity {
 		reportDirectory = new DirInput("ReportDirectory", "Key Inputs", null);
 		reportDirectory.setDefaultText("Configuration File Directory");
 
+		binaryOutput = new BooleanInput("BinaryOutput", "Key Inputs", false);
+
 		tickLengthInput = new ValueInput("TickLength", "Key Inputs", 1e-6d);
 		tickLengthInput.setUnitType(TimeUnit.class);
 		tickLengthInput.setValidRange(1e-9d, 5.0d);
@@ -194,6 +217,8 @@ public class Simulation extends Entity {
 		globalSeedInput = new IntegerInput("GlobalSubstreamSeed", "Key Inputs", 0);
 		globalSeedInput.setValidRange(0, Integer.MAX_VALUE);
 
+		antitheticInput = new BooleanInput("AntitheticVariates", "Key Inputs", false);
+
 		// GUI tab
 		displayedUnits = new EntityListInput<>(Unit.class, "DisplayedUnits", "GUI", null);
 		displayedUnits.setDefaultText("SI Units");
@@ -263,9 +288,11 @@ public class Simulation extends Entity {
 		this.addInput(initializationTime);
 		this.addInput(printReport);
 		this.addInput(reportDirectory);
+		this.addInput(binaryOutput);
 		this.addInput(tickLengthInput);
 		this.addInput(exitAtStop);
 		this.addInput(globalSeedInput);
+		this.addInput(antitheticInput);
 
 		// GUI tab
 		this.addInput(displayedUnits);
@@ -384,6 +411,7 @@ public class Simulation extends Entity {
 		realTime.reset();
 		updateRealTime();
 		exitAtStop.reset();
+		antitheticInput.reset();
 
 		startTimeInput.reset();
 
@@ -401,6 +429,7 @@ public class Simulation extends Entity {
 
 		// close warning/error trace file
 		InputAgent.closeLogFile();
+		StateTraceFile.closeRunFile();
 
 		// Kill all entities except simulation
 		while(Entity.getAll().size() > 0) {
@@ -433,6 +462,7 @@ public class Simulation extends Entity {
 		}
 
 		InputAgent.prepareReportDirectory();
+		StateTraceFile.closeRunFile();
 		evt.clear();
 		evt.setTraceListener(null);
 
@@ -462,10 +492,18 @@ public class Simulation extends Entity {
 		return globalSeedInput.getValue();
 	}
 
+	public static boolean getAntitheticVariates() {
+		return antitheticInput.getValue();
+	}
+
 	public static boolean getPrintReport() {
 		return printReport.getValue();
 	}
 
+	public static boolean getBinaryOutput() {
+		return binaryOutput.getValue();
+	}
+
 	public static boolean traceEvents() {
 		return traceEventsInput.getValue();
 	}
@@ -0,0 +1,77 @@
+/*
+ * JaamSim Discrete Event Simulation
+ * Copyright (C) 2015 Ausenco Engineering Canada Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ */
+package com.jaamsim.basicsim;
+
+import com.jaamsim.units.DimensionlessUnit;
+import com.jaamsim.units.Unit;
+
+/**
+ * Writes the output report as text, one entry per line, with the numbers in the
+ * preferred units for display and the state times in hours.
+ */
+public class TextReportWriter implements ReportWriter {
+	private final TextWriter file;
+
+	public TextReportWriter(TextWriter file) {
+		this.file = file;
+	}
+
+	private void putName(String entName, String output, String unitString) {
+		file.put(entName);
+		file.put("\tOutput[");
+		file.put(output);
+		if (unitString != null) {
+			file.put(", ");
+			file.put(unitString);
+		}
+		file.put("]\t");
+	}
+
+	private static boolean showUnit(Class<? extends Unit> ut) {
+		return ut != Unit.class && ut != DimensionlessUnit.class;
+	}
+
+	@Override
+	public void putOutput(String entName, String output, Class<? extends Unit> ut, double val) {
+		String unitString = showUnit(ut) ? Unit.getDisplayedUnit(ut) : null;
+		this.putName(entName, output, unitString);
+		file.put(val/Unit.getDisplayedUnitFactor(ut));
+		file.newLine();
+	}
+
+	@Override
+	public void putOutput(String entName, String output, Class<? extends Unit> ut, String val) {
+		// lists of doubles are not converted to preferred units yet
+		String unitString = showUnit(ut) ? Unit.getSIUnit(ut) : null;
+		this.putName(entName, output, unitString);
+		file.put(val);
+		file.newLine();
+	}
+
+	@Override
+	public void putStateTime(String entName, String state, long ticks) {
+		file.put(entName);
+		file.put("\tStateTime[");
+		file.put(state);
+		file.put(", h]\t");
+		file.putFixed(ticks / Simulation.getSimTimeFactor());
+		file.put("\n");
+	}
+
+	@Override
+	public void endGroup() {
+		file.newLine();
+	}
+}
@@ -0,0 +1,241 @@
+/*
+ * JaamSim Discrete Event Simulation
+ * Copyright (C) 2015 Ausenco Engineering Canada Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ */
+package com.jaamsim.datatypes;
+
+import java.util.Arrays;
+
+/**
+ * Streaming estimate of the quantiles for a sequence of values, using a fixed
+ * amount of memory.
+ * <p>
+ * The values are counted in bins whose boundaries increase geometrically, so that
+ * each quantile is returned to within a relative error of RELATIVE_ACCURACY. Positive
+ * and negative values are counted separately, and values of zero are counted on their
+ * own. Each sign uses at most MAX_BINS bins, which covers more than 17 orders of
+ * magnitude. If this range is exceeded, then the bins for the smallest magnitudes are
+ * combined. Two sketches can be merged to give the same result as a single sketch
+ * that received all the values.
+ */
+public class QuantileSketch {
+	public static final double RELATIVE_ACCURACY = 0.01d;
+
+	private static final int MAX_BINS = 2048;
+	private static final int INITIAL_BINS = 64;
+	private static final double GAMMA = (1.0d + RELATIVE_ACCURACY) / (1.0d - RELATIVE_ACCURACY);
+	private static final double INV_LOG_GAMMA = 1.0d / Math.log(GAMMA);
+
+	private final Bins positive = new Bins();
+	private final Bins negative = new Bins();  // counted by magnitude
+	private long zeroCount;
+	private long count;
+	private double minValue;
+	private double maxValue;
+
+	/**
+	 * Counts for a contiguous range of bin indices.
+	 */
+	private static final class Bins {
+		long[] counts = new long[0];
+		int offset;  // bin index for counts[0]
+		int lo;  // smallest bin index used
+		int hi;  // largest bin index used
+		long total;
+
+		void add(int index, long n) {
+			if (total == 0) {
+				if (counts.length == 0)
+					counts = new long[INITIAL_BINS];
+				offset = index - counts.length / 2;
+				lo = index;
+				hi = index;
+			}
+			else {
+				int newLo = Math.min(lo, index);
+				int newHi = Math.max(hi, index);
+
+				// Combine the bins for the smallest magnitudes if the range is too large
+				if (newHi - newLo + 1 > MAX_BINS) {
+					newLo = newHi - MAX_BINS + 1;
+					index = Math.max(index, newLo);
+				}
+				if (newLo > lo || newLo < offset || newHi >= offset + counts.length)
+					this.relocate(newLo, newHi);
+				lo = newLo;
+				hi = newHi;
+			}
+			counts[index - offset] += n;
+			total += n;
+		}
+
+		private void relocate(int newLo, int newHi) {
+			int need = newHi - newLo + 1;
+			int len = counts.length;
+			while (len < need)
+				len *= 2;
+
+			long[] newCounts = new long[len];
+			int newOffset = newLo - (len - need) / 2;
+			for (int i = lo; i <= hi; i++) {
+				long c = counts[i - offset];
+				if (c != 0)
+					newCounts[Math.max(i, newLo) - newOffset] += c;
+			}
+			counts = newCounts;
+			offset = newOffset;
+		}
+
+		long get(int index) {
+			return counts[index - offset];
+		}
+
+		void clear() {
+			Arrays.fill(counts, 0L);
+			total = 0;
+		}
+	}
+
+	public QuantileSketch() {
+		this.clear();
+	}
+
+	public void clear() {
+		positive.clear();
+		negative.clear();
+		zeroCount = 0;
+		count = 0;
+		minValue = Double.POSITIVE_INFINITY;
+		maxValue = Double.NEGATIVE_INFINITY;
+	}
+
+	/**
+	 * Adds a value to the sketch. NaN values are ignored.
+	 */
+	public void add(double val) {
+		if (Double.isNaN(val))
+			return;
+
+		if (val >= Double.MIN_NORMAL)
+			positive.add(getIndex(val), 1);
+		else if (val <= -Double.MIN_NORMAL)
+			negative.add(getIndex(-val), 1);
+		else
+			zeroCount++;
+
+		count++;
+		minValue = Math.min(minValue, val);
+		maxValue = Math.max(maxValue, val);
+	}
+
+	/**
+	 * Adds all the values received by another sketch to this one.
+	 */
+	public void merge(QuantileSketch other) {
+		if (other.count == 0)
+			return;
+
+		mergeBins(positive, other.positive);
+		mergeBins(negative, other.negative);
+		zeroCount += other.zeroCount;
+		count += other.count;
+		minValue = Math.min(minValue, other.minValue);
+		maxValue = Math.max(maxValue, other.maxValue);
+	}
+
+	private static void mergeBins(Bins bins, Bins other) {
+		if (other.total == 0)
+			return;
+
+		// Add the largest index first so that any combining is done only once
+		for (int i = other.hi; i >= other.lo; i--) {
+			long c = other.get(i);
+			if (c != 0)
+				bins.add(i, c);
+		}
+	}
+
+	private static int getIndex(double val) {
+		return (int)Math.ceil(Math.log(val) * INV_LOG_GAMMA);
+	}
+
+	// Returns the value with the same relative error to both ends of the bin
+	private static double getValue(int index) {
+		return 2.0d * Math.pow(GAMMA, index) / (GAMMA + 1.0d);
+	}
+
+	public long getCount() {
+		return count;
+	}
+
+	public double getMinimum() {
+		return minValue;
+	}
+
+	public double getMaximum() {
+		return maxValue;
+	}
+
+	/**
+	 * Returns the estimated value for the given quantile, or NaN if no values have
+	 * been added.
+	 * @param q - quantile, between 0 and 1.
+	 */
+	public double getQuantile(double q) {
+		if (count == 0)
+			return Double.NaN;
+		if (q <= 0.0d)
+			return minValue;
+		if (q >= 1.0d)
+			return maxValue;
+
+		long rank = (long)(q * (count - 1));
+		long n = 0;
+
+		if (negative.total > 0) {
+			for (int i = negative.hi; i >= negative.lo; i--) {
+				n += negative.get(i);
+				if (n > rank)
+					return this.clamp(-getValue(i));
+			}
+		}
+
+		n += zeroCount;
+		if (n > rank)
+			return this.clamp(0.0d);
+
+		if (positive.total > 0) {
+			for (int i = positive.lo; i <= positive.hi; i++) {
+				n += positive.get(i);
+				if (n > rank)
+					return this.clamp(getValue(i));
+			}
+		}
+		return maxValue;
+	}
+
+	/**
+	 * Returns the estimated values for the given percentiles.
+	 * @param percentiles - percentiles, between 0 and 100.
+	 */
+	public DoubleVector getPercentiles(DoubleVector percentiles) {
+		DoubleVector ret = new DoubleVector(percentiles.size());
+		for (int i = 0; i < percentiles.size(); i++)
+			ret.add(this.getQuantile(percentiles.get(i) / 100.0d));
+		return ret;
+	}
+
+	private double clamp(double val) {
+		return Math.max(minValue, Math.min(maxValue, val));
+	}
+}
@@ -0,0 +1,253 @@
+/*
+ * JaamSim Discrete Event Simulation
+ * Copyright (C) 2015 Ausenco Engineering Canada Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ */
+package com.jaamsim.datatypes;
+
+import java.util.Arrays;
+
+/**
+ * Time-weighted statistics for an integer value that changes at discrete times, such
+ * as the number of entities in a queue or the number of resource units in use.
+ * <p>
+ * The statistics include the time-average, standard deviation, minimum, maximum, the
+ * total time spent at each value, and a confidence interval for the time-average
+ * estimated by the method of batch means. An update does not allocate memory unless
+ * the value exceeds its previous maximum. The outputs include the time since the last
+ * change without modifying the accumulated values.
+ * <p>
+ * The batch means are kept for between NUM_BATCHES and 2*NUM_BATCHES batches of equal
+ * duration. When the last batch is full, adjacent batches are combined and the batch
+ * duration is doubled. The initial batch duration is the duration of the first interval
+ * that is recorded.
+ */
+public class TimeWeightedStat {
+	private static final int NUM_BATCHES = 32;
+
+	private int value;  // present value
+	private double startTime;  // time at which statistics collection was started
+	private double lastTime;  // time at which the statistics were last updated
+	private int minValue;
+	private int maxValue;
+	private double sum;  // integral of the value over time
+	private double sumSquared;  // integral of the square of the value over time
+	private double[] timeAtValue = new double[8];  // entry n is the total time with value n
+	private int histSize;  // number of entries in use in timeAtValue
+
+	private final double[] batchSums = new double[2 * NUM_BATCHES];
+	private int numBatches;  // number of completed batches
+	private double batchLength;  // duration of each batch, zero until the first interval
+	private double batchTime;  // time recorded in the present batch
+
+	public TimeWeightedStat() {}
+
+	/**
+	 * Starts collecting statistics at the given time, discarding any previous values.
+	 * @param time - present time
+	 * @param val - present value
+	 */
+	public void clear(double time, int val) {
+		value = val;
+		startTime = time;
+		lastTime = time;
+		minValue = val;
+		maxValue = val;
+		sum = 0.0;
+		sumSquared = 0.0;
+		Arrays.fill(timeAtValue, 0, histSize, 0.0);
+		if (val >= timeAtValue.length)
+			timeAtValue = new double[Math.max(val + 1, 2 * timeAtValue.length)];
+		histSize = val + 1;
+
+		numBatches = 0;
+		batchLength = 0.0;
+		batchTime = 0.0;
+		batchSums[0] = 0.0;
+	}
+
+	/**
+	 * Records a change in the value.
+	 * @param time - present time
+	 * @param val - new value
+	 */
+	public void update(double time, int val) {
+		int oldValue = value;
+		value = val;
+		minValue = Math.min(val, minValue);
+		maxValue = Math.max(val, maxValue);
+
+		// Add the necessary number of additional entries to the distribution
+		if (val >= histSize) {
+			if (val >= timeAtValue.length)
+				timeAtValue = Arrays.copyOf(timeAtValue, Math.max(val + 1, 2 * timeAtValue.length));
+			histSize = val + 1;
+		}
+
+		double dt = time - lastTime;
+		if (dt > 0.0) {
+			sum += dt * oldValue;
+			sumSquared += dt * oldValue * oldValue;
+			timeAtValue[oldValue] += dt;
+			lastTime = time;
+			this.addToBatches(dt, oldValue);
+		}
+	}
+
+	private void addToBatches(double dt, int val) {
+		if (batchLength == 0.0)
+			batchLength = dt;
+
+		while (dt > 0.0) {
+			double t = Math.min(dt, batchLength - batchTime);
+			batchSums[numBatches] += t * val;
+			batchTime += t;
+			dt -= t;
+			if (batchTime < batchLength)
+				return;
+
+			// Start the next batch, combining pairs of batches if there is no room
+			numBatches++;
+			batchTime = 0.0;
+			if (numBatches == batchSums.length) {
+				for (int i = 0; i < NUM_BATCHES; i++)
+					batchSums[i] = batchSums[2*i] + batchSums[2*i + 1];
+				numBatches = NUM_BATCHES;
+				batchLength *= 2.0;
+			}
+			batchSums[numBatches] = 0.0;
+		}
+	}
+
+	public int getValue() {
+		return value;
+	}
+
+	public int getMinimum() {
+		return minValue;
+	}
+
+	public int getMaximum() {
+		return maxValue;
+	}
+
+	/**
+	 * Returns the total time since the start of statistics collection.
+	 */
+	public double getTotalTime(double time) {
+		return time - startTime;
+	}
+
+	/**
+	 * Returns the total time with the given value up to the last change.
+	 */
+	public double getTimeAtValue(int val) {
+		if (val < 0 || val >= histSize)
+			return 0.0;
+		return timeAtValue[val];
+	}
+
+	/**
+	 * Returns the integral of the value over time since the start of statistics collection.
+	 */
+	public double getIntegral(double time) {
+		double dt = time - lastTime;
+		return sum + dt*value;
+	}
+
+	public double getAverage(double time) {
+		double totalTime = time - startTime;
+		if (totalTime > 0.0) {
+			return this.getIntegral(time)/totalTime;
+		}
+		return 0.0;
+	}
+
+	public double getStandardDeviation(double time) {
+		double dt = time - lastTime;
+		double mean = this.getAverage(time);
+		double totalTime = time - startTime;
+		if (totalTime > 0.0) {
+			return Math.sqrt( (sumSquared + dt*value*value)/totalTime - mean*mean );
+		}
+		return 0.0;
+	}
+
+	/**
+	 * Returns the fraction of time spent at each value, starting from zero.
+	 */
+	public DoubleVector getDistribution(double time) {
+		double totalTime = time - startTime;
+		if (totalTime <= 0.0)
+			return new DoubleVector(0);
+
+		int n = Math.max(histSize, value + 1);
+		DoubleVector ret = new DoubleVector(n);
+		for (int i = 0; i < n; i++)
+			ret.add(this.getTimeAtValue(i));
+		ret.addAt(time - lastTime, value);
+		for (int i = 0; i < n; i++) {
+			ret.set(i, ret.get(i)/totalTime);
+		}
+		return ret;
+	}
+
+	/**
+	 * Returns the half-width of the confidence interval for the time-average, estimated
+	 * from the means of the completed batches. Returns infinity if there are fewer than
+	 * two batches, since the interval cannot be bounded from a single batch.
+	 * @param confidence - confidence level, for example 0.95.
+	 */
+	public double getConfidenceHalfWidth(double confidence) {
+		int b = numBatches;
+		if (b < 2)
+			return Double.POSITIVE_INFINITY;
+
+		double mean = 0.0;
+		for (int i = 0; i < b; i++)
+			mean += batchSums[i];
+		mean /= b * batchLength;
+
+		double sumSq = 0.0;
+		for (int i = 0; i < b; i++) {
+			double diff = batchSums[i]/batchLength - mean;
+			sumSq += diff * diff;
+		}
+		double stdev = Math.sqrt(sumSq / (b - 1));
+		return getStudentT(0.5d + 0.5d*confidence, b - 1) * stdev / Math.sqrt(b);
+	}
+
+	/**
+	 * Returns the quantile of Student's t distribution with the given degrees of freedom,
+	 * using the Cornish-Fisher expansion about the normal distribution.
+	 */
+	static double getStudentT(double p, int df) {
+		double z = getNormalQuantile(p);
+		double z2 = z*z;
+		double g1 = (z2 + 1.0d) * z / 4.0d;
+		double g2 = ((5.0d*z2 + 16.0d) * z2 + 3.0d) * z / 96.0d;
+		double g3 = (((3.0d*z2 + 19.0d) * z2 + 17.0d) * z2 - 15.0d) * z / 384.0d;
+		return z + g1/df + g2/(df*df) + g3/((double)df*df*df);
+	}
+
+	/**
+	 * Returns the quantile of the standard normal distribution, using the rational
+	 * approximation of Abramowitz and Stegun 26.2.23 (absolute error below 4.5e-4).
+	 */
+	static double getNormalQuantile(double p) {
+		double q = p < 0.5d ? p : 1.0d - p;
+		double t = Math.sqrt(-2.0d * Math.log(q));
+		double z = t - (2.515517d + t*(0.802853d + t*0.010328d))
+		             / (1.0d + t*(1.432788d + t*(0.189269d + t*0.001308d)));
+		return p < 0.5d ? -z : z;
+	}
+}
@@ -811,6 +811,42 @@ public final class EventManager {
 		return name;
 	}
 
+	/**
+	 * Runs the given tasks concurrently on helper threads and waits for all of them
+	 * to finish. The helper threads are kept in a pool and reused. The helpers use
+	 * the same EventManager and simulation time as the current Process. Each task may
+	 * change the state of the entities that it owns, but must not read or change the
+	 * state of an entity that is changed by another task, such as by evaluating an
+	 * output that depends on it. Controller, for example, gives each task a group of
+	 * calculation entities that do not refer to one another. A ProcessError is thrown
+	 * if a task tries to schedule or wait for an event. If any task throws an exception, then the one
+	 * for the first such task in the array is rethrown.
+	 * @throws ProcessError if called outside of a Process context
+	 *
+	 * @param tasks the tasks to be run
+	 */
+	public static final void runConcurrently(Runnable[] tasks) {
+		Process cur = Process.current();
+		Process[] helpers = new Process[tasks.length];
+		for (int i = 0; i < tasks.length; i++) {
+			helpers[i] = Process.startHelper(cur.evt(), tasks[i]);
+		}
+
+		Throwable err = null;
+		for (Process helper : helpers) {
+			Throwable t = helper.finishHelper();
+			if (err == null)
+				err = t;
+		}
+
+		if (err instanceof RuntimeException)
+			throw (RuntimeException)err;
+		if (err instanceof Error)
+			throw (Error)err;
+		if (err != null)
+			throw new ProcessError(err.toString());
+	}
+
 	/**
 	 * Returns whether or not we are currently running in a Process context
 	 * that has a controlling EventManager.
@@ -35,6 +35,7 @@ final class Process extends Thread {
 	private static final ArrayList<Process> pool; // storage for all available Processes
 	private static final int maxPoolSize = 100; // Maximum number of Processes allowed to be pooled at a given time
 	private static int numProcesses = 0; // Total of all created processes to date (used to name new Processes)
+	private static int numHelpers = 0; // Total of all created helper threads to date (used to name new helpers)
 
 	private EventManager eventManager; // The EventManager that is currently managing this Process
 	private Process nextProcess; // The Process from which the present process was created
@@ -50,6 +51,12 @@ final class Process extends Thread {
 	private boolean activeFlag;
 	private boolean condWait;
 
+	// Set only for a helper thread that runs tasks for another Process
+	private static final ArrayList<Process> helperPool = new ArrayList<>(); // idle helper threads
+	private boolean isHelper;
+	private Runnable helperTask; // task in progress, null when the helper is idle
+	private Throwable helperError;
+
 	// Initialize the storage for the pooled Processes
 	static {
 		pool = new ArrayList<>(maxPoolSize);
@@ -83,6 +90,11 @@ final class Process extends Thread {
 	 */
 	@Override
 	public void run() {
+		if (isHelper) {
+			runHelperTasks();
+			return;
+		}
+
 		while (true) {
 			waitInPool();
 
@@ -105,6 +117,85 @@ final class Process extends Thread {
 		}
 	}
 
+	private void runHelperTasks() {
+		while (true) {
+			Runnable task;
+			synchronized (this) {
+				while (helperTask == null) {
+					try { this.wait(); } catch (InterruptedException e) {}
+				}
+				task = helperTask;
+			}
+
+			Throwable err = null;
+			try {
+				task.run();
+			}
+			catch (Throwable t) {
+				err = t;
+			}
+
+			synchronized (this) {
+				evt = null;
+				helperError = err;
+				helperTask = null;
+				this.notifyAll();
+			}
+		}
+	}
+
+	/**
+	 * Starts the given task on a helper thread with the same EventManager as the
+	 * present Process. The helper is taken from a pool of idle helpers, or created if
+	 * the pool is empty, and is not allowed to schedule or wait for events.
+	 */
+	static Process startHelper(EventManager evt, Runnable task) {
+		Process helper = null;
+		synchronized (helperPool) {
+			if (helperPool.size() > 0) {
+				helper = helperPool.remove(helperPool.size() - 1);
+			}
+			else {
+				numHelpers++;
+				helper = new Process("helperthread-" + numHelpers);
+				helper.isHelper = true;
+				helper.activeFlag = true;
+				helper.condWait = true;  // event control throws a ProcessError
+				helper.setDaemon(true);
+				helper.start();
+			}
+		}
+
+		synchronized (helper) {
+			helper.evt = evt;
+			helper.helperError = null;
+			helper.helperTask = task;
+			helper.notifyAll();
+		}
+		return helper;
+	}
+
+	/**
+	 * Waits for the task on a helper thread to finish and returns the helper to the
+	 * pool. Returns the exception thrown by the task, or null if the task completed
+	 * normally.
+	 */
+	final Throwable finishHelper() {
+		Throwable err;
+		synchronized (this) {
+			while (helperTask != null) {
+				try { this.wait(); } catch (InterruptedException e) {}
+			}
+			err = helperError;
+			helperError = null;
+		}
+
+		synchronized (helperPool) {
+			helperPool.add(this);
+		}
+		return err;
+	}
+
 	final boolean hasNext() {
 		return hasNext;
 	}
@@ -99,9 +99,9 @@ public class ExpEvaluator {
 
 	private static class EntityEvalContext implements ExpParser.EvalContext {
 
-		// These are updated in updateContext() which must be called before any expression are evaluated
-		private double simTime;
-		private Entity thisEnt;
+		// These are updated by BatchEntityEvalContext.setIndex() between evaluations of a batch
+		protected double simTime;
+		protected Entity thisEnt;
 
 		public EntityEvalContext(double simTime, Entity thisEnt) {
 			this.simTime = simTime;
@@ -126,6 +126,30 @@ public class ExpEvaluator {
 			return false;
 		}
 	}
+
+	/**
+	 * Evaluation context that steps through an array of 'this' entities and/or simulation times,
+	 * allowing one context object to be reused for every value in a batch.
+	 */
+	private static class BatchEntityEvalContext extends EntityEvalContext implements ExpParser.BatchEvalContext {
+		private final double[] simTimes;
+		private final Entity[] thisEnts;
+
+		public BatchEntityEvalContext(double simTime, double[] simTimes, Entity thisEnt, Entity[] thisEnts) {
+			super(simTime, thisEnt);
+			this.simTimes = simTimes;
+			this.thisEnts = thisEnts;
+		}
+
+		@Override
+		public void setIndex(int index) {
+			if (simTimes != null)
+				simTime = simTimes[index];
+			if (thisEnts != null)
+				thisEnt = thisEnts[index];
+		}
+	}
+
 	public static ExpParser.ParseContext getParseContext() {
 		return EC;
 	}
@@ -147,4 +171,30 @@ public class ExpEvaluator {
 		EntityEvalContext evalContext = new EntityEvalContext(simTime, thisEnt);
 		return exp.evaluate(evalContext);
 	}
+
+	/**
+	 * Evaluates the expression at the given simulation time for each of the 'this' entities
+	 * in 'thisEnts', storing the results in 'out'.
+	 * @return the unit type of the results
+	 */
+	public static Class<? extends Unit> evaluateExpression(ExpParser.Expression exp, double simTime, Entity[] thisEnts, double[] out) throws ExpError
+	{
+		if (out.length > thisEnts.length)
+			throw new ExpError(null, 0, "Output array is longer than the entity array");
+		BatchEntityEvalContext evalContext = new BatchEntityEvalContext(simTime, null, null, thisEnts);
+		return exp.evaluate(evalContext, out);
+	}
+
+	/**
+	 * Evaluates the expression for the given 'this' entity at each of the simulation times
+	 * in 'simTimes', storing the results in 'out'.
+	 * @return the unit type of the results
+	 */
+	public static Class<? extends Unit> evaluateExpression(ExpParser.Expression exp, double[] simTimes, Entity thisEnt, double[] out) throws ExpError
+	{
+		if (out.length > simTimes.length)
+			throw new ExpError(null, 0, "Output array is longer than the time array");
+		BatchEntityEvalContext evalContext = new BatchEntityEvalContext(0.0d, simTimes, thisEnt, null);
+		return exp.evaluate(evalContext, out);
+	}
 }
@@ -51,6 +51,14 @@ public class ExpParser {
 		public boolean eagerEval();
 	}
 
+	/**
+	 * An evaluation context that can be repositioned between evaluations, used to evaluate
+	 * the same expression many times in one call
+	 */
+	public interface BatchEvalContext extends EvalContext {
+		public void setIndex(int index);
+	}
+
 	private interface ExpressionWalker {
 		public void visit(ExpNode exp) throws ExpError;
 		public ExpNode updateRef(ExpNode exp) throws ExpError;
@@ -86,10 +94,57 @@ public class ExpParser {
 			}
 			return res;
 		}
+
+		/**
+		 * Evaluates the expression once for each of the first 'out.length' positions of the
+		 * batch context and stores the results in 'out'.
+		 * @return the unit type shared by all the results
+		 */
+		public Class<? extends Unit> evaluate(BatchEvalContext ec, double[] out) throws ExpError {
+			synchronized(executingThreads) {
+				if (executingThreads.contains(Thread.currentThread())) {
+					throw new ExpError(null, 0, "Expression recursion detected for expression: %s", source);
+				}
+
+				executingThreads.add(Thread.currentThread());
+			}
+			Class<? extends Unit> ut = null;
+			try {
+				for (int i = 0; i < out.length; i++) {
+					ec.setIndex(i);
+					ExpResult res = rootNode.evaluate(ec);
+					if (ut == null)
+						ut = res.unitType;
+					else if (ut != res.unitType)
+						throw new ExpError(null, 0, "Inconsistent unit types in batch evaluation. Received: %s, expected: %s",
+								res.unitType.getSimpleName(), ut.getSimpleName());
+					out[i] = res.value;
+				}
+			} finally {
+				synchronized(executingThreads) {
+					executingThreads.remove(Thread.currentThread());
+				}
+			}
+			return ut;
+		}
+
 		void setRootNode(ExpNode node) {
 			rootNode = node;
 		}
 
+		/**
+		 * Returns the names for each variable in the expression, for example
+		 * { "this", "Value" } for the variable this.Value.
+		 */
+		public ArrayList<String[]> getVariableNames() {
+			VariableCollector vc = new VariableCollector();
+			try {
+				rootNode.walk(vc);
+			}
+			catch (ExpError e) {}  // not thrown by VariableCollector
+			return vc.names;
+		}
+
 		@Override
 		public String toString() {
 			return source;
@@ -893,6 +948,21 @@ public class ExpParser {
 
 	private static ConstOptimizer CONST_OP = new ConstOptimizer();
 
+	private static class VariableCollector implements ExpressionWalker {
+		final ArrayList<String[]> names = new ArrayList<>();
+
+		@Override
+		public void visit(ExpNode exp) {
+			if (exp instanceof Variable)
+				names.add(((Variable)exp).vals);
+		}
+
+		@Override
+		public ExpNode updateRef(ExpNode exp) {
+			return exp;
+		}
+	}
+
 	/**
 	 * The main entry point to the expression parsing system, will either return a valid
 	 * expression that can be evaluated, or throw an error.
@@ -889,6 +889,25 @@ public abstract class Input<T> {
 		return temp;
 	}
 
+	/**
+	 * Convert the given keyword argument to a double and apply the given conversion factor
+	 */
+	private static double parseDouble(KeywordIndex kw, int index, double minValue, double maxValue, double factor)
+	throws InputErrorException {
+		double temp;
+		try {
+			temp = kw.getArgDouble(index) * factor;
+		}
+		catch (NumberFormatException e) {
+			throw new InputErrorException(INP_ERR_DOUBLE, kw.getArg(index));
+		}
+
+		if (temp < minValue || temp > maxValue)
+			throw new InputErrorException(INP_ERR_DOUBLERANGE, minValue, maxValue, temp);
+
+		return temp;
+	}
+
 	/**
 	 * Convert the given String to a double including a unit conversion, if necessary
 	 */
@@ -989,13 +1008,13 @@ public abstract class Input<T> {
 							includeIndex = false;
 							throw new InputErrorException(INP_ERR_NOUNITFOUND, kw.getArg(numArgs-1), unitType.getSimpleName());
 						}
-						double element = Input.parseDouble(kw.getArg(i), minValue, maxValue, factor);
+						double element = Input.parseDouble(kw, i, minValue, maxValue, factor);
 						temp.add(element);
 					}
 				}
 				// Non-time input
 				else {
-					double element = Input.parseDouble(kw.getArg(i), minValue, maxValue, factor);
+					double element = Input.parseDouble(kw, i, minValue, maxValue, factor);
 					temp.add(element);
 				}
 			} catch (InputErrorException e) {
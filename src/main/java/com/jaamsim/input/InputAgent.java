@@ -19,7 +19,6 @@ import java.io.File;
 import java.io.FileReader;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
 import java.net.MalformedURLException;
 import java.net.URI;
 import java.net.URISyntaxException;
@@ -27,15 +26,19 @@ import java.net.URL;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
 
+import com.jaamsim.basicsim.ColumnFile;
+import com.jaamsim.basicsim.ColumnReportWriter;
 import com.jaamsim.basicsim.Entity;
 import com.jaamsim.basicsim.ErrorException;
 import com.jaamsim.basicsim.FileEntity;
 import com.jaamsim.basicsim.Group;
 import com.jaamsim.basicsim.ObjectType;
 import com.jaamsim.basicsim.Simulation;
+import com.jaamsim.basicsim.TextReportWriter;
 import com.jaamsim.math.Vec3d;
 import com.jaamsim.ui.FrameBox;
 import com.jaamsim.ui.GUIFrame;
@@ -61,6 +64,15 @@ public class InputAgent {
 
 	private static File reportDir;
 
+	// Load-phase statistics for the present configuration file
+	private static int loadFiles;
+	private static int loadRecords;
+	private static long loadReadNanos;
+	private static long loadWaitNanos;
+
+	private static boolean writeCache;  // TRUE if a compiled model cache is to be used or written when a configuration file is loaded
+	private static InputCache cache;    // cache being recorded for the configuration file presently being loaded
+
 	static {
 		recordEditsFound = false;
 		sessionEdited = false;
@@ -217,29 +229,13 @@ public class InputAgent {
 		return batchRun;
 	}
 
-	private static int getBraceDepth(ArrayList<String> tokens, int startingBraceDepth, int startingIndex) {
-		int braceDepth = startingBraceDepth;
-		for (int i = startingIndex; i < tokens.size(); i++) {
-			String token = tokens.get(i);
-
-			if (token.equals("{"))
-				braceDepth++;
-
-			if (token.equals("}"))
-				braceDepth--;
-
-			if (braceDepth < 0) {
-				InputAgent.logBadInput(tokens, "Extra closing braces found");
-				tokens.clear();
-			}
-
-			if (braceDepth > 3) {
-				InputAgent.logBadInput(tokens, "Maximum brace depth (3) exceeded");
-				tokens.clear();
-			}
-		}
-
-		return braceDepth;
+	/**
+	 * Sets whether a compiled model cache is used for each configuration file that is
+	 * loaded. An up to date cache is used if one is found, otherwise a new cache is
+	 * written alongside the configuration file. No cache is read or written if false.
+	 */
+	public static void setWriteCache(boolean bool) {
+		writeCache = bool;
 	}
 
 	private static URI resRoot;
@@ -293,81 +289,90 @@ public class InputAgent {
 			return false;
 		}
 
-		BufferedReader buf = null;
+		InputStream in = null;
 		try {
-			InputStream in = url.openStream();
-			buf = new BufferedReader(new InputStreamReader(in));
-		} catch (IOException e) {
+			in = url.openStream();
+		}
+		catch (IOException e) {
 			InputAgent.logError("Could not read from %s", url.toString());
 			return false;
 		}
 
-		try {
-			ArrayList<String> record = new ArrayList<>();
-			int braceDepth = 0;
+		if (cache != null)
+			cache.addSource(resolved.normalize());
 
+		InputRecordReader reader = new InputRecordReader(in, url, shortName);
+		try {
 			ParseContext pc = new ParseContext(resolved, root);
 
 			while (true) {
-				String line = buf.readLine();
+				long waitStart = System.nanoTime();
+				InputRecordReader.Record rec = reader.next();
+				loadWaitNanos += System.nanoTime() - waitStart;
+
 				// end of file, stop reading
-				if (line == null)
+				if (rec == null)
 					break;
 
-				int previousRecordSize = record.size();
-				Parser.tokenize(record, line, true);
-				braceDepth = InputAgent.getBraceDepth(record, braceDepth, previousRecordSize);
-				if( braceDepth != 0 )
+				List<String> record = rec.tokens;
+				if (rec.error != null) {
+					if (record == null)
+						InputAgent.logError("%s", rec.error);
+					else
+						InputAgent.logBadInput(record, rec.error);
 					continue;
+				}
 
-				if (record.size() == 0)
-					continue;
+				loadRecords++;
+				if (cache != null && !"INCLUDE".equalsIgnoreCase(record.get(0)))
+					cache.addRecord(pc, record);
 
-				InputAgent.echoInputRecord(record);
+				InputAgent.processRecord(pc, record);
+			}
+		}
+		finally {
+			reader.close();
+			loadFiles++;
+			loadReadNanos += reader.getReadNanos();
+		}
 
-				if ("DEFINE".equalsIgnoreCase(record.get(0))) {
-					InputAgent.processDefineRecord(record);
-					record.clear();
-					continue;
-				}
+		return true;
+	}
 
-				if ("INCLUDE".equalsIgnoreCase(record.get(0))) {
-					try {
-						InputAgent.processIncludeRecord(pc, record);
-					}
-					catch (URISyntaxException ex) {
-						rethrowWrapped(ex);
-					}
-					record.clear();
-					continue;
-				}
+	/**
+	 * Processes a single complete record from a configuration file.
+	 * @param pc - context for the file the record was read from
+	 * @param record - the tokens in the record
+	 */
+	static void processRecord(ParseContext pc, List<String> record) {
+		InputAgent.echoInputRecord(record);
 
-				if ("RECORDEDITS".equalsIgnoreCase(record.get(0))) {
-					InputAgent.setRecordEditsFound(true);
-					InputAgent.setRecordEdits(true);
-					record.clear();
-					continue;
-				}
+		if ("DEFINE".equalsIgnoreCase(record.get(0))) {
+			InputAgent.processDefineRecord(record);
+			return;
+		}
 
-				// Otherwise assume it is a Keyword record
-				InputAgent.processKeywordRecord(record, pc);
-				record.clear();
+		if ("INCLUDE".equalsIgnoreCase(record.get(0))) {
+			try {
+				InputAgent.processIncludeRecord(pc, record);
 			}
-
-			// Leftover Input at end of file
-			if (record.size() > 0)
-				InputAgent.logBadInput(record, "Leftover input at end of file");
-			buf.close();
+			catch (URISyntaxException ex) {
+				rethrowWrapped(ex);
+			}
+			return;
 		}
-		catch (IOException e) {
-			// Make best effort to ensure it closes
-			try { buf.close(); } catch (IOException e2) {}
+
+		if ("RECORDEDITS".equalsIgnoreCase(record.get(0))) {
+			InputAgent.setRecordEditsFound(true);
+			InputAgent.setRecordEdits(true);
+			return;
 		}
 
-		return true;
+		// Otherwise assume it is a Keyword record
+		InputAgent.processKeywordRecord(record, pc);
 	}
 
-	private static void processIncludeRecord(ParseContext pc, ArrayList<String> record) throws URISyntaxException {
+	private static void processIncludeRecord(ParseContext pc, List<String> record) throws URISyntaxException {
 		if (record.size() != 2) {
 			InputAgent.logError("Bad Include record, should be: Include <File>");
 			return;
@@ -375,7 +380,7 @@ public class InputAgent {
 		InputAgent.readStream(pc.jail, pc.context, record.get(1).replaceAll("\\\\", "/"));
 	}
 
-	private static void processDefineRecord(ArrayList<String> record) {
+	private static void processDefineRecord(List<String> record) {
 		if (record.size() < 5 ||
 		    !record.get(2).equals("{") ||
 		    !record.get(record.size() - 1).equals("}")) {
@@ -531,7 +536,7 @@ public class InputAgent {
 		ent.setName(newName);
 	}
 
-	public static void processKeywordRecord(ArrayList<String> record, ParseContext context) {
+	public static void processKeywordRecord(List<String> record, ParseContext context) {
 		Entity ent = Input.tryParseEntity(record.get(0), Entity.class);
 		if (ent == null) {
 			InputAgent.logError("Could not find Entity: %s", record.get(0));
@@ -554,7 +559,7 @@ public class InputAgent {
 		}
 	}
 
-	private static ArrayList<KeywordIndex> getKeywords(ArrayList<String> input, ParseContext context) {
+	private static ArrayList<KeywordIndex> getKeywords(List<String> input, ParseContext context) {
 		ArrayList<KeywordIndex> ret = new ArrayList<>();
 
 		int braceDepth = 0;
@@ -605,8 +610,41 @@ public class InputAgent {
 			InputAgent.logWarning("Could not create trace file");
 		}
 
-		URI dirURI = file.getParentFile().toURI();
-		InputAgent.readStream("", dirURI, file.getName());
+		loadFiles = 0;
+		loadRecords = 0;
+		loadReadNanos = 0L;
+		loadWaitNanos = 0L;
+		long loadStart = System.nanoTime();
+
+		if (writeCache && InputCache.load(file)) {
+			long loadNanos = System.nanoTime() - loadStart;
+			InputAgent.logMessage("Loaded %s from model cache in %.3f s", file.getName(), loadNanos * 1.0e-9d);
+		}
+		else {
+			if (writeCache)
+				cache = InputCache.create(file);
+
+			URI dirURI = file.getParentFile().toURI();
+			boolean loaded = false;
+			try {
+				loaded = InputAgent.readStream("", dirURI, file.getName());
+			}
+			finally {
+				if (cache != null) {
+					if (InputAgent.numErrors == 0)
+						cache.finish();
+					else
+						cache.abort();
+					cache = null;
+				}
+			}
+
+			long loadNanos = System.nanoTime() - loadStart;
+			if (loaded)
+				InputAgent.logMessage("Loaded %d records from %d file(s) in %.3f s (read and tokenize: %.3f s, apply: %.3f s)",
+						loadRecords, loadFiles, loadNanos * 1.0e-9d, loadReadNanos * 1.0e-9d,
+						(loadNanos - loadWaitNanos) * 1.0e-9d);
+		}
 
 		// The session is not considered to be edited after loading a configuration file
 		sessionEdited = false;
@@ -872,7 +910,7 @@ public class InputAgent {
 		return numWarnings;
 	}
 
-	private static void echoInputRecord(ArrayList<String> tokens) {
+	private static void echoInputRecord(List<String> tokens) {
 		if (logFile == null)
 			return;
 
@@ -895,7 +933,7 @@ public class InputAgent {
 		logFile.flush();
 	}
 
-	private static void logBadInput(ArrayList<String> tokens, String msg) {
+	private static void logBadInput(List<String> tokens, String msg) {
 		InputAgent.echoInputRecord(tokens);
 		InputAgent.logError("%s", msg);
 	}
@@ -1112,31 +1150,51 @@ public class InputAgent {
 		// Create the report file
 		StringBuilder tmp = new StringBuilder("");
 		tmp.append(InputAgent.getReportFileName(InputAgent.getRunName()));
+		if (Simulation.getBinaryOutput()) {
+			tmp.append(".crep");
+			ColumnFile file = new ColumnFile(tmp.toString(), ColumnReportWriter.COLUMNS, ColumnReportWriter.UNIT_TYPES);
+			ColumnReportWriter rep = new ColumnReportWriter(file);
+			for (Entity ent : getReportEntities())
+				ent.printReport(rep, simTime);
+			file.close();
+			return;
+		}
 		tmp.append(".rep");
 		FileEntity file = new FileEntity(tmp.toString());
 
-		// Identify the classes that were used in the model
-		ArrayList<Class<? extends Entity>> newClasses = new ArrayList<>();
+		// The outputs are evaluated one at a time since most output methods are not
+		// safe to call from more than one thread
+		TextReportWriter rep = new TextReportWriter(file);
+		for (Entity ent : getReportEntities())
+			ent.printReport(rep, simTime);
+
+		// Close the report file
+		file.close();
+	}
+
+	/**
+	 * Returns the entities to be included in the output report, grouped by class.
+	 * The classes are in the order in which their first instance appears.
+	 */
+	private static ArrayList<Entity> getReportEntities() {
+
+		// Identify the classes that were used in the model and their instances
+		LinkedHashMap<Class<? extends Entity>, ArrayList<Entity>> classMap = new LinkedHashMap<>();
 		for (Entity ent : Entity.getAll()) {
 			if (ent.testFlag(Entity.FLAG_GENERATED))
 				continue;
-			if (!newClasses.contains(ent.getClass()))
-				newClasses.add(ent.getClass());
-		}
-
-		// Loop through the classes and identify the instances
-		for (Class<? extends Entity> newClass : newClasses) {
-			for (Entity ent : Entity.getAll()) {
-				if (ent.testFlag(Entity.FLAG_GENERATED))
-					continue;
-				if (ent.getClass() != newClass)
-					continue;
-				ent.printReport(file, simTime);
+			ArrayList<Entity> list = classMap.get(ent.getClass());
+			if (list == null) {
+				list = new ArrayList<>();
+				classMap.put(ent.getClass(), list);
 			}
+			list.add(ent);
 		}
 
-		// Close the report file
-		file.close();
+		ArrayList<Entity> ret = new ArrayList<>();
+		for (ArrayList<Entity> list : classMap.values())
+			ret.addAll(list);
+		return ret;
 	}
 
 	/**
@@ -0,0 +1,393 @@
+/*
+ * JaamSim Discrete Event Simulation
+ * Copyright (C) 2015 Ausenco Engineering Canada Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ */
+package com.jaamsim.input;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * A compiled form of a configuration file. The cache holds the fully expanded
+ * sequence of records read from the configuration file and all of its Include
+ * files, stored in tokenized binary form with a shared string table. The cache
+ * is keyed by the size, modification time and SHA-1 digest of every source file
+ * and is only used if all of the sources are unchanged. A source file is only
+ * read to compare its digest if its modification time has changed.
+ * <p>
+ * File layout: the records, followed by a trailer holding a CRC-32 of the records,
+ * the parse contexts and the source digests, followed by the offset of the trailer.
+ * The whole cache is read and checked before any of its records are applied, so a
+ * damaged cache is ignored and the configuration file is read instead.
+ */
+class InputCache {
+	private static final int MAGIC = 0x4A53434D; // "JSCM"
+	private static final int VERSION = 3;
+	private static final String SUFFIX = ".cache";
+
+	private static final int END_OF_RECORDS = -1;
+	private static final int NEW_STRING = -1;
+	private static final int INLINE_STRING = -2;
+
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+
+	// A file modified this close to the time the cache was written could be modified
+	// again without changing its modification time
+	private static final long MIN_FILE_AGE = 2000L;  // milliseconds
+
+	private final File cacheFile;
+	private final File tempFile;
+	private final DataOutputStream out;
+	private final CRC32 crc = new CRC32();  // checksum of the records
+
+	private final ArrayList<URI> sources = new ArrayList<>();
+	private final ArrayList<ParseContext> contexts = new ArrayList<>();
+	private final IdentityHashMap<ParseContext, Integer> contextIndex = new IdentityHashMap<>();
+	private final HashMap<String, Integer> stringIndex = new HashMap<>();
+	private boolean failed;
+
+	private InputCache(File cfg) throws IOException {
+		cacheFile = getCacheFile(cfg);
+		tempFile = new File(cacheFile.getPath() + ".tmp");
+		out = new DataOutputStream(new CheckedOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile), 1 << 16), crc));
+	}
+
+	static File getCacheFile(File cfg) {
+		return new File(cfg.getPath() + SUFFIX);
+	}
+
+	/**
+	 * Starts recording a new cache for the given configuration file, returns null
+	 * if the cache file cannot be created.
+	 */
+	static InputCache create(File cfg) {
+		try {
+			return new InputCache(cfg);
+		}
+		catch (IOException e) {
+			InputAgent.logWarning("Could not create model cache for %s", cfg.getName());
+			return null;
+		}
+	}
+
+	void addSource(URI source) {
+		sources.add(source);
+	}
+
+	void addRecord(ParseContext pc, List<String> record) {
+		if (failed)
+			return;
+
+		try {
+			Integer ctx = contextIndex.get(pc);
+			if (ctx == null) {
+				ctx = contexts.size();
+				contexts.add(pc);
+				contextIndex.put(pc, ctx);
+			}
+
+			out.writeInt(ctx);
+			out.writeInt(record.size());
+			for (String tok : record)
+				this.writeToken(tok);
+		}
+		catch (IOException e) {
+			this.abort();
+		}
+	}
+
+	private void writeToken(String tok) throws IOException {
+		// Numbers rarely repeat, write them inline rather than growing the string table
+		char c = tok.isEmpty() ? ' ' : tok.charAt(0);
+		if ((c >= '0' && c <= '9') || c == '-' || c == '.') {
+			out.writeInt(INLINE_STRING);
+			writeString(out, tok);
+			return;
+		}
+
+		Integer idx = stringIndex.get(tok);
+		if (idx != null) {
+			out.writeInt(idx);
+			return;
+		}
+
+		stringIndex.put(tok, stringIndex.size());
+		out.writeInt(NEW_STRING);
+		writeString(out, tok);
+	}
+
+	/**
+	 * Completes the cache file, replacing any previous cache for the configuration file.
+	 */
+	void finish() {
+		if (failed) {
+			InputAgent.logWarning("Could not write model cache %s", cacheFile.getName());
+			return;
+		}
+
+		try {
+			out.writeInt(END_OF_RECORDS);
+
+			// DataOutputStream.size() saturates at Integer.MAX_VALUE
+			if (out.size() == Integer.MAX_VALUE)
+				throw new IOException();
+			long recordBytes = out.size();
+			long recordCrc = crc.getValue();
+
+			// Trailer
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeLong(recordCrc);
+			out.writeInt(contexts.size());
+			for (ParseContext pc : contexts) {
+				writeString(out, pc.context.toString());
+				out.writeBoolean(pc.jail != null);
+				if (pc.jail != null)
+					writeString(out, pc.jail);
+			}
+			long now = System.currentTimeMillis();
+			out.writeInt(sources.size());
+			for (URI src : sources) {
+				writeString(out, src.toString());
+				File f = getFile(src);
+				long size = -1L;
+				long modified = -1L;
+				if (f != null) {
+					size = f.length();
+					modified = f.lastModified();
+					if (modified > now - MIN_FILE_AGE)
+						modified = -1L;
+				}
+				out.writeLong(size);
+				out.writeLong(modified);
+				byte[] digest = getDigest(src);
+				out.writeInt(digest.length);
+				out.write(digest);
+			}
+			out.writeLong(recordBytes);
+			out.writeInt(MAGIC);
+			out.close();
+
+			if (cacheFile.exists() && !cacheFile.delete())
+				throw new IOException();
+			if (!tempFile.renameTo(cacheFile))
+				throw new IOException();
+		}
+		catch (IOException e) {
+			this.abort();
+			InputAgent.logWarning("Could not write model cache %s", cacheFile.getName());
+		}
+	}
+
+	/**
+	 * Discards a partially written cache.
+	 */
+	void abort() {
+		failed = true;
+		try { out.close(); } catch (IOException e) {}
+		tempFile.delete();
+	}
+
+	/**
+	 * Applies the records from the cache for the given configuration file. Nothing is
+	 * applied unless the whole cache can be read and its checksum is correct.
+	 * @return false if there is no usable cache and the configuration file must be read
+	 */
+	static boolean load(File cfg) {
+		File file = getCacheFile(cfg);
+		if (!file.isFile())
+			return false;
+
+		ArrayList<ParseContext> ctxts = new ArrayList<>();
+		ArrayList<ParseContext> recordCtxts = new ArrayList<>();
+		ArrayList<ArrayList<String>> records = new ArrayList<>();
+		try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+			long len = raf.length();
+			if (len < 12)
+				return false;
+
+			raf.seek(len - 12);
+			long recordBytes = raf.readLong();
+			if (raf.readInt() != MAGIC || recordBytes < 0 || recordBytes >= Math.min(len - 12, Integer.MAX_VALUE))
+				return false;
+
+			raf.seek(recordBytes);
+			DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(raf.getFD())));
+			if (in.readInt() != MAGIC || in.readInt() != VERSION)
+				return false;
+			long recordCrc = in.readLong();
+
+			int numContexts = in.readInt();
+			for (int i = 0; i < numContexts; i++) {
+				URI uri = new URI(readString(in));
+				String jail = in.readBoolean() ? readString(in) : null;
+				ctxts.add(new ParseContext(uri, jail));
+			}
+
+			// The cache is only valid if every source file is unchanged
+			int numSources = in.readInt();
+			for (int i = 0; i < numSources; i++) {
+				URI src = new URI(readString(in));
+				long size = in.readLong();
+				long modified = in.readLong();
+				byte[] digest = readBytes(in);
+
+				// Only read the file if its size is the same and it may have been modified
+				File f = getFile(src);
+				if (f != null) {
+					if (f.length() != size)
+						return false;
+					if (modified != -1L && f.lastModified() == modified)
+						continue;
+				}
+				if (!Arrays.equals(digest, getDigest(src)))
+					return false;
+			}
+
+			// Read and check all the records before any are applied
+			byte[] bytes = new byte[(int)recordBytes];
+			raf.seek(0);
+			raf.readFully(bytes);
+			CRC32 check = new CRC32();
+			check.update(bytes, 0, bytes.length);
+			if (check.getValue() != recordCrc)
+				throw new IOException();
+			readRecords(new DataInputStream(new ByteArrayInputStream(bytes)), ctxts, recordCtxts, records);
+		}
+		catch (IOException | URISyntaxException e) {
+			InputAgent.logWarning("Model cache %s could not be read, the configuration file will be read instead",
+					file.getName());
+			return false;
+		}
+
+		for (int i = 0; i < records.size(); i++)
+			InputAgent.processRecord(recordCtxts.get(i), records.get(i));
+		return true;
+	}
+
+	/**
+	 * Reads every record in the cache, together with its parse context.
+	 * @throws IOException if the records are not complete and consistent
+	 */
+	private static void readRecords(DataInputStream in, ArrayList<ParseContext> ctxts,
+			ArrayList<ParseContext> recordCtxts, ArrayList<ArrayList<String>> records) throws IOException {
+		ArrayList<String> strings = new ArrayList<>();
+		while (true) {
+			int ctx = in.readInt();
+			if (ctx == END_OF_RECORDS)
+				break;
+			if (ctx < 0 || ctx >= ctxts.size())
+				throw new IOException();
+
+			int numTokens = in.readInt();
+			if (numTokens < 0 || numTokens > in.available())
+				throw new IOException();
+			ArrayList<String> record = new ArrayList<>(numTokens);
+			for (int i = 0; i < numTokens; i++) {
+				int idx = in.readInt();
+				if (idx == INLINE_STRING) {
+					record.add(readString(in));
+					continue;
+				}
+				if (idx == NEW_STRING) {
+					String str = readString(in);
+					strings.add(str);
+					record.add(str);
+					continue;
+				}
+				if (idx < 0 || idx >= strings.size())
+					throw new IOException();
+				record.add(strings.get(idx));
+			}
+			recordCtxts.add(ctxts.get(ctx));
+			records.add(record);
+		}
+		if (in.available() != 0)
+			throw new IOException();
+	}
+
+	private static void writeString(DataOutputStream out, String str) throws IOException {
+		byte[] bytes = str.getBytes(UTF8);
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+	private static String readString(DataInputStream in) throws IOException {
+		return new String(readBytes(in), UTF8);
+	}
+
+	private static byte[] readBytes(DataInputStream in) throws IOException {
+		int n = in.readInt();
+		if (n < 0 || n > in.available())
+			throw new IOException();
+		byte[] bytes = new byte[n];
+		in.readFully(bytes);
+		return bytes;
+	}
+
+	/**
+	 * Returns the local file for the given source, or null if it is not a local file.
+	 */
+	private static File getFile(URI src) {
+		if (!"file".equals(src.getScheme()))
+			return null;
+		try {
+			return new File(src);
+		}
+		catch (IllegalArgumentException e) {
+			return null;
+		}
+	}
+
+	private static byte[] getDigest(URI src) throws IOException {
+		MessageDigest md;
+		try {
+			md = MessageDigest.getInstance("SHA-1");
+		}
+		catch (NoSuchAlgorithmException e) {
+			throw new IOException(e);
+		}
+
+		byte[] buf = new byte[1 << 16];
+		try (InputStream in = src.toURL().openStream()) {
+			while (true) {
+				int n = in.read(buf);
+				if (n < 0)
+					break;
+				md.update(buf, 0, n);
+			}
+		}
+		return md.digest();
+	}
+}
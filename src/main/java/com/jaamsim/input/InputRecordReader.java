@@ -0,0 +1,217 @@
+/*
+ * JaamSim Discrete Event Simulation
+ * Copyright (C) 2015 Ausenco Engineering Canada Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ */
+package com.jaamsim.input;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+
+/**
+ * Reads and tokenizes an input file on a background thread, handing complete
+ * records (a top-level statement with balanced braces) to the thread that
+ * applies them. Records are delivered in file order so that Define and Include
+ * statements are always processed before the keywords that depend on them.
+ * <p>
+ * The stream is opened by the caller, so that a file that cannot be opened is
+ * reported before any records are read. It is read through a BufferedReader
+ * and closed once the whole file has been read, so the file is not held open
+ * while the records are applied. Records are returned as TokenLists that refer
+ * to the file contents, so that Strings are only created for the tokens that
+ * are actually used as Strings.
+ */
+class InputRecordReader implements Runnable {
+
+	/**
+	 * A complete input record, or a record that could not be tokenized
+	 * together with the error to be reported for it.
+	 */
+	static final class Record {
+		final List<String> tokens;
+		final String error;
+
+		Record(List<String> toks, String err) {
+			tokens = toks;
+			error = err;
+		}
+	}
+
+	private static final Record END = new Record(null, null);
+	private static final int QUEUE_SIZE = 4096;
+
+	private final InputStream in;
+	private final URL url;
+	private final ArrayBlockingQueue<Record> queue;
+	private final Thread thread;
+	private volatile boolean closed;
+	private volatile long readNanos;
+
+	InputRecordReader(InputStream in, URL url, String name) {
+		this.in = in;
+		this.url = url;
+		queue = new ArrayBlockingQueue<>(QUEUE_SIZE);
+		thread = new Thread(this, "InputReader-" + name);
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	/**
+	 * Returns the next record in the file, blocking until it has been tokenized,
+	 * or null at the end of the file.
+	 */
+	Record next() {
+		while (true) {
+			try {
+				Record rec = queue.take();
+				return rec == END ? null : rec;
+			}
+			catch (InterruptedException e) {}
+		}
+	}
+
+	/**
+	 * Stops the background thread, used if the records are not read to the end of the file.
+	 */
+	void close() {
+		closed = true;
+		thread.interrupt();
+	}
+
+	/**
+	 * Returns the time in nanoseconds the background thread spent reading and tokenizing.
+	 */
+	long getReadNanos() {
+		return readNanos;
+	}
+
+	@Override
+	public void run() {
+		long start = System.nanoTime();
+		try {
+			readBuffered();
+		}
+		catch (IOException e) {
+			put(new Record(null, String.format("Could not read from %s", url.toString())));
+		}
+		catch (InterruptedException e) {
+			return;
+		}
+		catch (Throwable t) {
+			put(new Record(null, String.format("Error reading %s - %s", url.toString(), t.getMessage())));
+		}
+		finally {
+			closeStream();
+			readNanos = System.nanoTime() - start;
+		}
+		put(END);
+	}
+
+	private void readBuffered() throws IOException, InterruptedException {
+		StringBuilder sb = new StringBuilder();
+		try (BufferedReader buf = new BufferedReader(new InputStreamReader(in))) {
+			char[] cbuf = new char[1 << 16];
+			while (true) {
+				int n = buf.read(cbuf);
+				if (n < 0)
+					break;
+				sb.append(cbuf, 0, n);
+			}
+		}
+		this.readRecords(sb);
+	}
+
+	/**
+	 * Splits the file contents into lines and tokenizes them into records. The
+	 * tokens refer back to the file contents, no Strings are created here.
+	 */
+	private void readRecords(CharSequence chars) throws InterruptedException {
+		TokenList record = new TokenList(chars);
+		int braceDepth = 0;
+		int lineStart = 0;
+		final int len = chars.length();
+		for (int i = 0; i <= len; i++) {
+			char c = i < len ? chars.charAt(i) : '\n';
+			if (c != '\n' && c != '\r')
+				continue;
+
+			// Tokenize the line
+			int previousRecordSize = record.size();
+			Parser.tokenize(record, chars, lineStart, i);
+
+			// Treat \r\n as a single line break
+			if (c == '\r' && i + 1 < len && chars.charAt(i + 1) == '\n')
+				i++;
+			lineStart = i + 1;
+
+			String err = null;
+			for (int j = previousRecordSize; j < record.size(); j++) {
+				if (record.isChar(j, '{'))
+					braceDepth++;
+
+				if (record.isChar(j, '}'))
+					braceDepth--;
+
+				if (braceDepth < 0)
+					err = "Extra closing braces found";
+
+				if (braceDepth > 3)
+					err = "Maximum brace depth (3) exceeded";
+
+				// Report the record as it stands, then continue with an empty record
+				if (err != null) {
+					putRecord(new Record(new ArrayList<>(record), err));
+					record.clear();
+					break;
+				}
+			}
+
+			if (braceDepth != 0 || record.size() == 0)
+				continue;
+
+			putRecord(new Record(record, null));
+			record = new TokenList(chars);
+		}
+
+		// Leftover Input at end of file
+		if (record.size() > 0)
+			putRecord(new Record(record, "Leftover input at end of file"));
+	}
+
+	private void closeStream() {
+		try {
+			in.close();
+		}
+		catch (IOException e) {}
+	}
+
+	private void putRecord(Record rec) throws InterruptedException {
+		if (closed)
+			throw new InterruptedException();
+		queue.put(rec);
+	}
+
+	private void put(Record rec) {
+		if (closed)
+			return;
+		try {
+			queue.put(rec);
+		}
+		catch (InterruptedException e) {}
+	}
+}
@@ -15,20 +15,21 @@
 package com.jaamsim.input;
 
 import java.util.ArrayList;
+import java.util.List;
 
 
 public class KeywordIndex {
-	private final ArrayList<String> input;
+	private final List<String> input;
 	public final String keyword;
 	private final int start;
 	private final int end;
 	public final ParseContext context;
 
-	public KeywordIndex(String word, ArrayList<String> arg, ParseContext ctxt) {
+	public KeywordIndex(String word, List<String> arg, ParseContext ctxt) {
 		this(word, arg, 0, arg.size(), ctxt);
 	}
 
-	public KeywordIndex(String word, ArrayList<String> inp, int s, int e, ParseContext ctxt) {
+	public KeywordIndex(String word, List<String> inp, int s, int e, ParseContext ctxt) {
 		input = inp;
 		keyword = word;
 		start = s;
@@ -69,6 +70,22 @@ public class KeywordIndex {
 		return input.get(start + index);
 	}
 
+	/**
+	 * Returns the argument at the given index converted to a double. Arguments read from
+	 * a configuration file are converted directly from the file contents without creating
+	 * a String.
+	 * @throws NumberFormatException if the argument is not a number
+	 */
+	public double getArgDouble(int index) throws NumberFormatException {
+		if (index < 0 || index >= numArgs())
+			throw new IndexOutOfBoundsException("Index out of range:" + index);
+
+		if (input instanceof TokenList)
+			return ((TokenList)input).parseDouble(start + index);
+
+		return Double.parseDouble(input.get(start + index));
+	}
+
 	public ArrayList<KeywordIndex> getSubArgs() {
 		ArrayList<KeywordIndex> subArgs = new ArrayList<>();
 		for (int i= 0; i < this.numArgs(); i++) {
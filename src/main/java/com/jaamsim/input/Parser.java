@@ -26,7 +26,7 @@ public class Parser {
  * @param tokens list of String tokens to append to
  * @param rec record to tokenize and append
  */
-public static final void tokenize(ArrayList<String> tokens, String rec) {
+public static final void tokenize(ArrayList<String> tokens, CharSequence rec) {
 	tokenize(tokens, rec, false);
 }
 
@@ -39,27 +39,54 @@ public static final void tokenize(ArrayList<String> tokens, String rec) {
  * @param rec record to tokenize and append
  * @param stripComments if true, do not append any commented tokens
  */
-public static final void tokenize(ArrayList<String> tokens, String rec, boolean stripComments) {
+public static final void tokenize(ArrayList<String> tokens, CharSequence rec, boolean stripComments) {
+	TokenList list = new TokenList(rec);
+	final int cIndex = tokenize(list, rec, 0, rec.length());
+	tokens.addAll(list);
+
+	// add comments if they exist including the leading " to denote it as commented
+	if (!stripComments && cIndex > -1)
+		tokens.add(substring(rec, cIndex, rec.length()));
+}
+
+/**
+ * Tokenize the characters between 'start' and 'end' of the token list's buffer
+ * and append them to the list without creating any Strings. Commented tokens
+ * are not appended.
+ *
+ * Valid delimiter characters are space and tab.
+ *
+ * @param tokens list of tokens to append to
+ * @param start index of the first character in the record
+ * @param end index following the last character in the record
+ * @return index of the " character that starts the comment, or -1 if there is no comment
+ */
+static final int tokenize(TokenList tokens, CharSequence buf, int start, int end) {
 	// Records can be divided into two pieces, the contents portion and possibly
-	// a commented portion, the division point is the first " character, if no
-	// quoting in a record, the entire line is contents for tokenizing
-	final int cIndex = rec.indexOf("\"");
-	final int endOfRec = cIndex == -1 ? rec.length() : cIndex;
+	// a commented portion, the division point is the first " character
+	int cIndex = -1;
+	for (int i = start; i < end; i++) {
+		if (buf.charAt(i) == '"') {
+			cIndex = i;
+			break;
+		}
+	}
+	final int endOfRec = cIndex == -1 ? end : cIndex;
 
 	int tokStart = -1;
 	int quoteStart = -1;
-	for (int i = 0; i < endOfRec; i++) {
-		char c = rec.charAt(i);
+	for (int i = start; i < endOfRec; i++) {
+		char c = buf.charAt(i);
 		if (c == '\'') {
 			// end the current token
 			if (tokStart != -1) {
-				if (i - tokStart > 0) tokens.add(rec.substring(tokStart, i));
+				if (i - tokStart > 0) tokens.addToken(tokStart, i);
 				tokStart = -1;
 			}
 
 			// Set the quoting state
 			if (quoteStart != -1) {
-				tokens.add(rec.substring(quoteStart + 1, i));
+				tokens.addToken(quoteStart + 1, i);
 				quoteStart = -1;
 			}
 			else {
@@ -75,15 +102,12 @@ public static final void tokenize(ArrayList<String> tokens, String rec, boolean
 		// handle delimiter chars
 		if (c == '{' || c == '}' || c == ' ' || c == '\t') {
 			if (tokStart != -1 && i - tokStart > 0) {
-				tokens.add(rec.substring(tokStart, i));
+				tokens.addToken(tokStart, i);
 				tokStart = -1;
 			}
 
-			if (c == '{')
-				tokens.add("{");
-
-			if (c == '}')
-				tokens.add("}");
+			if (c == '{' || c == '}')
+				tokens.addToken(i, i + 1);
 
 			continue;
 		}
@@ -94,14 +118,108 @@ public static final void tokenize(ArrayList<String> tokens, String rec, boolean
 
 	// clean up the final trailing token
 	if (tokStart != -1)
-		tokens.add(rec.substring(tokStart, endOfRec));
+		tokens.addToken(tokStart, endOfRec);
 
 	if (quoteStart != -1)
-		tokens.add(rec.substring(quoteStart + 1, endOfRec));
+		tokens.addToken(quoteStart + 1, endOfRec);
 
-	// add comments if they exist including the leading " to denote it as commented
-	if (!stripComments && cIndex > -1)
-		tokens.add(rec.substring(cIndex, rec.length()));
+	return cIndex;
+}
+
+private static final double[] POWERS_OF_TEN = {
+	1e0,  1e1,  1e2,  1e3,  1e4,  1e5,  1e6,  1e7,  1e8,  1e9,  1e10,
+	1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+};
+
+/**
+ * Parse a double from the characters between 'start' and 'end' of the given buffer.
+ *
+ * Plain decimal numbers of up to 15 significant digits with a small exponent are
+ * converted directly, which gives the same correctly rounded result as
+ * Double.parseDouble(). Any other form is passed to Double.parseDouble().
+ *
+ * @throws NumberFormatException if the characters are not a valid number
+ */
+public static final double parseDouble(CharSequence buf, int start, int end) throws NumberFormatException {
+	int i = start;
+	boolean neg = false;
+	if (i < end && (buf.charAt(i) == '-' || buf.charAt(i) == '+')) {
+		neg = buf.charAt(i) == '-';
+		i++;
+	}
+
+	long mantissa = 0;
+	int sigDigits = 0;
+	int numDigits = 0;
+	int exp = 0;
+	boolean dot = false;
+	for (; i < end; i++) {
+		char c = buf.charAt(i);
+		if (c == '.') {
+			if (dot)
+				break;
+			dot = true;
+			continue;
+		}
+		if (c < '0' || c > '9')
+			break;
+
+		numDigits++;
+		if (dot)
+			exp--;
+		if (mantissa == 0 && c == '0')
+			continue;
+
+		mantissa = mantissa * 10 + (c - '0');
+		sigDigits++;
+		if (sigDigits > 15)
+			return Double.parseDouble(buf.subSequence(start, end).toString());
+	}
+
+	if (numDigits == 0)
+		return Double.parseDouble(buf.subSequence(start, end).toString());
+
+	if (i < end && (buf.charAt(i) == 'e' || buf.charAt(i) == 'E')) {
+		i++;
+		boolean expNeg = false;
+		if (i < end && (buf.charAt(i) == '-' || buf.charAt(i) == '+')) {
+			expNeg = buf.charAt(i) == '-';
+			i++;
+		}
+		int expVal = 0;
+		int expDigits = 0;
+		for (; i < end; i++) {
+			char c = buf.charAt(i);
+			if (c < '0' || c > '9')
+				break;
+			expDigits++;
+			if (expVal < 1000)
+				expVal = expVal * 10 + (c - '0');
+		}
+		if (expDigits == 0)
+			return Double.parseDouble(buf.subSequence(start, end).toString());
+		exp += expNeg ? -expVal : expVal;
+	}
+
+	// Trailing characters such as type suffixes are left to Double.parseDouble()
+	if (i != end)
+		return Double.parseDouble(buf.subSequence(start, end).toString());
+
+	double ret;
+	if (mantissa == 0)
+		ret = 0.0d;
+	else if (exp >= 0 && exp < POWERS_OF_TEN.length)
+		ret = mantissa * POWERS_OF_TEN[exp];
+	else if (exp < 0 && -exp < POWERS_OF_TEN.length)
+		ret = mantissa / POWERS_OF_TEN[-exp];
+	else
+		return Double.parseDouble(buf.subSequence(start, end).toString());
+
+	return neg ? -ret : ret;
+}
+
+private static String substring(CharSequence rec, int start, int end) {
+	return rec.subSequence(start, end).toString();
 }
 
 public static final boolean needsQuoting(CharSequence s) {
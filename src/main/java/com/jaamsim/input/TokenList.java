@@ -0,0 +1,105 @@
+/*
+ * JaamSim Discrete Event Simulation
+ * Copyright (C) 2015 Ausenco Engineering Canada Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ */
+package com.jaamsim.input;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.RandomAccess;
+
+/**
+ * A list of tokens stored as offsets into a shared character buffer. The String
+ * for a token is only created the first time it is requested, and numeric tokens
+ * can be parsed directly from the buffer without creating a String at all.
+ */
+class TokenList extends AbstractList<String> implements RandomAccess {
+	private final CharSequence buf;
+	private int[] starts;
+	private int[] ends;
+	private String[] strings;
+	private int size;
+
+	TokenList(CharSequence buf) {
+		this.buf = buf;
+		starts = new int[16];
+		ends = new int[16];
+		strings = new String[16];
+		size = 0;
+	}
+
+	/**
+	 * Appends the token held in the buffer between the given offsets.
+	 */
+	void addToken(int start, int end) {
+		if (size == starts.length) {
+			int cap = size * 2;
+			starts = Arrays.copyOf(starts, cap);
+			ends = Arrays.copyOf(ends, cap);
+			strings = Arrays.copyOf(strings, cap);
+		}
+		starts[size] = start;
+		ends[size] = end;
+		strings[size] = null;
+		size++;
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public String get(int index) {
+		if (index < 0 || index >= size)
+			throw new IndexOutOfBoundsException("Index out of range:" + index);
+
+		String ret = strings[index];
+		if (ret != null)
+			return ret;
+
+		if (ends[index] - starts[index] == 1) {
+			char c = buf.charAt(starts[index]);
+			if (c == '{') ret = "{";
+			if (c == '}') ret = "}";
+		}
+		if (ret == null)
+			ret = buf.subSequence(starts[index], ends[index]).toString();
+
+		strings[index] = ret;
+		return ret;
+	}
+
+	/**
+	 * Returns true if the token at the given index is the single character c.
+	 */
+	boolean isChar(int index, char c) {
+		return ends[index] - starts[index] == 1 && buf.charAt(starts[index]) == c;
+	}
+
+	/**
+	 * Parses the token at the given index as a double.
+	 * @throws NumberFormatException if the token is not a valid number
+	 */
+	double parseDouble(int index) throws NumberFormatException {
+		if (index < 0 || index >= size)
+			throw new IndexOutOfBoundsException("Index out of range:" + index);
+		return Parser.parseDouble(buf, starts[index], ends[index]);
+	}
+
+	@Override
+	public void clear() {
+		Arrays.fill(strings, 0, size, null);
+		size = 0;
+	}
+}
@@ -26,6 +26,7 @@ public class MRG1999a {
 
 	// The internal state machine is held in 6 integer values (treat as unsigned)
 	int s0, s1, s2, s3, s4, s5;
+	private boolean antithetic;  // true if 1 - u is returned instead of u
 
 	private static final long streamAdvance[][] = {
 		{ 2427906178L, 3580155704L,  949770784L },
@@ -45,19 +46,18 @@ public class MRG1999a {
 		{ 3859662829L, 4292754251L, 3708466080L }
 	};
 
-	private static final int seedCacheSize = 20;
-	private static final int seedCacheIncrement = 5000;
-	private static final long seedCache[][] = new long[seedCacheSize][6];  // seeds after calling advanceStream
+	// Entry k is the transition matrix for 2^k streams or substreams, rows 0-2 for the
+	// first half of the state and rows 3-5 for the second half
+	private static final int jumpTableSize = 31;  // enough for any non-negative int
+	private static final long streamJump[][][] = new long[jumpTableSize][][];
+	private static final long substreamJump[][][] = new long[jumpTableSize][][];
 
 	static {
-		long seeds[] = { 12345, 12345, 12345, 12345, 12345, 12345 };
-		for (int i = 0; i <= (seedCacheSize - 1) * seedCacheIncrement; i++) {
-			if (i % seedCacheIncrement == 0) {
-				int seedIdx = i / seedCacheIncrement;
-				for (int j = 0; j < seeds.length; j++)
-					seedCache[seedIdx][j] = seeds[j];
-			}
-			advanceStream(seeds);
+		streamJump[0] = streamAdvance;
+		substreamJump[0] = substreamAdvance;
+		for (int k = 1; k < jumpTableSize; k++) {
+			streamJump[k] = square(streamJump[k - 1]);
+			substreamJump[k] = square(substreamJump[k - 1]);
 		}
 	}
 
@@ -110,22 +110,22 @@ public class MRG1999a {
 		if (substream < 0)
 			throw new IllegalArgumentException("Substream numbers must be positive");
 
-		long seeds[] = new long[6];
-
-		// Find the cached seed with stream closest to, but not exceeding this stream
-		int cacheSeedIdx = Math.min(stream / seedCacheIncrement, seedCacheSize - 1);
-		for (int j = 0; j < seeds.length; j++)
-			seeds[j] = seedCache[cacheSeedIdx][j];
-
-		for (int i = cacheSeedIdx * seedCacheIncrement; i < stream; i++)
-			advanceStream(seeds);
-
-		for (int i = 0; i < substream; i++)
-			advanceSubstream(seeds);
+		long seeds[] = { 12345, 12345, 12345, 12345, 12345, 12345 };
+		jump(streamJump, stream, seeds);
+		jump(substreamJump, substream, seeds);
 
 		setSeed(seeds[0], seeds[1], seeds[2], seeds[3], seeds[4], seeds[5]);
 	}
 
+	/**
+	 * Sets whether the generator returns the antithetic value 1 - u in place of each value
+	 * u in its sequence. The state of the generator is not changed.
+	 * @param bool - true for antithetic values
+	 */
+	public void setAntithetic(boolean bool) {
+		antithetic = bool;
+	}
+
 	public void setSeed(long s0, long s1, long s2, long s3, long s4, long s5) {
 		if (s0 == 0 && s1 == 0 && s2 == 0)
 			throw new IllegalArgumentException("The first three seeds cannot all be 0");
@@ -133,7 +133,7 @@ public class MRG1999a {
 			throw new IllegalArgumentException("The last three seeds cannot all be 0");
 		if (s0 >= m1 || s1 >= m1 || s2 >= m1)
 			throw new IllegalArgumentException("The first three seeds must be < " + m1);
-		if (s3 >= m1 || s4 >= m1 || s5 >= m1)
+		if (s3 >= m2 || s4 >= m2 || s5 >= m2)
 			throw new IllegalArgumentException("The last three seeds must be < " + m2);
 		if (s0 < 0 || s1 < 0 || s2 < 0 || s3 < 0 || s4 < 0 || s5 < 0)
 			throw new IllegalArgumentException("All seeds must be > 0");
@@ -147,22 +147,69 @@ public class MRG1999a {
 	 */
 	public double nextUniform() {
 		// Mix the first half of the state
-		long p1 = 1403580l * uint(s1) - 810728l * uint(s0);
-		p1 = p1 % m1;
-		if (p1 < 0) p1 += m1;
+		long p1 = mod1(1403580l * uint(s1) + 810728l * (m1 - uint(s0)));
 		s0 = s1; s1 = s2; s2 = (int)p1;
 
 		// Mix the second half of the state
-		long p2 = 527612l * uint(s5) - 1370589l * uint(s3);
-		p2 = p2 % m2;
-		if (p2 < 0) p2 += m2;
+		long p2 = mod2(527612l * uint(s5) + 1370589l * (m2 - uint(s3)));
 		s3 = s4; s4 = s5; s5 = (int)p2;
 
 		long p = p1 - p2;
 		if (p <= 0) p += m1;
+		if (antithetic)
+			return 1.0d - p * norm;
 		return p * norm;
 	}
 
+	/**
+	 * Fills the given array with the next uniformly distributed values U(0,1). The values
+	 * are the same as those returned by the same number of calls to nextUniform.
+	 * @param out - array to receive the values
+	 */
+	public void nextUniforms(double[] out) {
+		long x0 = uint(s0), x1 = uint(s1), x2 = uint(s2);
+		long x3 = uint(s3), x4 = uint(s4), x5 = uint(s5);
+		for (int i = 0; i < out.length; i++) {
+			long p1 = mod1(1403580l * x1 + 810728l * (m1 - x0));
+			x0 = x1; x1 = x2; x2 = p1;
+
+			long p2 = mod2(527612l * x5 + 1370589l * (m2 - x3));
+			x3 = x4; x4 = x5; x5 = p2;
+
+			long p = p1 - p2;
+			if (p <= 0) p += m1;
+			out[i] = p * norm;
+		}
+		if (antithetic) {
+			for (int i = 0; i < out.length; i++)
+				out[i] = 1.0d - out[i];
+		}
+		s0 = (int)x0; s1 = (int)x1; s2 = (int)x2;
+		s3 = (int)x3; s4 = (int)x4; s5 = (int)x5;
+	}
+
+	/**
+	 * Returns val mod m1 for 0 <= val < 2^54, without a division. Since 2^32 = 209 mod m1,
+	 * the upper bits can be folded into the lower 32 bits.
+	 */
+	private static long mod1(long val) {
+		val = (val & 0xffffffffl) + 209l * (val >>> 32);  // < 2^32 + 2^29
+		val = (val & 0xffffffffl) + 209l * (val >>> 32);  // < m1 + 418
+		if (val >= m1) val -= m1;
+		return val;
+	}
+
+	/**
+	 * Returns val mod m2 for 0 <= val < 2^54, without a division. Since 2^32 = 22853 mod m2,
+	 * the upper bits can be folded into the lower 32 bits.
+	 */
+	private static long mod2(long val) {
+		val = (val & 0xffffffffl) + 22853l * (val >>> 32);  // < 2^32 + 2^36
+		val = (val & 0xffffffffl) + 22853l * (val >>> 32);  // < 2^32 + 2^19
+		if (val >= m2) val -= m2;
+		return val;
+	}
+
 	@Override
 	public String toString() {
 		return String.format("%d, %d, %d, %d, %d, %d",
@@ -194,29 +241,65 @@ public class MRG1999a {
 		return tmp;
 	}
 
-	static void advanceStream(long[] seeds) {
-		long s0 = mixHalf1(streamAdvance[0], seeds);
-		long s1 = mixHalf1(streamAdvance[1], seeds);
-		long s2 = mixHalf1(streamAdvance[2], seeds);
+	private static long mixHalf1(long[] a, long[][] b, int j) {
+		long tmp;
+		tmp = ulong_mod(a[0] * b[0][j]      , m1);
+		tmp = ulong_mod(a[1] * b[1][j] + tmp, m1);
+		tmp = ulong_mod(a[2] * b[2][j] + tmp, m1);
+		return tmp;
+	}
 
-		long s3 = mixHalf2(streamAdvance[3], seeds);
-		long s4 = mixHalf2(streamAdvance[4], seeds);
-		long s5 = mixHalf2(streamAdvance[5], seeds);
+	private static long mixHalf2(long[] a, long[][] b, int j) {
+		long tmp;
+		tmp = ulong_mod(a[0] * b[3][j]      , m2);
+		tmp = ulong_mod(a[1] * b[4][j] + tmp, m2);
+		tmp = ulong_mod(a[2] * b[5][j] + tmp, m2);
+		return tmp;
+	}
 
-		seeds[0] = s0; seeds[1] = s1; seeds[2] = s2;
-		seeds[3] = s3; seeds[4] = s4; seeds[5] = s5;
+	/**
+	 * Returns the square of the given transition matrix.
+	 */
+	private static long[][] square(long[][] a) {
+		long[][] ret = new long[6][3];
+		for (int i = 0; i < 3; i++) {
+			for (int j = 0; j < 3; j++) {
+				ret[i][j] = mixHalf1(a[i], a, j);
+				ret[i + 3][j] = mixHalf2(a[i + 3], a, j);
+			}
+		}
+		return ret;
 	}
 
-	static void advanceSubstream(long[] seeds) {
-		long s0 = mixHalf1(substreamAdvance[0], seeds);
-		long s1 = mixHalf1(substreamAdvance[1], seeds);
-		long s2 = mixHalf1(substreamAdvance[2], seeds);
+	/**
+	 * Advances the seeds by n applications of the transition matrix in entry 0 of the
+	 * given table, using the entries for the powers of two in n.
+	 */
+	private static void jump(long[][][] table, int n, long[] seeds) {
+		for (int k = 0; n != 0; k++, n >>>= 1) {
+			if ((n & 1) != 0)
+				advance(table[k], seeds);
+		}
+	}
+
+	private static void advance(long[][] a, long[] seeds) {
+		long s0 = mixHalf1(a[0], seeds);
+		long s1 = mixHalf1(a[1], seeds);
+		long s2 = mixHalf1(a[2], seeds);
 
-		long s3 = mixHalf2(substreamAdvance[3], seeds);
-		long s4 = mixHalf2(substreamAdvance[4], seeds);
-		long s5 = mixHalf2(substreamAdvance[5], seeds);
+		long s3 = mixHalf2(a[3], seeds);
+		long s4 = mixHalf2(a[4], seeds);
+		long s5 = mixHalf2(a[5], seeds);
 
 		seeds[0] = s0; seeds[1] = s1; seeds[2] = s2;
 		seeds[3] = s3; seeds[4] = s4; seeds[5] = s5;
 	}
+
+	static void advanceStream(long[] seeds) {
+		advance(streamAdvance, seeds);
+	}
+
+	static void advanceSubstream(long[] seeds) {
+		advance(substreamAdvance, seeds);
+	}
 }
@@ -15,20 +15,27 @@
 package com.jaamsim.states;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
-import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.concurrent.ConcurrentHashMap;
 
 import com.jaamsim.Graphics.DisplayEntity;
+import com.jaamsim.basicsim.ColumnFile;
 import com.jaamsim.basicsim.Entity;
-import com.jaamsim.basicsim.FileEntity;
+import com.jaamsim.basicsim.ReportWriter;
 import com.jaamsim.basicsim.Simulation;
+import com.jaamsim.datatypes.DoubleVector;
+import com.jaamsim.datatypes.QuantileSketch;
 import com.jaamsim.input.BooleanInput;
 import com.jaamsim.input.InputAgent;
 import com.jaamsim.input.Keyword;
 import com.jaamsim.input.Output;
 import com.jaamsim.input.StringKeyInput;
+import com.jaamsim.input.ValueListInput;
 import com.jaamsim.units.DimensionlessUnit;
+import com.jaamsim.units.TimeUnit;
 
 public class StateEntity extends DisplayEntity {
 
@@ -37,18 +44,28 @@ public class StateEntity extends DisplayEntity {
 	         example = "Object1  StateGraphics { { idle DisplayEntity1 } { working DisplayEntity2 }")
 	protected final StringKeyInput<DisplayEntity> stateGraphics;
 
-	@Keyword(description = "If TRUE, a log file (.trc) will be printed with the time of every state change during the run.",
+	@Keyword(description = "If TRUE, the time of every state change during the run is recorded in a binary "
+	                     + "file (.strc) that is shared by all the entities. The text log (.trc) for each "
+	                     + "entity can be produced from this file by StateTraceFile.",
 	         example = "Object1  TraceState { TRUE }")
 	private final BooleanInput traceState;
 
+	@Keyword(description = "The percentiles to be estimated for the time spent in each state before "
+	                     + "the next state change. If no percentiles are given, then the durations "
+	                     + "are not recorded.",
+	         example = "Object1  StateDurationPercentiles { 50 95 99 }")
+	private final ValueListInput durationPercentiles;
+
 	private StateRecord presentState; // The present state of the entity
-	private final HashMap<String, StateRecord> states;
+	private StateRecord[] states;  // state record for each state index, or null if not used
 	private final ArrayList<StateEntityListener> stateListeners;
 
 	private long lastStateCollectionTick;
 	private long workingTicks;
 
-	protected FileEntity stateReportFile;        // The file to store the state information
+	private StateTraceFile stateTrace;  // the state information for the present run
+	private int stateTraceId;  // id for this entity in the state trace file
+	private ColumnFile stateTraceFile;  // the state information in column form
 
 	{
 		stateGraphics = new StringKeyInput<>(DisplayEntity.class, "StateGraphics", "Key Inputs");
@@ -58,10 +75,14 @@ public class StateEntity extends DisplayEntity {
 		traceState = new BooleanInput("TraceState", "Key Inputs", false);
 		traceState.setHidden(true);
 		this.addInput(traceState);
+
+		durationPercentiles = new ValueListInput("StateDurationPercentiles", "Key Inputs", null);
+		durationPercentiles.setValidRange(0.0d, 100.0d);
+		this.addInput(durationPercentiles);
 	}
 
 	public StateEntity() {
-		states = new HashMap<>();
+		states = new StateRecord[0];
 		stateListeners = new ArrayList<>();
 	}
 
@@ -74,13 +95,38 @@ public class StateEntity extends DisplayEntity {
 		if (testFlag(FLAG_GENERATED))
 			return;
 
+		// Close the binary trace file if it is already open
+		if (stateTraceFile != null) {
+			stateTraceFile.close();
+			stateTraceFile = null;
+		}
+		stateTrace = null;
+
 		// Create state trace file if required
 		if (traceState.getValue()) {
-			String fileName = InputAgent.getReportFileName(InputAgent.getRunName() + "-" + this.getName() + ".trc");
-			stateReportFile = new FileEntity( fileName);
+			if (Simulation.getBinaryOutput()) {
+				String fileName = InputAgent.getReportFileName(InputAgent.getRunName() + "-" + this.getName() + ".ctrc");
+				String[] cols = { "StartTime", "Entity", "State", "Duration" };
+				String[] units = { "TimeUnit", "DimensionlessUnit", "DimensionlessUnit", "TimeUnit" };
+				stateTraceFile = new ColumnFile(fileName, cols, units);
+				return;
+			}
+			stateTrace = StateTraceFile.getRunFile();
+			stateTraceId = stateTrace.addEntity(this.getName());
 		}
 	}
 
+	@Override
+	public void doEnd() {
+		super.doEnd();
+
+		if (stateTraceFile != null)
+			stateTraceFile.flush();
+
+		if (stateTrace != null)
+			stateTrace.flush();
+	}
+
 	@Override
 	public void lateInit() {
 		super.lateInit();
@@ -96,15 +142,57 @@ public class StateEntity extends DisplayEntity {
 	private void initStateData() {
 		lastStateCollectionTick = getSimTicks();
 		workingTicks = 0;
-		states.clear();
+		Arrays.fill(states, null);
 
-		String initState = getInitialState().intern();
-		StateRecord init = new StateRecord(initState, isValidWorkingState(initState));
+		String initState = getInitialState();
+		StateRecord init = this.addState(getStateIndex(initState));
 		init.startTick = lastStateCollectionTick;
 		presentState = init;
-		states.put(init.name, init);
 
-		this.setGraphicsForState(initState);
+		if (stateGraphics.getValue() != null)
+			this.setGraphicsForState(initState);
+	}
+
+	// Names for each state index, shared by all the StateEntity classes
+	private static final ConcurrentHashMap<String, Integer> stateIndices = new ConcurrentHashMap<>();
+	private static final ArrayList<String> stateNames = new ArrayList<>();
+
+	/**
+	 * Returns the index for the given state name, assigning the next index if the name
+	 * has not been used before. Subclasses should obtain the indices for their states
+	 * once, for example in static final fields, and use setPresentState(int).
+	 */
+	public static final int getStateIndex(String state) {
+		Integer ind = stateIndices.get(state);
+		if (ind != null)
+			return ind;
+
+		synchronized (stateNames) {
+			ind = stateIndices.get(state);
+			if (ind != null)
+				return ind;
+
+			ind = stateNames.size();
+			stateNames.add(state.intern());
+			stateIndices.put(state, ind);
+			return ind;
+		}
+	}
+
+	private static String getStateName(int index) {
+		synchronized (stateNames) {
+			return stateNames.get(index);
+		}
+	}
+
+	private StateRecord addState(int index) {
+		if (index >= states.length)
+			states = Arrays.copyOf(states, Math.max(index + 1, 2 * states.length));
+
+		String name = getStateName(index);
+		StateRecord rec = new StateRecord(name, index, isValidWorkingState(name));
+		states[index] = rec;
+		return rec;
 	}
 
 	public ArrayList<StateEntityListener> getStateListeners() {
@@ -112,7 +200,7 @@ public class StateEntity extends DisplayEntity {
 	}
 
 	@Override
-	public void printReport(FileEntity file, double simTime) {
+	public void printReport(ReportWriter file, double simTime) {
 		super.printReport(file, simTime);
 
 		long totalTicks = 0;
@@ -124,17 +212,16 @@ public class StateEntity extends DisplayEntity {
 			if (ticks == 0)
 				continue;
 
-			double hours = ticks / Simulation.getSimTimeFactor();
-			file.format("%s\tStateTime[%s, h]\t%f\n", this.getName(), st.name, hours);
+			file.putStateTime(this.getName(), st.name, ticks);
 
 			totalTicks += ticks;
 			if (st.working)
 				workingTicks += ticks;
 		}
 
-		file.format("%s\tStateTime[%s, h]\t%f\n", this.getName(), "TotalTime", totalTicks / Simulation.getSimTimeFactor());
-		file.format("%s\tStateTime[%s, h]\t%f\n", this.getName(), "WorkingTime", workingTicks / Simulation.getSimTimeFactor());
-		file.format("%n");
+		file.putStateTime(this.getName(), "TotalTime", totalTicks);
+		file.putStateTime(this.getName(), "WorkingTime", workingTicks);
+		file.endGroup();
 	}
 
 	/**
@@ -168,25 +255,38 @@ public class StateEntity extends DisplayEntity {
 	 * Sets the state of this Entity to the given state.
 	 */
 	public final void setPresentState( String state ) {
+		this.setPresentState(getStateIndex(state));
+	}
+
+	/**
+	 * Sets the state of this Entity to the state with the given index.
+	 * @param index - index for the state returned by getStateIndex.
+	 */
+	public final void setPresentState( int index ) {
 		if (presentState == null)
 			this.initStateData();
 
-		if (presentState.name.equals(state))
+		if (presentState.index == index)
 			return;
 
-		StateRecord nextState = states.get(state);
+		StateRecord nextState = index < states.length ? states[index] : null;
 		if (nextState == null) {
+			String state = getStateName(index);
 			if (!isValidState(state))
 				error("Specified state: %s is not valid", state);
 
-			String intState = state.intern();
-			nextState = new StateRecord(intState, isValidWorkingState(intState));
-			states.put(nextState.name, nextState);
+			nextState = this.addState(index);
 		}
 
-		this.setGraphicsForState(state);
+		if (stateGraphics.getValue() != null)
+			this.setGraphicsForState(nextState.name);
 
 		updateStateStats();
+		if (durationPercentiles.getValue() != null) {
+			if (presentState.durations == null)
+				presentState.durations = new QuantileSketch();
+			presentState.durations.add((lastStateCollectionTick - presentState.startTick) * Simulation.getTickLength());
+		}
 		nextState.startTick = lastStateCollectionTick;
 
 		StateRecord prev = presentState;
@@ -195,10 +295,6 @@ public class StateEntity extends DisplayEntity {
 	}
 
 	private void setGraphicsForState(String state) {
-
-		if (stateGraphics.getValue() == null)
-			return;
-
 		DisplayEntity ent = stateGraphics.getValueFor(state);
 		if (ent == null) {
 			this.resetGraphics();
@@ -220,14 +316,16 @@ public class StateEntity extends DisplayEntity {
 	 */
 	public void stateChanged(StateRecord prev, StateRecord next) {
 
-		if (traceState.getValue()) {
+		if (stateTraceFile != null) {
 			long curTick = getSimTicks();
-			double duration = (curTick - prev.getStartTick()) / Simulation.getSimTimeFactor();
-			double timeOfPrevStart = prev.getStartTick() / Simulation.getSimTimeFactor();
-			stateReportFile.format("%.5f  %s.setState( \"%s\" ) dt = %g\n",
-			                       timeOfPrevStart, this.getName(),
-			                       prev.name, duration);
-			stateReportFile.flush();
+			double tickLength = Simulation.getTickLength();
+			stateTraceFile.put(prev.getStartTick() * tickLength);
+			stateTraceFile.put(this.getName());
+			stateTraceFile.put(prev.name);
+			stateTraceFile.put((curTick - prev.getStartTick()) * tickLength);
+		}
+		else if (stateTrace != null) {
+			stateTrace.put(stateTraceId, prev, next, getSimTicks());
 		}
 
 		for (StateEntityListener each : stateListeners) {
@@ -258,10 +356,14 @@ public class StateEntity extends DisplayEntity {
 	public void collectInitializationStats() {
 		updateStateStats();
 
-		for (StateRecord each : states.values()) {
+		for (StateRecord each : states) {
+			if (each == null)
+				continue;
 			each.initTicks = each.totalTicks;
 			each.totalTicks = 0;
 			each.completedCycleTicks = 0;
+			if (each.durations != null)
+				each.durations.clear();
 		}
 	}
 
@@ -272,9 +374,13 @@ public class StateEntity extends DisplayEntity {
 		updateStateStats();
 
 		// clear totalHours for each state record
-		for (StateRecord each : states.values()) {
+		for (StateRecord each : states) {
+			if (each == null)
+				continue;
 			each.totalTicks = 0;
 			each.completedCycleTicks = 0;
+			if (each.durations != null)
+				each.durations.clear();
 		}
 	}
 
@@ -285,7 +391,9 @@ public class StateEntity extends DisplayEntity {
 		updateStateStats();
 
 		// clear current cycle hours for each state record
-		for (StateRecord each : states.values()) {
+		for (StateRecord each : states) {
+			if (each == null)
+				continue;
 			each.currentCycleTicks = 0;
 		}
 	}
@@ -297,7 +405,9 @@ public class StateEntity extends DisplayEntity {
 		updateStateStats();
 
 		// finalize cycle for each state record
-		for (StateRecord each : states.values()) {
+		for (StateRecord each : states) {
+			if (each == null)
+				continue;
 			each.completedCycleTicks += each.currentCycleTicks;
 			each.currentCycleTicks = 0;
 		}
@@ -313,8 +423,38 @@ public class StateEntity extends DisplayEntity {
 		return presentState.name;
 	}
 
+	@Output(name = "StateDurationPercentiles",
+	        description = "The estimated values for the percentiles given by the StateDurationPercentiles "
+	                    + "keyword of the time spent in each state before the next state change, "
+	                    + "listed by state name. Each estimate is accurate to within 1% of its value.",
+	        unitType = TimeUnit.class)
+	public LinkedHashMap<String, DoubleVector> getStateDurationPercentiles(double time) {
+		LinkedHashMap<String, DoubleVector> ret = new LinkedHashMap<>();
+		DoubleVector pct = durationPercentiles.getValue();
+		if (pct == null)
+			return ret;
+		for (StateRecord rec : this.getStateRecs()) {
+			if (rec.durations != null)
+				ret.put(rec.name, rec.durations.getPercentiles(pct));
+		}
+		return ret;
+	}
+
 	public StateRecord getState(String state) {
-		return states.get(state);
+		Integer ind = stateIndices.get(state);
+		if (ind == null)
+			return null;
+		return this.getState(ind);
+	}
+
+	/**
+	 * Returns the record for the state with the given index, or null if the entity
+	 * has not been in that state.
+	 */
+	public StateRecord getState(int index) {
+		if (index < 0 || index >= states.length)
+			return null;
+		return states[index];
 	}
 
 	public StateRecord getState() {
@@ -329,9 +469,11 @@ public class StateEntity extends DisplayEntity {
 	}
 
 	public ArrayList<StateRecord> getStateRecs() {
-		ArrayList<StateRecord> recs = new ArrayList<>(states.size());
-		for (StateRecord rec : states.values())
-			recs.add(rec);
+		ArrayList<StateRecord> recs = new ArrayList<>(states.length);
+		for (StateRecord rec : states) {
+			if (rec != null)
+				recs.add(rec);
+		}
 		Collections.sort(recs, new StateRecSort());
 		return recs;
 	}
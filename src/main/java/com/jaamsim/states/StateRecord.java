@@ -14,17 +14,22 @@
  */
 package com.jaamsim.states;
 
+import com.jaamsim.datatypes.QuantileSketch;
+
 public class StateRecord {
 	public final String name;
+	public final int index;  // index given by StateEntity.getStateIndex
 	long initTicks;
 	long totalTicks;
 	long completedCycleTicks;
 	long currentCycleTicks;
 	long startTick;
+	QuantileSketch durations;  // time spent in the state for each completed visit
 	public final boolean working;
 
-	StateRecord(String state, boolean work) {
+	StateRecord(String state, int ind, boolean work) {
 		name = state;
+		index = ind;
 		working = work;
 	}
 
@@ -32,6 +37,14 @@ public class StateRecord {
 		return startTick;
 	}
 
+	/**
+	 * Returns the durations of the completed visits to this state in seconds, or null
+	 * if they are not being recorded.
+	 */
+	public QuantileSketch getDurations() {
+		return durations;
+	}
+
 	@Override
 	public String toString() {
 		return name;
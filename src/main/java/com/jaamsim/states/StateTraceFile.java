@@ -0,0 +1,291 @@
+/*
+ * JaamSim Discrete Event Simulation
+ * Copyright (C) 2015 Ausenco Engineering Canada Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ */
+package com.jaamsim.states;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedWriter;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+
+import com.jaamsim.basicsim.ChunkWriter;
+import com.jaamsim.basicsim.ErrorException;
+import com.jaamsim.basicsim.Simulation;
+import com.jaamsim.input.InputAgent;
+
+/**
+ * Binary file that records the state changes for the entities with the TraceState
+ * input set to TRUE.
+ * <p>
+ * A single file is used for each simulation run. Each state change is stored as a
+ * fixed-width record in a chunk of memory, and full chunks are written to the file by
+ * the background thread shared with the log files. The convert method produces the text log (.trc) for each entity
+ * in the same form that was written during the run by earlier releases.
+ * <p>
+ * File layout:
+ * <ul>
+ * <li>Header - the int 0x4A535354 ("JSST"), the int format version (1), and the double
+ * number of ticks per hour.
+ * <li>Records - a state change is the int entity id, the int index of the previous
+ * state, the int index of the next state, the long start tick for the previous state,
+ * and the long tick for the change. A definition is the int -1 for an entity name or
+ * -2 for a state name, the int entity id or state index, and the name as an int byte
+ * count followed by UTF-8 bytes. Each entity and state is defined before it is used.
+ * </ul>
+ * The file is big-endian.
+ */
+public class StateTraceFile extends ChunkWriter<StateTraceFile.ByteChunk> {
+	private static final int MAGIC = 0x4A535354;
+	private static final int VERSION = 1;
+
+	private static final int ENTITY_NAME = -1;
+	private static final int STATE_NAME = -2;
+	static final int RECORD_SIZE = 28;  // bytes for each state change
+
+	private static final int CHUNK_SIZE = 1 << 16;  // bytes in each chunk
+	private static final int NUM_CHUNKS = 4;
+
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+
+	private static StateTraceFile runFile;  // file for the present run
+
+	private int numEntities;
+	private boolean[] stateDefined = new boolean[16];  // entry n is true once state index n is defined
+
+	/**
+	 * Bytes appended to the file that have not yet been written.
+	 */
+	static final class ByteChunk extends ChunkWriter.Chunk {
+		final ByteBuffer buf = ByteBuffer.allocate(CHUNK_SIZE);
+
+		ByteChunk(StateTraceFile f) {
+			super(f);
+		}
+
+		@Override
+		protected boolean isEmpty() {
+			return buf.position() == 0;
+		}
+
+		@Override
+		protected void clear() {
+			buf.clear();
+		}
+	}
+
+	/**
+	 * Creates a new file.
+	 * @param name - file name
+	 * @param ticksPerHour - number of clock ticks per hour, used for the text log
+	 */
+	public StateTraceFile(String name, double ticksPerHour) {
+		super(name, false, "state trace file", NUM_CHUNKS);
+		for (int i = 0; i < NUM_CHUNKS; i++)
+			this.addChunk(new ByteChunk(this));
+
+		current.buf.putInt(MAGIC);
+		current.buf.putInt(VERSION);
+		current.buf.putDouble(ticksPerHour);
+	}
+
+	/**
+	 * Returns the state trace file for the present run, creating it if necessary.
+	 */
+	static synchronized StateTraceFile getRunFile() {
+		if (runFile == null) {
+			String name = InputAgent.getReportFileName(InputAgent.getRunName() + ".strc");
+			runFile = new StateTraceFile(name, Simulation.getSimTimeFactor());
+		}
+		return runFile;
+	}
+
+	/**
+	 * Closes the state trace file for the previous run, if there is one.
+	 */
+	public static synchronized void closeRunFile() {
+		if (runFile == null)
+			return;
+
+		runFile.close();
+		runFile = null;
+	}
+
+	/**
+	 * Adds an entity to the file and returns the id used for its state changes.
+	 */
+	public int addEntity(String name) {
+		int id = numEntities++;
+		this.putName(ENTITY_NAME, id, name);
+		return id;
+	}
+
+	/**
+	 * Records a state change for the given entity.
+	 * @param id - entity id returned by addEntity
+	 * @param prev - previous state
+	 * @param next - next state
+	 * @param tick - time of the state change
+	 */
+	public void put(int id, StateRecord prev, StateRecord next, long tick) {
+		this.defineState(prev);
+		this.defineState(next);
+
+		ByteBuffer buf = this.getBuffer(RECORD_SIZE);
+		buf.putInt(id);
+		buf.putInt(prev.index);
+		buf.putInt(next.index);
+		buf.putLong(prev.getStartTick());
+		buf.putLong(tick);
+	}
+
+	private void defineState(StateRecord rec) {
+		int ind = rec.index;
+		if (ind < stateDefined.length && stateDefined[ind])
+			return;
+
+		if (ind >= stateDefined.length)
+			stateDefined = Arrays.copyOf(stateDefined, Math.max(ind + 1, 2 * stateDefined.length));
+		stateDefined[ind] = true;
+		this.putName(STATE_NAME, ind, rec.name);
+	}
+
+	private void putName(int kind, int id, String name) {
+		byte[] bytes = name.getBytes(UTF8);
+		ByteBuffer buf = this.getBuffer(12 + bytes.length);
+		buf.putInt(kind);
+		buf.putInt(id);
+		buf.putInt(bytes.length);
+		buf.put(bytes);
+	}
+
+	private ByteBuffer getBuffer(int size) {
+		if (this.isClosed())
+			throw new ErrorException("State trace file %s has been closed", this.getFileName());
+
+		if (size > CHUNK_SIZE)
+			throw new ErrorException("Name is too long for state trace file %s", this.getFileName());
+
+		if (current.buf.remaining() < size)
+			this.submit();
+		return current.buf;
+	}
+
+	/**
+	 * Writes the contents of the chunk to the file, called by the writer thread.
+	 */
+	@Override
+	protected void write(ByteChunk c) throws IOException {
+		c.buf.flip();
+		this.writeBytes(c.buf);
+	}
+
+	/**
+	 * Converts a state trace file to a text log for each entity. The log for an entity
+	 * is named by replacing the .strc extension with a dash, the entity name and the .trc
+	 * extension. A file that was not closed is converted up to the last complete record.
+	 * @param file - state trace file
+	 * @return the text log files that were written
+	 */
+	public static ArrayList<File> convert(File file) throws IOException {
+		String base = file.getPath();
+		if (base.endsWith(".strc"))
+			base = base.substring(0, base.length() - 5);
+
+		ArrayList<File> ret = new ArrayList<>();
+		ArrayList<String> entNames = new ArrayList<>();
+		ArrayList<BufferedWriter> writers = new ArrayList<>();
+		HashMap<Integer, String> stateNames = new HashMap<>();
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 1 << 16))) {
+			if (in.readInt() != MAGIC)
+				throw new IOException("Not a state trace file: " + file.getName());
+			if (in.readInt() != VERSION)
+				throw new IOException("Unsupported state trace file version: " + file.getName());
+			double ticksPerHour = in.readDouble();
+
+			while (true) {
+				int id;
+				int ind;
+				String name;
+				try {
+					id = in.readInt();
+					if (id >= 0) {
+						int prev = in.readInt();
+						in.readInt();  // next state is the previous state for the following record
+						long startTick = in.readLong();
+						long tick = in.readLong();
+						if (id >= writers.size() || !stateNames.containsKey(prev))
+							throw new IOException("State trace file is corrupt: " + file.getName());
+
+						double duration = (tick - startTick) / ticksPerHour;
+						double timeOfPrevStart = startTick / ticksPerHour;
+						writers.get(id).write(String.format("%.5f  %s.setState( \"%s\" ) dt = %g\n",
+						                                    timeOfPrevStart, entNames.get(id),
+						                                    stateNames.get(prev), duration));
+						continue;
+					}
+
+					ind = in.readInt();
+					byte[] bytes = new byte[in.readInt()];
+					in.readFully(bytes);
+					name = new String(bytes, UTF8);
+				}
+				catch (EOFException e) {
+					break;
+				}
+
+				if (id == STATE_NAME) {
+					stateNames.put(ind, name);
+					continue;
+				}
+				if (id != ENTITY_NAME || ind != writers.size())
+					throw new IOException("State trace file is corrupt: " + file.getName());
+
+				File trc = new File(base + "-" + name + ".trc");
+				entNames.add(name);
+				writers.add(new BufferedWriter(new FileWriter(trc)));
+				ret.add(trc);
+			}
+		}
+		finally {
+			for (BufferedWriter w : writers)
+				w.close();
+		}
+		return ret;
+	}
+
+	/**
+	 * Converts the state trace files given as arguments to text logs.
+	 */
+	public static void main(String[] args) {
+		for (String arg : args) {
+			try {
+				for (File trc : convert(new File(arg)))
+					System.out.println(trc.getPath());
+			}
+			catch (IOException e) {
+				System.err.println(e.getMessage());
+				System.exit(1);
+			}
+		}
+	}
+}
@@ -71,6 +71,7 @@ import javax.swing.filechooser.FileNameExtensionFilter;
 import com.jaamsim.Graphics.DisplayEntity;
 import com.jaamsim.basicsim.Entity;
 import com.jaamsim.basicsim.ErrorException;
+import com.jaamsim.basicsim.OutputFiles;
 import com.jaamsim.basicsim.Simulation;
 import com.jaamsim.controllers.RateLimiter;
 import com.jaamsim.controllers.RenderManager;
@@ -1564,6 +1565,12 @@ public class GUIFrame extends JFrame implements EventTimeListener, EventErrorLis
 				quiet = true;
 				continue;
 			}
+			// Use or write a compiled model cache for each configuration file
+			if (each.equalsIgnoreCase("-c") ||
+					each.equalsIgnoreCase("-cache")) {
+				InputAgent.setWriteCache(true);
+				continue;
+			}
 			if (each.equalsIgnoreCase("-sg") ||
 					each.equalsIgnoreCase("-safe_graphics")) {
 				SAFE_GRAPHICS = true;
@@ -1770,12 +1777,14 @@ public class GUIFrame extends JFrame implements EventTimeListener, EventErrorLis
 			updateForSimulationState(SIM_STATE_RUNNING);
 		}
 		else {
+			OutputFiles.flushAll();
 			updateForSimulationState(SIM_STATE_PAUSED);
 		}
 	}
 
 	@Override
 	public void handleError(EventManager evt, Throwable t, long currentTick) {
+		OutputFiles.flushAll();
 		if (t instanceof OutOfMemoryError) {
 			OutOfMemoryError e = (OutOfMemoryError)t;
 			InputAgent.logMessage("Out of Memory use the -Xmx flag during execution for more memory");
@@ -42,6 +42,7 @@ import org.junit.runners.Suite.SuiteClasses;
 	com.jaamsim.input.TestExpParser.class,
 	com.jaamsim.input.TestParser.class,
 	com.jaamsim.input.TestOutput.class,
+	com.jaamsim.Samples.TestTimeSeriesDataFile.class,
 	com.jaamsim.probability.TestContinuousDistribution.class,
 	com.jaamsim.probability.TestDiscreteDistribution.class,
 	com.jaamsim.probability.TestErlangDistribution.class,
@@ -58,5 +59,17 @@ import org.junit.runners.Suite.SuiteClasses;
 	com.jaamsim.probability.TestBooleanSelector.class,
 	com.jaamsim.MeshFiles.TestVertexMap.class,
 	com.jaamsim.MeshFiles.TestDataBlocks.class,
+	com.jaamsim.BasicObjects.TestQueueEntrySet.class,
+	com.jaamsim.BasicObjects.TestMatchIndex.class,
+	com.jaamsim.BasicObjects.TestResource.class,
+	com.jaamsim.BasicObjects.TestAccumulatingConveyor.class,
+	com.jaamsim.Thresholds.TestTimeSeriesThreshold.class,
+	com.jaamsim.basicsim.TestLogWriter.class,
+	com.jaamsim.basicsim.TestColumnFile.class,
+	com.jaamsim.datatypes.TestQuantileSketch.class,
+	com.jaamsim.datatypes.TestTimeWeightedStat.class,
+	com.jaamsim.states.TestStateTraceFile.class,
+	com.jaamsim.CalculationObjects.TestDormandPrince.class,
+	com.jaamsim.CalculationObjects.TestController.class,
 })
 public class AllTests {}
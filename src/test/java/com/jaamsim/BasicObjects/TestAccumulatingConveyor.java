@@ -0,0 +1,174 @@
+/*
+ * JaamSim Discrete Event Simulation
+ * Copyright (C) 2015 Ausenco Engineering Canada Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ */
+package com.jaamsim.BasicObjects;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+
+import org.junit.Test;
+
+import com.jaamsim.Graphics.DisplayEntity;
+import com.jaamsim.Thresholds.SignalThreshold;
+import com.jaamsim.basicsim.Entity;
+import com.jaamsim.events.EventManager;
+import com.jaamsim.events.ProcessTarget;
+import com.jaamsim.events.TestFrameworkHelpers;
+import com.jaamsim.input.InputAgent;
+import com.jaamsim.units.DistanceUnit;
+import com.jaamsim.units.TimeUnit;
+
+public class TestAccumulatingConveyor {
+
+/**
+ * EntitySink that records the entities it receives and the times they were received.
+ */
+public static class RecordingSink extends EntitySink {
+	final ArrayList<DisplayEntity> entities = new ArrayList<>();
+	final ArrayList<Double> times = new ArrayList<>();
+
+	@Override
+	public void addEntity(DisplayEntity ent) {
+		entities.add(ent);
+		times.add(this.getSimTime());
+		super.addEntity(ent);
+	}
+}
+
+private abstract static class TestTarget extends ProcessTarget {
+	@Override
+	public String getDescription() {
+		return "Test";
+	}
+}
+
+private AccumulatingConveyor conveyor;
+private Queue queue;
+private RecordingSink sink;
+private SignalThreshold release;
+private SignalThreshold operating;
+
+private void defineModel() {
+	if (Entity.getNamedEntity("s") == null)
+		InputAgent.defineEntityWithUniqueName(TimeUnit.class, "s", "-", true);
+	if (Entity.getNamedEntity("m") == null)
+		InputAgent.defineEntityWithUniqueName(DistanceUnit.class, "m", "-", true);
+
+	queue = InputAgent.defineEntityWithUniqueName(Queue.class, "Queue", "-", true);
+	sink = InputAgent.defineEntityWithUniqueName(RecordingSink.class, "Sink", "-", true);
+	release = InputAgent.defineEntityWithUniqueName(SignalThreshold.class, "Release", "-", true);
+	operating = InputAgent.defineEntityWithUniqueName(SignalThreshold.class, "Operating", "-", true);
+	InputAgent.applyArgs(operating, "InitialState", "TRUE");
+
+	// A conveyor with room for four gaps of 1 m, taking 2.5 s to move by each gap
+	conveyor = InputAgent.defineEntityWithUniqueName(AccumulatingConveyor.class, "Conveyor", "-", true);
+	InputAgent.applyArgs(conveyor, "WaitQueue", queue.getName());
+	InputAgent.applyArgs(conveyor, "NextComponent", sink.getName());
+	InputAgent.applyArgs(conveyor, "TravelTime", "10", "s");
+	InputAgent.applyArgs(conveyor, "Spacing", "1", "m");
+	InputAgent.applyArgs(conveyor, "Points", "{", "0", "0", "0", "m", "}", "{", "4", "0", "0", "m", "}");
+	InputAgent.applyArgs(conveyor, "ReleaseThresholdList", release.getName());
+	InputAgent.applyArgs(conveyor, "OperatingThresholdList", operating.getName());
+}
+
+private ArrayList<DisplayEntity> addEntities(EventManager evt, final int n) {
+	final ArrayList<DisplayEntity> ret = new ArrayList<>();
+	for (int i = 0; i < n; i++)
+		ret.add(InputAgent.defineEntityWithUniqueName(DisplayEntity.class, "Ent", "-", true));
+
+	evt.scheduleProcessExternal(0, 0, false, new TestTarget() {
+		@Override
+		public void process() {
+			Entity[] model = { queue, sink, release, operating, conveyor };
+			for (Entity ent : model)
+				ent.validate();
+			for (Entity ent : model)
+				ent.earlyInit();
+			for (Entity ent : model)
+				ent.lateInit();
+			for (Entity ent : model)
+				ent.startUp();
+			for (DisplayEntity ent : ret)
+				conveyor.addEntity(ent);
+		}
+	}, null);
+	return ret;
+}
+
+private static void setOpen(EventManager evt, double secs, final SignalThreshold thr, final boolean open) {
+	evt.scheduleProcessExternal(evt.secondsToNearestTick(secs), 0, false, new TestTarget() {
+		@Override
+		public void process() {
+			thr.setOpen(open);
+		}
+	}, null);
+}
+
+@Test
+public void testAccumulation() {
+	defineModel();
+	EventManager evt = new EventManager("TestAccumulatingConveyorEVT");
+	evt.clear();
+	ArrayList<DisplayEntity> ents = addEntities(evt, 8);
+
+	// Record the number of entities on the conveyor and in the queue while it is blocked
+	final double[] counts = new double[3];
+	evt.scheduleProcessExternal(evt.secondsToNearestTick(15.0d), 0, false, new TestTarget() {
+		@Override
+		public void process() {
+			counts[0] = conveyor.getNumberInProgress(15.0d);
+			counts[1] = queue.getCount();
+			counts[2] = conveyor.getAccumulationLength(15.0d);
+		}
+	}, null);
+	setOpen(evt, 20.0d, release, true);
+	TestFrameworkHelpers.runEventsToTick(evt, evt.secondsToNearestTick(100.0d), 10000);
+
+	// Five entities fit on the conveyor when the discharge end is blocked, with the last
+	// one at the start of the conveyor. The others wait in the queue.
+	assertEquals(5.0d, counts[0], 0.0d);
+	assertEquals(3.0d, counts[1], 0.0d);
+	assertEquals(5.0d, counts[2], 0.0d);
+
+	// The entities leave in the order they entered, the accumulated ones at the spacing
+	// and the others after travelling the full length of the conveyor
+	double[] expected = { 20.0d, 22.5d, 25.0d, 27.5d, 30.0d, 32.5d, 35.0d, 37.5d };
+	assertEquals(ents, sink.entities);
+	for (int i = 0; i < expected.length; i++)
+		assertEquals(expected[i], sink.times.get(i), 1.0e-6d);
+	assertEquals(10.0d, conveyor.getBlockedTime(100.0d), 1.0e-6d);
+	assertEquals(8.0d, queue.getNumberProcessed(100.0d), 0.0d);
+}
+
+@Test
+public void testStopped() {
+	defineModel();
+	InputAgent.applyArgs(release, "InitialState", "TRUE");
+	EventManager evt = new EventManager("TestAccumulatingConveyorEVT");
+	evt.clear();
+	ArrayList<DisplayEntity> ents = addEntities(evt, 3);
+
+	// The conveyor stops for 5 s while the release threshold is open
+	setOpen(evt, 1.0d, operating, false);
+	setOpen(evt, 6.0d, operating, true);
+	TestFrameworkHelpers.runEventsToTick(evt, evt.secondsToNearestTick(100.0d), 10000);
+
+	double[] expected = { 15.0d, 17.5d, 20.0d };
+	assertEquals(ents, sink.entities);
+	for (int i = 0; i < expected.length; i++)
+		assertEquals(expected[i], sink.times.get(i), 1.0e-6d);
+	assertEquals(0.0d, conveyor.getBlockedTime(100.0d), 0.0d);
+}
+}
@@ -0,0 +1,208 @@
+/*
+ * JaamSim Discrete Event Simulation
+ * Copyright (C) 2015 Ausenco Engineering Canada Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ */
+package com.jaamsim.BasicObjects;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.jaamsim.datatypes.IntegerVector;
+import com.jaamsim.input.InputAgent;
+
+public class TestMatchIndex {
+
+private static ArrayList<Queue> defineQueues(int n) {
+	ArrayList<Queue> ret = new ArrayList<>();
+	for (int i = 0; i < n; i++)
+		ret.add(InputAgent.defineEntityWithUniqueName(Queue.class, "Queue", "-", true));
+	return ret;
+}
+
+private static IntegerVector numbers(int... vals) {
+	IntegerVector ret = new IntegerVector();
+	for (int each : vals)
+		ret.add(each);
+	return ret;
+}
+
+@Test
+public void testUnreadyInHeap() {
+	ArrayList<Queue> queues = defineQueues(2);
+	Queue q0 = queues.get(0);
+	Queue q1 = queues.get(1);
+	MatchIndex index = new MatchIndex();
+	index.init(queues, null, true);
+
+	index.countChanged(q0, 5, 0, 1);
+	assertNull(index.getReadyMatch());
+	index.countChanged(q1, 5, 0, 1);
+	assertEquals(5, index.getReadyMatch().intValue());
+
+	index.countChanged(q0, 3, 0, 1);
+	index.countChanged(q1, 3, 0, 1);
+	assertEquals(3, index.getReadyMatch().intValue());
+
+	// 3 is at the top of the heap but is no longer ready
+	index.countChanged(q1, 3, 1, 0);
+	assertEquals(5, index.getReadyMatch().intValue());
+	index.countChanged(q1, 3, 0, 1);
+	assertEquals(3, index.getReadyMatch().intValue());
+
+	// 7 becomes unready and ready again while it is below the top of the heap
+	index.countChanged(q0, 7, 0, 1);
+	index.countChanged(q1, 7, 0, 1);
+	index.countChanged(q0, 7, 1, 0);
+	assertEquals(3, index.getReadyMatch().intValue());
+	index.countChanged(q0, 7, 0, 1);
+
+	index.countChanged(q0, 3, 1, 0);
+	index.countChanged(q1, 3, 1, 0);
+	index.countChanged(q0, 5, 1, 0);
+	index.countChanged(q1, 5, 1, 0);
+	assertEquals(7, index.getReadyMatch().intValue());
+	index.countChanged(q0, 7, 1, 0);
+	index.countChanged(q1, 7, 1, 0);
+	assertNull(index.getReadyMatch());
+}
+
+@Test
+public void testAlwaysMet() {
+	ArrayList<Queue> queues = defineQueues(3);
+	Queue q0 = queues.get(0);
+	Queue q1 = queues.get(1);
+	Queue q2 = queues.get(2);
+	MatchIndex index = new MatchIndex();
+	index.init(queues, numbers(2, 0), true);
+
+	// The second and third queues require no entities
+	index.countChanged(q0, 4, 0, 1);
+	assertNull(index.getReadyMatch());
+	index.countChanged(q0, 4, 1, 2);
+	assertEquals(4, index.getReadyMatch().intValue());
+
+	// Entities in a queue that requires none do not make a value ready
+	index.countChanged(q1, 6, 0, 1);
+	index.countChanged(q2, 6, 0, 3);
+	assertEquals(4, index.getReadyMatch().intValue());
+	index.countChanged(q0, 4, 2, 1);
+	assertNull(index.getReadyMatch());
+	index.countChanged(q0, 6, 0, 2);
+	assertEquals(6, index.getReadyMatch().intValue());
+
+	assertFalse(index.isSizeReady());
+	index.sizeChanged(q0, 0, 1);
+	assertFalse(index.isSizeReady());
+	index.sizeChanged(q0, 1, 2);
+	assertTrue(index.isSizeReady());
+}
+
+@Test
+public void testRemoveAndAdd() {
+	ArrayList<Queue> queues = defineQueues(2);
+	Queue q0 = queues.get(0);
+	Queue q1 = queues.get(1);
+	MatchIndex index = new MatchIndex();
+	index.init(queues, null, true);
+
+	index.countChanged(q0, 9, 0, 1);
+	index.countChanged(q1, 9, 0, 1);
+	assertEquals(9, index.getReadyMatch().intValue());
+	index.countChanged(q0, 9, 1, 0);
+	index.countChanged(q1, 9, 1, 0);
+	assertNull(index.getReadyMatch());
+
+	index.countChanged(q1, 9, 0, 1);
+	assertNull(index.getReadyMatch());
+	index.countChanged(q0, 9, 0, 1);
+	assertEquals(9, index.getReadyMatch().intValue());
+}
+
+@Test
+public void testRandom() {
+	ArrayList<Queue> queues = defineQueues(3);
+	IntegerVector required = numbers(1, 2, 0);
+	MatchIndex index = new MatchIndex();
+	index.init(queues, required, true);
+
+	// Compare the index with a direct count of the entities in each queue
+	int numValues = 200;
+	int[][] counts = new int[queues.size()][numValues];
+	int[] sizes = new int[queues.size()];
+	Random rand = new Random(3);
+	for (int n = 0; n < 20000; n++) {
+		int q = rand.nextInt(queues.size());
+		int m = rand.nextInt(numValues) - numValues / 2;
+		int old = counts[q][m + numValues / 2];
+		int count = old;
+		if (old > 0 && rand.nextInt(2) == 0)
+			count--;
+		else
+			count++;
+		counts[q][m + numValues / 2] = count;
+		index.countChanged(queues.get(q), m, old, count);
+		index.sizeChanged(queues.get(q), sizes[q], sizes[q] + count - old);
+		sizes[q] += count - old;
+
+		Integer expected = null;
+		for (int i = 0; i < numValues && expected == null; i++) {
+			boolean ready = false;
+			for (int j = 0; j < queues.size(); j++) {
+				if (counts[j][i] < required.get(j)) {
+					ready = false;
+					break;
+				}
+				if (counts[j][i] > 0)
+					ready = true;
+			}
+			if (ready)
+				expected = i - numValues / 2;
+		}
+		assertEquals(expected, index.getReadyMatch());
+
+		boolean sizeReady = true;
+		for (int j = 0; j < queues.size(); j++)
+			sizeReady &= sizes[j] >= required.get(j);
+		assertEquals(sizeReady, index.isSizeReady());
+	}
+}
+
+@Test
+public void testWithoutMatch() {
+	ArrayList<Queue> queues = defineQueues(2);
+	Queue q0 = queues.get(0);
+	Queue q1 = queues.get(1);
+	MatchIndex index = new MatchIndex();
+	index.init(queues, numbers(1, 2), false);
+
+	// Match values are ignored when they are not required
+	index.countChanged(q0, 1, 0, 1);
+	index.countChanged(q1, 1, 0, 2);
+	assertNull(index.getReadyMatch());
+
+	index.sizeChanged(q0, 0, 1);
+	index.sizeChanged(q1, 0, 1);
+	assertFalse(index.isSizeReady());
+	index.sizeChanged(q1, 1, 2);
+	assertTrue(index.isSizeReady());
+	index.sizeChanged(q0, 1, 0);
+	assertFalse(index.isSizeReady());
+}
+}
@@ -0,0 +1,160 @@
+/*
+ * JaamSim Discrete Event Simulation
+ * Copyright (C) 2015 Ausenco Engineering Canada Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ */
+package com.jaamsim.BasicObjects;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.jaamsim.BasicObjects.QueueEntrySet.Entry;
+import com.jaamsim.BasicObjects.QueueEntrySet.EntryList;
+
+public class TestQueueEntrySet {
+
+/**
+ * Returns the entries in the given list in order.
+ */
+private static ArrayList<Entry> toList(EntryList list) {
+	ArrayList<Entry> ret = new ArrayList<>();
+	for (int i = 0; i < list.getListCount(); i++) {
+		for (Entry e = list.getListHead(i); e != null; e = list.next(e))
+			ret.add(e);
+	}
+	return ret;
+}
+
+private static int compare(Entry e0, Entry e1) {
+	if (e0.priority != e1.priority)
+		return e0.priority < e1.priority ? -1 : 1;
+	return Long.compare(e0.seqNum, e1.seqNum);
+}
+
+@Test
+public void testOrder() {
+	QueueEntrySet set = new QueueEntrySet();
+	set.add(null, 1, 2, false, 0, 0.0d);
+	set.add(null, 2, 1, false, 0, 0.0d);
+	set.add(null, -3, 2, false, 0, 0.0d);
+	set.add(null, 4, 1, false, 0, 0.0d);
+
+	ArrayList<Entry> list = toList(set.getAll());
+	assertEquals(2, list.get(0).seqNum);
+	assertEquals(4, list.get(1).seqNum);
+	assertEquals(-3, list.get(2).seqNum);
+	assertEquals(1, list.get(3).seqNum);
+
+	set.clear();
+	assertEquals(0, set.size());
+	assertNull(set.first());
+	assertEquals(-1, set.getMaxCount());
+}
+
+@Test
+public void testMatchValueOrder() {
+	// Match values that are interleaved in the queue
+	QueueEntrySet set = new QueueEntrySet();
+	set.add(null, 1, 0, true, 7, 0.0d);
+	set.add(null, 2, 0, true, -3, 0.0d);
+	set.add(null, 3, 0, true, 7, 0.0d);
+	set.add(null, 4, 0, true, 40, 0.0d);
+	set.add(null, 5, 0, true, 2, 0.0d);
+	set.add(null, 6, 0, true, -3, 0.0d);
+	assertArrayEquals(new int[] { 7, -3, 40, 2 }, set.getMatchValues());
+
+	// A higher priority entry moves its match value to the front
+	Entry e = set.add(null, 7, -1, true, 2, 0.0d);
+	assertArrayEquals(new int[] { 2, 7, -3, 40 }, set.getMatchValues());
+
+	// Removing the first entry for a value moves it to the position of its next entry
+	set.remove(e);
+	set.remove(set.first());
+	assertArrayEquals(new int[] { -3, 7, 40, 2 }, set.getMatchValues());
+}
+
+@Test
+public void testRandomOperations() {
+	Random rng = new Random(12345);
+	QueueEntrySet set = new QueueEntrySet();
+	ArrayList<Entry> present = new ArrayList<>();
+	long seq = 0;
+
+	for (int step = 0; step < 20000; step++) {
+		if (present.isEmpty() || rng.nextInt(3) != 0) {
+			seq++;
+			long n = rng.nextBoolean() ? seq : -seq;
+			boolean hasMatch = rng.nextInt(10) != 0;
+			present.add(set.add(null, n, rng.nextInt(4), hasMatch, rng.nextInt(50) - 25, 0.0d));
+		}
+		else {
+			// Remove either the first entry or the first entry for a match value
+			Entry e = present.get(rng.nextInt(present.size()));
+			Entry rem = e.hasMatch ? set.getMatchList(e.match).first() : set.first();
+			present.remove(rem);
+			set.remove(rem);
+		}
+
+		if (step % 100 != 0)
+			continue;
+
+		// Check the order of all the entries
+		ArrayList<Entry> all = toList(set.getAll());
+		assertEquals(present.size(), all.size());
+		assertEquals(present.size(), set.size());
+		for (int i = 1; i < all.size(); i++)
+			assertTrue(compare(all.get(i - 1), all.get(i)) < 0);
+
+		// Check the entries for each match value and the largest count
+		int max = -1;
+		int values = 0;
+		for (int m = -25; m < 25; m++) {
+			int count = 0;
+			for (Entry e : present) {
+				if (e.hasMatch && e.match == m)
+					count++;
+			}
+			assertEquals(count, set.getMatchCount(m));
+			if (count == 0) {
+				assertNull(set.getMatchList(m));
+				continue;
+			}
+			values++;
+			max = Math.max(max, count);
+			ArrayList<Entry> matches = toList(set.getMatchList(m));
+			assertEquals(count, matches.size());
+			for (int i = 1; i < matches.size(); i++)
+				assertTrue(compare(matches.get(i - 1), matches.get(i)) < 0);
+		}
+		assertEquals(max, set.getMaxCount());
+		assertEquals(values, set.getMatchValueCount());
+		assertEquals(values, set.getMatchValues().length);
+
+		// Check that the match values are in the order of their first entries
+		ArrayList<Integer> firsts = new ArrayList<>();
+		for (Entry e : all) {
+			if (e.hasMatch && !firsts.contains(e.match))
+				firsts.add(e.match);
+		}
+		int[] matchValues = set.getMatchValues();
+		for (int i = 0; i < matchValues.length; i++)
+			assertEquals(firsts.get(i).intValue(), matchValues[i]);
+	}
+}
+}
@@ -0,0 +1,209 @@
+/*
+ * JaamSim Discrete Event Simulation
+ * Copyright (C) 2015 Ausenco Engineering Canada Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ */
+package com.jaamsim.BasicObjects;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.jaamsim.Graphics.DisplayEntity;
+import com.jaamsim.basicsim.Entity;
+import com.jaamsim.events.EventManager;
+import com.jaamsim.events.ProcessTarget;
+import com.jaamsim.events.TestFrameworkHelpers;
+import com.jaamsim.input.InputAgent;
+import com.jaamsim.units.TimeUnit;
+
+public class TestResource {
+
+private abstract static class TestTarget extends ProcessTarget {
+	@Override
+	public String getDescription() {
+		return "Test";
+	}
+}
+
+private Resource resource;
+private final ArrayList<Queue> queues = new ArrayList<>();
+private final ArrayList<Seize> seizes = new ArrayList<>();
+
+/**
+ * Defines a resource with no units, so that the entities stay in the queues, and
+ * the given number of Seize objects that use it, each with its own queue.
+ */
+private void defineModel(int n) {
+	if (Entity.getNamedEntity("s") == null)
+		InputAgent.defineEntityWithUniqueName(TimeUnit.class, "s", "-", true);
+
+	EntitySink sink = InputAgent.defineEntityWithUniqueName(EntitySink.class, "Sink", "-", true);
+	resource = InputAgent.defineEntityWithUniqueName(Resource.class, "Resource", "-", true);
+	InputAgent.applyArgs(resource, "Capacity", "0");
+	for (int i = 0; i < n; i++) {
+		Queue que = InputAgent.defineEntityWithUniqueName(Queue.class, "Queue", "-", true);
+		Seize seize = InputAgent.defineEntityWithUniqueName(Seize.class, "Seize", "-", true);
+		InputAgent.applyArgs(seize, "WaitQueue", que.getName());
+		InputAgent.applyArgs(seize, "Resource", resource.getName());
+		InputAgent.applyArgs(seize, "NextComponent", sink.getName());
+		queues.add(que);
+		seizes.add(seize);
+	}
+}
+
+private void init(EventManager evt) {
+	evt.scheduleProcessExternal(0, 0, false, new TestTarget() {
+		@Override
+		public void process() {
+			ArrayList<Entity> model = new ArrayList<>();
+			model.add(resource);
+			model.addAll(queues);
+			model.addAll(seizes);
+			for (Entity ent : model)
+				ent.earlyInit();
+			for (Entity ent : model)
+				ent.lateInit();
+			for (Entity ent : model)
+				ent.startUp();
+		}
+	}, null);
+}
+
+private static void add(EventManager evt, long ticks, final Queue que) {
+	final DisplayEntity ent = InputAgent.defineEntityWithUniqueName(DisplayEntity.class, "Ent", "-", true);
+	evt.scheduleProcessExternal(ticks, 0, false, new TestTarget() {
+		@Override
+		public void process() {
+			que.addEntity(ent);
+		}
+	}, null);
+}
+
+private static void removeFirst(EventManager evt, long ticks, final Queue que) {
+	evt.scheduleProcessExternal(ticks, 0, false, new TestTarget() {
+		@Override
+		public void process() {
+			if (que.getCount() > 0)
+				que.removeFirst();
+		}
+	}, null);
+}
+
+/**
+ * Records the Seize object that has waited the longest after the other events at
+ * the given time.
+ */
+private void record(EventManager evt, long ticks, final ArrayList<Seize> list) {
+	evt.scheduleProcessExternal(ticks, 10, false, new TestTarget() {
+		@Override
+		public void process() {
+			list.add(resource.getLongestWaitingSeize());
+		}
+	}, null);
+}
+
+@Test
+public void testWaitingOrder() {
+	defineModel(4);
+	InputAgent.applyArgs(queues.get(0), "FIFO", "FALSE");
+	EventManager evt = new EventManager("TestResourceEVT");
+	evt.clear();
+	init(evt);
+	ArrayList<Seize> selected = new ArrayList<>();
+
+	// Entities arriving at the same time are served in the order of the Seize objects
+	add(evt, 1, queues.get(2));
+	add(evt, 1, queues.get(1));
+	record(evt, 1, selected);
+
+	add(evt, 2, queues.get(0));
+	add(evt, 2, queues.get(3));
+	record(evt, 2, selected);
+
+	// A Seize object whose queue is empty is no longer waiting
+	removeFirst(evt, 3, queues.get(1));
+	record(evt, 3, selected);
+	removeFirst(evt, 4, queues.get(2));
+	record(evt, 4, selected);
+
+	// A new first entity in a last-in-first-out queue moves its Seize object back
+	add(evt, 5, queues.get(0));
+	record(evt, 5, selected);
+	removeFirst(evt, 6, queues.get(0));
+	record(evt, 6, selected);
+
+	removeFirst(evt, 7, queues.get(0));
+	removeFirst(evt, 7, queues.get(3));
+	record(evt, 7, selected);
+	TestFrameworkHelpers.runEventsToTick(evt, 10, 1000);
+
+	assertEquals(7, selected.size());
+	assertEquals(seizes.get(1), selected.get(0));
+	assertEquals(seizes.get(1), selected.get(1));
+	assertEquals(seizes.get(2), selected.get(2));
+	assertEquals(seizes.get(0), selected.get(3));
+	assertEquals(seizes.get(3), selected.get(4));
+	assertEquals(seizes.get(0), selected.get(5));
+	assertNull(selected.get(6));
+}
+
+@Test
+public void testRandom() {
+	final int n = 12;
+	defineModel(n);
+	for (int i = 0; i < n; i += 2)
+		InputAgent.applyArgs(queues.get(i), "FIFO", "FALSE");
+	EventManager evt = new EventManager("TestResourceEVT");
+	evt.clear();
+	init(evt);
+
+	// Compare the selection with a search of the queues after each change
+	final ArrayList<Seize> selected = new ArrayList<>();
+	final ArrayList<Seize> expected = new ArrayList<>();
+	Random rand = new Random(4);
+	for (long t = 1; t <= 2000; t++) {
+		int i = rand.nextInt(n);
+		if (rand.nextInt(2) == 0)
+			removeFirst(evt, t, queues.get(i));
+		else
+			add(evt, t, queues.get(i));
+		if (rand.nextInt(2) == 0)
+			continue;
+
+		record(evt, t, selected);
+		evt.scheduleProcessExternal(t, 10, false, new TestTarget() {
+			@Override
+			public void process() {
+				Seize best = null;
+				double bestTime = Double.POSITIVE_INFINITY;
+				for (int j = 0; j < n; j++) {
+					Queue que = queues.get(j);
+					if (que.getCount() > 0 && que.getFirstTimeAdded() < bestTime) {
+						best = seizes.get(j);
+						bestTime = que.getFirstTimeAdded();
+					}
+				}
+				expected.add(best);
+			}
+		}, null);
+	}
+	TestFrameworkHelpers.runEventsToTick(evt, 2010, 100000);
+
+	assertEquals(expected.size(), selected.size());
+	assertEquals(expected, selected);
+}
+}
@@ -0,0 +1,311 @@
+/*
+ * JaamSim Discrete Event Simulation
+ * Copyright (C) 2015 Ausenco Engineering Canada Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ */
+package com.jaamsim.CalculationObjects;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+
+import org.junit.Test;
+
+import com.jaamsim.ProbabilityDistributions.UniformDistribution;
+import com.jaamsim.Thresholds.ExpressionThreshold;
+import com.jaamsim.basicsim.Entity;
+import com.jaamsim.basicsim.ObjectType;
+import com.jaamsim.events.EventManager;
+import com.jaamsim.events.ProcessTarget;
+import com.jaamsim.events.TestFrameworkHelpers;
+import com.jaamsim.input.InputAgent;
+import com.jaamsim.input.InputErrorException;
+import com.jaamsim.units.TimeUnit;
+
+public class TestController {
+
+/**
+ * Lag that records its value at each update.
+ */
+public static class RecordingLag extends Lag {
+	final ArrayList<double[]> values = new ArrayList<>();
+	String threadName;
+
+	@Override
+	public void update(double simTime) {
+		super.update(simTime);
+		values.add(new double[] { simTime, this.getValue() });
+		threadName = Thread.currentThread().getName();
+	}
+}
+
+private static class StartUpTarget extends ProcessTarget {
+	final Controller controller;
+	StartUpTarget(Controller c) {
+		controller = c;
+	}
+
+	@Override
+	public String getDescription() {
+		return "StartUp";
+	}
+
+	@Override
+	public void process() {
+		controller.startUp();
+	}
+}
+
+private static class UpdateTarget extends ProcessTarget {
+	final ArrayList<CalculationEntity> list;
+	final double[] times;
+	UpdateTarget(ArrayList<CalculationEntity> l, double... t) {
+		list = l;
+		times = t;
+	}
+
+	@Override
+	public String getDescription() {
+		return "Update";
+	}
+
+	@Override
+	public void process() {
+		for (double t : times) {
+			for (CalculationEntity ent : list) {
+				ent.update(t);
+			}
+		}
+	}
+}
+
+private static ObjectType getDimensionless() {
+	ObjectType t = InputAgent.defineEntityWithUniqueName(ObjectType.class, "TestType", "-", true);
+	InputAgent.applyArgs(t, "JavaClass", "com.jaamsim.units.DimensionlessUnit");
+	return t;
+}
+
+private static void defineSeconds() {
+	if (Entity.getNamedEntity("s") == null)
+		InputAgent.defineEntityWithUniqueName(TimeUnit.class, "s", "-", true);
+}
+
+private static void run(Controller controller, double secs) {
+	EventManager evt = new EventManager("TestControllerEVT");
+	evt.clear();
+	evt.scheduleProcessExternal(0, 0, false, new StartUpTarget(controller), null);
+	TestFrameworkHelpers.runEventsToTick(evt, evt.secondsToNearestTick(secs), 10000);
+}
+
+@Test
+public void testAdaptiveLag() {
+	defineSeconds();
+	ObjectType t = getDimensionless();
+	Controller controller = InputAgent.defineEntityWithUniqueName(Controller.class, "Controller", "-", true);
+	InputAgent.applyArgs(controller, "SamplingTime", "1", "s");
+	InputAgent.applyArgs(controller, "RelativeTolerance", "1.0e-8");
+	InputAgent.applyArgs(controller, "AbsoluteTolerance", "1.0e-10");
+
+	// Step response of a first order lag: value = 1 - exp(-t/LagTime)
+	RecordingLag lag = InputAgent.defineEntityWithUniqueName(RecordingLag.class, "Lag", "-", true);
+	InputAgent.applyArgs(lag, "UnitType", t.getName());
+	InputAgent.applyArgs(lag, "InputValue", "1");
+	InputAgent.applyArgs(lag, "LagTime", "2", "s");
+	InputAgent.applyArgs(lag, "Controller", controller.getName());
+
+	lag.validate();
+	controller.validate();
+	lag.earlyInit();
+	controller.earlyInit();
+	run(controller, 10.0d);
+
+	assertTrue(lag.values.size() > 10);
+	double lastTime = 0.0d;
+	for (double[] each : lag.values) {
+		assertEquals(1.0d - Math.exp(-each[0] / 2.0d), each[1], 1.0e-7);
+		lastTime = each[0];
+	}
+	assertTrue(lastTime > 9.0d);
+
+	// The steps are limited by the error tolerance, not by the tick length
+	assertTrue(controller.getCount() < 200);
+}
+
+@Test
+public void testAdaptiveRejectsDistribution() {
+	ObjectType t = getDimensionless();
+	Controller controller = InputAgent.defineEntityWithUniqueName(Controller.class, "Controller", "-", true);
+	InputAgent.applyArgs(controller, "RelativeTolerance", "1.0e-6");
+
+	UniformDistribution dist = InputAgent.defineEntityWithUniqueName(UniformDistribution.class, "Dist", "-", true);
+	InputAgent.applyArgs(dist, "UnitType", t.getName());
+
+	Integrator integrator = InputAgent.defineEntityWithUniqueName(Integrator.class, "Integrator", "-", true);
+	InputAgent.applyArgs(integrator, "UnitType", t.getName());
+	InputAgent.applyArgs(integrator, "InputValue", dist.getName());
+	InputAgent.applyArgs(integrator, "Controller", controller.getName());
+	try {
+		integrator.validate();
+		fail("Did not throw an error.");
+	}
+	catch (InputErrorException e) {}
+
+	// A fixed sampling time samples the distribution once per update
+	InputAgent.applyArgs(controller, "RelativeTolerance", "0");
+	integrator.validate();
+}
+
+private static Integrator defineIntegrator(ObjectType t, Controller controller, String input, int seq) {
+	Integrator ent = InputAgent.defineEntityWithUniqueName(Integrator.class, "Integrator", "-", true);
+	InputAgent.applyArgs(ent, "UnitType", t.getName());
+	InputAgent.applyArgs(ent, "InputValue", input);
+	InputAgent.applyArgs(ent, "Controller", controller.getName());
+	InputAgent.applyArgs(ent, "SequenceNumber", Integer.toString(seq));
+	return ent;
+}
+
+@Test
+public void testUpdateGroups() {
+	ObjectType t = getDimensionless();
+	Controller controller = InputAgent.defineEntityWithUniqueName(Controller.class, "Controller", "-", true);
+	Integrator a = defineIntegrator(t, controller, "1", 0);
+	Integrator b = defineIntegrator(t, controller, a.getName(), 1);
+	Integrator c = defineIntegrator(t, controller, "2", 2);
+	Integrator d = defineIntegrator(t, controller, "[" + a.getName() + "].Value", 3);
+	Integrator e = defineIntegrator(t, controller, "[" + c.getName() + "].Value * 2", 4);
+	Integrator f = defineIntegrator(t, controller, "3", 5);
+
+	ArrayList<CalculationEntity> list = new ArrayList<>();
+	list.add(a);
+	list.add(b);
+	list.add(c);
+	list.add(d);
+	list.add(e);
+	list.add(f);
+	CalculationEntity[][] groups = Controller.getUpdateGroups(list);
+	assertEquals(3, groups.length);
+	assertArrayEquals(new CalculationEntity[] { a, b, d }, groups[0]);
+	assertArrayEquals(new CalculationEntity[] { c, e }, groups[1]);
+	assertArrayEquals(new CalculationEntity[] { f }, groups[2]);
+
+	// An input that refers to an entity through an output of another entity
+	Integrator g = defineIntegrator(t, controller, "[" + d.getName() + "].Controller.SamplingTime / 1[s]", 6);
+	list.add(g);
+	groups = Controller.getUpdateGroups(list);
+	assertEquals(1, groups.length);
+	assertArrayEquals(list.toArray(), groups[0]);
+}
+
+@Test
+public void testThresholdGroups() {
+	ObjectType t = getDimensionless();
+	Controller controller = InputAgent.defineEntityWithUniqueName(Controller.class, "Controller", "-", true);
+	Integrator a = defineIntegrator(t, controller, "1", 0);
+	Integrator b = defineIntegrator(t, controller, "2", 1);
+	Integrator c = defineIntegrator(t, controller, "3", 2);
+
+	// A threshold whose condition reads an Integrator joins the entities that read it
+	ExpressionThreshold thr = InputAgent.defineEntityWithUniqueName(ExpressionThreshold.class, "Thr", "-", true);
+	InputAgent.applyArgs(thr, "OpenCondition", "[" + b.getName() + "].Value > 1");
+	InputAgent.applyArgs(a, "InputValue", "[" + thr.getName() + "].Open");
+
+	// A threshold that does not read any calculation entity can be shared
+	ExpressionThreshold fixed = InputAgent.defineEntityWithUniqueName(ExpressionThreshold.class, "Thr", "-", true);
+	InputAgent.applyArgs(fixed, "OpenCondition", "1 > 0");
+	Integrator d = defineIntegrator(t, controller, "[" + fixed.getName() + "].Open", 3);
+	InputAgent.applyArgs(c, "InputValue", "[" + fixed.getName() + "].Open * 2");
+
+	ArrayList<CalculationEntity> list = new ArrayList<>();
+	list.add(a);
+	list.add(b);
+	list.add(c);
+	list.add(d);
+	CalculationEntity[][] groups = Controller.getUpdateGroups(list);
+	assertEquals(3, groups.length);
+	assertArrayEquals(new CalculationEntity[] { a, b }, groups[0]);
+	assertArrayEquals(new CalculationEntity[] { c }, groups[1]);
+	assertArrayEquals(new CalculationEntity[] { d }, groups[2]);
+}
+
+@Test
+public void testConcurrentUpdate() {
+	defineSeconds();
+	ObjectType t = getDimensionless();
+
+	// Two identical sets of chains, each with an Integrator, a Lag and another Integrator
+	ArrayList<ArrayList<CalculationEntity>> sets = new ArrayList<>();
+	ArrayList<RecordingLag> lags = new ArrayList<>();
+	Controller controller = null;
+	for (int n = 0; n < 2; n++) {
+		controller = InputAgent.defineEntityWithUniqueName(Controller.class, "Controller", "-", true);
+		InputAgent.applyArgs(controller, "SamplingTime", "0.5", "s");
+		ArrayList<CalculationEntity> list = new ArrayList<>();
+		for (int i = 0; i < 30; i++) {
+			Integrator first = defineIntegrator(t, controller, Integer.toString(i + 1), 0);
+			RecordingLag lag = InputAgent.defineEntityWithUniqueName(RecordingLag.class, "Lag", "-", true);
+			InputAgent.applyArgs(lag, "UnitType", t.getName());
+			InputAgent.applyArgs(lag, "InputValue", "[" + first.getName() + "].Value");
+			InputAgent.applyArgs(lag, "LagTime", "0.7", "s");
+			InputAgent.applyArgs(lag, "Controller", controller.getName());
+			InputAgent.applyArgs(lag, "SequenceNumber", "1");
+			Integrator last = defineIntegrator(t, controller, lag.getName(), 2);
+			list.add(first);
+			list.add(lag);
+			list.add(last);
+			lags.add(lag);
+		}
+		for (CalculationEntity ent : list) {
+			ent.validate();
+			ent.earlyInit();
+		}
+		sets.add(list);
+	}
+
+	// Update the first set concurrently through its Controller
+	int oldThreads = Controller.maxThreads;
+	Controller.maxThreads = 4;
+	try {
+		Controller first = sets.get(0).get(0).getController();
+		first.validate();
+		first.earlyInit();
+		run(first, 5.25d);
+		assertEquals(10, first.getCount());
+	}
+	finally {
+		Controller.maxThreads = oldThreads;
+	}
+	assertTrue(lags.get(0).threadName.startsWith("helperthread-"));
+
+	// Update the second set in sequence
+	ArrayList<CalculationEntity> seqList = new ArrayList<>();
+	for (int stage = 0; stage < 3; stage++) {
+		for (int i = 0; i < 30; i++) {
+			seqList.add(sets.get(1).get(3*i + stage));
+		}
+	}
+	EventManager evt = new EventManager("TestControllerSeqEVT");
+	evt.clear();
+	evt.scheduleProcessExternal(0, 0, false, new UpdateTarget(seqList,
+			0.5d, 1.0d, 1.5d, 2.0d, 2.5d, 3.0d, 3.5d, 4.0d, 4.5d, 5.0d), null);
+	TestFrameworkHelpers.runEventsToTick(evt, 1, 10000);
+
+	for (int i = 0; i < sets.get(0).size(); i++) {
+		DoubleCalculation conc = (DoubleCalculation)sets.get(0).get(i);
+		DoubleCalculation seq = (DoubleCalculation)sets.get(1).get(i);
+		assertTrue(conc.getValue() != 0.0d);
+		assertEquals(seq.getValue(), conc.getValue(), 0.0d);
+	}
+}
+}
@@ -0,0 +1,90 @@
+/*
+ * JaamSim Discrete Event Simulation
+ * Copyright (C) 2015 Ausenco Engineering Canada Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ */
+package com.jaamsim.CalculationObjects;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class TestDormandPrince {
+
+// Harmonic oscillator y0'' = -y0, with the solution y0 = cos(t), y1 = -sin(t)
+private static final DormandPrince.Derivatives OSCILLATOR = new DormandPrince.Derivatives() {
+	@Override
+	public void getDerivatives(double t, double[] y, double[] dydt) {
+		dydt[0] = y[1];
+		dydt[1] = -y[0];
+	}
+};
+
+@Test
+public void testOrder() {
+	DormandPrince solver = new DormandPrince(2);
+	double[] y0 = { 1.0d, 0.0d };
+	double[] y1 = new double[2];
+
+	// The error is order 6 for a single step of order 5
+	double lastErr = 0.0d;
+	for (int i = 0; i < 4; i++) {
+		double h = 0.4d / (1 << i);
+		solver.step(OSCILLATOR, 0.0d, y0, h, y1, 0.0d, 1.0d);
+		double err = Math.abs(y1[0] - Math.cos(h)) + Math.abs(y1[1] + Math.sin(h));
+		if (i > 0)
+			assertEquals(64.0d, lastErr / err, 16.0d);
+		lastErr = err;
+	}
+}
+
+@Test
+public void testErrorEstimate() {
+	DormandPrince solver = new DormandPrince(2);
+	double[] y0 = { 1.0d, 0.0d };
+	double[] y1 = new double[2];
+
+	// The estimate is for the order 4 solution, so it is order 5
+	double lastEst = solver.step(OSCILLATOR, 0.0d, y0, 0.4d, y1, 0.0d, 1.0d);
+	for (int i = 1; i < 4; i++) {
+		double h = 0.4d / (1 << i);
+		double est = solver.step(OSCILLATOR, 0.0d, y0, h, y1, 0.0d, 1.0d);
+		assertEquals(32.0d, lastEst / est, 4.0d);
+		lastEst = est;
+	}
+}
+
+@Test
+public void testAdaptiveSteps() {
+	DormandPrince solver = new DormandPrince(2);
+	double[] y = { 1.0d, 0.0d };
+	double[] next = new double[2];
+	double t = 0.0d;
+	double h = 1.0d;
+	double end = 20.0d;
+	int steps = 0;
+	while (t < end) {
+		h = Math.min(h, end - t);
+		double err = solver.step(OSCILLATOR, t, y, h, next, 1.0e-8d, 1.0e-10d);
+		if (err <= 1.0d) {
+			t += h;
+			System.arraycopy(next, 0, y, 0, 2);
+			steps++;
+		}
+		h *= DormandPrince.getStepFactor(err);
+	}
+	assertEquals(Math.cos(end), y[0], 1.0e-6d);
+	assertEquals(-Math.sin(end), y[1], 1.0e-6d);
+	assertTrue(steps < 500);
+}
+}
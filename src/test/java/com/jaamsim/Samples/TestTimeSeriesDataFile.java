@@ -0,0 +1,184 @@
+/*
+ * JaamSim Discrete Event Simulation
+ * Copyright (C) 2015 Ausenco Engineering Canada Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ */
+package com.jaamsim.Samples;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.jaamsim.input.Input;
+import com.jaamsim.input.InputErrorException;
+
+public class TestTimeSeriesDataFile {
+
+private static final double TICK = 1.0e-6d;
+
+private static File writeFile(String suffix, byte[] bytes) throws IOException {
+	File file = File.createTempFile("TestTimeSeriesDataFile", suffix);
+	file.deleteOnExit();
+	Files.write(file.toPath(), bytes);
+	return file;
+}
+
+private static byte[] toBinary(double tickLength, long[] ticks, double[] values) {
+	ByteBuffer buf = ByteBuffer.allocate(20 + 16 * ticks.length);
+	buf.order(ByteOrder.LITTLE_ENDIAN);
+	buf.putInt(0x4A535453);
+	buf.putInt(1);
+	buf.putDouble(tickLength);
+	buf.putInt(ticks.length);
+	for (long t : ticks)
+		buf.putLong(t);
+	for (double v : values)
+		buf.putDouble(v);
+	return buf.array();
+}
+
+@Test
+public void testTextAndBinary() throws IOException {
+	// Times in hours and values in km
+	String text = "# time, value\n0, 1.5\n\n0.5, -2\r\n1.25,\t3e2\n2 ; 4.0\n";
+	File textFile = writeFile(".csv", text.getBytes(Charset.defaultCharset()));
+	TimeSeriesData data = TimeSeriesDataFile.load(textFile.toURI(), TICK, 3600.0d, 1000.0d);
+
+	long[] ticks = { 0L, 1800000000L, 4500000000L, 7200000000L };
+	double[] values = { 1500.0d, -2000.0d, 300000.0d, 4000.0d };
+	assertArrayEquals(ticks, data.ticksList);
+	assertArrayEquals(values, data.valueList, 1.0e-9d);
+	assertEquals(300000.0d, data.getMaxValue(), 0.0d);
+	assertEquals(-2000.0d, data.getMinValue(), 0.0d);
+
+	// The same data in binary
+	File binFile = writeFile(".tsb", toBinary(TICK, ticks, values));
+	TimeSeriesData bin = TimeSeriesDataFile.load(binFile.toURI(), TICK, Double.NaN, Double.NaN);
+	assertArrayEquals(data.ticksList, bin.ticksList);
+	assertArrayEquals(data.valueList, bin.valueList, 0.0d);
+
+	// The times are rescaled to a different tick length
+	bin = TimeSeriesDataFile.load(binFile.toURI(), 1.0e-3d, Double.NaN, Double.NaN);
+	assertArrayEquals(new long[] { 0L, 1800000L, 4500000L, 7200000L }, bin.ticksList);
+
+	// The file can be deleted once it has been read
+	assertTrue(textFile.delete());
+	assertTrue(binFile.delete());
+}
+
+@Test
+public void testDateTimes() {
+	String text = "2015-01-01 06:00:00, 1\n'2015-01-02T00:00:00.5', 2\n\"2015-02-01\", 3\n";
+	TimeSeriesData data = TimeSeriesDataFile.readText(text, TICK, Double.NaN, 1.0d, Integer.MAX_VALUE);
+
+	// The times are relative to the start of the year of the first record
+	long[] ticks = { 6L * 3600000000L, 24L * 3600000000L + 500000L, 31L * 24L * 3600000000L };
+	assertArrayEquals(ticks, data.ticksList);
+	assertEquals(Input.usPerYr, 365L * 24L * 3600000000L);
+}
+
+@Test
+public void testBlocks() {
+	// Records with blank lines, comments and carriage returns
+	Random rand = new Random(1);
+	StringBuilder sb = new StringBuilder();
+	double t = 0.0d;
+	for (int i = 0; i < 2000; i++) {
+		t += 1.0d + rand.nextInt(100);
+		sb.append(t).append(", ").append(rand.nextGaussian());
+		sb.append(rand.nextInt(5) == 0 ? "\r\n" : "\n");
+		if (rand.nextInt(10) == 0)
+			sb.append("# comment\n\n");
+	}
+	String text = sb.toString();
+
+	TimeSeriesData expected = TimeSeriesDataFile.readText(text, TICK, 60.0d, 2.0d, Integer.MAX_VALUE);
+	assertEquals(2000, expected.ticksList.length);
+	for (int blockSize : new int[] { 1, 7, 25, 64, 1000, text.length() - 1 }) {
+		TimeSeriesData data = TimeSeriesDataFile.readText(text, TICK, 60.0d, 2.0d, blockSize);
+		assertArrayEquals(expected.ticksList, data.ticksList);
+		assertArrayEquals(expected.valueList, data.valueList, 0.0d);
+	}
+
+	// The line number of an error is counted from the start of the file
+	String bad = text + "1.0e9, x\n";
+	int line = text.split("\n", -1).length;
+	for (int blockSize : new int[] { 25, Integer.MAX_VALUE }) {
+		try {
+			TimeSeriesDataFile.readText(bad, TICK, 60.0d, 2.0d, blockSize);
+			fail("Did not throw an error.");
+		}
+		catch (InputErrorException e) {
+			assertTrue(e.getMessage(), e.getMessage().startsWith("Line " + line + ":"));
+		}
+	}
+}
+
+private static void assertError(String text, double timeFactor, double valueFactor, String message) {
+	try {
+		TimeSeriesDataFile.readText(text, TICK, timeFactor, valueFactor, 8);
+		fail("Did not throw an error.");
+	}
+	catch (InputErrorException e) {
+		assertTrue(e.getMessage(), e.getMessage().contains(message));
+	}
+}
+
+@Test
+public void testMalformed() {
+	assertError("0, 1\n1 2\n", 1.0d, 1.0d, "Line 2: Expected a time and a value");
+	assertError("0, 1\n1, 2\n2, abc\n", 1.0d, 1.0d, "Line 3: Expected a numeric value");
+	assertError("0, 1\nabc, 2\n", 1.0d, 1.0d, "Line 2: Expected a numeric time");
+	assertError("0, 1\n-1, 2\n", 1.0d, 1.0d, "Line 2: Times must not be negative");
+	assertError("2015-13-45x, 1\n", 1.0d, 1.0d, "Line 1: Expected a valid RFC8601 datetime");
+	assertError("0, 1\n2, 2\n1, 3\n", 1.0d, 1.0d, "increasing order at record 3");
+	assertError("# no records\n\n", 1.0d, 1.0d, "contains no records");
+
+	// Units must be given explicitly
+	assertError("0, 1\n", Double.NaN, 1.0d, "DataFileTimeUnit");
+	assertError("0, 1\n", 1.0d, Double.NaN, "DataFileValueUnit");
+}
+
+@Test
+public void testBinaryErrors() throws IOException {
+	byte[] bytes = toBinary(TICK, new long[] { 0L, 10L, 5L }, new double[3]);
+	File file = writeFile(".tsb", bytes);
+	try {
+		TimeSeriesDataFile.load(file.toURI(), TICK, Double.NaN, Double.NaN);
+		fail("Did not throw an error.");
+	}
+	catch (InputErrorException e) {
+		assertTrue(e.getMessage().contains("increasing order"));
+	}
+
+	file = writeFile(".tsb", Arrays.copyOf(bytes, 40));
+	try {
+		TimeSeriesDataFile.load(file.toURI(), TICK, Double.NaN, Double.NaN);
+		fail("Did not throw an error.");
+	}
+	catch (InputErrorException e) {
+		assertTrue(e.getMessage().contains("truncated"));
+	}
+}
+}
@@ -0,0 +1,361 @@
+/*
+ * JaamSim Discrete Event Simulation
+ * Copyright (C) 2015 Ausenco Engineering Canada Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ */
+package com.jaamsim.Thresholds;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.jaamsim.Samples.TimeSeries;
+import com.jaamsim.Samples.TimeSeriesConstantDouble;
+import com.jaamsim.Samples.TimeSeriesProvider;
+import com.jaamsim.basicsim.Entity;
+import com.jaamsim.basicsim.ObjectType;
+import com.jaamsim.basicsim.Simulation;
+import com.jaamsim.input.InputAgent;
+import com.jaamsim.ui.FrameBox;
+import com.jaamsim.units.TimeUnit;
+
+public class TestTimeSeriesThreshold {
+
+/**
+ * The search used by TimeSeriesThreshold before the open and closed periods were
+ * kept in a list. It walks the changes in the series point by point on each call.
+ */
+private static class Reference {
+	final TimeSeriesProvider series;
+	final TimeSeriesProvider maxLimit;
+	final TimeSeriesProvider minLimit;
+	final long lookAhead;
+	final long offset;
+
+	Reference(TimeSeriesProvider ts, TimeSeriesProvider max, TimeSeriesProvider min, long look, long off) {
+		series = ts;
+		maxLimit = max;
+		minLimit = min;
+		lookAhead = look;
+		offset = off;
+	}
+
+	boolean isOpenAtTicks(long ticks) {
+		ticks = Math.max(ticks + offset, 0);
+		long changeTime = ticks;
+		if (!this.isPointOpenAtTicks(changeTime))
+			return false;
+
+		if (lookAhead == 0)
+			return true;
+
+		while (true) {
+			changeTime = this.getNextChangeAfterTicks(changeTime);
+			if (!this.isPointOpenAtTicks(changeTime))
+				return changeTime - ticks >= lookAhead;
+
+			if (changeTime - ticks >= lookAhead)
+				return true;
+		}
+	}
+
+	long calcClosedTicksFromTicks(long ticks) {
+		if (this.isAlwaysClosed())
+			return Long.MAX_VALUE;
+		if (this.isAlwaysOpen())
+			return 0;
+		if (this.isOpenAtTicks(ticks))
+			return 0;
+
+		ticks = Math.max(ticks + offset, 0);
+		long openTime = -1;
+		long changeTime = ticks;
+		long maxTicks = this.getMaxTicksValue();
+		while (true) {
+			changeTime = this.getNextChangeAfterTicks(changeTime);
+			if (changeTime == Long.MAX_VALUE) {
+				if (openTime == -1)
+					return Long.MAX_VALUE;
+				return openTime - ticks;
+			}
+
+			if (changeTime > ticks + maxTicks + lookAhead)
+				return Long.MAX_VALUE;
+
+			if (!this.isPointOpenAtTicks(changeTime)) {
+				if (openTime == -1)
+					continue;
+				if (changeTime - openTime >= lookAhead)
+					return openTime - ticks;
+				openTime = -1;
+			}
+			else if (openTime == -1) {
+				openTime = changeTime;
+			}
+		}
+	}
+
+	long calcOpenTicksFromTicks(long ticks) {
+		if (this.isAlwaysClosed())
+			return 0;
+		if (this.isAlwaysOpen())
+			return Long.MAX_VALUE;
+		if (!this.isOpenAtTicks(ticks))
+			return 0;
+
+		ticks = Math.max(ticks + offset, 0);
+		long changeTime = ticks;
+		long maxTicks = this.getMaxTicksValue();
+		while (true) {
+			changeTime = this.getNextChangeAfterTicks(changeTime);
+			if (changeTime == Long.MAX_VALUE)
+				return Long.MAX_VALUE;
+			if (changeTime > ticks + maxTicks)
+				return Long.MAX_VALUE;
+
+			if (!this.isPointOpenAtTicks(changeTime)) {
+				if (lookAhead == 0)
+					return changeTime - ticks;
+				return changeTime - lookAhead - ticks + 1;
+			}
+		}
+	}
+
+	private boolean isAlwaysOpen() {
+		return series.getMinValue() >= minLimit.getMaxValue() && series.getMaxValue() <= maxLimit.getMinValue();
+	}
+
+	private boolean isAlwaysClosed() {
+		return series.getMaxValue() < minLimit.getMinValue() || series.getMinValue() > maxLimit.getMaxValue();
+	}
+
+	long getNextChangeAfterTicks(long ticks) {
+		long ret = series.getNextChangeAfterTicks(ticks);
+		ret = Math.min(ret, maxLimit.getNextChangeAfterTicks(ticks));
+		ret = Math.min(ret, minLimit.getNextChangeAfterTicks(ticks));
+		return ret;
+	}
+
+	private long getMaxTicksValue() {
+		long ret = series.getMaxTicksValue();
+		ret = Math.max(ret, maxLimit.getMaxTicksValue());
+		ret = Math.max(ret, minLimit.getMaxTicksValue());
+		return ret;
+	}
+
+	private boolean isPointOpenAtTicks(long ticks) {
+		double val = series.getValueForTicks(ticks);
+		return val >= minLimit.getValueForTicks(ticks) && val <= maxLimit.getValueForTicks(ticks);
+	}
+}
+
+private static ObjectType unitType;
+
+private static void defineUnits() {
+	FrameBox.setSecondsPerTick(Simulation.getTickLength());
+	if (Entity.getNamedEntity("s") == null)
+		InputAgent.defineEntityWithUniqueName(TimeUnit.class, "s", "-", true);
+	unitType = InputAgent.defineEntityWithUniqueName(ObjectType.class, "TestType", "-", true);
+	InputAgent.applyArgs(unitType, "JavaClass", "com.jaamsim.units.DimensionlessUnit");
+}
+
+/**
+ * Returns a dimensionless time series with the given times in seconds.
+ * @param cycle - cycle time in seconds, or infinity if the series does not repeat
+ */
+private static TimeSeries defineSeries(double[] times, double[] values, double cycle) {
+	TimeSeries ts = InputAgent.defineEntityWithUniqueName(TimeSeries.class, "TimeSeries", "-", true);
+	InputAgent.applyArgs(ts, "UnitType", unitType.getName());
+	ArrayList<String> args = new ArrayList<>();
+	for (int i = 0; i < times.length; i++) {
+		args.add("{");
+		args.add(Double.toString(times[i]));
+		args.add("s");
+		args.add(Double.toString(values[i]));
+		args.add("}");
+	}
+	InputAgent.applyArgs(ts, "Value", args.toArray(new String[args.size()]));
+	if (cycle < Double.POSITIVE_INFINITY)
+		InputAgent.applyArgs(ts, "CycleTime", Double.toString(cycle), "s");
+	ts.validate();
+	return ts;
+}
+
+/**
+ * Returns a random time series with whole second times, starting at zero.
+ */
+private static TimeSeries randomSeries(Random rand, double min, double max, boolean cyclic) {
+	int n = 2 + rand.nextInt(12);
+	double[] times = new double[n];
+	double[] values = new double[n];
+	for (int i = 0; i < n; i++) {
+		times[i] = i == 0 ? 0.0d : times[i - 1] + 1 + rand.nextInt(20);
+		values[i] = min + rand.nextInt((int)(max - min) + 1);
+	}
+	double cycle = Double.POSITIVE_INFINITY;
+	if (cyclic)
+		cycle = times[n - 1] + 1 + rand.nextInt(10);
+	return defineSeries(times, values, cycle);
+}
+
+private static TimeSeriesThreshold defineThreshold(TimeSeries ts, String max, String min,
+		double lookAhead, double offset) {
+	TimeSeriesThreshold thr = InputAgent.defineEntityWithUniqueName(TimeSeriesThreshold.class, "Threshold", "-", true);
+	InputAgent.applyArgs(thr, "UnitType", unitType.getName());
+	InputAgent.applyArgs(thr, "TimeSeries", ts.getName());
+	if (max != null)
+		InputAgent.applyArgs(thr, "MaxOpenLimit", max);
+	if (min != null)
+		InputAgent.applyArgs(thr, "MinOpenLimit", min);
+	InputAgent.applyArgs(thr, "LookAhead", Double.toString(lookAhead), "s");
+	InputAgent.applyArgs(thr, "Offset", Double.toString(offset), "s");
+	thr.validate();
+	return thr;
+}
+
+private static TimeSeriesProvider getProvider(String name, double def) {
+	if (name == null)
+		return new TimeSeriesConstantDouble(def);
+	Entity ent = Entity.getNamedEntity(name);
+	if (ent != null)
+		return (TimeSeriesProvider)ent;
+	return new TimeSeriesConstantDouble(Double.parseDouble(name));
+}
+
+/**
+ * Checks that the threshold gives the same results as the reference search at the
+ * given times, which are visited in increasing order as in a simulation run.
+ */
+private static void assertSame(TimeSeriesThreshold thr, Reference ref, ArrayList<Long> times) {
+	Collections.sort(times);
+	long last = -1;
+	for (long t : times) {
+		if (t < 0 || t == last)
+			continue;
+		last = t;
+		String msg = thr.getName() + " at " + t;
+		assertEquals(msg, ref.isOpenAtTicks(t), thr.isOpenAtTicks(t));
+		assertEquals(msg, ref.calcOpenTicksFromTicks(t), thr.calcOpenTicksFromTicks(t));
+		assertEquals(msg, ref.calcClosedTicksFromTicks(t), thr.calcClosedTicksFromTicks(t));
+	}
+}
+
+/**
+ * Returns the times of the changes in the reference's series up to the given time,
+ * with the times one tick either side of them.
+ */
+private static ArrayList<Long> getTestTimes(Reference ref, long endTicks, long shift) {
+	ArrayList<Long> ret = new ArrayList<>();
+	long t = 0;
+	while (t <= endTicks) {
+		for (long dt = -1; dt <= 1; dt++)
+			ret.add(t + dt - shift);
+		t = ref.getNextChangeAfterTicks(t);
+	}
+	return ret;
+}
+
+@Test
+public void testCycleEdges() {
+	defineUnits();
+
+	// A cyclic series that is open from 0 s to 3 s and from 6 s to the end of the 10 s
+	// cycle, so that the last open period continues into the next cycle
+	TimeSeries ts = defineSeries(new double[] { 0, 3, 6 }, new double[] { 1, 0, 1 }, 10);
+	long sec = FrameBox.secondsToTicks(1.0d);
+	for (double look : new double[] { 0, 1, 3, 4, 6, 7, 8 }) {
+		TimeSeriesThreshold thr = defineThreshold(ts, null, "1", look, 0);
+		Reference ref = new Reference(ts, getProvider(null, Double.POSITIVE_INFINITY),
+				getProvider("1", 0), FrameBox.secondsToTicks(look), 0);
+
+		ArrayList<Long> times = getTestTimes(ref, 40 * sec, 0);
+		for (int i = 0; i <= 4; i++)
+			times.add(i * 10 * sec);
+		assertSame(thr, ref, times);
+	}
+
+	// The open period is 7 s long when it spans the end of the cycle
+	TimeSeriesThreshold thr = defineThreshold(ts, null, "1", 0, 0);
+	assertEquals(7 * sec, thr.calcOpenTicksFromTicks(6 * sec));
+	assertEquals(6 * sec, thr.calcOpenTicksFromTicks(17 * sec));
+	assertEquals(3 * sec, thr.calcClosedTicksFromTicks(23 * sec));
+
+	// A lookahead longer than any open period keeps the threshold closed
+	thr = defineThreshold(ts, null, "1", 8, 0);
+	assertEquals(false, thr.isOpenAtTicks(6 * sec));
+	assertEquals(Long.MAX_VALUE, thr.calcClosedTicksFromTicks(6 * sec));
+}
+
+@Test
+public void testNonCyclic() {
+	defineUnits();
+
+	// The series is only open from 3 s to 6 s and is closed forever after its last change
+	TimeSeries ts = defineSeries(new double[] { 0, 3, 6 }, new double[] { 2, 0, 2 }, Double.POSITIVE_INFINITY);
+	TimeSeriesThreshold thr = defineThreshold(ts, "1", null, 2, 0);
+	long sec = FrameBox.secondsToTicks(1.0d);
+	assertEquals(false, thr.isOpenAtTicks(0));
+	assertEquals(3 * sec, thr.calcClosedTicksFromTicks(0));
+	assertEquals(true, thr.isOpenAtTicks(3 * sec));
+	assertEquals(sec + 1, thr.calcOpenTicksFromTicks(3 * sec));
+	assertEquals(false, thr.isOpenAtTicks(5 * sec));
+	assertEquals(Long.MAX_VALUE, thr.calcClosedTicksFromTicks(5 * sec));
+}
+
+@Test
+public void testRandom() {
+	defineUnits();
+	Random rand = new Random(7);
+	long sec = FrameBox.secondsToTicks(1.0d);
+	for (int n = 0; n < 60; n++) {
+		TimeSeries ts = randomSeries(rand, 0, 10, rand.nextBoolean());
+
+		// Constant limits, or limits that are time series themselves
+		String max = null;
+		String min = null;
+		switch (rand.nextInt(4)) {
+		case 0:
+			max = Integer.toString(3 + rand.nextInt(5));
+			break;
+		case 1:
+			min = Integer.toString(2 + rand.nextInt(5));
+			break;
+		case 2:
+			min = Integer.toString(1 + rand.nextInt(3));
+			max = Integer.toString(5 + rand.nextInt(4));
+			break;
+		default:
+			max = randomSeries(rand, 5, 9, rand.nextBoolean()).getName();
+			min = randomSeries(rand, 0, 4, rand.nextBoolean()).getName();
+			break;
+		}
+
+		double look = rand.nextInt(3) == 0 ? 0 : rand.nextInt(25);
+		double offset = rand.nextInt(3) == 0 ? 0 : rand.nextInt(15);
+		TimeSeriesThreshold thr = defineThreshold(ts, max, min, look, offset);
+		Reference ref = new Reference(ts, getProvider(max, Double.POSITIVE_INFINITY),
+				getProvider(min, Double.NEGATIVE_INFINITY),
+				FrameBox.secondsToTicks(look), FrameBox.secondsToTicks(offset));
+
+		// Times at and either side of the changes, shifted by the offset, and random times
+		long end = 500 * sec;
+		ArrayList<Long> times = getTestTimes(ref, end, FrameBox.secondsToTicks(offset));
+		for (int i = 0; i < 100; i++)
+			times.add((long)(rand.nextDouble() * end));
+		assertSame(thr, ref, times);
+	}
+}
+}
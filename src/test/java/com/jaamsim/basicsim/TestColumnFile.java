@@ -0,0 +1,167 @@
+/*
+ * JaamSim Discrete Event Simulation
+ * Copyright (C) 2015 Ausenco Engineering Canada Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ */
+package com.jaamsim.basicsim;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.jaamsim.BasicObjects.EntitySink;
+import com.jaamsim.input.InputAgent;
+
+public class TestColumnFile {
+
+@Test
+public void testReadWrite() throws IOException {
+	File file = File.createTempFile("TestColumnFile", ".clog");
+	file.deleteOnExit();
+
+	String[] names = { "SimTime", "State", "Value" };
+	String[] units = { "TimeUnit", "DimensionlessUnit", "Unit" };
+	String[] states = { "Idle", "Working", "Stopped" };
+	ColumnFile out = new ColumnFile(file.getPath(), names, units);
+
+	// Enough rows for several chunks, with a column that mixes numbers and strings
+	int n = 20000;
+	Random rand = new Random(1);
+	double[] values = new double[n];
+	for (int i = 0; i < n; i++) {
+		values[i] = rand.nextDouble();
+		out.put(i * 0.5d);
+		out.put(states[i % 3]);
+		if (i % 7 == 0 && i > n / 2)
+			out.put("None");
+		else
+			out.put(values[i]);
+
+		// A flush part way through must not change the contents
+		if (i == 1000)
+			out.flush();
+	}
+	out.close();
+
+	ColumnFile.Table table = ColumnFile.read(file);
+	assertEquals(n, table.numRows);
+	assertEquals("State", table.names[1]);
+	assertEquals("TimeUnit", table.unitTypes[0]);
+	for (int i = 0; i < n; i++) {
+		assertTrue(table.numbers[0][i] == i * 0.5d);
+		assertNull(table.strings[0][i]);
+		assertEquals(states[i % 3], table.strings[1][i]);
+		if (i % 7 == 0 && i > n / 2) {
+			assertEquals("None", table.strings[2][i]);
+		}
+		else {
+			assertNull(table.strings[2][i]);
+			assertTrue(table.numbers[2][i] == values[i]);
+		}
+	}
+}
+
+@Test
+public void testLeadingValue() throws IOException {
+	File file = File.createTempFile("TestColumnFile", ".clog");
+	file.deleteOnExit();
+
+	ColumnFile out = new ColumnFile(file.getPath(), new String[] { "SimTime", "Name" },
+			new String[] { "TimeUnit", "DimensionlessUnit" });
+	out.setLeadingValue(5.0d);
+	out.put("A");
+	out.put("B");
+	out.clearLeadingValue();
+	out.put(6.0d);
+	out.put("C");
+	out.flush();
+
+	// A file that has not been closed is read up to the last chunk written
+	ColumnFile.Table table = ColumnFile.read(file);
+	assertEquals(3, table.numRows);
+	assertTrue(table.numbers[0][1] == 5.0d);
+	assertEquals("B", table.strings[1][1]);
+	assertTrue(table.numbers[0][2] == 6.0d);
+	assertEquals("C", table.strings[1][2]);
+	out.close();
+}
+
+@Test
+public void testPartialRow() throws IOException {
+	File file = File.createTempFile("TestColumnFile", ".clog");
+	file.deleteOnExit();
+
+	ColumnFile out = new ColumnFile(file.getPath(), new String[] { "SimTime", "Name", "Value" },
+			new String[] { "TimeUnit", "DimensionlessUnit", "DimensionlessUnit" });
+	out.put(1.0d);
+	out.put("A");
+	out.put(10.0d);
+	out.put(2.0d);
+	out.put("B");
+
+	// A flush part way through a row writes only the complete rows
+	out.flush();
+	ColumnFile.Table table = ColumnFile.read(file);
+	assertEquals(1, table.numRows);
+	assertEquals("A", table.strings[1][0]);
+
+	out.put("C");
+	out.put(3.0d);
+	out.put("D");
+	out.put(30.0d);
+	out.close();
+
+	table = ColumnFile.read(file);
+	assertEquals(3, table.numRows);
+	assertTrue(table.numbers[0][1] == 2.0d);
+	assertEquals("B", table.strings[1][1]);
+	assertEquals("C", table.strings[2][1]);
+	assertTrue(table.numbers[0][2] == 3.0d);
+	assertEquals("D", table.strings[1][2]);
+	assertNull(table.strings[2][2]);
+	assertTrue(table.numbers[2][2] == 30.0d);
+}
+
+@Test
+public void testReport() throws IOException {
+	File file = File.createTempFile("TestColumnFile", ".crep");
+	file.deleteOnExit();
+
+	// Each report entry is a complete row, with its unit type in the UnitType column
+	EntitySink ent = InputAgent.defineEntityWithUniqueName(EntitySink.class, "Sink", "-", true);
+	ColumnFile out = new ColumnFile(file.getPath(), ColumnReportWriter.COLUMNS, ColumnReportWriter.UNIT_TYPES);
+	ColumnReportWriter rep = new ColumnReportWriter(out);
+	ent.printReport(rep, 0.0d);
+	rep.putStateTime(ent.getName(), "Idle", 2000L);
+	rep.endGroup();
+	out.close();
+
+	ColumnFile.Table table = ColumnFile.read(file);
+	assertEquals("Unit", table.unitTypes[3]);
+	assertTrue(table.numRows > 1);
+	for (int i = 0; i < table.numRows; i++) {
+		assertEquals(ent.getName(), table.strings[0][i]);
+		assertTrue(table.strings[2][i].endsWith("Unit"));
+	}
+
+	int last = table.numRows - 1;
+	assertEquals("StateTime[Idle]", table.strings[1][last]);
+	assertEquals("TimeUnit", table.strings[2][last]);
+	assertEquals(2000L * Simulation.getTickLength(), table.numbers[3][last], 0.0d);
+}
+}
@@ -0,0 +1,105 @@
+/*
+ * JaamSim Discrete Event Simulation
+ * Copyright (C) 2015 Ausenco Engineering Canada Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ */
+package com.jaamsim.basicsim;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.jaamsim.BasicObjects.EntitySink;
+import com.jaamsim.input.InputAgent;
+
+public class TestLogWriter {
+
+@Test
+public void testText() throws IOException {
+	File file = File.createTempFile("TestLogWriter", ".log");
+	file.deleteOnExit();
+
+	// Write enough values to fill several chunks
+	LogWriter log = new LogWriter(file.getPath());
+	StringBuilder expected = new StringBuilder();
+	Random rand = new Random(1);
+	for (int i = 0; i < 20000; i++) {
+		double t = i * 0.1d;
+		double val = rand.nextGaussian() * 1.0e6;
+		log.newLine();
+		log.put(t);
+		log.put("\tItem");
+		log.put(val);
+		log.put("\t");
+		log.putFixed(val);
+		expected.append(String.format("%n%s\tItem%s\t%f", t, val, val));
+	}
+	log.flush();
+	assertEquals(expected.toString(), readFile(file));
+
+	// Values written after a flush are appended
+	log.newLine();
+	log.put("End");
+	log.close();
+	expected.append(String.format("%n%s", "End"));
+	assertEquals(expected.toString(), readFile(file));
+}
+
+@Test
+public void testFlushAll() throws IOException {
+	File file = File.createTempFile("TestLogWriter", ".log");
+	file.deleteOnExit();
+
+	// The values are written when the open files are flushed, as when the run is paused
+	LogWriter log = new LogWriter(file.getPath());
+	log.put("Paused");
+	log.put(1.5d);
+	OutputFiles.flushAll();
+	assertEquals("Paused1.5", readFile(file));
+
+	// A closed file is no longer flushed
+	log.close();
+	OutputFiles.flushAll();
+}
+
+@Test
+public void testReport() throws IOException {
+	File file = File.createTempFile("TestLogWriter", ".log");
+	file.deleteOnExit();
+
+	// The report entry is the same in a log file and in the text report
+	EntitySink ent = InputAgent.defineEntityWithUniqueName(EntitySink.class, "Sink", "-", true);
+	LogWriter log = new LogWriter(file.getPath());
+	ent.printReport(new TextReportWriter(log), 0.0d);
+	log.close();
+
+	StringWriter str = new StringWriter();
+	FileEntity rep = new FileEntity(str);
+	ent.printReport(new TextReportWriter(rep), 0.0d);
+	rep.close();
+	assertTrue(str.toString().startsWith(ent.getName() + "\tOutput["));
+	assertEquals(str.toString(), readFile(file));
+}
+
+private static String readFile(File file) throws IOException {
+	byte[] bytes = Files.readAllBytes(file.toPath());
+	return new String(bytes, Charset.defaultCharset());
+}
+}
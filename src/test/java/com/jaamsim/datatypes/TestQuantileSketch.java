@@ -0,0 +1,102 @@
+/*
+ * JaamSim Discrete Event Simulation
+ * Copyright (C) 2015 Ausenco Engineering Canada Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ */
+package com.jaamsim.datatypes;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class TestQuantileSketch {
+
+private static void assertQuantile(double[] sorted, QuantileSketch sketch, double q) {
+	double exact = sorted[(int)(q * (sorted.length - 1))];
+	double est = sketch.getQuantile(q);
+	assertTrue(Math.abs(est - exact) <= QuantileSketch.RELATIVE_ACCURACY * Math.abs(exact) + 1.0e-12);
+}
+
+@Test
+public void testAccuracy() {
+	Random rand = new Random(1);
+	int n = 100000;
+	double[] vals = new double[n];
+	QuantileSketch sketch = new QuantileSketch();
+	for (int i = 0; i < n; i++) {
+		// Exponential values with some zeros and negative values
+		vals[i] = -Math.log(rand.nextDouble());
+		if (i % 10 == 0)
+			vals[i] = 0.0d;
+		else if (i % 10 == 1)
+			vals[i] = -vals[i];
+		sketch.add(vals[i]);
+	}
+	Arrays.sort(vals);
+
+	assertEquals(n, sketch.getCount());
+	assertEquals(vals[0], sketch.getMinimum(), 0.0d);
+	assertEquals(vals[n - 1], sketch.getMaximum(), 0.0d);
+	assertEquals(vals[0], sketch.getQuantile(0.0d), 0.0d);
+	assertEquals(vals[n - 1], sketch.getQuantile(1.0d), 0.0d);
+	for (double q : new double[] { 0.01d, 0.05d, 0.1d, 0.15d, 0.5d, 0.95d, 0.99d, 0.999d })
+		assertQuantile(vals, sketch, q);
+}
+
+@Test
+public void testMerge() {
+	Random rand = new Random(2);
+	QuantileSketch all = new QuantileSketch();
+	QuantileSketch part1 = new QuantileSketch();
+	QuantileSketch part2 = new QuantileSketch();
+	for (int i = 0; i < 50000; i++) {
+		double val = Math.exp(10.0d * rand.nextGaussian());
+		all.add(val);
+		if (i % 3 == 0)
+			part1.add(val);
+		else
+			part2.add(val);
+	}
+	part1.merge(part2);
+
+	assertEquals(all.getCount(), part1.getCount());
+	for (double q = 0.0d; q <= 1.0d; q += 0.01d)
+		assertEquals(all.getQuantile(q), part1.getQuantile(q), 0.0d);
+}
+
+@Test
+public void testRange() {
+	// Values covering more magnitudes than the bins can hold are combined at the low end
+	QuantileSketch sketch = new QuantileSketch();
+	for (int i = -100; i <= 100; i++)
+		sketch.add(Math.pow(10.0d, i));
+	double[] vals = new double[201];
+	for (int i = 0; i < 201; i++)
+		vals[i] = Math.pow(10.0d, i - 100);
+	assertQuantile(vals, sketch, 0.95d);
+	assertQuantile(vals, sketch, 0.99d);
+	assertEquals(1.0e-100, sketch.getQuantile(0.0d), 0.0d);
+	double low = sketch.getQuantile(0.01d);
+	assertEquals(low, sketch.getQuantile(0.5d), 0.0d);
+	assertTrue(low > 1.0e80 && low < 1.0e84);
+
+	sketch.clear();
+	assertEquals(0, sketch.getCount());
+	assertTrue(Double.isNaN(sketch.getQuantile(0.5d)));
+	sketch.add(3.0d);
+	assertEquals(3.0d, sketch.getQuantile(0.5d), 0.0d);
+}
+}
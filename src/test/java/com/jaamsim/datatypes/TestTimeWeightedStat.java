@@ -0,0 +1,108 @@
+/*
+ * JaamSim Discrete Event Simulation
+ * Copyright (C) 2015 Ausenco Engineering Canada Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ */
+package com.jaamsim.datatypes;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+public class TestTimeWeightedStat {
+
+@Test
+public void testStatistics() {
+	TimeWeightedStat stat = new TimeWeightedStat();
+	stat.clear(10.0d, 1);
+	stat.update(12.0d, 3);  // value 1 for 2 s
+	stat.update(13.0d, 0);  // value 3 for 1 s
+	stat.update(13.0d, 2);  // no time at value 0
+
+	// Value 2 for the last 2 s
+	double t = 15.0d;
+	assertEquals(5.0d, stat.getTotalTime(t), 0.0d);
+	assertEquals(9.0d, stat.getIntegral(t), 1.0e-12);
+	assertEquals(9.0d / 5.0d, stat.getAverage(t), 1.0e-12);
+	double meanSq = (2.0d + 9.0d + 8.0d) / 5.0d;
+	assertEquals(Math.sqrt(meanSq - 1.8d * 1.8d), stat.getStandardDeviation(t), 1.0e-12);
+	assertEquals(0, stat.getMinimum());
+	assertEquals(3, stat.getMaximum());
+	assertEquals(0.0d, stat.getTimeAtValue(0), 0.0d);
+	assertEquals(2.0d, stat.getTimeAtValue(1), 0.0d);
+	assertEquals(0.0d, stat.getTimeAtValue(2), 0.0d);
+
+	DoubleVector dist = stat.getDistribution(t);
+	assertEquals(4, dist.size());
+	assertEquals(0.0d, dist.get(0), 0.0d);
+	assertEquals(0.4d, dist.get(1), 1.0e-12);
+	assertEquals(0.4d, dist.get(2), 1.0e-12);
+	assertEquals(0.2d, dist.get(3), 1.0e-12);
+
+	// Clearing with a non-zero value
+	stat.clear(t, 2);
+	assertEquals(0.0d, stat.getAverage(t), 0.0d);
+	assertEquals(2.0d, stat.getAverage(t + 1.0d), 0.0d);
+	dist = stat.getDistribution(t + 1.0d);
+	assertEquals(3, dist.size());
+	assertEquals(1.0d, dist.get(2), 0.0d);
+}
+
+@Test
+public void testClearThenDecrease() {
+	TimeWeightedStat stat = new TimeWeightedStat();
+	stat.clear(10.0d, 5);
+	stat.update(20.0d, 4);  // value 5 for 10 s
+	stat.update(30.0d, 4);  // value 4 for 10 s
+
+	assertEquals(10.0d, stat.getTimeAtValue(5), 0.0d);
+	assertEquals(10.0d, stat.getTimeAtValue(4), 0.0d);
+	assertEquals(4.5d, stat.getAverage(30.0d), 1.0e-12);
+	DoubleVector dist = stat.getDistribution(30.0d);
+	assertEquals(6, dist.size());
+	assertEquals(0.5d, dist.get(4), 1.0e-12);
+	assertEquals(0.5d, dist.get(5), 1.0e-12);
+
+	// Clearing with a value beyond the present array
+	stat.clear(30.0d, 20);
+	stat.update(31.0d, 0);
+	assertEquals(1.0d, stat.getTimeAtValue(20), 0.0d);
+	assertEquals(0.0d, stat.getTimeAtValue(5), 0.0d);
+}
+
+@Test
+public void testConfidenceInterval() {
+	assertEquals(1.96d, TimeWeightedStat.getNormalQuantile(0.975d), 1.0e-3);
+	assertEquals(2.042d, TimeWeightedStat.getStudentT(0.975d, 30), 2.0e-3);
+
+	// Values held for exponential times, so the time-average is 4.5
+	Random rand = new Random(1);
+	TimeWeightedStat stat = new TimeWeightedStat();
+	stat.clear(0.0d, 0);
+	double t = 0.0d;
+	for (int i = 0; i < 200000; i++) {
+		t += -Math.log(rand.nextDouble());
+		stat.update(t, rand.nextInt(10));
+	}
+	TimeWeightedStat single = new TimeWeightedStat();
+	single.clear(0.0d, 0);
+	single.update(1.0d, 1);
+	single.update(1.5d, 2);
+	assertEquals(Double.POSITIVE_INFINITY, single.getConfidenceHalfWidth(0.95d), 0.0d);
+	double hw = stat.getConfidenceHalfWidth(0.95d);
+	assertTrue(hw > 0.0d && hw < 0.05d);
+	assertTrue(Math.abs(stat.getAverage(t) - 4.5d) < 3.0d * hw);
+}
+}
@@ -17,6 +17,7 @@ package com.jaamsim.input;
 import static org.junit.Assert.assertTrue;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 
 import org.junit.Test;
 
@@ -361,6 +362,13 @@ public class TestExpParser {
 		exp = ExpParser.parseExpression(pc, "this.stuff");
 		val = exp.evaluate(tec).value;
 		assertTrue(val == 42);
+
+		exp = ExpParser.parseExpression(pc, "1==[foo].bonk ? this.stuff : max([foo].bar.baz, 2)");
+		ArrayList<String[]> names = exp.getVariableNames();
+		assertTrue(names.size() == 3);
+		assertTrue(Arrays.equals(names.get(0), new String[] { "foo", "bonk" }));
+		assertTrue(Arrays.equals(names.get(1), new String[] { "this", "stuff" }));
+		assertTrue(Arrays.equals(names.get(2), new String[] { "foo", "bar", "baz" }));
 	}
 
 	@Test
@@ -503,4 +511,30 @@ public class TestExpParser {
 		assertTrue(assign.value.evaluate(ec).value == 42);
 
 	}
+
+	@Test
+	public void testBatchEvaluate() throws ExpError {
+
+		class EC implements ExpParser.BatchEvalContext {
+			private int index;
+			@Override
+			public ExpResult getVariableValue(String[] name) {
+				return new ExpResult(index, DimensionlessUnit.class);
+			}
+			@Override
+			public boolean eagerEval() { return false; }
+			@Override
+			public void setIndex(int i) { index = i; }
+		}
+		EC ec = new EC();
+
+		ExpParser.Expression exp = ExpParser.parseExpression(pc, "this.foo * 2 + 1");
+		double[] out = new double[5];
+		Class<? extends Unit> ut = exp.evaluate(ec, out);
+
+		assertTrue(ut == DimensionlessUnit.class);
+		for (int i = 0; i < out.length; i++) {
+			assertTrue(out[i] == i * 2 + 1);
+		}
+	}
 }
@@ -97,4 +97,42 @@ public void testQuoted() {
 	assertFalse(Parser.isQuoted("'"));
 	assertFalse(Parser.isQuoted("'' "));
 }
+
+@Test
+public void testTokenizeBuffer() {
+	String[] recs = {
+		"A A,A\tA  A,,A\t\tA ,\tA",
+		"OBJECT KEYWORD{ 'ARG  '}KEYWORD\t{ARG' ARG',}",
+		"OBJECT KEYWORD{ ARG }\"FOO ,\t     ",
+		"'OBJECT''KEYWORD''   ",
+	};
+	for (String rec : recs) {
+		ArrayList<String> expected = new ArrayList<>();
+		Parser.tokenize(expected, rec, true);
+
+		TokenList tok = new TokenList(rec);
+		Parser.tokenize(tok, rec, 0, rec.length());
+		assertTrue(tok.equals(expected));
+	}
+}
+
+@Test
+public void testParseDouble() {
+	String[] nums = { "0", "-0", "1", "+1", "1.", ".5", "-12.375", "0.000123", "123456789012345",
+	                  "1234567890123456789", "3.14159265358979323846", "1e5", "2.5E-7", "1e300",
+	                  "4.9e-324", "1e-400", "1d", "Infinity", "0x1p3", "9007199254740993" };
+	for (String num : nums) {
+		String buf = "{ " + num + " }";
+		assertTrue(Parser.parseDouble(buf, 2, 2 + num.length()) == Double.parseDouble(num));
+	}
+
+	String[] bad = { "", "-", ".", "1e", "1.2.3", "abc" };
+	for (String num : bad) {
+		try {
+			Parser.parseDouble(num, 0, num.length());
+			assertTrue(false);
+		}
+		catch (NumberFormatException e) {}
+	}
+}
 }
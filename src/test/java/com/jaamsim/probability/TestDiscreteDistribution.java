@@ -14,13 +14,21 @@
  */
 package com.jaamsim.probability;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
+import java.util.Arrays;
+
 import org.junit.Test;
 
 import com.jaamsim.ProbabilityDistributions.DiscreteDistribution;
+import com.jaamsim.ProbabilityDistributions.Distribution;
 import com.jaamsim.basicsim.ObjectType;
+import com.jaamsim.events.EventManager;
+import com.jaamsim.events.ProcessTarget;
+import com.jaamsim.events.TestFrameworkHelpers;
 import com.jaamsim.input.InputAgent;
+import com.jaamsim.rng.MRG1999a;
 
 public class TestDiscreteDistribution {
 
@@ -45,4 +53,83 @@ public class TestDiscreteDistribution {
 		assertTrue( Math.abs( dist.getSampleMean(0.0) / dist.getMeanValue(0.0) - 1.0 ) < 0.001 );
 		assertTrue( Math.abs( dist.getSampleStandardDeviation(0.0) / dist.getStandardDeviation(0.0) - 1.0 ) < 0.001 );
 	}
+
+	@Test
+	public void FillSamples() {
+		ObjectType t = InputAgent.defineEntityWithUniqueName(ObjectType.class, "TestType", "-", true);
+		InputAgent.applyArgs(t, "JavaClass", "com.jaamsim.units.DimensionlessUnit");
+
+		// Include a zero probability and many small probabilities to exercise the guide table
+		String[] vals = new String[40];
+		String[] probs = new String[40];
+		double[] cum = new double[40];
+		double total = 0.0d;
+		for (int i = 0; i < 40; i++) {
+			vals[i] = String.valueOf(i);
+			probs[i] = i == 3 ? "0.0" : (i < 20 ? "0.005" : "0.04525");
+			total += Double.parseDouble(probs[i]);
+			cum[i] = total;
+		}
+		cum[39] = 1.0d;
+
+		DiscreteDistribution dist1 = InputAgent.defineEntityWithUniqueName(DiscreteDistribution.class, "Dist", "-", true);
+		DiscreteDistribution dist2 = InputAgent.defineEntityWithUniqueName(DiscreteDistribution.class, "Dist", "-", true);
+		for (DiscreteDistribution dist : new DiscreteDistribution[] { dist1, dist2 }) {
+			InputAgent.applyArgs(dist, "UnitType", t.getName());
+			InputAgent.applyArgs(dist, "ValueList", vals);
+			InputAgent.applyArgs(dist, "ProbabilityList", probs);
+			InputAgent.applyArgs(dist, "RandomSeed", "1");
+			InputAgent.applyArgs(dist, "MaxValue", "35.5");
+			dist.validate();
+			dist.earlyInit();
+		}
+
+		final int numSamples = 100000;
+		final double[] single = new double[numSamples];
+		final double[] bulk = new double[numSamples];
+		sample(dist1, single, false);
+		sample(dist2, bulk, true);
+		assertTrue(Arrays.equals(single, bulk));
+		assertEquals(dist1.getNumberOfSamples(0.0d), dist2.getNumberOfSamples(0.0d));
+		assertEquals(dist1.getSampleMean(0.0d), dist2.getSampleMean(0.0d), 0.0d);
+		assertEquals(dist1.getSampleStandardDeviation(0.0d), dist2.getSampleStandardDeviation(0.0d), 0.0d);
+		assertEquals(dist1.getSampleMax(0.0d), dist2.getSampleMax(0.0d), 0.0d);
+		assertEquals(dist1.getSampleCount(0.0d).toString(), dist2.getSampleCount(0.0d).toString());
+
+		// The samples match a binary search of the cumulative probabilities
+		MRG1999a rng = new MRG1999a();
+		rng.setSeedStream(1, Distribution.getSubstreamNumber());
+		for (int i = 0; i < numSamples; i++) {
+			int k;
+			do {
+				k = Arrays.binarySearch(cum, rng.nextUniform());
+				if (k < 0)
+					k = -k - 1;
+			}
+			while (k > 35);
+			assertEquals(k, single[i], 0.0d);
+		}
+	}
+
+	private static void sample(final Distribution dist, final double[] out, final boolean bulk) {
+		EventManager evt = new EventManager("DistibutionUnitTest");
+		evt.clear();
+		evt.scheduleProcessExternal(0, 0, false, new ProcessTarget() {
+			@Override
+			public String getDescription() {
+				return "DistibutionUnitTest";
+			}
+
+			@Override
+			public void process() {
+				if (bulk) {
+					dist.fillSamples(out, out.length);
+					return;
+				}
+				for (int i = 0; i < out.length; i++)
+					out[i] = dist.getNextSample(0.0d);
+			}
+		}, null);
+		TestFrameworkHelpers.runEventsToTick(evt, Long.MAX_VALUE, 100000000);
+	}
 }
@@ -14,12 +14,17 @@
  */
 package com.jaamsim.probability;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
 import org.junit.Test;
 
 import com.jaamsim.ProbabilityDistributions.UniformDistribution;
 import com.jaamsim.basicsim.ObjectType;
+import com.jaamsim.basicsim.Simulation;
+import com.jaamsim.events.EventManager;
+import com.jaamsim.events.ProcessTarget;
+import com.jaamsim.events.TestFrameworkHelpers;
 import com.jaamsim.input.InputAgent;
 
 public class TestUniformDistribution {
@@ -45,4 +50,55 @@ public class TestUniformDistribution {
 		assertTrue( Math.abs( dist.getSampleMean(0.0) / dist.getMeanValue(0.0) - 1.0 ) < 0.001 );
 		assertTrue( Math.abs( dist.getSampleStandardDeviation(0.0) / dist.getStandardDeviation(0.0) - 1.0 ) < 0.001 );
 	}
+
+	private static double[] getSamples(final UniformDistribution dist, int numSamples) {
+		final double[] ret = new double[numSamples];
+		EventManager evt = new EventManager("DistibutionUnitTest");
+		evt.clear();
+		evt.scheduleProcessExternal(0, 0, false, new ProcessTarget() {
+			@Override
+			public String getDescription() {
+				return "DistibutionUnitTest";
+			}
+
+			@Override
+			public void process() {
+				for (int i = 0; i < ret.length; i++)
+					ret[i] = dist.getNextSample(0.0d);
+			}
+		}, null);
+		TestFrameworkHelpers.runEventsToTick(evt, Long.MAX_VALUE, 100000000);
+		return ret;
+	}
+
+	@Test
+	public void AntitheticVariates() {
+		ObjectType t = InputAgent.defineEntityWithUniqueName(ObjectType.class, "TestType", "-", true);
+		InputAgent.applyArgs(t, "JavaClass", "com.jaamsim.units.DimensionlessUnit");
+		Simulation sim = InputAgent.defineEntityWithUniqueName(Simulation.class, "Simulation", "-", true);
+
+		UniformDistribution dist = InputAgent.defineEntityWithUniqueName(UniformDistribution.class, "Dist", "-", true);
+		InputAgent.applyArgs(dist, "UnitType", t.getName());
+		InputAgent.applyArgs(dist, "RandomSeed", "3");
+		dist.validate();
+		dist.earlyInit();
+		double[] samples = getSamples(dist, 1000);
+
+		// The Simulation input reaches the random generator of the distribution when it is initialised
+		try {
+			InputAgent.applyArgs(sim, "AntitheticVariates", "TRUE");
+			dist.earlyInit();
+			double[] antithetic = getSamples(dist, 1000);
+			for (int i = 0; i < samples.length; i++)
+				assertEquals(1.0d - samples[i], antithetic[i], 1.0e-15d);
+		}
+		finally {
+			InputAgent.applyArgs(sim, "AntitheticVariates", "FALSE");
+		}
+
+		dist.earlyInit();
+		double[] repeat = getSamples(dist, 1000);
+		for (int i = 0; i < samples.length; i++)
+			assertEquals(samples[i], repeat[i], 0.0d);
+	}
 }
@@ -196,4 +196,69 @@ public class TestMRG1999a {
 
 		assertTrue(test1.toString().equals(test2.toString()));
 	}
+
+	@Test
+	public void testJumpAhead() {
+		// streams and substreams beyond the old seed cache, reached one step at a time
+		long[] seeds = { 12345, 12345, 12345, 12345, 12345, 12345 };
+		for (int i = 0; i < 123457; i++) {
+			MRG1999a.advanceStream(seeds);
+		}
+		for (int i = 0; i < 1025; i++) {
+			MRG1999a.advanceSubstream(seeds);
+		}
+		MRG1999a test1 = new MRG1999a(123457, 1025);
+		MRG1999a test2 = new MRG1999a(seeds[0], seeds[1], seeds[2], seeds[3], seeds[4], seeds[5]);
+
+		assertTrue(test1.toString().equals(test2.toString()));
+	}
+
+	@Test
+	public void testNextUniforms() {
+		MRG1999a test1 = new MRG1999a(7, 3);
+		MRG1999a test2 = new MRG1999a(7, 3);
+		double[] vals = new double[100000];
+		test2.nextUniforms(vals);
+		for (int i = 0; i < vals.length; i++) {
+			assertTrue(test1.nextUniform() == vals[i]);
+		}
+		assertTrue(test1.toString().equals(test2.toString()));
+
+		// largest seeds give the largest products in the modular reduction
+		test1 = new MRG1999a(0, 4294967086l, 4294967086l, 0, 4294944442l, 4294944442l);
+		String[] known = {
+		"0, 4294967086, 4294967086, 0, 4294944442, 4294944442",
+		"4294967086, 4294967086, 4293563507, 4294944442, 4294944442, 4294416831",
+		"4294967086, 4293563507, 4294374235, 4294944442, 4294416831, 798336840"
+		};
+		assertTrue(test1.toString().equals(known[0]));
+		for (int i = 1; i < known.length; i++) {
+			test1.nextUniform();
+			assertTrue(test1.toString().equals(known[i]));
+		}
+	}
+
+	@Test
+	public void testAntithetic() {
+		MRG1999a test1 = new MRG1999a(5, 2);
+		MRG1999a test2 = new MRG1999a(5, 2);
+		test2.setAntithetic(true);
+		double[] vals = new double[1000];
+		for (int i = 0; i < 1000; i++) {
+			double u = test1.nextUniform();
+			double v = test2.nextUniform();
+			assertTrue(v == 1.0d - u);
+			assertTrue(v > 0.0d && v < 1.0d);
+			vals[i] = u;
+		}
+		assertTrue(test1.toString().equals(test2.toString()));
+
+		double[] bulk = new double[1000];
+		test1 = new MRG1999a(5, 2);
+		test1.setAntithetic(true);
+		test1.nextUniforms(bulk);
+		for (int i = 0; i < 1000; i++) {
+			assertTrue(bulk[i] == 1.0d - vals[i]);
+		}
+	}
 }
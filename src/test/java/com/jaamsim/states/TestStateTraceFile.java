@@ -0,0 +1,80 @@
+/*
+ * JaamSim Discrete Event Simulation
+ * Copyright (C) 2015 Ausenco Engineering Canada Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ */
+package com.jaamsim.states;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class TestStateTraceFile {
+
+@Test
+public void testConvert() throws IOException {
+	File file = File.createTempFile("TestStateTraceFile", ".strc");
+	file.deleteOnExit();
+
+	double ticksPerHour = 3.6e9;
+	StateRecord[] states = new StateRecord[3];
+	states[0] = new StateRecord("Idle", 0, false);
+	states[1] = new StateRecord("Working", 5, true);
+	states[2] = new StateRecord("Stopped", 2, false);
+
+	// Record enough state changes to fill several chunks
+	StateTraceFile trace = new StateTraceFile(file.getPath(), ticksPerHour);
+	int[] ids = { trace.addEntity("Ent1"), trace.addEntity("Ent2") };
+	StateRecord[] present = { states[0], states[0] };
+	StringBuilder[] expected = { new StringBuilder(), new StringBuilder() };
+	Random rand = new Random(1);
+	long tick = 0;
+	for (int i = 0; i < 20000; i++) {
+		tick += rand.nextInt(1000000);
+		int ent = rand.nextInt(2);
+		StateRecord prev = present[ent];
+		StateRecord next = states[(prev.index == 0 ? 1 : 0) + rand.nextInt(2)];
+		if (next == prev)
+			continue;
+
+		trace.put(ids[ent], prev, next, tick);
+		expected[ent].append(String.format("%.5f  %s.setState( \"%s\" ) dt = %g\n",
+		                                   prev.getStartTick() / ticksPerHour, "Ent" + (ent + 1),
+		                                   prev.name, (tick - prev.getStartTick()) / ticksPerHour));
+		next.startTick = tick;
+		present[ent] = next;
+	}
+	trace.close();
+
+	ArrayList<File> logs = StateTraceFile.convert(file);
+	assertEquals(2, logs.size());
+	for (int i = 0; i < 2; i++) {
+		File log = logs.get(i);
+		log.deleteOnExit();
+		String base = file.getPath().substring(0, file.getPath().length() - 5);
+		assertEquals(base + "-Ent" + (i + 1) + ".trc", log.getPath());
+		assertEquals(expected[i].toString(), readFile(log));
+	}
+}
+
+private static String readFile(File file) throws IOException {
+	byte[] bytes = Files.readAllBytes(file.toPath());
+	return new String(bytes, Charset.defaultCharset());
+}
+}